@@ -14,7 +14,8 @@ parser.add_argument('--redeploy', '-r', action='store_true', help='if specified,
                                                                   'build as a docker image')
 parser.add_argument('--workers', '-w', type=int, required=True, help='number of concurrently '
                                                                      'running workers')
-parser.add_argument('--benchmark', '-b', type=str, help='type of benchmark to run')
+parser.add_argument('--benchmark', '-b', type=str, help='type of benchmark to run, or a comma '
+                                                         'separated list of types to run together')
 parser.add_argument('--job', '-j', action='store_true', help='if specified, will keep running '
                                                              'till fail')
 parser.add_argument('--delete', '-d', action='store_true', help='if specified, will clean up '
@@ -25,6 +26,9 @@ redeploy = args.redeploy
 is_job = args.job
 delete = args.delete
 benchmark = args.benchmark
+# Each benchmark is initialized from its own file if there is one, and from init.csv otherwise
+init_files = ",".join(f"init-{b}.csv" if os.path.isfile(f"init-{b}.csv") else "init.csv"
+                      for b in (benchmark or "").split(","))
 projectId = args.project
 instanceId = args.instance
 databaseId = args.database
@@ -44,11 +48,11 @@ def deploy():
 def run():
     # Run the set up:
     # 1. create the testing and history tables
-    # 2. insert the initial key value pairs in init.csv
+    # 2. insert the initial key value pairs of each benchmark
     os.system(
         "java -jar ./build/libs/Jepsen-on-spanner-1.0-SNAPSHOT-all.jar --project " +
         projectId + " --instance " + instanceId + " --database " + databaseId + " --component " +
-        "INIT --pID 0 --initial-values init.csv")
+        "INIT --pID 0 --initial-values " + init_files + " --benchmark-type " + benchmark)
 
     # Generate YAML deployment files from template and deploy to kubernetes
     os.system("mkdir ./jobs")
@@ -56,7 +60,8 @@ def run():
         os.system(
             f"cat deployment.yaml | sed \"s/\\$PID/{i}/\" | sed \"s/\\$BENCHMARK/{benchmark}/\" | "
             f"sed \"s/\\$PROJECT/{projectId}/\" | sed \"s/\\$INSTANCE/{instanceId}/\" | sed "
-            f"\"s/\\$DATABASE/{databaseId}/\" > ./jobs/job-{i}.yaml")
+            f"\"s/\\$DATABASE/{databaseId}/\" | sed \"s/\\$WORKERS/{worker_num}/\" > "
+            f"./jobs/job-{i}.yaml")
     os.system("kubectl create -f ./jobs")
 
     # Poll for status of the pods and start verifier only when all workers finish
@@ -79,8 +84,8 @@ def run():
     output = subprocess.run(
         ["java", "-jar", "./build/libs/Jepsen-on-spanner-1.0-SNAPSHOT-all.jar", "--project",
          projectId, "--instance", instanceId, "--database", databaseId, "--component",
-         "VERIFIER", "--pID", "0", "--initial-values", "init.csv", "--benchmark-type",
-         benchmark],
+         "VERIFIER", "--pID", "0", "--initial-values", init_files, "--config-file",
+         "test-config.json", "--benchmark-type", benchmark],
         stdout=subprocess.PIPE).stdout.decode("utf-8")
     print(output)
 
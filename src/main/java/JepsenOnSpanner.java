@@ -4,26 +4,40 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.google.jepsenonspanner.client.Executor;
 import com.google.jepsenonspanner.loadgenerator.LoadGenerator;
-import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.loadgenerator.OperationTape;
+import com.google.jepsenonspanner.loadgenerator.TapeLoadGenerator;
+import com.google.jepsenonspanner.loadgenerator.WorkloadRunner;
+import com.google.jepsenonspanner.verifier.LedgerVerifier;
 import com.google.jepsenonspanner.verifier.Verifier;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.BANK_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.COUNTER_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.LINEARIZABILITY_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.LIST_APPEND_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SESSION_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SET_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.WRITE_SKEW_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.INVALID_TYPE_MSG;
 
 public class JepsenOnSpanner {
   private static final String PARSING_ERROR = "Error parsing history file";
-  private static final String HISTORY_PATH = "history.edn";
-  private static final String HISTORY_REAL_TIME_PATH = "history-real-time.edn";
   private static final String INIT = "INIT";
   private static final String WORKER = "WORKER";
   private static final String VERIFIER = "VERIFIER";
+  private static final String TAPE = "TAPE";
+  private static final String BENCHMARK_SEPARATOR = ",";
 
   @Parameter(names = {"--project", "-p"}, description = "Project ID", required = true)
   private String projectId;
@@ -41,19 +55,30 @@ public class JepsenOnSpanner {
   @Parameter(names = {"--pID"}, description = "Process ID", required = true)
   private int processId;
 
+  @Parameter(names = {"--workers", "-w"}, description = "Number of workers running at the same " +
+          "time; workers are numbered by their process IDs from 1 to this number")
+  private int workerCount = 1;
+
   @Parameter(names = {"--initial-values", "-iv"}, description = "Path to csv file containing " +
-          "initial state of the database; if not supplied, default to empty", validateWith =
-          IsCsv.class)
+          "initial state of the database; with several benchmarks, a comma separated list of " +
+          "one file per benchmark, in the same order; if not supplied, default to empty",
+          validateWith = IsCsv.class)
   private String initValuePath;
 
   @Parameter(names = {"--config-file", "-cf"}, description = "Path to json file containing config" +
           " for load generator", validateWith = IsJson.class)
   private String configPath;
 
-  @Parameter(names = {"--benchmark-type", "-bt"}, description = "Type of benchmark to run",
-          validateWith = ValidateBenchmarkType.class)
+  @Parameter(names = {"--benchmark-type", "-bt"}, description = "Type of benchmark to run; a " +
+          "comma separated list runs each benchmark on its own tables, with the workers split " +
+          "between them", validateWith = ValidateBenchmarkType.class)
   private String benchmarkType;
 
+  @Parameter(names = {"--tape", "-t"}, description = "Path to an operation tape; the TAPE " +
+          "component writes the loads of this process to it, and a worker replays it instead of " +
+          "generating loads")
+  private String tapePath;
+
   private static void validatePathEndsWith(String suffix, String name, String value) throws ParameterException {
     if (!value.endsWith(suffix)) {
       throw new ParameterException("Parameter " + name + " should be a " + suffix +
@@ -64,7 +89,9 @@ public class JepsenOnSpanner {
   public static class IsCsv implements IParameterValidator {
     @Override
     public void validate(String name, String value) throws ParameterException {
-      validatePathEndsWith(/*suffix=*/".csv", name, value);
+      for (String path : value.split(BENCHMARK_SEPARATOR)) {
+        validatePathEndsWith(/*suffix=*/".csv", name, path);
+      }
     }
   }
 
@@ -81,7 +108,8 @@ public class JepsenOnSpanner {
   public static class ValidateComponent implements IParameterValidator {
     @Override
     public void validate(String name, String value) throws ParameterException {
-      if (!value.equals(INIT) && !value.equals(WORKER) && !value.equals(VERIFIER)) {
+      if (!value.equals(INIT) && !value.equals(WORKER) && !value.equals(VERIFIER) &&
+              !value.equals(TAPE)) {
         throw new ParameterException("Invalid argument " + value);
       }
     }
@@ -90,17 +118,34 @@ public class JepsenOnSpanner {
   public static class ValidateBenchmarkType implements IParameterValidator {
     @Override
     public void validate(String name, String value) throws ParameterException {
-      if (!value.equals(BANK_TYPE) && !value.equals(LINEARIZABILITY_TYPE)) {
-        throw new ParameterException(INVALID_TYPE_MSG + " " + value);
+      Set<String> types = new HashSet<>();
+      for (String type : value.split(BENCHMARK_SEPARATOR)) {
+        if (!type.equals(BANK_TYPE) && !type.equals(LINEARIZABILITY_TYPE) &&
+                !type.equals(LIST_APPEND_TYPE) && !type.equals(SET_TYPE) &&
+                !type.equals(COUNTER_TYPE) && !type.equals(WRITE_SKEW_TYPE) &&
+                !type.equals(SESSION_TYPE)) {
+          throw new ParameterException(INVALID_TYPE_MSG + " " + type);
+        }
+        if (!types.add(type)) {
+          throw new ParameterException("Benchmark type " + type + " given more than once");
+        }
       }
     }
   }
 
   /**
-   * Checks if a config path is provided if this is a worker
+   * Checks if a config path is provided if this is a worker, and a tape path if this writes a
+   * tape. Several benchmarks need at least one worker and one initial value file each.
    */
   private boolean invalidArgs() {
-    return (component.equals(WORKER) && configPath == null) || (!component.equals(INIT) && benchmarkType == null);
+    boolean isWorker = component.equals(WORKER) || component.equals(TAPE);
+    return (isWorker && configPath == null) ||
+            (!component.equals(INIT) && benchmarkType == null) ||
+            (component.equals(TAPE) && tapePath == null) ||
+            (isWorker && workerCount > 1 && (processId < 1 || processId > workerCount)) ||
+            (isWorker && benchmarkTypes().length > 1 && workerCount < benchmarkTypes().length) ||
+            (initValuePath != null && initValuePaths().length != (benchmarkType == null ? 1 :
+                    benchmarkTypes().length));
   }
 
   public static void main(String[] args) {
@@ -108,7 +153,13 @@ public class JepsenOnSpanner {
     JCommander parser = JCommander.newBuilder().addObject(entry).build();
     parser.parse(args);
     if (entry.invalidArgs()) {
-      System.err.println("Unspecified config path");
+      System.err.println("Unspecified config path, process ID out of worker range, or fewer " +
+              "workers or initial value files than benchmarks");
+      return;
+    }
+    if (entry.tapePath != null && !OperationTape.canRecord(entry.workerBenchmarkType())) {
+      System.err.println("Loads of the " + entry.workerBenchmarkType() + " benchmark cannot be " +
+              "stored in a tape");
       return;
     }
 
@@ -116,8 +167,16 @@ public class JepsenOnSpanner {
   }
 
   private void run() {
+    if (component.equals(TAPE)) {
+      // Writing a tape does not talk to the Spanner instance
+      writeTape();
+      System.out.printf("Component %s done\n", component);
+      return;
+    }
+    // Workers run against the tables of their benchmark, the other components against all of them
     Executor executor = new Executor(projectId, instanceId, databaseId, processId,
-            component.equals(INIT));
+            component.equals(INIT), component.equals(WORKER) ? tableTag(workerBenchmarkType()) :
+            null);
     try {
       if (component.equals(INIT)) {
         initDatabase(executor);
@@ -134,39 +193,122 @@ public class JepsenOnSpanner {
 
   /**
    * Executes the init component i.e. create testing and history tables, and initialize key value
-   * pairs in the database. If the csv path is not supplied, no value will be inserted.
+   * pairs in the database. If the csv path is not supplied, no value will be inserted. When
+   * several benchmarks are run, each gets its own tables, initialized from its own csv file.
    */
   private void initDatabase(Executor executor) {
-    executor.createTables();
+    List<String> tableTags = new ArrayList<>();
+    if (benchmarkType == null) {
+      tableTags.add(null);
+    } else {
+      for (String type : benchmarkTypes()) {
+        tableTags.add(tableTag(type));
+      }
+    }
+    executor.createTables(tableTags);
     if (initValuePath != null) {
-      executor.initKeyValues(retrieveInitialState(initValuePath));
+      String[] initValuePaths = initValuePaths();
+      for (int i = 0; i < tableTags.size(); i++) {
+        executor.withTableTag(tableTags.get(i)).initKeyValues(
+                retrieveInitialState(initValuePaths[i]));
+      }
     }
   }
 
   /**
-   * Creates a generator and execute its loads.
+   * Generates all loads of this process ahead of the run and writes them to the tape. The process
+   * ID is used as the seed, so writing the tape again gives the same loads.
    */
-  private void runWorkload(Executor executor) {
-    LoadGenerator gen = LoadGenerator.createGenerator(benchmarkType, configPath);
-    while (gen.hasLoad()) {
-      Operation op = gen.nextOperation();
-      System.out.println("Generated op " + op.toString());
-      op.getExecutionPlan().accept(executor);
-      System.out.println("Op " + op.toString() + " done");
+  private void writeTape() {
+    OperationTape.write(LoadGenerator.createGenerator(workerBenchmarkType(), configPath,
+            processId, workerIdx(), benchmarkProcessIDs()), tapePath);
+  }
+
+  private String[] benchmarkTypes() {
+    return benchmarkType.split(BENCHMARK_SEPARATOR);
+  }
+
+  /**
+   * Returns the initial value files, in the order of the benchmarks they initialize.
+   */
+  private String[] initValuePaths() {
+    return initValuePath.split(BENCHMARK_SEPARATOR);
+  }
+
+  /**
+   * Returns the tag of the tables of a benchmark; a single benchmark uses the untagged tables.
+   */
+  private String tableTag(String type) {
+    return benchmarkTypes().length > 1 ? type : null;
+  }
+
+  /**
+   * Returns the benchmark this worker runs; workers are assigned to the benchmarks in turn by
+   * their process IDs.
+   */
+  private String workerBenchmarkType() {
+    String[] types = benchmarkTypes();
+    return types.length > 1 ? types[(processId - 1) % types.length] : types[0];
+  }
+
+  /**
+   * Returns the index of this worker among the workers of its benchmark, used to pick its key
+   * partition.
+   */
+  private int workerIdx() {
+    return workerCount > 1 ? (processId - 1) / benchmarkTypes().length : 0;
+  }
+
+  /**
+   * Returns the process IDs of the workers running the benchmark of this worker, indexed by their
+   * worker index; a process started without --workers only knows its own.
+   */
+  private int[] benchmarkProcessIDs() {
+    if (workerCount <= 1) {
+      return new int[]{processId};
     }
+    int types = benchmarkTypes().length;
+    return IntStream.iterate((processId - 1) % types + 1, id -> id <= workerCount,
+            id -> id + types).toArray();
+  }
+
+  /**
+   * Creates a generator, or replays the tape if one is given, and execute its loads, scheduled
+   * by the runner set in the config file.
+   */
+  private void runWorkload(Executor executor) {
+    LoadGenerator gen = tapePath != null ? new TapeLoadGenerator(tapePath) :
+            LoadGenerator.createGenerator(workerBenchmarkType(), configPath,
+                    new Random().nextInt(), workerIdx(), benchmarkProcessIDs());
+    WorkloadRunner runner = WorkloadRunner.createFromConfig(configPath);
+    runner.run(gen, executor);
   }
 
   /**
-   * Extracts history from the Spanner instance and verifies it.
+   * Extracts history from the Spanner instance and verifies it. The history of each benchmark is
+   * extracted from its own table to its own files, and checked by the verifier of that benchmark.
+   * A bank benchmark with a ledger also extracts the ledger and the final balances.
    */
   private void verifyHistory(Executor executor) {
-    executor.extractHistory();
-    executor.extractHistoryWithTimestamp();
-    Verifier v = Verifier.createVerifier(benchmarkType);
-    if (initValuePath != null) {
-      v.verify(retrieveInitialState(initValuePath), HISTORY_PATH, HISTORY_REAL_TIME_PATH);
-    } else {
-      v.verify(new HashMap<>(), HISTORY_PATH, HISTORY_REAL_TIME_PATH);
+    String[] types = benchmarkTypes();
+    for (int i = 0; i < types.length; i++) {
+      String type = types[i];
+      HashMap<String, Long> initialState = initValuePath != null ?
+              retrieveInitialState(initValuePaths()[i]) : new HashMap<>();
+      Executor benchmarkExecutor = executor.withTableTag(tableTag(type));
+      benchmarkExecutor.extractHistory();
+      benchmarkExecutor.extractHistoryWithTimestamp();
+      System.out.printf("Verifying %s history\n", type);
+      Verifier v = Verifier.createVerifier(type, configPath);
+      if (v instanceof LedgerVerifier) {
+        benchmarkExecutor.extractLedger();
+        v.verify(initialState, benchmarkExecutor.getRecordFilename(),
+                benchmarkExecutor.getRecordByRealTimeFilename(),
+                benchmarkExecutor.getLedgerFilename());
+      } else {
+        v.verify(initialState, benchmarkExecutor.getRecordFilename(),
+                benchmarkExecutor.getRecordByRealTimeFilename());
+      }
     }
   }
 
@@ -9,6 +9,7 @@ import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeyRange;
 import com.google.cloud.spanner.KeySet;
 import com.google.cloud.spanner.Mutation;
 import com.google.cloud.spanner.ReadOnlyTransaction;
@@ -47,6 +48,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -67,8 +70,29 @@ public class Executor {
   // each executor will be assigned a unique ID
   private int processID;
 
+  // Running totals of transaction attempts aborted and retried by Spanner, and of operations
+  // recorded as "info", for the backpressure of the worker; shared with the executors derived
+  // from this one
+  private AtomicLong abortCount = new AtomicLong();
+  private AtomicLong infoCount = new AtomicLong();
+
+  // Tables and history files of the benchmark this executor runs; benchmarks sharing a database
+  // each use their own tagged pair of tables
+  private String tableTag;
+  private String testingTableName;
+  private String historyTableName;
+  private String listTableName;
+  private String setTableName;
+  private String ledgerTableName;
+  private String recordFilename;
+  private String recordByRealTimeFilename;
+  private String ledgerFilename;
+
   public static final String TESTING_TABLE_NAME = "Testing";
   public static final String HISTORY_TABLE_NAME = "History";
+  public static final String LIST_TABLE_NAME = "Lists";
+  public static final String SET_TABLE_NAME = "Sets";
+  public static final String LEDGER_TABLE_NAME = "Ledger";
   public static final String KEY_COLUMN_NAME = "Key";
   public static final String VALUE_COLUMN_NAME = "Value";
   public static final String RECORD_TYPE_COLUMN_NAME = "OpType";
@@ -76,11 +100,21 @@ public class Executor {
   public static final String REAL_TIME_COLUMN_NAME = "RealTime";
   public static final String PID_COLUMN_NAME = "ProcessID";
   public static final String OP_NAME_COLUMN_NAME = "Load";
+  public static final String ACCOUNT_COLUMN_NAME = "Account";
+  public static final String AMOUNT_COLUMN_NAME = "Amount";
   public static final String RECORD_FILENAME = "history.edn";
   public static final String RECORD_BY_REAL_TIME_FILENAME = "history-real-time.edn";
+  public static final String LEDGER_FILENAME = "ledger.edn";
   public static final String RECORDER_ERROR = "RECORDER ERROR";
+  // Names under which readChecksum returns the aggregates of the testing table
+  public static final String SUM_KEY = "sum";
+  public static final String COUNT_KEY = "count";
   private static final Keyword TIMESTAMP_KEYWORD = Keyword.newKeyword("timestamp");
   private static final Keyword REAL_TIME_KEYWORD = Keyword.newKeyword("realTime");
+  // Keys of the map extractLedger writes
+  public static final Keyword LEDGER_TIMESTAMP_KEYWORD = Keyword.newKeyword("timestamp");
+  public static final Keyword LEDGER_BALANCES_KEYWORD = Keyword.newKeyword("balances");
+  public static final Keyword LEDGER_ENTRIES_KEYWORD = Keyword.newKeyword("entries");
 
   /**
    * Functional interface that will be implemented by user of Executor.runTxn. This function will
@@ -114,7 +148,12 @@ public class Executor {
     }
   }
 
-  public Executor(String projectId, String instanceId, String dbId, int processID, boolean init) {
+  /**
+   * Creates an executor running against the testing and history tables with the given tag, or
+   * the untagged tables if the tag is null.
+   */
+  public Executor(String projectId, String instanceId, String dbId, int processID, boolean init,
+                  String tableTag) {
     SpannerOptions options =
             SpannerOptions.newBuilder().setProjectId(projectId).build();
     this.projectId = projectId;
@@ -132,27 +171,99 @@ public class Executor {
     this.processID = processID;
     this.instanceId = instanceId;
     this.databaseId = dbId;
+    setTableTag(tableTag);
+  }
+
+  public Executor(String projectId, String instanceId, String dbId, int processID, boolean init) {
+    this(projectId, instanceId, dbId, processID, init, /*tableTag=*/null);
   }
 
+  /**
+   * Returns an executor sharing the connection of this one, that runs against the tables with
+   * the given tag. Only the executor this was created from should be closed.
+   */
+  public Executor withTableTag(String tableTag) {
+    Executor executor = new Executor(this);
+    executor.setTableTag(tableTag);
+    return executor;
+  }
+
+  /**
+   * Returns an executor sharing the connection, the tables and the counters of this one, that
+   * records its operations under the given process ID. Only the executor this was created from
+   * should be closed.
+   */
+  public Executor withProcessID(int processID) {
+    Executor executor = new Executor(this);
+    executor.setTableTag(tableTag);
+    executor.processID = processID;
+    return executor;
+  }
+
+  private Executor(Executor other) {
+    this.client = other.client;
+    this.adminClient = other.adminClient;
+    this.instanceId = other.instanceId;
+    this.databaseId = other.databaseId;
+    this.projectId = other.projectId;
+    this.spanner = other.spanner;
+    this.processID = other.processID;
+    this.abortCount = other.abortCount;
+    this.infoCount = other.infoCount;
+  }
+
+  private void setTableTag(String tableTag) {
+    this.tableTag = tableTag;
+    this.testingTableName = taggedTableName(TESTING_TABLE_NAME, tableTag);
+    this.historyTableName = taggedTableName(HISTORY_TABLE_NAME, tableTag);
+    this.listTableName = taggedTableName(LIST_TABLE_NAME, tableTag);
+    this.setTableName = taggedTableName(SET_TABLE_NAME, tableTag);
+    this.ledgerTableName = taggedTableName(LEDGER_TABLE_NAME, tableTag);
+    this.recordFilename = taggedFilename(RECORD_FILENAME, tableTag);
+    this.recordByRealTimeFilename = taggedFilename(RECORD_BY_REAL_TIME_FILENAME, tableTag);
+    this.ledgerFilename = taggedFilename(LEDGER_FILENAME, tableTag);
+  }
+
+  /**
+   * Returns the name of a table of the benchmark with the given tag, e.g. Testing_bank; a null
+   * tag gives the untagged table.
+   */
+  public static String taggedTableName(String tableName, String tableTag) {
+    return tableTag == null ? tableName : tableName + "_" + tableTag;
+  }
+
+  /**
+   * Returns the name of a history file of the benchmark with the given tag, e.g.
+   * history-bank.edn; a null tag gives the untagged file.
+   */
+  public static String taggedFilename(String filename, String tableTag) {
+    if (tableTag == null) {
+      return filename;
+    }
+    int extension = filename.lastIndexOf('.');
+    return filename.substring(0, extension) + "-" + tableTag + filename.substring(extension);
+  }
+
+  /**
+   * Creates the database, with the testing and history tables of this executor.
+   */
   public void createTables() {
-    // create the initial tables for history
+    createTables(Collections.singletonList(tableTag));
+  }
+
+  /**
+   * Creates the database, with the testing, history, list, set and ledger tables for each of the
+   * given tags.
+   */
+  public void createTables(List<String> tableTags) {
+    List<String> statements = new ArrayList<>();
+    for (String tag : tableTags) {
+      statements.addAll(createTableStatements(taggedTableName(TESTING_TABLE_NAME, tag),
+              taggedTableName(HISTORY_TABLE_NAME, tag), taggedTableName(LIST_TABLE_NAME, tag),
+              taggedTableName(SET_TABLE_NAME, tag), taggedTableName(LEDGER_TABLE_NAME, tag)));
+    }
     OperationFuture<Database, CreateDatabaseMetadata> op =
-            adminClient.createDatabase(instanceId, databaseId, Arrays.asList(
-                    "CREATE TABLE " + HISTORY_TABLE_NAME + " (\n" +
-                            "    " + TIME_COLUMN_NAME + "   TIMESTAMP NOT NULL\n" +
-                            "    OPTIONS (allow_commit_timestamp = true),\n" +
-                            "    " + OP_NAME_COLUMN_NAME + "   STRING(MAX) NOT NULL,\n" +
-                            "    " + PID_COLUMN_NAME + "    INT64 NOT NULL,\n" +
-                            "    " + RECORD_TYPE_COLUMN_NAME + " INT64 NOT NULL,\n" +
-                            "    " + VALUE_COLUMN_NAME + "  ARRAY<STRING(MAX)>,\n" +
-                            "    " + REAL_TIME_COLUMN_NAME + "   TIMESTAMP\n" +
-                            "    OPTIONS (allow_commit_timestamp = true),\n" +
-                            ") PRIMARY KEY(" + TIME_COLUMN_NAME + ", " + OP_NAME_COLUMN_NAME + "," +
-                            PID_COLUMN_NAME + ", " + RECORD_TYPE_COLUMN_NAME + ")",
-                    "CREATE TABLE " + TESTING_TABLE_NAME + " (\n" +
-                            "    " + KEY_COLUMN_NAME + "   STRING(MAX) NOT NULL,\n" +
-                            "    " + VALUE_COLUMN_NAME + " INT64 NOT NULL,\n" +
-                            ") PRIMARY KEY(" + KEY_COLUMN_NAME + ")\n"));
+            adminClient.createDatabase(instanceId, databaseId, statements);
 
     try {
       op.get();
@@ -167,6 +278,47 @@ public class Executor {
     }
   }
 
+  private static List<String> createTableStatements(String testingTableName,
+                                                    String historyTableName,
+                                                    String listTableName,
+                                                    String setTableName,
+                                                    String ledgerTableName) {
+    // create the initial tables for history
+    return Arrays.asList(
+            "CREATE TABLE " + historyTableName + " (\n" +
+                    "    " + TIME_COLUMN_NAME + "   TIMESTAMP NOT NULL\n" +
+                    "    OPTIONS (allow_commit_timestamp = true),\n" +
+                    "    " + OP_NAME_COLUMN_NAME + "   STRING(MAX) NOT NULL,\n" +
+                    "    " + PID_COLUMN_NAME + "    INT64 NOT NULL,\n" +
+                    "    " + RECORD_TYPE_COLUMN_NAME + " INT64 NOT NULL,\n" +
+                    "    " + VALUE_COLUMN_NAME + "  ARRAY<STRING(MAX)>,\n" +
+                    "    " + REAL_TIME_COLUMN_NAME + "   TIMESTAMP\n" +
+                    "    OPTIONS (allow_commit_timestamp = true),\n" +
+                    ") PRIMARY KEY(" + TIME_COLUMN_NAME + ", " + OP_NAME_COLUMN_NAME + "," +
+                    PID_COLUMN_NAME + ", " + RECORD_TYPE_COLUMN_NAME + ")",
+            "CREATE TABLE " + testingTableName + " (\n" +
+                    "    " + KEY_COLUMN_NAME + "   STRING(MAX) NOT NULL,\n" +
+                    "    " + VALUE_COLUMN_NAME + " INT64 NOT NULL,\n" +
+                    ") PRIMARY KEY(" + KEY_COLUMN_NAME + ")\n",
+            // lists of the list-append benchmark, created on their first append
+            "CREATE TABLE " + listTableName + " (\n" +
+                    "    " + KEY_COLUMN_NAME + "   STRING(MAX) NOT NULL,\n" +
+                    "    " + VALUE_COLUMN_NAME + " ARRAY<INT64> NOT NULL,\n" +
+                    ") PRIMARY KEY(" + KEY_COLUMN_NAME + ")\n",
+            // elements of the set benchmark, one row each
+            "CREATE TABLE " + setTableName + " (\n" +
+                    "    " + VALUE_COLUMN_NAME + " INT64 NOT NULL,\n" +
+                    ") PRIMARY KEY(" + VALUE_COLUMN_NAME + ")\n",
+            // balance changes of the bank benchmark with a ledger, one row per account and
+            // transaction
+            "CREATE TABLE " + ledgerTableName + " (\n" +
+                    "    " + ACCOUNT_COLUMN_NAME + " STRING(MAX) NOT NULL,\n" +
+                    "    " + TIME_COLUMN_NAME + "   TIMESTAMP NOT NULL\n" +
+                    "    OPTIONS (allow_commit_timestamp = true),\n" +
+                    "    " + AMOUNT_COLUMN_NAME + "  INT64 NOT NULL,\n" +
+                    ") PRIMARY KEY(" + ACCOUNT_COLUMN_NAME + ", " + TIME_COLUMN_NAME + ")\n");
+  }
+
   /**
    * Given a list of string as keys, returns a pair where the first element is the key-value
    * mapping read and the second element is the read timestamp. The staleness and bounded
@@ -181,17 +333,9 @@ public class Executor {
       keySetBuilder.addKey(Key.of(key));
     }
 
-    ReadOnlyTransaction txn;
-    if (staleness == 0) {
-      txn = client.singleUseReadOnlyTransaction();
-    } else if (bounded) {
-      txn = client.singleUseReadOnlyTransaction(TimestampBound.ofMaxStaleness(staleness,
-              TimeUnit.MILLISECONDS));
-    } else {
-      txn = client.singleUseReadOnlyTransaction(TimestampBound.ofExactStaleness(staleness,
-              TimeUnit.MILLISECONDS));
-    }
-    try (ResultSet resultSet = txn.read(TESTING_TABLE_NAME, keySetBuilder.build(),
+    ReadOnlyTransaction txn = client.singleUseReadOnlyTransaction(timestampBound(staleness,
+            bounded));
+    try (ResultSet resultSet = txn.read(testingTableName, keySetBuilder.build(),
             Arrays.asList(KEY_COLUMN_NAME, VALUE_COLUMN_NAME))) {
       while (resultSet.next()) {
         result.put(resultSet.getString(KEY_COLUMN_NAME), resultSet.getLong(VALUE_COLUMN_NAME));
@@ -203,20 +347,123 @@ public class Executor {
     return Pair.of(result, txn.getReadTimestamp());
   }
 
+  /**
+   * Given the first and the last key of a range, returns a pair where the first element maps
+   * every key found within the range, both ends included, to its value, and the second element
+   * is the read timestamp. Staleness and bounded are the same as in readKeys. Unlike readKeys,
+   * the keys are not known in advance, so a missing key is not an error.
+   */
+  public Pair<HashMap<String, Long>, Timestamp> readKeyRange(String startKey, String endKey,
+                                                             int staleness, boolean bounded) {
+    HashMap<String, Long> result = new HashMap<>();
+    ReadOnlyTransaction txn = client.singleUseReadOnlyTransaction(timestampBound(staleness,
+            bounded));
+    try (ResultSet resultSet = txn.read(testingTableName,
+            KeySet.range(KeyRange.closedClosed(Key.of(startKey), Key.of(endKey))),
+            Arrays.asList(KEY_COLUMN_NAME, VALUE_COLUMN_NAME))) {
+      while (resultSet.next()) {
+        result.put(resultSet.getString(KEY_COLUMN_NAME), resultSet.getLong(VALUE_COLUMN_NAME));
+      }
+    }
+    return Pair.of(result, txn.getReadTimestamp());
+  }
+
+  /**
+   * Reads the sum and the count of all values in the testing table, together with the values of
+   * the given sample of keys, in the same snapshot. Returns a pair where the first element maps
+   * SUM_KEY and COUNT_KEY to the aggregates and each sampled key to its value, and the second
+   * element is the read timestamp. The aggregates are computed by Spanner, so the size of the
+   * result does not grow with the number of keys. Staleness and bounded are the same as in
+   * readKeys. If a sampled key does not exist, throw a OperationException.
+   */
+  public Pair<HashMap<String, Long>, Timestamp> readChecksum(List<String> sampleKeys,
+                                                             int staleness, boolean bounded)
+          throws OperationException {
+    HashMap<String, Long> result = new HashMap<>();
+    // Two reads are needed, so the transaction cannot be single use
+    try (ReadOnlyTransaction txn = client.readOnlyTransaction(timestampBound(staleness,
+            bounded))) {
+      try (ResultSet resultSet = txn.executeQuery(Statement.of(String.format(
+              "SELECT IFNULL(SUM(%s), 0) AS %s, COUNT(*) AS %s FROM %s", VALUE_COLUMN_NAME,
+              SUM_KEY, COUNT_KEY, testingTableName)))) {
+        resultSet.next();
+        result.put(SUM_KEY, resultSet.getLong(SUM_KEY));
+        result.put(COUNT_KEY, resultSet.getLong(COUNT_KEY));
+      }
+      if (!sampleKeys.isEmpty()) {
+        KeySet.Builder keySetBuilder = KeySet.newBuilder();
+        for (String key : sampleKeys) {
+          keySetBuilder.addKey(Key.of(key));
+        }
+        try (ResultSet resultSet = txn.read(testingTableName, keySetBuilder.build(),
+                Arrays.asList(KEY_COLUMN_NAME, VALUE_COLUMN_NAME))) {
+          while (resultSet.next()) {
+            result.put(resultSet.getString(KEY_COLUMN_NAME), resultSet.getLong(VALUE_COLUMN_NAME));
+          }
+        }
+        if (result.size() != sampleKeys.size() + 2) {
+          throw new OperationException(String.format("Non-existent key found in read of %s",
+                  sampleKeys));
+        }
+      }
+      return Pair.of(result, txn.getReadTimestamp());
+    }
+  }
+
+  /**
+   * Given the first and the last element of a range, returns a pair where the first element lists
+   * every element of the set table within the range, both ends included, in ascending order, and
+   * the second element is the read timestamp. Staleness and bounded are the same as in readKeys.
+   */
+  public Pair<List<Long>, Timestamp> readSetRange(long first, long last, int staleness,
+                                                  boolean bounded) {
+    List<Long> result = new ArrayList<>();
+    ReadOnlyTransaction txn = client.singleUseReadOnlyTransaction(timestampBound(staleness,
+            bounded));
+    try (ResultSet resultSet = txn.read(setTableName,
+            KeySet.range(KeyRange.closedClosed(Key.of(first), Key.of(last))),
+            Collections.singletonList(VALUE_COLUMN_NAME))) {
+      while (resultSet.next()) {
+        result.add(resultSet.getLong(VALUE_COLUMN_NAME));
+      }
+    }
+    return Pair.of(result, txn.getReadTimestamp());
+  }
+
+  /**
+   * Returns the timestamp bound of a read at the given staleness in milliseconds; a staleness of
+   * 0 gives a strong read, and bounded makes the staleness an upper bound rather than exact.
+   */
+  private static TimestampBound timestampBound(int staleness, boolean bounded) {
+    if (staleness == 0) {
+      return TimestampBound.strong();
+    } else if (bounded) {
+      return TimestampBound.ofMaxStaleness(staleness, TimeUnit.MILLISECONDS);
+    }
+    return TimestampBound.ofExactStaleness(staleness, TimeUnit.MILLISECONDS);
+  }
+
   /**
    * Runs the given transactionToRun within a transaction.
    * Returns the commit timestamp of the transaction.
    */
   public Timestamp runTxn(TransactionFunction transactionToRun) {
     TransactionRunner transactionRunner = client.readWriteTransaction();
-    transactionRunner.run(new TransactionRunner.TransactionCallable<Void>() {
-      @Nullable
-      @Override
-      public Void run(TransactionContext transaction) throws Exception {
-        transactionToRun.run(transaction);
-        return null;
-      }
-    });
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      transactionRunner.run(new TransactionRunner.TransactionCallable<Void>() {
+        @Nullable
+        @Override
+        public Void run(TransactionContext transaction) throws Exception {
+          attempts.incrementAndGet();
+          transactionToRun.run(transaction);
+          return null;
+        }
+      });
+    } finally {
+      // Every attempt but the last one was aborted
+      abortCount.addAndGet(Math.max(0, attempts.get() - 1));
+    }
     return transactionRunner.getCommitTimestamp();
   }
 
@@ -230,7 +477,7 @@ public class Executor {
     // the same transaction; this is not the case for Mutation interface
     try (ResultSet resultSet = transaction.executeQuery(
             Statement.of(String.format("SELECT %s FROM %s WHERE %s = \"%s\"", VALUE_COLUMN_NAME,
-                    TESTING_TABLE_NAME, KEY_COLUMN_NAME, key)))) {
+                    testingTableName, KEY_COLUMN_NAME, key)))) {
       if (!resultSet.next()) {
         throw new OperationException(String.format("Key %s not found on transactional read", key));
       }
@@ -238,19 +485,207 @@ public class Executor {
     }
   }
 
+  /**
+   * Given a list of keys, returns the results of transactional reads of all of them, issued as a
+   * single query. See above executeTransactionalRead. If there is a non-existent key, throw a
+   * OperationException.
+   */
+  public HashMap<String, Long> executeTransactionalReads(List<String> keys,
+                                                         TransactionContext transaction) throws OperationException {
+    HashMap<String, Long> result = new HashMap<>();
+    try (ResultSet resultSet = transaction.executeQuery(
+            Statement.newBuilder(String.format("SELECT %s, %s FROM %s WHERE %s IN UNNEST(@keys)",
+                    KEY_COLUMN_NAME, VALUE_COLUMN_NAME, testingTableName, KEY_COLUMN_NAME))
+                    .bind("keys").toStringArray(keys)
+                    .build())) {
+      while (resultSet.next()) {
+        result.put(resultSet.getString(KEY_COLUMN_NAME), resultSet.getLong(VALUE_COLUMN_NAME));
+      }
+    }
+    for (String key : keys) {
+      if (!result.containsKey(key)) {
+        throw new OperationException(String.format("Key %s not found on transactional read", key));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Given the first and the last key of a range, returns every key found within the range, both
+   * ends included, mapped to its value. See above executeTransactionalRead.
+   */
+  public HashMap<String, Long> executeTransactionalScan(String startKey, String endKey,
+                                                        TransactionContext transaction) {
+    HashMap<String, Long> result = new HashMap<>();
+    try (ResultSet resultSet = transaction.executeQuery(
+            Statement.newBuilder(String.format("SELECT %s, %s FROM %s WHERE %s >= @startKey " +
+                            "AND %s <= @endKey", KEY_COLUMN_NAME, VALUE_COLUMN_NAME,
+                    testingTableName, KEY_COLUMN_NAME, KEY_COLUMN_NAME))
+                    .bind("startKey").to(startKey)
+                    .bind("endKey").to(endKey)
+                    .build())) {
+      while (resultSet.next()) {
+        result.put(resultSet.getString(KEY_COLUMN_NAME), resultSet.getLong(VALUE_COLUMN_NAME));
+      }
+    }
+    return result;
+  }
+
   /**
    * Given a key and a value, write the key-value pair into the database. See above
    * executeTransactionalRead. If there is a non-existent key, throw a OperationException.
    */
   public void executeTransactionalWrite(String key, long value, TransactionContext transaction) throws OperationException {
-    long rowsModified = transaction.executeUpdate(
-            Statement.of(String.format("UPDATE %s SET %s = %s WHERE %s = \"%s\"",
-                    TESTING_TABLE_NAME, VALUE_COLUMN_NAME, value, KEY_COLUMN_NAME, key)));
+    long rowsModified = transaction.executeUpdate(writeStatement(key, value));
     if (rowsModified != 1) {
       throw new OperationException(String.format("Key %s not found on transactional write", key));
     }
   }
 
+  /**
+   * Given a key and a delta, adds the delta to the value of the key in a single update, so the
+   * value itself is never read by the client. See above executeTransactionalWrite. If there is a
+   * non-existent key, throw a OperationException.
+   */
+  public void executeTransactionalIncrement(String key, long delta,
+                                            TransactionContext transaction) throws OperationException {
+    long rowsModified = transaction.executeUpdate(
+            Statement.newBuilder(String.format("UPDATE %s SET %s = %s + @delta WHERE %s = @key",
+                    testingTableName, VALUE_COLUMN_NAME, VALUE_COLUMN_NAME, KEY_COLUMN_NAME))
+                    .bind("delta").to(delta)
+                    .bind("key").to(key)
+                    .build());
+    if (rowsModified != 1) {
+      throw new OperationException(String.format("Key %s not found on transactional increment",
+              key));
+    }
+  }
+
+  /**
+   * Given a key, an expected value and a new value, sets the key to the new value only if it
+   * currently holds the expected value. The comparison and the write happen in a single
+   * conditional update, so no separate read is needed. Returns true if the value was swapped. See
+   * above executeTransactionalRead.
+   */
+  public boolean executeTransactionalCompareAndSet(String key, long expectedValue, long newValue,
+                                                   TransactionContext transaction) {
+    long rowsModified = transaction.executeUpdate(compareAndSetStatement(key, expectedValue,
+            newValue));
+    return rowsModified == 1;
+  }
+
+  /**
+   * Executes a group of writes and compare-and-sets in the given order, as a single batch of DML
+   * statements. expectedValues holds the expected value of each compare-and-set, and null for
+   * each plain write. Returns false if the key of any compare-and-set did not hold its expected
+   * value. The statements of the batch after it have already been executed by then, so the
+   * caller must abort the transaction by throwing, which rolls back every statement it ran, and
+   * should end the group with the compare-and-set so nothing is sent after it. See above
+   * executeTransactionalWrite and executeTransactionalCompareAndSet.
+   */
+  public boolean executeTransactionalWrites(List<String> keys, List<Long> values,
+                                            List<Long> expectedValues,
+                                            TransactionContext transaction) throws OperationException {
+    List<Statement> statements = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      statements.add(expectedValues.get(i) == null ? writeStatement(keys.get(i), values.get(i)) :
+              compareAndSetStatement(keys.get(i), expectedValues.get(i), values.get(i)));
+    }
+    long[] rowsModified = transaction.batchUpdate(statements);
+    boolean allSet = true;
+    for (int i = 0; i < keys.size(); i++) {
+      if (rowsModified[i] == 1) {
+        continue;
+      }
+      if (expectedValues.get(i) == null) {
+        throw new OperationException(String.format("Key %s not found on transactional write",
+                keys.get(i)));
+      }
+      allSet = false;
+    }
+    return allSet;
+  }
+
+  /**
+   * Given a key and an element, appends the element to the end of the list stored under the key,
+   * creating the list if the key holds none yet. See above executeTransactionalRead.
+   */
+  public void executeTransactionalAppend(String key, long element,
+                                         TransactionContext transaction) {
+    long rowsModified = transaction.executeUpdate(
+            Statement.newBuilder(String.format("UPDATE %s SET %s = ARRAY_CONCAT(%s, [@element]) " +
+                            "WHERE %s = @key", listTableName, VALUE_COLUMN_NAME,
+                    VALUE_COLUMN_NAME, KEY_COLUMN_NAME))
+                    .bind("element").to(element)
+                    .bind("key").to(key)
+                    .build());
+    if (rowsModified == 0) {
+      transaction.executeUpdate(
+              Statement.newBuilder(String.format("INSERT INTO %s (%s, %s) VALUES (@key, " +
+                              "[@element])", listTableName, KEY_COLUMN_NAME, VALUE_COLUMN_NAME))
+                      .bind("key").to(key)
+                      .bind("element").to(element)
+                      .build());
+    }
+  }
+
+  /**
+   * Given a key, returns the list stored under it, or an empty list if nothing was ever appended
+   * to it. See above executeTransactionalRead.
+   */
+  public List<Long> executeTransactionalListRead(String key, TransactionContext transaction) {
+    try (ResultSet resultSet = transaction.executeQuery(
+            Statement.newBuilder(String.format("SELECT %s FROM %s WHERE %s = @key",
+                    VALUE_COLUMN_NAME, listTableName, KEY_COLUMN_NAME))
+                    .bind("key").to(key)
+                    .build())) {
+      if (!resultSet.next()) {
+        return Collections.emptyList();
+      }
+      return resultSet.getLongList(VALUE_COLUMN_NAME);
+    }
+  }
+
+  /**
+   * Given an element, inserts it into the set table. See above executeTransactionalRead. If the
+   * element is already in the set, Spanner fails the transaction.
+   */
+  public void executeTransactionalInsert(long element, TransactionContext transaction) {
+    transaction.executeUpdate(Statement.newBuilder(String.format("INSERT INTO %s (%s) VALUES " +
+            "(@element)", setTableName, VALUE_COLUMN_NAME))
+            .bind("element").to(element)
+            .build());
+  }
+
+  /**
+   * Given an account and an amount, inserts a row of the ledger table stamped with the commit
+   * timestamp of the transaction. The row is buffered as a mutation and only written on commit,
+   * so the ledger cannot be read in the same transaction. See above executeTransactionalRead.
+   */
+  public void executeTransactionalLedgerEntry(String account, long amount,
+                                              TransactionContext transaction) {
+    transaction.buffer(Mutation.newInsertBuilder(ledgerTableName)
+            .set(ACCOUNT_COLUMN_NAME).to(account)
+            .set(TIME_COLUMN_NAME).to(Value.COMMIT_TIMESTAMP)
+            .set(AMOUNT_COLUMN_NAME).to(amount)
+            .build());
+  }
+
+  private Statement writeStatement(String key, long value) {
+    return Statement.of(String.format("UPDATE %s SET %s = %s WHERE %s = \"%s\"",
+            testingTableName, VALUE_COLUMN_NAME, value, KEY_COLUMN_NAME, key));
+  }
+
+  private Statement compareAndSetStatement(String key, long expectedValue, long newValue) {
+    return Statement.newBuilder(String.format("UPDATE %s SET %s = @newValue WHERE %s = @key " +
+                    "AND %s = @expectedValue", testingTableName, VALUE_COLUMN_NAME,
+            KEY_COLUMN_NAME, VALUE_COLUMN_NAME))
+            .bind("newValue").to(newValue)
+            .bind("key").to(key)
+            .bind("expectedValue").to(expectedValue)
+            .build();
+  }
+
   public List<String> representationToStringList(List<OpRepresentation> representations) {
     return representations.stream().map(OpRepresentation::toString).collect(Collectors.toList());
   }
@@ -283,7 +718,7 @@ public class Executor {
         @Nullable
         @Override
         public Void run(TransactionContext transaction) throws Exception {
-          Struct row = transaction.readRow(HISTORY_TABLE_NAME, Key.of(invokeTimestamp, opName,
+          Struct row = transaction.readRow(historyTableName, Key.of(invokeTimestamp, opName,
                   processID, RecordType.INVOKE.getCode()),
                   Arrays.asList(REAL_TIME_COLUMN_NAME, VALUE_COLUMN_NAME));
           Timestamp realTimestamp = null;
@@ -292,16 +727,16 @@ public class Executor {
           }
           List<String> originalRecordRepresentation = row.getStringList(VALUE_COLUMN_NAME);
           transaction.buffer(Arrays.asList(
-                  Mutation.newInsertBuilder(HISTORY_TABLE_NAME)
+                  Mutation.newInsertBuilder(historyTableName)
                           .set(TIME_COLUMN_NAME).to(commitTimestamp)
                           .set(REAL_TIME_COLUMN_NAME).to(Value.COMMIT_TIMESTAMP)
                           .set(RECORD_TYPE_COLUMN_NAME).to(RecordType.OK.getCode())
                           .set(OP_NAME_COLUMN_NAME).to(opName)
                           .set(VALUE_COLUMN_NAME).toStringArray(representationToStringList(recordRepresentation))
                           .set(PID_COLUMN_NAME).to(processID).build(),
-                  Mutation.delete(HISTORY_TABLE_NAME, Key.of(invokeTimestamp, opName, processID,
+                  Mutation.delete(historyTableName, Key.of(invokeTimestamp, opName, processID,
                           RecordType.INVOKE.getCode())),
-                  Mutation.newInsertBuilder(HISTORY_TABLE_NAME)
+                  Mutation.newInsertBuilder(historyTableName)
                           .set(TIME_COLUMN_NAME).to(commitTimestamp)
                           .set(REAL_TIME_COLUMN_NAME).to(realTimestamp)
                           .set(RECORD_TYPE_COLUMN_NAME).to(RecordType.INVOKE.getCode())
@@ -333,6 +768,7 @@ public class Executor {
    * Records an info history.
    */
   public void recordInfo(String opName, List<OpRepresentation> representation) {
+    infoCount.incrementAndGet();
     writeRecord(opName, representation, RecordType.INFO, /*staleness=*/0);
   }
 
@@ -346,7 +782,7 @@ public class Executor {
                                 RecordType recordType, int staleness, Timestamp timestamp) throws RuntimeException {
     try {
       Timestamp commitTimestamp =
-             client.write(Collections.singletonList(Mutation.newInsertBuilder(HISTORY_TABLE_NAME)
+             client.write(Collections.singletonList(Mutation.newInsertBuilder(historyTableName)
                 .set(TIME_COLUMN_NAME).to(timestamp)
                 .set(REAL_TIME_COLUMN_NAME).to(Value.COMMIT_TIMESTAMP)
                 .set(RECORD_TYPE_COLUMN_NAME).to(recordType.getCode())
@@ -360,13 +796,13 @@ public class Executor {
         Timestamp staleTimestamp =
                 Timestamp.ofTimeMicroseconds((commitTimestamp.toSqlTimestamp().getTime() - staleness) * 1000);
         client.write(Arrays.asList(
-                Mutation.newInsertBuilder(HISTORY_TABLE_NAME)
+                Mutation.newInsertBuilder(historyTableName)
                         .set(TIME_COLUMN_NAME).to(staleTimestamp)
                         .set(RECORD_TYPE_COLUMN_NAME).to(recordType.getCode())
                         .set(OP_NAME_COLUMN_NAME).to(opName)
                         .set(VALUE_COLUMN_NAME).toStringArray(representationToStringList(representation))
                         .set(PID_COLUMN_NAME).to(processID).build(),
-                Mutation.delete(HISTORY_TABLE_NAME,
+                Mutation.delete(historyTableName,
                         Key.of(commitTimestamp, opName, processID, recordType.getCode()))));
         return staleTimestamp;
       }
@@ -390,7 +826,7 @@ public class Executor {
   public void initKeyValues(HashMap<String, Long> initialKVs) {
     List<Mutation> mutations = new ArrayList<>();
     for (Map.Entry<String, Long> kv : initialKVs.entrySet()) {
-      mutations.add(Mutation.newInsertBuilder(TESTING_TABLE_NAME)
+      mutations.add(Mutation.newInsertBuilder(testingTableName)
               .set(KEY_COLUMN_NAME).to(kv.getKey())
               .set(VALUE_COLUMN_NAME).to(kv.getValue()).build());
     }
@@ -405,14 +841,28 @@ public class Executor {
     }
   }
 
+  /**
+   * Returns the local file extractHistory writes to.
+   */
+  public String getRecordFilename() {
+    return recordFilename;
+  }
+
+  /**
+   * Returns the local file extractHistoryWithTimestamp writes to.
+   */
+  public String getRecordByRealTimeFilename() {
+    return recordByRealTimeFilename;
+  }
+
   /**
    * Extracts all history records and save it on a local edn file.
    */
   public void extractHistory() {
-    try (ResultSet resultSet = client.singleUse().read(HISTORY_TABLE_NAME, KeySet.all(),
+    try (ResultSet resultSet = client.singleUse().read(historyTableName, KeySet.all(),
             Arrays.asList(RECORD_TYPE_COLUMN_NAME, OP_NAME_COLUMN_NAME, VALUE_COLUMN_NAME,
                     PID_COLUMN_NAME));
-         FileWriter recordWriter = new FileWriter(RECORD_FILENAME)) {
+         FileWriter recordWriter = new FileWriter(recordFilename)) {
       List<Record> records = new ArrayList<>();
       while (resultSet.next()) {
         Record record = Record.createRecordWithoutTimestamp(resultSet.getCurrentRowAsStruct());
@@ -428,10 +878,10 @@ public class Executor {
    * Extracts all history records, including timestamps, and save it on a local edn file.
    */
   public void extractHistoryWithTimestamp() {
-    try (ResultSet resultSet = client.singleUse().read(HISTORY_TABLE_NAME, KeySet.all(),
+    try (ResultSet resultSet = client.singleUse().read(historyTableName, KeySet.all(),
             Arrays.asList(RECORD_TYPE_COLUMN_NAME, OP_NAME_COLUMN_NAME, VALUE_COLUMN_NAME,
                     PID_COLUMN_NAME, TIME_COLUMN_NAME, REAL_TIME_COLUMN_NAME));
-         FileWriter recordWriter = new FileWriter(RECORD_BY_REAL_TIME_FILENAME)) {
+         FileWriter recordWriter = new FileWriter(recordByRealTimeFilename)) {
       List<Record> records = new ArrayList<>();
       while (resultSet.next()) {
         Record record = Record.createRecordWithTimestamp(resultSet.getCurrentRowAsStruct());
@@ -443,6 +893,49 @@ public class Executor {
     }
   }
 
+  /**
+   * Returns the local file extractLedger writes to.
+   */
+  public String getLedgerFilename() {
+    return ledgerFilename;
+  }
+
+  /**
+   * Extracts the final balances and the ledger, read at the same timestamp, and saves them on a
+   * local edn file as {:timestamp t, :balances {"0" 5, ...}, :entries [["0" t 5] ...]}. The
+   * entries are in the order of the primary key of the ledger, i.e. by account and then by
+   * commit timestamp in microseconds.
+   */
+  public void extractLedger() {
+    try (ReadOnlyTransaction txn = client.readOnlyTransaction();
+         FileWriter ledgerWriter = new FileWriter(ledgerFilename)) {
+      Map<String, Long> balances = new HashMap<>();
+      try (ResultSet resultSet = txn.read(testingTableName, KeySet.all(),
+              Arrays.asList(KEY_COLUMN_NAME, VALUE_COLUMN_NAME))) {
+        while (resultSet.next()) {
+          balances.put(resultSet.getString(KEY_COLUMN_NAME),
+                  resultSet.getLong(VALUE_COLUMN_NAME));
+        }
+      }
+      List<List<Object>> entries = new ArrayList<>();
+      try (ResultSet resultSet = txn.read(ledgerTableName, KeySet.all(),
+              Arrays.asList(ACCOUNT_COLUMN_NAME, TIME_COLUMN_NAME, AMOUNT_COLUMN_NAME))) {
+        while (resultSet.next()) {
+          entries.add(Arrays.asList(resultSet.getString(ACCOUNT_COLUMN_NAME),
+                  Record.toMicros(resultSet.getTimestamp(TIME_COLUMN_NAME)),
+                  resultSet.getLong(AMOUNT_COLUMN_NAME)));
+        }
+      }
+      Map<Keyword, Object> ledger = new HashMap<>();
+      ledger.put(LEDGER_TIMESTAMP_KEYWORD, Record.toMicros(txn.getReadTimestamp()));
+      ledger.put(LEDGER_BALANCES_KEYWORD, balances);
+      ledger.put(LEDGER_ENTRIES_KEYWORD, entries);
+      ledgerWriter.write(Printers.printString(ledger));
+    } catch (IOException e) {
+      throw new RuntimeException(RECORDER_ERROR);
+    }
+  }
+
   public void cleanUp() {
     adminClient.dropDatabase(instanceId, databaseId);
   }
@@ -454,4 +947,23 @@ public class Executor {
   /** For testing; returns the client under the hood. */
   @VisibleForTesting
   public DatabaseClient getClient() { return client; }
+
+  public int getProcessID() {
+    return processID;
+  }
+
+  /**
+   * Returns the number of transaction attempts aborted and retried so far.
+   */
+  public long getAbortCount() {
+    return abortCount.get();
+  }
+
+  /**
+   * Returns the number of operations recorded as "info" so far, i.e. that ended with an error or
+   * a timeout.
+   */
+  public long getInfoCount() {
+    return infoCount.get();
+  }
 }
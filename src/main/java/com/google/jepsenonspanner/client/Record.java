@@ -96,15 +96,23 @@ public class Record {
     List<OpRepresentation> representations =
             representationObjs.stream().map(OpRepresentation::createOtherFromObjs).collect(
                     Collectors.toList());
-    Long commitTimestampMilli = (Long) map.get(COMMIT_TIMESTAMP_KEYWORD);
-    Long realTimestampMilli = (Long) map.get(REAL_TIMESTAMP_KEYWORD);
+    Long commitTimestampMicros = (Long) map.get(COMMIT_TIMESTAMP_KEYWORD);
+    Long realTimestampMicros = (Long) map.get(REAL_TIMESTAMP_KEYWORD);
     return new Record((Keyword) map.get(TYPE_KEYWORD), (Keyword) map.get(LOAD_KEYWORD),
             representations, (long) map.get(PID_KEYWORD),
-            parseTimestamp(commitTimestampMilli), parseTimestamp(realTimestampMilli));
+            parseTimestamp(commitTimestampMicros), parseTimestamp(realTimestampMicros));
   }
 
-  static Timestamp parseTimestamp(Long milliseconds) {
-    return milliseconds == null ? null : Timestamp.of(new java.sql.Timestamp(milliseconds));
+  /**
+   * Timestamps are written to history files in microseconds, the resolution of Spanner commit
+   * timestamps, so that two writes to the same key never appear to commit at the same time.
+   */
+  static Timestamp parseTimestamp(Long microseconds) {
+    return microseconds == null ? null : Timestamp.ofTimeMicroseconds(microseconds);
+  }
+
+  public static long toMicros(Timestamp timestamp) {
+    return timestamp.getSeconds() * 1_000_000 + timestamp.getNanos() / 1000;
   }
 
   /**
@@ -161,9 +169,8 @@ public class Record {
     record.put(REPR_KEYWORD, getRawRepresentation());
     record.put(PID_KEYWORD, pID);
     record.put(COMMIT_TIMESTAMP_KEYWORD, commitTimestamp == null ? null :
-            commitTimestamp.toSqlTimestamp().getTime());
-    record.put(REAL_TIMESTAMP_KEYWORD, realTimestamp == null ? null :
-            realTimestamp.toSqlTimestamp().getTime());
+            toMicros(commitTimestamp));
+    record.put(REAL_TIMESTAMP_KEYWORD, realTimestamp == null ? null : toMicros(realTimestamp));
     return record;
   }
 
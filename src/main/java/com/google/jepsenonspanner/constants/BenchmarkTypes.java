@@ -3,5 +3,10 @@ package com.google.jepsenonspanner.constants;
 public class BenchmarkTypes {
   public static final String BANK_TYPE = "bank";
   public static final String LINEARIZABILITY_TYPE = "linearizability";
+  public static final String LIST_APPEND_TYPE = "list-append";
+  public static final String SET_TYPE = "set";
+  public static final String COUNTER_TYPE = "counter";
+  public static final String WRITE_SKEW_TYPE = "write-skew";
+  public static final String SESSION_TYPE = "session";
   public static final String INVALID_TYPE_MSG = "Invalid benchmark type";
 }
@@ -0,0 +1,241 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which a worker issues operations, based on how Spanner copes with the
+ * current rate. At the end of every window, the controller looks at the operations finished in
+ * the window: the fraction of transaction attempts that were aborted, the fraction of operations
+ * that ended with an error or a timeout ("info" records), and the p99 service time. If any of
+ * them is over its threshold, the limit is cut multiplicatively below the rate actually achieved
+ * in the window; otherwise it grows by a fixed step (AIMD). This keeps retries from piling up
+ * and the history from filling with indeterminate records that the verifiers cannot check.
+ * Each change of the limit is kept as a Decision, and reported with the run's statistics.
+ * All methods are thread safe.
+ */
+public class BackpressureController {
+  public static final String NONE = "none";
+  public static final String AIMD = "aimd";
+
+  private static final String BACKPRESSURE = "backpressure";
+  private static final String MIN_OPS_PER_SECOND = "minOpsPerSecond";
+  private static final String MAX_OPS_PER_SECOND = "maxOpsPerSecond";
+  private static final String INCREASE_OPS_PER_SECOND = "increaseOpsPerSecond";
+  private static final String DECREASE_FACTOR = "decreaseFactor";
+  private static final String WINDOW_MILLIS = "backpressureWindowMillis";
+  private static final String MAX_ABORT_RATE = "maxAbortRate";
+  private static final String MAX_INFO_RATE = "maxInfoRate";
+  private static final String MAX_LATENCY_MILLIS = "maxLatencyMillis";
+  private static final int INITIAL_CAPACITY = 256;
+
+  public enum Reason {
+    // Nothing over its threshold, the limit grows
+    HEALTHY,
+    ABORTS,
+    ERRORS,
+    LATENCY
+  }
+
+  /**
+   * A change of the rate limit, with the statistics of the window that caused it.
+   */
+  public static class Decision {
+    private final long elapsedNanos;
+    private final double opsPerSecond;
+    private final Reason reason;
+    private final double abortRate;
+    private final double infoRate;
+    private final long p99Nanos;
+
+    Decision(long elapsedNanos, double opsPerSecond, Reason reason, double abortRate,
+             double infoRate, long p99Nanos) {
+      this.elapsedNanos = elapsedNanos;
+      this.opsPerSecond = opsPerSecond;
+      this.reason = reason;
+      this.abortRate = abortRate;
+      this.infoRate = infoRate;
+      this.p99Nanos = p99Nanos;
+    }
+
+    public double getOpsPerSecond() {
+      return opsPerSecond;
+    }
+
+    public Reason getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.1f s: %s -> %.2f ops/s (aborts = %.3f, errors = %.3f, p99 = %.3f " +
+                      "ms)", elapsedNanos / 1e9, reason, opsPerSecond, abortRate, infoRate,
+              p99Nanos / 1e6);
+    }
+  }
+
+  private double minOpsPerSecond;
+  private double maxOpsPerSecond;
+  private double increaseOpsPerSecond;
+  private double decreaseFactor;
+  private long windowNanos;
+  private double maxAbortRate;
+  private double maxInfoRate;
+  // 0 if latency is not taken into account
+  private long maxLatencyNanos;
+
+  private double opsPerSecond;
+  private long startNanos = -1;
+  private long windowStartNanos;
+  // Service times of the operations finished in the current window
+  private long[] windowLatencies = new long[INITIAL_CAPACITY];
+  private int windowOps = 0;
+  // Totals of the executor at the start of the current window
+  private long windowStartAborts = 0;
+  private long windowStartInfos = 0;
+  private List<Decision> decisions = new ArrayList<>();
+
+  /**
+   * @param minOpsPerSecond the limit is never cut below this rate
+   * @param maxOpsPerSecond the limit starts at, and never grows above, this rate
+   * @param increaseOpsPerSecond how much the limit grows after a healthy window
+   * @param decreaseFactor what the limit is multiplied with after an unhealthy window, in (0, 1)
+   * @param windowMillis how long statistics are collected before the limit is adjusted
+   * @param maxAbortRate the highest healthy fraction of aborted transaction attempts
+   * @param maxInfoRate the highest healthy fraction of operations ending with an error
+   * @param maxLatencyMillis the highest healthy p99 service time; 0 to ignore latency
+   */
+  public BackpressureController(double minOpsPerSecond, double maxOpsPerSecond,
+                                double increaseOpsPerSecond, double decreaseFactor,
+                                long windowMillis, double maxAbortRate, double maxInfoRate,
+                                long maxLatencyMillis) {
+    if (minOpsPerSecond <= 0 || maxOpsPerSecond < minOpsPerSecond || increaseOpsPerSecond < 0 ||
+            decreaseFactor <= 0 || decreaseFactor >= 1 || windowMillis <= 0 ||
+            maxAbortRate < 0 || maxInfoRate < 0 || maxLatencyMillis < 0) {
+      throw new RuntimeException("Invalid backpressure config");
+    }
+    this.minOpsPerSecond = minOpsPerSecond;
+    this.maxOpsPerSecond = maxOpsPerSecond;
+    this.increaseOpsPerSecond = increaseOpsPerSecond;
+    this.decreaseFactor = decreaseFactor;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.maxAbortRate = maxAbortRate;
+    this.maxInfoRate = maxInfoRate;
+    this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+    this.opsPerSecond = maxOpsPerSecond;
+  }
+
+  /**
+   * Creates the controller described in the config map, or returns null if the config does not
+   * ask for backpressure.
+   */
+  public static BackpressureController createFromConfig(Map<String, String> config) {
+    String type = config.getOrDefault(BACKPRESSURE, NONE);
+    switch (type) {
+      case NONE:
+        return null;
+      case AIMD:
+        return new BackpressureController(
+                Double.parseDouble(config.getOrDefault(MIN_OPS_PER_SECOND, "1")),
+                Double.parseDouble(config.getOrDefault(MAX_OPS_PER_SECOND, "1000")),
+                Double.parseDouble(config.getOrDefault(INCREASE_OPS_PER_SECOND, "5")),
+                Double.parseDouble(config.getOrDefault(DECREASE_FACTOR, "0.5")),
+                Long.parseLong(config.getOrDefault(WINDOW_MILLIS, "1000")),
+                Double.parseDouble(config.getOrDefault(MAX_ABORT_RATE, "0.2")),
+                Double.parseDouble(config.getOrDefault(MAX_INFO_RATE, "0.05")),
+                Long.parseLong(config.getOrDefault(MAX_LATENCY_MILLIS, "0")));
+      default:
+        throw new RuntimeException("Invalid backpressure " + type);
+    }
+  }
+
+  /**
+   * Returns the current limit on the rate of operations issued by this worker.
+   */
+  public synchronized double getOpsPerSecond() {
+    return opsPerSecond;
+  }
+
+  /**
+   * Returns the shortest time between the starts of two operations under the current limit.
+   */
+  public synchronized long getIntervalNanos() {
+    return (long) (1e9 / opsPerSecond);
+  }
+
+  public synchronized List<Decision> getDecisions() {
+    return new ArrayList<>(decisions);
+  }
+
+  /**
+   * Records a finished operation, and adjusts the limit if the current window is over.
+   * @param endNanos System.nanoTime() at which the operation finished
+   * @param serviceNanos how long the operation took
+   * @param totalAborts number of aborted transaction attempts of the executor so far
+   * @param totalInfos number of operations of the executor that ended with an error so far
+   */
+  public synchronized void record(long endNanos, long serviceNanos, long totalAborts,
+                                  long totalInfos) {
+    if (startNanos < 0) {
+      startNanos = endNanos - serviceNanos;
+      windowStartNanos = startNanos;
+    }
+    if (windowOps == windowLatencies.length) {
+      windowLatencies = Arrays.copyOf(windowLatencies, windowOps * 2);
+    }
+    windowLatencies[windowOps++] = serviceNanos;
+    if (endNanos - windowStartNanos < windowNanos) {
+      return;
+    }
+
+    long aborts = totalAborts - windowStartAborts;
+    long infos = totalInfos - windowStartInfos;
+    double abortRate = (double) aborts / (aborts + windowOps);
+    double infoRate = (double) infos / windowOps;
+    Arrays.sort(windowLatencies, 0, windowOps);
+    long p99Nanos = windowLatencies[Math.max(0, (int) Math.ceil(0.99 * windowOps) - 1)];
+    double achievedOpsPerSecond = windowOps / ((endNanos - windowStartNanos) / 1e9);
+
+    Reason reason = Reason.HEALTHY;
+    if (abortRate > maxAbortRate) {
+      reason = Reason.ABORTS;
+    } else if (infoRate > maxInfoRate) {
+      reason = Reason.ERRORS;
+    } else if (maxLatencyNanos > 0 && p99Nanos > maxLatencyNanos) {
+      reason = Reason.LATENCY;
+    }
+    double previous = opsPerSecond;
+    if (reason == Reason.HEALTHY) {
+      opsPerSecond = Math.min(maxOpsPerSecond, opsPerSecond + increaseOpsPerSecond);
+    } else {
+      // Cut below what was actually achieved, in case the limit was not what held the rate back
+      opsPerSecond = Math.max(minOpsPerSecond,
+              Math.min(opsPerSecond, achievedOpsPerSecond) * decreaseFactor);
+    }
+    if (opsPerSecond != previous) {
+      Decision decision = new Decision(endNanos - startNanos, opsPerSecond, reason, abortRate,
+              infoRate, p99Nanos);
+      decisions.add(decision);
+      System.out.println("Backpressure " + decision);
+    }
+
+    windowStartNanos = endNanos;
+    windowOps = 0;
+    windowStartAborts = totalAborts;
+    windowStartInfos = totalInfos;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("AIMD backpressure, limit = %.2f ops/s, %d decisions", opsPerSecond,
+            decisions.size()));
+    for (Decision decision : decisions) {
+      sb.append("\n").append(decision);
+    }
+    return sb.toString();
+  }
+}
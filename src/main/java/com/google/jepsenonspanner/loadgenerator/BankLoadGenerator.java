@@ -1,6 +1,7 @@
 package com.google.jepsenonspanner.loadgenerator;
 
 import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.ChecksumReadTransaction;
 import com.google.jepsenonspanner.operation.OpRepresentation;
 import com.google.jepsenonspanner.operation.Operation;
 import com.google.jepsenonspanner.operation.ReadTransaction;
@@ -12,7 +13,6 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
@@ -21,7 +21,19 @@ import java.util.stream.IntStream;
 
 /**
  * Implements the bank benchmark load generator. Generates two kinds of load: a read across all
- * accounts and a transfer between two accounts.
+ * accounts and a transfer. A transfer moves money from one account to transferLegs other
+ * accounts, and transferBatchSize independent transfers on distinct accounts are committed in a
+ * single transaction. The transfer is recorded as a list with one entry per transfer in the
+ * batch, e.g. [["0" "1" 5 "2" 3] ["3" "4" 2]], i.e. 5 from "0" to "1" and 3 from "0" to "2",
+ * plus 2 from "3" to "4". The whole batch fails if any source account cannot cover its legs.
+ *
+ * With a CHECKSUM read mode, a read returns the sum and the count of all balances plus the
+ * balances of readSampleSize random accounts, instead of every balance, so that records stay
+ * small with a large number of accounts.
+ *
+ * With a ledger, every balance change of a transfer is also inserted as an immutable row of the
+ * ledger table in the same transaction, so that the verifier can reconcile balances against the
+ * ledger instead of replaying transfers.
  */
 public class BankLoadGenerator extends LoadGenerator {
 
@@ -63,24 +75,48 @@ public class BankLoadGenerator extends LoadGenerator {
     }
   }
 
+  public enum ReadMode {
+    FULL,
+    CHECKSUM
+  }
+
   private int maxBalance;
   private int acctNumber;
   private Config config;
-  private long startTime;
+  private KeyDistribution keyDistribution;
+  // Number of destination accounts of a single transfer
+  private int transferLegs;
+  // Number of independent transfers committed in one transaction
+  private int transferBatchSize;
+  // Scratch space for the accounts of a batch of transfers
+  private int[] transferAccts;
+  private ReadMode readMode;
+  // Whether transfers also insert their balance changes into the ledger table
+  private boolean ledger;
+  // Accounts whose balances a checksum read returns; picked uniformly whatever the distribution
+  // of transfers is
+  private int[] sampleAccts;
+  private KeyDistribution sampleDistribution;
   private List<String> keys;
-  private List<OpRepresentation> readKeyRepresentation;
-
-  private static final long MAX_MILLISECOND_PAST = 5 * 60 * 1000; // 5 minutes
 
   // The proceeding numbers are used to specify their ordering in the history table so that the
   // verifier always observes a transfer before a read on the same timestamp
   public static final String READ_LOAD_NAME = "1read";
   public static final String TRANSFER_LOAD_NAME = "0transfer";
+  public static final String CHECKSUM_LOAD_NAME = "1checksum";
 
   private static final String OP_LIMIT = "opLimit";
   private static final String MAX_BALANCE = "maxBalance";
   private static final String ACCT_NUMBER = "acctNumber";
-  private static final String RATIO_CONFIG = "opRatio";
+  private static final String RATIO_CONFIG = "bankOpRatio";
+  private static final String TRANSFER_LEGS = "transferLegs";
+  private static final String TRANSFER_BATCH_SIZE = "transferBatchSize";
+  private static final String READ_MODE = "readMode";
+  private static final String READ_SAMPLE_SIZE = "readSampleSize";
+  public static final String LEDGER = "ledger";
+  private static final String FULL_READ_MODE = "full";
+  private static final String CHECKSUM_READ_MODE = "checksum";
+  private static final int DEFAULT_READ_SAMPLE_SIZE = 16;
   private static final String ERR_MSG = "Error parsing config file ";
 
   /**
@@ -89,27 +125,100 @@ public class BankLoadGenerator extends LoadGenerator {
    * @param maxBalance the maximum balance on each account
    * @param acctNumber number of accounts
    * @param config ratio of strong read : bounded stale read : exact stale read : write
+   * @param keyDistribution how often each account is picked for a transfer
+   * @param transferLegs number of accounts each transfer moves money to
+   * @param transferBatchSize number of transfers committed in one transaction
+   * @param readMode whether reads return every balance or a checksum
+   * @param readSampleSize number of balances a checksum read returns
+   * @param ledger whether transfers also insert their balance changes into the ledger table
    * @param seed random seed
    */
   public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
-                           int seed) throws RuntimeException {
+                           KeyDistribution keyDistribution, int transferLegs,
+                           int transferBatchSize, ReadMode readMode, int readSampleSize,
+                           boolean ledger, int seed) throws RuntimeException {
     super(opLimit, seed);
-    if (config == null) {
+    if (config == null || keyDistribution == null ||
+            keyDistribution.getKeyCount() != acctNumber || transferLegs < 1 ||
+            transferBatchSize < 1 ||
+            transferBatchSize * (transferLegs + 1) > keyDistribution.getAccessibleKeyCount() ||
+            readMode == null || readSampleSize < 0 || readSampleSize > acctNumber) {
       throw new RuntimeException("Invalid configuration");
     }
+    this.readMode = readMode;
+    this.ledger = ledger;
+    this.sampleAccts = new int[readSampleSize];
+    this.sampleDistribution = KeyDistribution.createUniform(acctNumber);
+    this.transferLegs = transferLegs;
+    this.transferBatchSize = transferBatchSize;
+    this.transferAccts = new int[transferBatchSize * (transferLegs + 1)];
     this.maxBalance = maxBalance;
     this.acctNumber = acctNumber;
     this.config = config;
-    this.startTime = System.currentTimeMillis();
+    this.keyDistribution = keyDistribution;
     this.keys = IntStream.range(0, acctNumber).mapToObj(String::valueOf).collect(Collectors.toList());
-    this.readKeyRepresentation = new ArrayList<>();
-    for (String key : this.keys) {
-      OpRepresentation repr = OpRepresentation.createReadRepresentation(convertKeyToEdnString(key), OpRepresentation.NIL_VALUE);
-      this.readKeyRepresentation.add(repr);
-    }
     System.out.printf("Created bank generator with seed %d\n", seed);
   }
 
+  /**
+   * Constructor without a ledger
+   *
+   * @see BankLoadGenerator#BankLoadGenerator(int, int, int, Config, KeyDistribution, int, int,
+   * ReadMode, int, boolean, int)
+   */
+  public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
+                           KeyDistribution keyDistribution, int transferLegs,
+                           int transferBatchSize, ReadMode readMode, int readSampleSize,
+                           int seed) throws RuntimeException {
+    this(opLimit, maxBalance, acctNumber, config, keyDistribution, transferLegs,
+            transferBatchSize, readMode, readSampleSize, /*ledger=*/false, seed);
+  }
+
+  /**
+   * Constructor for reads of every balance
+   *
+   * @see BankLoadGenerator#BankLoadGenerator(int, int, int, Config, KeyDistribution, int, int,
+   * ReadMode, int, int)
+   */
+  public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
+                           KeyDistribution keyDistribution, int transferLegs,
+                           int transferBatchSize, int seed) throws RuntimeException {
+    this(opLimit, maxBalance, acctNumber, config, keyDistribution, transferLegs,
+            transferBatchSize, ReadMode.FULL, /*readSampleSize=*/0, seed);
+  }
+
+  /**
+   * Constructor for transfers between two accounts, one per transaction
+   *
+   * @see BankLoadGenerator#BankLoadGenerator(int, int, int, Config, KeyDistribution, int, int, int)
+   */
+  public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
+                           KeyDistribution keyDistribution, int seed) throws RuntimeException {
+    this(opLimit, maxBalance, acctNumber, config, keyDistribution, /*transferLegs=*/1,
+            /*transferBatchSize=*/1, seed);
+  }
+
+  /**
+   * Constructor with uniformly distributed transfers
+   *
+   * @see BankLoadGenerator#BankLoadGenerator(int, int, int, Config, KeyDistribution, int)
+   */
+  public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
+                           int seed) throws RuntimeException {
+    this(opLimit, maxBalance, acctNumber, config, KeyDistribution.createUniform(acctNumber), seed);
+  }
+
+  /**
+   * Constructor with a random seed
+   *
+   * @see BankLoadGenerator#BankLoadGenerator(int, int, int, Config, KeyDistribution, int)
+   */
+  public BankLoadGenerator(int opLimit, int maxBalance, int acctNumber, Config config,
+                           KeyDistribution keyDistribution) throws RuntimeException {
+    this(opLimit, maxBalance, acctNumber, config, keyDistribution,
+            /*seed=*/new Random().nextInt());
+  }
+
   /**
    * Constructor with a random seed
    *
@@ -140,22 +249,65 @@ public class BankLoadGenerator extends LoadGenerator {
   }
 
   public static LoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt());
+  }
+
+  public static LoadGenerator createGeneratorFromConfig(String configPath, int seed) {
+    return createGeneratorFromConfig(configPath, seed, /*workerIdx=*/0, /*workerCount=*/1);
+  }
+
+  public static LoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                        int workerIdx, int workerCount) {
     Gson gson = new Gson();
     try {
       HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
               HashMap.class);
-      int opLimit = Integer.parseInt(config.get(OP_LIMIT));
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
       int maxBalance = Integer.parseInt(config.get(MAX_BALANCE));
       int acctNumber = Integer.parseInt(config.get(ACCT_NUMBER));
       String[] configRatioString = config.get(RATIO_CONFIG).split(" ");
       int[] configRatios = Arrays.stream(configRatioString).mapToInt(Integer::parseInt).toArray();
-      return new BankLoadGenerator(opLimit, maxBalance, acctNumber, new Config(configRatios));
+      int transferLegs = Integer.parseInt(config.getOrDefault(TRANSFER_LEGS, "1"));
+      int transferBatchSize = Integer.parseInt(config.getOrDefault(TRANSFER_BATCH_SIZE, "1"));
+      ReadMode readMode = parseReadMode(config.getOrDefault(READ_MODE, FULL_READ_MODE));
+      int readSampleSize = config.containsKey(READ_SAMPLE_SIZE) ?
+              Integer.parseInt(config.get(READ_SAMPLE_SIZE)) :
+              Math.min(DEFAULT_READ_SAMPLE_SIZE, acctNumber);
+      boolean ledger = Boolean.parseBoolean(config.getOrDefault(LEDGER, "false"));
+      return new BankLoadGenerator(opLimit, maxBalance, acctNumber, new Config(configRatios),
+              KeyDistribution.createFromConfig(config, acctNumber, workerIdx,
+                      workerCount), transferLegs,
+              transferBatchSize, readMode, readSampleSize, ledger, seed);
     } catch (FileNotFoundException | ClassCastException e) {
       e.printStackTrace();
       throw new RuntimeException(ERR_MSG + configPath);
     }
   }
 
+  private static ReadMode parseReadMode(String readMode) {
+    switch (readMode) {
+      case FULL_READ_MODE:
+        return ReadMode.FULL;
+      case CHECKSUM_READ_MODE:
+        return ReadMode.CHECKSUM;
+      default:
+        throw new RuntimeException("Invalid read mode " + readMode);
+    }
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
   @Override
   public Operation nextOperation() {
     // check if reached limit
@@ -178,53 +330,95 @@ public class BankLoadGenerator extends LoadGenerator {
   }
 
   private ReadTransaction strongRead() {
-    return ReadTransaction.createStrongRead(READ_LOAD_NAME, keys, readKeyRepresentation);
+    return read(/*staleness=*/0, /*bounded=*/false);
   }
 
   private ReadTransaction boundedStaleRead() {
-    return ReadTransaction.createBoundedStaleRead(READ_LOAD_NAME, keys, readKeyRepresentation,
-            rand.nextInt((int) Math.min(MAX_MILLISECOND_PAST,
-                    Math.max(System.currentTimeMillis() - startTime, 1))) + 1);
+    return read(randomStaleness(), /*bounded=*/true);
   }
 
   private ReadTransaction exactStaleRead() {
-    return ReadTransaction.createExactStaleRead(READ_LOAD_NAME, keys, readKeyRepresentation,
-            rand.nextInt((int) Math.min(MAX_MILLISECOND_PAST,
-                    Math.max(System.currentTimeMillis() - startTime, 1))) + 1);
+    return read(randomStaleness(), /*bounded=*/false);
+  }
+
+  /**
+   * Returns a read in the configured read mode at the given staleness, e.g. for a staleness
+   * sweep; a staleness of 0 gives a strong read. It does not count towards the op limit.
+   * @param staleness how far in the past to read, in milliseconds
+   * @param bounded if the staleness is an upper bound rather than exact
+   */
+  public ReadTransaction read(int staleness, boolean bounded) {
+    if (readMode == ReadMode.CHECKSUM) {
+      return checksumRead(staleness, bounded);
+    }
+    return new ReadTransaction(READ_LOAD_NAME, readKeyRepresentation(), keys, staleness,
+            bounded);
+  }
+
+  /**
+   * Returns a representation of a read of every account, with the values still to be filled in.
+   * Each read gets its own, since the values read are filled into it while the read runs, which
+   * may be at the same time as other reads.
+   */
+  private List<OpRepresentation> readKeyRepresentation() {
+    List<OpRepresentation> representation = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      representation.add(OpRepresentation.createReadFromObjs(Arrays.asList(key, null)));
+    }
+    return representation;
+  }
+
+  private ReadTransaction checksumRead(int staleness, boolean bounded) {
+    sampleDistribution.sampleDistinct(rand, sampleAccts, sampleAccts.length);
+    List<String> sampleKeys = new ArrayList<>(sampleAccts.length);
+    for (int acct : sampleAccts) {
+      sampleKeys.add(keys.get(acct));
+    }
+    return new ChecksumReadTransaction(CHECKSUM_LOAD_NAME, sampleKeys, staleness, bounded);
   }
 
   private ReadWriteTransaction transfer() {
-    List<TransactionalAction> transaction = new ArrayList<>();
-
-    // transfer from account 1 to account 2
-    int[] accounts = rand.ints(0, acctNumber).distinct().limit(2).toArray();
-    String acct1 = String.valueOf(accounts[0]);
-    String acct2 = String.valueOf(accounts[1]);
-    transaction.add(TransactionalAction.createTransactionalRead(acct1));
-    transaction.add(TransactionalAction.createTransactionalRead(acct2));
-
-    // add the dependent write operations
-    int transferAmount = rand.nextInt(this.maxBalance / this.acctNumber) + 1;
-    TransactionalAction acct1Write =
-            TransactionalAction.createDependentTransactionalWrite(acct1,
-                    balance -> balance - transferAmount,
-                    balance -> balance >= transferAmount);
-    transaction.get(0).setDependentAction(acct1Write);
-    TransactionalAction acct2Write =
-            TransactionalAction.createDependentTransactionalWrite(acct2,
-                    balance -> balance + transferAmount,
-                    balance -> true);
-    transaction.get(1).setDependentAction(acct2Write);
-
-    List<OpRepresentation> repr = Collections.singletonList(
-            OpRepresentation.createOtherRepresentation(convertKeyToEdnString(acct1)
-                    , convertKeyToEdnString(acct2), String.valueOf(transferAmount)));
+    // Accounts of the i-th transfer are at [i * (transferLegs + 1), (i + 1) * (transferLegs + 1)),
+    // the first one being the source
+    keyDistribution.sampleDistinct(rand, transferAccts, transferAccts.length);
+    List<TransactionalAction> transaction = new ArrayList<>(transferAccts.length);
+    List<OpRepresentation> repr = new ArrayList<>(transferBatchSize);
+    for (int i = 0; i < transferBatchSize; i++) {
+      int first = i * (transferLegs + 1);
+      String fromAcct = keys.get(transferAccts[first]);
+      keyDistribution.recordWrite(transferAccts[first]);
+      TransactionalAction fromRead = TransactionalAction.createTransactionalRead(fromAcct);
+      transaction.add(fromRead);
+      // Keys are recorded as EDN strings, built directly rather than parsed
+      List<Object> transferRepr = new ArrayList<>(2 * transferLegs + 1);
+      transferRepr.add(fromAcct);
+      long totalAmount = 0;
+      for (int leg = 1; leg <= transferLegs; leg++) {
+        String toAcct = keys.get(transferAccts[first + leg]);
+        keyDistribution.recordWrite(transferAccts[first + leg]);
+        int transferAmount = rand.nextInt(this.maxBalance / this.acctNumber) + 1;
+        totalAmount += transferAmount;
+        // add the dependent write operation
+        TransactionalAction toRead = TransactionalAction.createTransactionalRead(toAcct);
+        toRead.setDependentAction(delta(toAcct, transferAmount));
+        transaction.add(toRead);
+        transferRepr.add(toAcct);
+        transferRepr.add((long) transferAmount);
+      }
+      // The source only proceeds if it can cover all legs
+      fromRead.setDependentAction(delta(fromAcct, -totalAmount));
+      repr.add(OpRepresentation.createOtherFromObjs(transferRepr));
+    }
 
     return new ReadWriteTransaction(TRANSFER_LOAD_NAME, repr, transaction);
   }
 
-  /** Convert this key to a representation that can be stored in history table */
-  private String convertKeyToEdnString(String key) {
-    return "\"" + key + "\"";
+  /**
+   * Returns the dependent write that changes the balance of an account by the given amount,
+   * recorded in the ledger if there is one.
+   */
+  private TransactionalAction delta(String acct, long amount) {
+    return ledger ? TransactionalAction.createDependentTransactionalLedgerDelta(acct, amount) :
+            TransactionalAction.createDependentTransactionalDelta(acct, amount);
   }
 }
@@ -0,0 +1,47 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+
+/**
+ * Issues operations one at a time: the next operation is generated and started only after the
+ * previous one finishes. Since each operation is due as soon as the previous one is done, its
+ * intended start time is its actual start time. If a schedule is given, only the durations and
+ * op ratios of its phases apply; the target rates are ignored. With backpressure, the next
+ * operation waits until the interval of the current rate limit has passed since the previous
+ * one started.
+ */
+public class ClosedLoopRunner extends WorkloadRunner {
+
+  public ClosedLoopRunner() {
+    this(/*schedule=*/null);
+  }
+
+  public ClosedLoopRunner(PhaseSchedule schedule) {
+    super(schedule);
+  }
+
+  @Override
+  public void run(LoadGenerator gen, OpSink sink) {
+    checkOpRatios(gen);
+    long runStartNanos = System.nanoTime();
+    long lastStartNanos = runStartNanos;
+    while (gen.hasLoad()) {
+      PhaseSchedule.Phase phase = null;
+      if (schedule != null) {
+        phase = enterPhase(gen, System.nanoTime() - runStartNanos);
+        if (phase == null) {
+          break;
+        }
+      }
+      Operation op = gen.nextOperation();
+      System.out.println("Generated " + (phase != null && phase.isWarmUp() ? "warm-up " : "") +
+              "op " + op.toString());
+      if (backpressure != null) {
+        waitUntil(lastStartNanos + backpressure.getIntervalNanos());
+      }
+      lastStartNanos = System.nanoTime();
+      execute(op, sink, lastStartNanos, phase);
+    }
+    printStats();
+  }
+}
@@ -0,0 +1,150 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.IncrementTransaction;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Implements the load generator of the counter benchmark, which treats every key as a counter.
+ * Generates increments of a counter by a random delta from 1 to maxDelta, and strong, bounded
+ * stale and exact stale reads of a counter. Increments add to the counter in a single update
+ * without reading it, so that they commute and many of them can run concurrently.
+ */
+public class CounterLoadGenerator extends LoadGenerator {
+
+  /**
+   * Configuration class to adjust distribution of randomly generated loads
+   */
+  public static class Config extends EnumRatioConfig<Config.LoadType> {
+
+    public enum LoadType {
+      INCREMENT,
+      STRONG_READ,
+      BOUNDED_STALE_READ,
+      EXACT_STALE_READ
+    }
+
+    public Config(int... loadRatios) {
+      super(LoadType.class, loadRatios);
+    }
+  }
+
+  private String[] keys;
+  // keyKeywords[i] is the EDN keyword of keys[i], as recorded in the history table
+  private Keyword[] keyKeywords;
+  private Config config;
+  private int maxDelta;
+  private KeyDistribution keyDistribution;
+
+  // The proceeding numbers are used to specify their ordering in the history table, and are
+  // dropped from the history
+  public static final String INCREMENT_LOAD_NAME = "0add";
+  public static final String READ_LOAD_NAME = "1read";
+
+  private static final String OP_LIMIT = "opLimit";
+  private static final String KEYS = "keys";
+  private static final String RATIO_CONFIG = "counterOpRatio";
+  private static final String MAX_DELTA = "counterMaxDelta";
+  private static final int[] DEFAULT_RATIOS = {4, 1, 1, 1};
+  private static final int DEFAULT_MAX_DELTA = 5;
+  private static final String ERR_MSG = "Error parsing config file ";
+
+  /**
+   * @param maxDelta the largest delta of an increment
+   */
+  public CounterLoadGenerator(int seed, int opLimit, String[] keys, Config config, int maxDelta,
+                              KeyDistribution keyDistribution) {
+    super(opLimit, seed);
+    if (maxDelta <= 0) {
+      throw new RuntimeException("Invalid counter config");
+    }
+    if (keyDistribution.getKeyCount() != keys.length) {
+      throw new RuntimeException("Key distribution does not match number of keys");
+    }
+    this.keys = keys;
+    this.config = config;
+    this.maxDelta = maxDelta;
+    this.keyDistribution = keyDistribution;
+    this.keyKeywords = new Keyword[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keyKeywords[i] = Keyword.newKeyword(keys[i]);
+    }
+  }
+
+  public static CounterLoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                               int workerIdx, int workerCount) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      String[] keys = config.get(KEYS).split(" ");
+      int[] ratios = config.containsKey(RATIO_CONFIG) ?
+              Arrays.stream(config.get(RATIO_CONFIG).split(" ")).mapToInt(Integer::parseInt)
+                      .toArray() : DEFAULT_RATIOS;
+      int maxDelta = config.containsKey(MAX_DELTA) ? Integer.parseInt(config.get(MAX_DELTA)) :
+              DEFAULT_MAX_DELTA;
+      return new CounterLoadGenerator(seed, opLimit, keys, new Config(ratios), maxDelta,
+              KeyDistribution.createFromConfig(config, keys.length, workerIdx, workerCount));
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MSG + configPath);
+    }
+  }
+
+  public static CounterLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt(), /*workerIdx=*/0,
+            /*workerCount=*/1);
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("Counter generator has reached limit");
+    }
+
+    opLimit--;
+    int keyIdx = keyDistribution.nextIndex(rand);
+    switch (config.categorizeLoad(rand.nextInt())) {
+      case INCREMENT:
+        keyDistribution.recordWrite(keyIdx);
+        return new IncrementTransaction(INCREMENT_LOAD_NAME, keys[keyIdx],
+                rand.nextInt(maxDelta) + 1);
+      case STRONG_READ:
+        return read(keyIdx, /*staleness=*/0, /*bounded=*/false);
+      case BOUNDED_STALE_READ:
+        return read(keyIdx, randomStaleness(), /*bounded=*/true);
+      default:
+        return read(keyIdx, randomStaleness(), /*bounded=*/false);
+    }
+  }
+
+  private ReadTransaction read(int keyIdx, int staleness, boolean bounded) {
+    return new ReadTransaction(READ_LOAD_NAME, Collections.singletonList(
+            LinearizabilityLoadGenerator.readRepresentation(keyKeywords[keyIdx])),
+            Collections.singletonList(keys[keyIdx]), staleness, bounded);
+  }
+}
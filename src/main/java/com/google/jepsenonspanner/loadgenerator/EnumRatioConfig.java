@@ -0,0 +1,27 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+/**
+ * A load ratio config whose load types are the constants of an enum class: the i-th ratio is the
+ * weight of the i-th constant, in the order they are declared, so there must be one ratio for each
+ * load type.
+ * @param <T> the enum class of the load types
+ */
+public abstract class EnumRatioConfig<T extends Enum<T>> extends LoadRatioConfig {
+  private final T[] loadTypes;
+
+  public EnumRatioConfig(Class<T> loadTypeClass, int... ratios) {
+    super(ratios);
+    this.loadTypes = loadTypeClass.getEnumConstants();
+    if (ratios.length != loadTypes.length) {
+      throw new RuntimeException("Invalid Ratio Length");
+    }
+  }
+
+  /**
+   * Given a random number by the load generator, return which load to issue
+   * @param randNum random number given by generator
+   */
+  public T categorizeLoad(int randNum) {
+    return loadTypes[categorize(randNum)];
+  }
+}
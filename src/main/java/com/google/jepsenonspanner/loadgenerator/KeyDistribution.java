@@ -0,0 +1,364 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A KeyDistribution decides how often each key is accessed by a load generator. Keys are
+ * referred to by their index in the generator's key list, so sampling never allocates. All
+ * randomness is drawn from the Random object of the generator, which keeps the sequence of keys
+ * deterministic under the generator seed.
+ *
+ * Supported distributions, selected by the "keyDistribution" field of the config file:
+ * - uniform: every key is equally likely
+ * - zipfian: the key at index i is accessed with probability proportional to 1 / (i + 1)^s,
+ *   where s is given by "zipfianExponent"
+ * - hotspot: a "hotSetFraction" of the keys receives a "hotOpFraction" of all accesses
+ * - latest: zipfian over the distance from the most recently written key
+ *
+ * With "partitioning" set to "partitioned", each worker only accesses its own partition of the
+ * keys: a shared range of "overlapFraction" of all keys, accessed by every worker, plus a private
+ * range split evenly between the workers. The distribution above then applies within the
+ * partition. An overlap of 0 means no contention between workers, and an overlap of 1 means every
+ * worker accesses every key.
+ */
+public abstract class KeyDistribution {
+  public static final String UNIFORM = "uniform";
+  public static final String ZIPFIAN = "zipfian";
+  public static final String HOTSPOT = "hotspot";
+  public static final String LATEST = "latest";
+  public static final String NOT_PARTITIONED = "none";
+  public static final String PARTITIONED = "partitioned";
+
+  private static final String KEY_DISTRIBUTION = "keyDistribution";
+  private static final String ZIPFIAN_EXPONENT = "zipfianExponent";
+  private static final String HOT_SET_FRACTION = "hotSetFraction";
+  private static final String HOT_OP_FRACTION = "hotOpFraction";
+  private static final String PARTITIONING = "partitioning";
+  private static final String OVERLAP_FRACTION = "overlapFraction";
+  private static final double DEFAULT_ZIPFIAN_EXPONENT = 0.99;
+  private static final double DEFAULT_HOT_SET_FRACTION = 0.2;
+  private static final double DEFAULT_HOT_OP_FRACTION = 0.8;
+
+  protected final int keyCount;
+
+  // Scratch space for sampleDistinct, reused across calls so that sampling does not allocate
+  private final boolean[] selected;
+
+  protected KeyDistribution(int keyCount) {
+    if (keyCount <= 0) {
+      throw new RuntimeException("Invalid key count " + keyCount);
+    }
+    this.keyCount = keyCount;
+    this.selected = new boolean[keyCount];
+  }
+
+  /**
+   * Returns the index of the next key to access.
+   */
+  public abstract int nextIndex(Random rand);
+
+  /**
+   * Informs the distribution that the key at index has been written. Only distributions biased
+   * towards recent writes care about this.
+   */
+  public void recordWrite(int index) {}
+
+  /**
+   * Fills the first count slots of out with distinct key indices. If a sampled key has already
+   * been picked, the next free key after it is taken instead, so that heavily skewed
+   * distributions still terminate in a bounded number of steps.
+   */
+  public void sampleDistinct(Random rand, int[] out, int count) {
+    if (count > keyCount) {
+      throw new RuntimeException("Cannot select " + count + " distinct keys out of " + keyCount);
+    }
+    for (int i = 0; i < count; i++) {
+      int index = nextIndex(rand);
+      while (selected[index]) {
+        index = index + 1 == keyCount ? 0 : index + 1;
+      }
+      selected[index] = true;
+      out[i] = index;
+    }
+    for (int i = 0; i < count; i++) {
+      selected[out[i]] = false;
+    }
+  }
+
+  public int getKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * Returns the number of keys this distribution may return, which is at most getKeyCount().
+   */
+  public int getAccessibleKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * Returns if this distribution may return the key at index.
+   */
+  public boolean isAccessible(int index) {
+    return true;
+  }
+
+  public static KeyDistribution createUniform(int keyCount) {
+    return new Uniform(keyCount);
+  }
+
+  /**
+   * Creates the distribution described in the config map; defaults to uniform if the config does
+   * not specify one.
+   */
+  public static KeyDistribution createFromConfig(Map<String, String> config, int keyCount) {
+    return createFromConfig(config, keyCount, /*workerIdx=*/0, /*workerCount=*/1);
+  }
+
+  /**
+   * Creates the distribution described in the config map for one of several workers. If the
+   * config partitions the keys, the distribution is restricted to the partition of this worker.
+   * @param workerIdx index of this worker, from 0 to workerCount - 1
+   * @param workerCount number of workers running at the same time
+   */
+  public static KeyDistribution createFromConfig(Map<String, String> config, int keyCount,
+                                                 int workerIdx, int workerCount) {
+    String partitioning = config.getOrDefault(PARTITIONING, NOT_PARTITIONED);
+    switch (partitioning) {
+      case NOT_PARTITIONED:
+        return createUnpartitioned(config, keyCount);
+      case PARTITIONED:
+        int[] keyIndices = partition(keyCount, workerIdx, workerCount,
+                parseDouble(config, OVERLAP_FRACTION, /*defaultValue=*/0));
+        return new Partitioned(keyCount, keyIndices,
+                createUnpartitioned(config, keyIndices.length));
+      default:
+        throw new RuntimeException("Invalid partitioning " + partitioning);
+    }
+  }
+
+  /**
+   * Returns the indices of the keys in the partition of a worker: the first overlapFraction of
+   * all keys, followed by the workerIdx-th of workerCount even shares of the remaining keys.
+   */
+  public static int[] partition(int keyCount, int workerIdx, int workerCount,
+                                double overlapFraction) {
+    if (workerCount <= 0 || workerIdx < 0 || workerIdx >= workerCount || overlapFraction < 0 ||
+            overlapFraction > 1) {
+      throw new RuntimeException("Invalid partition of worker " + workerIdx + " out of " +
+              workerCount + " with overlap " + overlapFraction);
+    }
+    int sharedCount = (int) Math.round(overlapFraction * keyCount);
+    int privateCount = keyCount - sharedCount;
+    int privateStart = sharedCount + (int) ((long) privateCount * workerIdx / workerCount);
+    int privateEnd = sharedCount + (int) ((long) privateCount * (workerIdx + 1) / workerCount);
+    int[] keyIndices = new int[sharedCount + privateEnd - privateStart];
+    if (keyIndices.length == 0) {
+      throw new RuntimeException("Worker " + workerIdx + " has no keys in its partition");
+    }
+    for (int i = 0; i < sharedCount; i++) {
+      keyIndices[i] = i;
+    }
+    for (int i = privateStart; i < privateEnd; i++) {
+      keyIndices[sharedCount + i - privateStart] = i;
+    }
+    return keyIndices;
+  }
+
+  private static KeyDistribution createUnpartitioned(Map<String, String> config, int keyCount) {
+    String type = config.getOrDefault(KEY_DISTRIBUTION, UNIFORM);
+    switch (type) {
+      case UNIFORM:
+        return new Uniform(keyCount);
+      case ZIPFIAN:
+        return new Zipfian(keyCount, parseDouble(config, ZIPFIAN_EXPONENT,
+                DEFAULT_ZIPFIAN_EXPONENT));
+      case HOTSPOT:
+        return new HotSpot(keyCount, parseDouble(config, HOT_SET_FRACTION,
+                DEFAULT_HOT_SET_FRACTION), parseDouble(config, HOT_OP_FRACTION,
+                DEFAULT_HOT_OP_FRACTION));
+      case LATEST:
+        return new Latest(keyCount, parseDouble(config, ZIPFIAN_EXPONENT,
+                DEFAULT_ZIPFIAN_EXPONENT));
+      default:
+        throw new RuntimeException("Invalid key distribution " + type);
+    }
+  }
+
+  private static double parseDouble(Map<String, String> config, String field,
+                                    double defaultValue) {
+    String value = config.get(field);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  /**
+   * Every key is equally likely to be accessed.
+   */
+  public static class Uniform extends KeyDistribution {
+    public Uniform(int keyCount) {
+      super(keyCount);
+    }
+
+    @Override
+    public int nextIndex(Random rand) {
+      return rand.nextInt(keyCount);
+    }
+  }
+
+  /**
+   * The key at index i is accessed with probability proportional to 1 / (i + 1)^exponent. The
+   * cumulative distribution is computed once, and each sample is a binary search over it.
+   */
+  public static class Zipfian extends KeyDistribution {
+    private final double[] cumulative;
+
+    public Zipfian(int keyCount, double exponent) {
+      super(keyCount);
+      if (exponent < 0) {
+        throw new RuntimeException("Invalid zipfian exponent " + exponent);
+      }
+      cumulative = new double[keyCount];
+      double sum = 0;
+      for (int i = 0; i < keyCount; i++) {
+        sum += 1 / Math.pow(i + 1, exponent);
+        cumulative[i] = sum;
+      }
+      for (int i = 0; i < keyCount; i++) {
+        cumulative[i] /= sum;
+      }
+    }
+
+    @Override
+    public int nextIndex(Random rand) {
+      return rank(rand.nextDouble());
+    }
+
+    /**
+     * Returns the smallest rank whose cumulative probability exceeds the given uniform sample.
+     */
+    int rank(double sample) {
+      int idx = Arrays.binarySearch(cumulative, sample);
+      if (idx < 0) {
+        idx = -idx - 1;
+      }
+      return Math.min(idx, keyCount - 1);
+    }
+  }
+
+  /**
+   * The first hotSetFraction of the keys receives hotOpFraction of all accesses; accesses are
+   * uniform within the hot set and within the cold set.
+   */
+  public static class HotSpot extends KeyDistribution {
+    private final int hotKeyCount;
+    private final double hotOpFraction;
+
+    public HotSpot(int keyCount, double hotSetFraction, double hotOpFraction) {
+      super(keyCount);
+      if (hotSetFraction < 0 || hotSetFraction > 1 || hotOpFraction < 0 || hotOpFraction > 1) {
+        throw new RuntimeException("Invalid hotspot config");
+      }
+      this.hotKeyCount = Math.max(1, (int) Math.round(keyCount * hotSetFraction));
+      this.hotOpFraction = hotOpFraction;
+    }
+
+    @Override
+    public int nextIndex(Random rand) {
+      if (hotKeyCount == keyCount || rand.nextDouble() < hotOpFraction) {
+        return rand.nextInt(hotKeyCount);
+      }
+      return hotKeyCount + rand.nextInt(keyCount - hotKeyCount);
+    }
+  }
+
+  /**
+   * Favours keys that have been written recently: the distance back from the most recently
+   * written key follows a zipfian distribution.
+   */
+  public static class Latest extends KeyDistribution {
+    private final Zipfian distance;
+    private int latestWritten;
+
+    public Latest(int keyCount, double exponent) {
+      super(keyCount);
+      this.distance = new Zipfian(keyCount, exponent);
+      this.latestWritten = 0;
+    }
+
+    @Override
+    public int nextIndex(Random rand) {
+      return Math.floorMod(latestWritten - distance.nextIndex(rand), keyCount);
+    }
+
+    @Override
+    public void recordWrite(int index) {
+      latestWritten = index;
+    }
+  }
+
+  /**
+   * Restricts accesses to a subset of the keys, e.g. the partition of one worker. The inner
+   * distribution picks a position within the subset, so that its skew applies within the subset.
+   */
+  public static class Partitioned extends KeyDistribution {
+    private final KeyDistribution inner;
+    private final int[] keyIndices;
+    // Position of each key in keyIndices, or -1 if the key is not in the subset
+    private final int[] positions;
+
+    /**
+     * @param keyCount number of all keys
+     * @param keyIndices indices of the keys in the subset
+     * @param inner distribution over positions in keyIndices
+     */
+    public Partitioned(int keyCount, int[] keyIndices, KeyDistribution inner) {
+      super(keyCount);
+      if (inner.getKeyCount() != keyIndices.length) {
+        throw new RuntimeException("Key distribution does not match the partition");
+      }
+      this.inner = inner;
+      this.keyIndices = keyIndices;
+      this.positions = new int[keyCount];
+      Arrays.fill(positions, -1);
+      for (int i = 0; i < keyIndices.length; i++) {
+        positions[keyIndices[i]] = i;
+      }
+    }
+
+    @Override
+    public int nextIndex(Random rand) {
+      return keyIndices[inner.nextIndex(rand)];
+    }
+
+    @Override
+    public void recordWrite(int index) {
+      if (positions[index] >= 0) {
+        inner.recordWrite(positions[index]);
+      }
+    }
+
+    /**
+     * Samples distinct positions from the inner distribution, so that the probing of already
+     * picked keys stays within the subset.
+     */
+    @Override
+    public void sampleDistinct(Random rand, int[] out, int count) {
+      inner.sampleDistinct(rand, out, count);
+      for (int i = 0; i < count; i++) {
+        out[i] = keyIndices[out[i]];
+      }
+    }
+
+    @Override
+    public int getAccessibleKeyCount() {
+      return keyIndices.length;
+    }
+
+    @Override
+    public boolean isAccessible(int index) {
+      return positions[index] >= 0;
+    }
+  }
+}
@@ -5,61 +5,102 @@ import com.google.jepsenonspanner.operation.OpRepresentation;
 import com.google.jepsenonspanner.operation.Operation;
 import com.google.jepsenonspanner.operation.ReadTransaction;
 import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.ScanReadTransaction;
 import com.google.jepsenonspanner.operation.TransactionalAction;
+import us.bpsm.edn.Keyword;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
- * Implements the Linearizability Load Generator. Generates two kinds of loads: transaction and
- * compare-and-set (CAS). Transaction can be configured to generate reads and writes across
- * multiple keys.
- * TODO: Implement CAS, but Knossos does not support multi-CAS-register
+ * Implements the Linearizability Load Generator. Generates three kinds of loads: transaction,
+ * compare-and-set (CAS) and range scan. Transaction can be configured to generate reads and
+ * writes across multiple keys. CAS always acts on a single key, since Knossos does not support
+ * multi-CAS-register; it is executed as a single conditional update and recorded as
+ * [:cas :x [expected new]]. A range scan reads every key between two keys, either on its own or
+ * followed by writes in the same transaction, and is recorded as [:scan :a :c [[:a 1] [:b 2]]].
+ *
+ * In the unique value mode, every value written by any client is distinct: the process ID of the
+ * client and a sequence number are packed into one long. Each read can then be mapped to the one
+ * write it observed, which lets UniqueValueVerifier check the history in O(n log n) instead of
+ * searching for a linearization.
  */
 public class LinearizabilityLoadGenerator extends LoadGenerator {
   private String[] keys;
   private int valueLimit;
   private boolean allowMultiKeys;
   private Config config;
+  private KeyDistribution keyDistribution;
+  // Indices of the keys picked by the latest call to selectKeys
+  private int[] selectedKeyIdx;
+  // keyKeywords[i] is the EDN keyword of keys[i], as recorded in the history table
+  private Keyword[] keyKeywords;
+  private ValueMode valueMode;
+  // Upper half of every unique value written by this client
+  private long valueTag;
+  private int valueSeq = 0;
+  // lastWritten[i] is the latest unique value this worker wrote to keys[i], or 0 if none
+  private long[] lastWritten;
+  // scanEnd[i] is the lexically last key of the run of accessible keys, in lexical order, that
+  // keys[i] belongs to; a scan starting at keys[i] may not go past it
+  private int[] scanEnd;
 
   private static final String OP_LIMIT = "opLimit";
   private static final String VALUE_LIMIT = "valueLimit";
   private static final String KEYS = "keys";
   private static final String ALLOW_MULTI_KEY = "multiKey";
   private static final String ALLOW_MIXED_READ_WRITE = "allowMixedReadsWrites";
-  private static final String OP_RATIO = "opRatio";
+  private static final String OP_RATIO = "linearizabilityOpRatio";
+  private static final String VALUE_MODE = "valueMode";
+  public static final String RANDOM_VALUE_MODE = "random";
+  public static final String UNIQUE_VALUE_MODE = "unique";
   private static final String ERR_MESSAGE = "Error parsing config file ";
 
   // Added numbers in the front to break tie when transactions happen at the same time so that
   // verifier correctly identifies a valid history; this is for the type column of the history
-  private static final String WRITE_ONLY_LOAD_NAME = "0txn";
-  private static final String READ_WRITE_LOAD_NAME = "1txn";
-  private static final String READ_ONLY_LOAD_NAME = "2txn";
+  static final String WRITE_ONLY_LOAD_NAME = "0txn";
+  static final String READ_WRITE_LOAD_NAME = "1txn";
+  static final String READ_ONLY_LOAD_NAME = "2txn";
 
   // These strings are for the string representation column i.e. a read will look like :read :x nil
   public static final String READ_OP_NAME = ":read";
   public static final String WRITE_OP_NAME = ":write";
+  public static final String CAS_OP_NAME = ":cas";
+  public static final String SCAN_OP_NAME = ":scan";
+  private static final Keyword READ_KEYWORD = Keyword.newKeyword(READ_OP_NAME.substring(1));
+  private static final Keyword WRITE_KEYWORD = Keyword.newKeyword(WRITE_OP_NAME.substring(1));
+  private static final Keyword CAS_KEYWORD = Keyword.newKeyword(CAS_OP_NAME.substring(1));
+  private static final Keyword SCAN_KEYWORD = Keyword.newKeyword(SCAN_OP_NAME.substring(1));
+
+  public enum ValueMode {
+    // Values are drawn from 1 to valueLimit, so that different writes may write the same value
+    RANDOM,
+    // Every write writes a value no other write of any client writes
+    UNIQUE
+  }
 
   public static class Config extends LoadRatioConfig {
     public enum LoadType {
       READ_ONLY,
       WRITE_ONLY,
       TRANSACTION,
-      CAS
+      CAS,
+      SCAN
     }
 
     Config(int... loadRatios) {
       super(loadRatios);
-      // 4 types of operations
-      if (loadRatios.length != 4) {
+      // 5 types of operations; the ratio of range scans may be left out, in which case there
+      // are none
+      if (loadRatios.length != 4 && loadRatios.length != 5) {
         throw new RuntimeException("Invalid ratio length");
       }
     }
@@ -76,8 +117,10 @@ public class LinearizabilityLoadGenerator extends LoadGenerator {
           return LoadType.WRITE_ONLY;
         case 2:
           return LoadType.TRANSACTION;
-        default:
+        case 3:
           return LoadType.CAS;
+        default:
+          return LoadType.SCAN;
       }
     }
   }
@@ -87,6 +130,25 @@ public class LinearizabilityLoadGenerator extends LoadGenerator {
     this(new Random().nextInt(), opLimit, valueLimit, keys, allowMultiKeys, config);
   }
 
+  public LinearizabilityLoadGenerator(int opLimit, int valueLimit, String[] keys,
+                                      boolean allowMultiKeys, Config config,
+                                      KeyDistribution keyDistribution) {
+    this(new Random().nextInt(), opLimit, valueLimit, keys, allowMultiKeys, config,
+            keyDistribution);
+  }
+
+  /**
+   * Constructor with uniformly distributed key accesses.
+   *
+   * @see LinearizabilityLoadGenerator#LinearizabilityLoadGenerator(int, int, int, String[],
+   * boolean, Config, KeyDistribution)
+   */
+  public LinearizabilityLoadGenerator(int seed, int opLimit, int valueLimit, String[] keys,
+                                      boolean allowMultiKeys, Config config) {
+    this(seed, opLimit, valueLimit, keys, allowMultiKeys, config,
+            KeyDistribution.createUniform(keys.length));
+  }
+
   /**
    * Default constructor.
    * @param seed random seed the underlying Random object takes
@@ -94,36 +156,137 @@ public class LinearizabilityLoadGenerator extends LoadGenerator {
    * @param valueLimit max value that can be written into each key
    * @param keys an array of keys the database has
    * @param allowMultiKeys if each operation is on multiple keys
-   * @param config ratios between each operation, should have size of 4
+   * @param config ratios between each operation, should have size of 4, or 5 with range scans
+   * @param keyDistribution how often each key is accessed; must cover all keys
    */
   public LinearizabilityLoadGenerator(int seed, int opLimit, int valueLimit, String[] keys,
-                                      boolean allowMultiKeys, Config config) {
+                                      boolean allowMultiKeys, Config config,
+                                      KeyDistribution keyDistribution) {
+    this(seed, opLimit, valueLimit, keys, allowMultiKeys, config, keyDistribution,
+            ValueMode.RANDOM, /*processID=*/0);
+  }
+
+  /**
+   * Constructor that chooses how written values are picked.
+   *
+   * @see LinearizabilityLoadGenerator#LinearizabilityLoadGenerator(int, int, int, String[],
+   * boolean, Config, KeyDistribution)
+   * @param valueMode whether written values are random or unique
+   * @param processID process ID of the client, which keeps unique values of different clients
+   *                  apart
+   */
+  public LinearizabilityLoadGenerator(int seed, int opLimit, int valueLimit, String[] keys,
+                                      boolean allowMultiKeys, Config config,
+                                      KeyDistribution keyDistribution, ValueMode valueMode,
+                                      int processID) {
     super(opLimit, seed);
+    if (valueMode == null || processID < 0) {
+      throw new RuntimeException("Invalid value mode");
+    }
+    if (keyDistribution.getKeyCount() != keys.length) {
+      throw new RuntimeException("Key distribution does not match number of keys");
+    }
     this.valueLimit = valueLimit;
     this.keys = keys;
     this.allowMultiKeys = allowMultiKeys;
     this.config = config;
+    this.keyDistribution = keyDistribution;
+    this.selectedKeyIdx = new int[keys.length];
+    this.keyKeywords = new Keyword[keys.length];
+    this.valueMode = valueMode;
+    this.valueTag = processTag(processID);
+    this.lastWritten = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keyKeywords[i] = Keyword.newKeyword(keys[i]);
+    }
+    this.scanEnd = scanEnds(keys, keyDistribution);
+  }
+
+  /**
+   * Splits the keys, in lexical order, into runs of keys the distribution may access, and returns
+   * the index of the last key of the run of each key. Without partitioning, all keys form a single
+   * run; with it, the keys of other workers break the partition of this worker into several runs.
+   */
+  private static int[] scanEnds(String[] keys, KeyDistribution keyDistribution) {
+    Integer[] lexicalOrder = new Integer[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      lexicalOrder[i] = i;
+    }
+    Arrays.sort(lexicalOrder, Comparator.comparing(i -> keys[i]));
+    int[] scanEnd = new int[keys.length];
+    int runEnd = -1;
+    for (int i = keys.length - 1; i >= 0; i--) {
+      int keyIdx = lexicalOrder[i];
+      if (!keyDistribution.isAccessible(keyIdx)) {
+        runEnd = -1;
+        continue;
+      }
+      if (runEnd < 0) {
+        runEnd = keyIdx;
+      }
+      scanEnd[keyIdx] = runEnd;
+    }
+    return scanEnd;
   }
 
   public static LinearizabilityLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt());
+  }
+
+  public static LinearizabilityLoadGenerator createGeneratorFromConfig(String configPath,
+                                                                       int seed) {
+    return createGeneratorFromConfig(configPath, seed, /*workerIdx=*/0, /*workerCount=*/1,
+            /*processID=*/0);
+  }
+
+  public static LinearizabilityLoadGenerator createGeneratorFromConfig(String configPath,
+                                                                       int seed, int workerIdx,
+                                                                       int workerCount,
+                                                                       int processID) {
     Gson gson = new Gson();
     try {
       HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
               HashMap.class);
-      int opLimit = Integer.parseInt(config.get(OP_LIMIT));
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
       int valueLimit = Integer.parseInt(config.get(VALUE_LIMIT));
       boolean allowMultiKeys = Boolean.parseBoolean(config.get(ALLOW_MULTI_KEY));
       String[] keys = config.get(KEYS).split(" ");
       String[] opRatioString = config.get(OP_RATIO).split(" ");
       int[] opRatios = Arrays.stream(opRatioString).mapToInt(Integer::parseInt).toArray();
-      return new LinearizabilityLoadGenerator(opLimit, valueLimit, keys, allowMultiKeys,
-              new Config(opRatios));
+      return new LinearizabilityLoadGenerator(seed, opLimit, valueLimit, keys, allowMultiKeys,
+              new Config(opRatios), KeyDistribution.createFromConfig(config, keys.length, workerIdx,
+                      workerCount), parseValueMode(config.getOrDefault(VALUE_MODE,
+                      RANDOM_VALUE_MODE)), processID);
     } catch (FileNotFoundException | ClassCastException e) {
       e.printStackTrace();
       throw new RuntimeException(ERR_MESSAGE + configPath);
     }
   }
 
+  private static ValueMode parseValueMode(String valueMode) {
+    switch (valueMode) {
+      case RANDOM_VALUE_MODE:
+        return ValueMode.RANDOM;
+      case UNIQUE_VALUE_MODE:
+        return ValueMode.UNIQUE;
+      default:
+        throw new RuntimeException("Invalid value mode " + valueMode);
+    }
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
   @Override
   public Operation nextOperation() {
 
@@ -141,30 +304,35 @@ public class LinearizabilityLoadGenerator extends LoadGenerator {
         return writeOnly();
       case TRANSACTION:
         return transaction();
-      default:
+      case CAS:
         return cas();
+      default:
+        return scan();
     }
   }
 
   /**
-   * Returns a list of randomly selected keys to generate operation on
+   * Returns a list of distinct keys to generate operation on, drawn from the key distribution.
+   * The indices of the keys are left in selectedKeyIdx, in the same order.
    */
   private List<String> selectKeys() {
     int numKeys = 1;
     if (allowMultiKeys) {
-      numKeys = rand.nextInt(keys.length) + 1;
+      numKeys = rand.nextInt(keyDistribution.getAccessibleKeyCount()) + 1;
     }
-    IntStream selectedKeyIdx = rand.ints(0, keys.length).distinct().limit(numKeys);
-    return selectedKeyIdx.mapToObj(idx -> keys[idx]).collect(Collectors.toList());
+    keyDistribution.sampleDistinct(rand, selectedKeyIdx, numKeys);
+    List<String> selectedKeys = new ArrayList<>(numKeys);
+    for (int i = 0; i < numKeys; i++) {
+      selectedKeys.add(keys[selectedKeyIdx[i]]);
+    }
+    return selectedKeys;
   }
 
   private ReadTransaction readOnly() {
     List<String> selectedKeys = selectKeys();
-    List<OpRepresentation> representation = new ArrayList<>();
-    for (String key : selectedKeys) {
-      OpRepresentation repr = OpRepresentation.createReadRepresentation(READ_OP_NAME,
-              convertKeyToEdnKeyword(key), OpRepresentation.NIL_VALUE);
-      representation.add(repr);
+    List<OpRepresentation> representation = new ArrayList<>(selectedKeys.size());
+    for (int i = 0; i < selectedKeys.size(); i++) {
+      representation.add(readRepresentation(selectedKeyIdx[i]));
     }
     return ReadTransaction.createStrongRead(READ_ONLY_LOAD_NAME, selectedKeys, representation);
   }
@@ -172,47 +340,137 @@ public class LinearizabilityLoadGenerator extends LoadGenerator {
   private ReadWriteTransaction writeOnly() {
     List<String> selectedKeys = selectKeys();
     // Generate random values on writes
-    List<TransactionalAction> writes =
-            selectedKeys.stream().map(key -> TransactionalAction.createTransactionalWrite(key,
-                    rand.nextInt(valueLimit) + 1)).collect(Collectors.toList());
-    // Generate the string representations
-    List<OpRepresentation> representation = new ArrayList<>();
-    for (TransactionalAction write : writes) {
-      OpRepresentation repr = OpRepresentation.createOtherRepresentation(WRITE_OP_NAME,
-              convertKeyToEdnKeyword(write.getKey()), String.valueOf(write.getValue()));
-      representation.add(repr);
+    List<TransactionalAction> writes = new ArrayList<>(selectedKeys.size());
+    List<OpRepresentation> representation = new ArrayList<>(selectedKeys.size());
+    for (int i = 0; i < selectedKeys.size(); i++) {
+      long valueToWrite = nextValue(selectedKeyIdx[i]);
+      writes.add(TransactionalAction.createTransactionalWrite(selectedKeys.get(i), valueToWrite));
+      keyDistribution.recordWrite(selectedKeyIdx[i]);
+      representation.add(writeRepresentation(selectedKeyIdx[i], valueToWrite));
     }
     return new ReadWriteTransaction(WRITE_ONLY_LOAD_NAME, representation, writes);
   }
 
   private ReadWriteTransaction transaction() {
     List<String> selectedKeys = selectKeys();
-    List<TransactionalAction> txns = new ArrayList<>();
-    List<OpRepresentation> representation = new ArrayList<>();
-    for (String key : selectedKeys) {
+    List<TransactionalAction> txns = new ArrayList<>(selectedKeys.size());
+    List<OpRepresentation> representation = new ArrayList<>(selectedKeys.size());
+    for (int i = 0; i < selectedKeys.size(); i++) {
+      String key = selectedKeys.get(i);
       // A random boolean value to select between reads or writes
       boolean readWriteSelect = rand.nextBoolean();
       if (readWriteSelect) {
         txns.add(TransactionalAction.createTransactionalRead(key));
-        representation.add(OpRepresentation.createReadRepresentation(READ_OP_NAME,
-                convertKeyToEdnKeyword(key), OpRepresentation.NIL_VALUE));
+        representation.add(readRepresentation(selectedKeyIdx[i]));
       } else {
-        int valueToWrite = rand.nextInt(valueLimit) + 1;
+        long valueToWrite = nextValue(selectedKeyIdx[i]);
         txns.add(TransactionalAction.createTransactionalWrite(key, valueToWrite));
-        representation.add(OpRepresentation.createOtherRepresentation(WRITE_OP_NAME,
-                convertKeyToEdnKeyword(key), String.valueOf(valueToWrite)));
+        keyDistribution.recordWrite(selectedKeyIdx[i]);
+        representation.add(writeRepresentation(selectedKeyIdx[i], valueToWrite));
       }
     }
     return new ReadWriteTransaction(READ_WRITE_LOAD_NAME, representation, txns);
   }
 
-  // TODO: implement
   private ReadWriteTransaction cas() {
-    throw new UnsupportedOperationException();
+    keyDistribution.sampleDistinct(rand, selectedKeyIdx, /*count=*/1);
+    int keyIdx = selectedKeyIdx[0];
+    long expectedValue;
+    if (valueMode == ValueMode.UNIQUE) {
+      // A random value would hardly ever match, so expect what this worker wrote last
+      expectedValue = lastWritten[keyIdx];
+    } else {
+      // The expected value may be 0, so that keys that have not been written can be swapped too
+      expectedValue = rand.nextInt(valueLimit + 1);
+    }
+    long newValue = nextValue(keyIdx);
+    keyDistribution.recordWrite(keyIdx);
+    return new ReadWriteTransaction(READ_WRITE_LOAD_NAME,
+            Collections.singletonList(OpRepresentation.createOtherFromObjs(Arrays.asList(
+                    CAS_KEYWORD, keyKeywords[keyIdx],
+                    Arrays.asList(expectedValue, newValue)))),
+            Collections.singletonList(TransactionalAction.createTransactionalCompareAndSet(
+                    keys[keyIdx], expectedValue, newValue)));
+  }
+
+  /**
+   * Returns a range scan between two keys drawn from the key distribution. If the keys between
+   * them include keys the distribution never accesses, e.g. the partitions of other workers, the
+   * scan is cut short at the last key before those, so that it stays within the keys of this
+   * worker. Half of the scans are strong read-only transactions; the other half are followed by
+   * writes to randomly selected keys, in or out of the range, within the same transaction. The
+   * scan comes first, so that it does not observe the writes of its own transaction.
+   */
+  private Operation scan() {
+    int rangeSize = Math.min(2, keys.length);
+    keyDistribution.sampleDistinct(rand, selectedKeyIdx, rangeSize);
+    int startIdx = selectedKeyIdx[0];
+    int endIdx = selectedKeyIdx[rangeSize - 1];
+    if (keys[startIdx].compareTo(keys[endIdx]) > 0) {
+      int temp = startIdx;
+      startIdx = endIdx;
+      endIdx = temp;
+    }
+    if (keys[endIdx].compareTo(keys[scanEnd[startIdx]]) > 0) {
+      endIdx = scanEnd[startIdx];
+    }
+    OpRepresentation scanRepresentation = OpRepresentation.createRangeReadFromObjs(
+            Arrays.asList(SCAN_KEYWORD, keyKeywords[startIdx], keyKeywords[endIdx], null));
+    if (rand.nextBoolean()) {
+      return ScanReadTransaction.createStrongScan(READ_ONLY_LOAD_NAME, keys[startIdx],
+              keys[endIdx], Collections.singletonList(scanRepresentation));
+    }
+
+    String startKey = keys[startIdx];
+    String endKey = keys[endIdx];
+    List<String> selectedKeys = selectKeys();
+    List<TransactionalAction> txns = new ArrayList<>(selectedKeys.size() + 1);
+    List<OpRepresentation> representation = new ArrayList<>(selectedKeys.size() + 1);
+    txns.add(TransactionalAction.createTransactionalScan(startKey, endKey));
+    representation.add(scanRepresentation);
+    for (int i = 0; i < selectedKeys.size(); i++) {
+      long valueToWrite = nextValue(selectedKeyIdx[i]);
+      txns.add(TransactionalAction.createTransactionalWrite(selectedKeys.get(i), valueToWrite));
+      keyDistribution.recordWrite(selectedKeyIdx[i]);
+      representation.add(writeRepresentation(selectedKeyIdx[i], valueToWrite));
+    }
+    return new ReadWriteTransaction(READ_WRITE_LOAD_NAME, representation, txns);
+  }
+
+  /**
+   * Returns the next value to write to keys[keyIdx].
+   */
+  private long nextValue(int keyIdx) {
+    if (valueMode == ValueMode.RANDOM) {
+      return rand.nextInt(valueLimit) + 1;
+    }
+    if (valueSeq == Integer.MAX_VALUE) {
+      throw new RuntimeException("Linearizability generator has run out of unique values");
+    }
+    lastWritten[keyIdx] = valueTag | ++valueSeq;
+    return lastWritten[keyIdx];
+  }
+
+  /**
+   * Returns [:read :key nil]. Representations are built from already interned keywords, so no
+   * EDN parsing or string concatenation happens per operation.
+   */
+  private OpRepresentation readRepresentation(int keyIdx) {
+    return readRepresentation(keyKeywords[keyIdx]);
+  }
+
+  static OpRepresentation readRepresentation(Keyword key) {
+    return OpRepresentation.createReadFromObjs(Arrays.asList(READ_KEYWORD, key, null));
+  }
+
+  /**
+   * Returns [:write :key value].
+   */
+  private OpRepresentation writeRepresentation(int keyIdx, long value) {
+    return writeRepresentation(keyKeywords[keyIdx], value);
   }
 
-  /** Convert this key to a representation that can be stored in history table */
-  private String convertKeyToEdnKeyword(String key) {
-    return ":" + key;
+  static OpRepresentation writeRepresentation(Keyword key, long value) {
+    return OpRepresentation.createOtherFromObjs(Arrays.asList(WRITE_KEYWORD, key, value));
   }
 }
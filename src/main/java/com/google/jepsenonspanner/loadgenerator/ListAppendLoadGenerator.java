@@ -0,0 +1,116 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.ListAppendTransaction;
+import com.google.jepsenonspanner.operation.Operation;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Implements the load generator of the list-append benchmark. Every load is a transaction of one
+ * up to a configured number of actions, each of which either appends an element to the list of a
+ * key or reads the whole list of a key; a key may be accessed more than once in a transaction.
+ * Like the unique value mode of LinearizabilityLoadGenerator, the process ID of the client and a
+ * sequence number are packed into every element, so that no two appends of any client append the
+ * same element and every element read can be traced back to the one append that wrote it.
+ */
+public class ListAppendLoadGenerator extends LoadGenerator {
+  private String[] keys;
+  private int maxTxnLength;
+  private KeyDistribution keyDistribution;
+  // Upper half of every element appended by this client
+  private long elementTag;
+  private int elementSeq = 0;
+
+  private static final String OP_LIMIT = "opLimit";
+  private static final String KEYS = "keys";
+  private static final String MAX_TXN_LENGTH = "listTxnLength";
+  private static final int DEFAULT_MAX_TXN_LENGTH = 4;
+  private static final String ERR_MESSAGE = "Error parsing config file ";
+
+  // The leading digit orders records in the history table, and is dropped from the history
+  static final String LOAD_NAME = "0txn";
+
+  /**
+   * @param maxTxnLength the largest number of actions in one transaction
+   * @param processID process ID of the client, which keeps the elements of different clients
+   *                  apart
+   */
+  public ListAppendLoadGenerator(int seed, int opLimit, String[] keys, int maxTxnLength,
+                                 KeyDistribution keyDistribution, int processID) {
+    super(opLimit, seed);
+    if (maxTxnLength <= 0 || processID < 0) {
+      throw new RuntimeException("Invalid list-append config");
+    }
+    if (keyDistribution.getKeyCount() != keys.length) {
+      throw new RuntimeException("Key distribution does not match number of keys");
+    }
+    this.keys = keys;
+    this.maxTxnLength = maxTxnLength;
+    this.keyDistribution = keyDistribution;
+    this.elementTag = processTag(processID);
+  }
+
+  public static ListAppendLoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                                  int workerIdx,
+                                                                  int workerCount,
+                                                                  int processID) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      String[] keys = config.get(KEYS).split(" ");
+      int maxTxnLength = config.containsKey(MAX_TXN_LENGTH) ?
+              Integer.parseInt(config.get(MAX_TXN_LENGTH)) : DEFAULT_MAX_TXN_LENGTH;
+      return new ListAppendLoadGenerator(seed, opLimit, keys, maxTxnLength,
+              KeyDistribution.createFromConfig(config, keys.length, workerIdx, workerCount),
+              processID);
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MESSAGE + configPath);
+    }
+  }
+
+  public static ListAppendLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt(), /*workerIdx=*/0,
+            /*workerCount=*/1, /*processID=*/0);
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("List-append generator has reached limit");
+    }
+    opLimit--;
+    int length = rand.nextInt(maxTxnLength) + 1;
+    List<String> txnKeys = new ArrayList<>(length);
+    List<Long> elements = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      int keyIdx = keyDistribution.nextIndex(rand);
+      txnKeys.add(keys[keyIdx]);
+      if (rand.nextBoolean()) {
+        elements.add(nextElement());
+        keyDistribution.recordWrite(keyIdx);
+      } else {
+        elements.add(null);
+      }
+    }
+    return new ListAppendTransaction(LOAD_NAME, txnKeys, elements);
+  }
+
+  private long nextElement() {
+    if (elementSeq == Integer.MAX_VALUE) {
+      throw new RuntimeException("List-append generator has run out of unique elements");
+    }
+    return elementTag | ++elementSeq;
+  }
+}
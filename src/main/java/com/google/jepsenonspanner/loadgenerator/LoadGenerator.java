@@ -2,10 +2,16 @@ package com.google.jepsenonspanner.loadgenerator;
 
 import com.google.jepsenonspanner.operation.Operation;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.BANK_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.COUNTER_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.LINEARIZABILITY_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.LIST_APPEND_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SESSION_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SET_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.WRITE_SKEW_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.INVALID_TYPE_MSG;
 
 /**
@@ -18,6 +24,9 @@ public abstract class LoadGenerator {
   protected int opLimit = 0;
   protected Random rand;
   protected int seed;
+  private final long startTime = System.currentTimeMillis();
+
+  private static final long MAX_MILLISECOND_PAST = 5 * 60 * 1000; // 5 minutes
 
   public LoadGenerator(int opLimit) {
     this(opLimit, new Random().nextInt());
@@ -34,6 +43,37 @@ public abstract class LoadGenerator {
    */
   public abstract Operation nextOperation();
 
+  /**
+   * Replaces the ratio between the types of load this generator issues; the ratios have the same
+   * meaning and length as the opRatio field of the config file. Only called with ratios that
+   * checkOpRatios accepts, so generators that take none throw like checkOpRatios.
+   */
+  public void setOpRatios(int... ratios) {
+    throw opRatiosRejected(ratios);
+  }
+
+  /**
+   * Throws if setOpRatios does not take the given ratios. Generators without an op ratio, and
+   * those replaying loads generated earlier, take none.
+   */
+  public void checkOpRatios(int... ratios) {
+    throw opRatiosRejected(ratios);
+  }
+
+  private RuntimeException opRatiosRejected(int... ratios) {
+    return new RuntimeException(getClass().getSimpleName() + " does not take op ratios, but was " +
+            "given " + Arrays.toString(ratios));
+  }
+
+  /**
+   * Returns a random staleness for a stale read, in milliseconds; it reaches back no further than
+   * 5 minutes, nor than the creation of this generator
+   */
+  protected int randomStaleness() {
+    return rand.nextInt((int) Math.min(MAX_MILLISECOND_PAST,
+            Math.max(System.currentTimeMillis() - startTime, 1))) + 1;
+  }
+
   /**
    * Returns if the generator has more loads
    */
@@ -42,13 +82,71 @@ public abstract class LoadGenerator {
   }
 
   public static LoadGenerator createGenerator(String benchmarkType, String configFilePath) {
+    return createGenerator(benchmarkType, configFilePath, new Random().nextInt());
+  }
+
+  /**
+   * Creates a generator whose loads are fully determined by the config file and the seed.
+   */
+  public static LoadGenerator createGenerator(String benchmarkType, String configFilePath,
+                                              int seed) {
+    return createGenerator(benchmarkType, configFilePath, seed, /*workerIdx=*/0,
+            /*processIDs=*/new int[]{0});
+  }
+
+  /**
+   * Creates a generator for one of several workers; if the config partitions the keys, the loads
+   * only access the partition of this worker. If the config of a linearizability benchmark gives
+   * a trace, the trace is replayed instead of generating loads.
+   *
+   * @param workerIdx index of this worker among the workers of the benchmark
+   * @param processIDs process IDs of the workers of the benchmark, indexed by worker index; the
+   *                   process ID keeps unique values of different clients apart even when each
+   *                   was started as the only worker of its benchmark
+   */
+  public static LoadGenerator createGenerator(String benchmarkType, String configFilePath,
+                                              int seed, int workerIdx, int[] processIDs) {
+    int workerCount = processIDs.length;
     switch (benchmarkType) {
       case BANK_TYPE:
-        return BankLoadGenerator.createGeneratorFromConfig(configFilePath);
+        return BankLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                workerCount);
       case LINEARIZABILITY_TYPE:
-        return LinearizabilityLoadGenerator.createGeneratorFromConfig(configFilePath);
+        TraceLoadGenerator trace = TraceLoadGenerator.createFromConfig(configFilePath, workerIdx,
+                workerCount);
+        if (trace != null) {
+          return trace;
+        }
+        return LinearizabilityLoadGenerator.createGeneratorFromConfig(configFilePath, seed,
+                workerIdx, workerCount, processIDs[workerIdx]);
+      case LIST_APPEND_TYPE:
+        return ListAppendLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                workerCount, processIDs[workerIdx]);
+      case SET_TYPE:
+        return SetLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                processIDs);
+      case COUNTER_TYPE:
+        return CounterLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                workerCount);
+      case WRITE_SKEW_TYPE:
+        return WriteSkewLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                workerCount);
+      case SESSION_TYPE:
+        return SessionLoadGenerator.createGeneratorFromConfig(configFilePath, seed, workerIdx,
+                workerCount);
       default:
         throw new RuntimeException(INVALID_TYPE_MSG);
     }
   }
+
+  /**
+   * Returns the upper half of every unique value written by the client with the given process ID;
+   * the lower half is left for a sequence number of the client.
+   */
+  static long processTag(int processID) {
+    if (processID < 0) {
+      throw new RuntimeException("Invalid process ID " + processID);
+    }
+    return (processID + 1L) << Integer.SIZE;
+  }
 }
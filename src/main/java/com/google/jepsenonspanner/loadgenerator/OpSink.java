@@ -0,0 +1,66 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.client.Executor;
+import com.google.jepsenonspanner.operation.Operation;
+
+/**
+ * Carries out the operations a WorkloadRunner issues. In a run, each operation follows its
+ * execution plan on the executor of the worker; tests give the runner a sink of their own, so
+ * that runners can be tested without a Spanner instance.
+ */
+public interface OpSink {
+  /**
+   * Carries out the operation, and returns when it is done.
+   */
+  void execute(Operation op);
+
+  /**
+   * Returns a sink sharing the counters of this one, that records its operations under the given
+   * process ID.
+   */
+  OpSink withProcessID(int processID);
+
+  int getProcessID();
+
+  /**
+   * Returns the number of transaction attempts aborted and retried so far.
+   */
+  long getAbortCount();
+
+  /**
+   * Returns the number of operations that ended with an error or a timeout so far.
+   */
+  long getInfoCount();
+
+  /**
+   * Returns a sink that carries out operations on the given executor.
+   */
+  static OpSink of(Executor executor) {
+    return new OpSink() {
+      @Override
+      public void execute(Operation op) {
+        op.getExecutionPlan().accept(executor);
+      }
+
+      @Override
+      public OpSink withProcessID(int processID) {
+        return of(executor.withProcessID(processID));
+      }
+
+      @Override
+      public int getProcessID() {
+        return executor.getProcessID();
+      }
+
+      @Override
+      public long getAbortCount() {
+        return executor.getAbortCount();
+      }
+
+      @Override
+      public long getInfoCount() {
+        return executor.getInfoCount();
+      }
+    };
+  }
+}
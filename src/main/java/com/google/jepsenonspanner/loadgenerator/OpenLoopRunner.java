@@ -0,0 +1,163 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues operations at a target rate, whether or not earlier operations have finished. The rate
+ * at any point in time comes from the phase schedule, and arrival times follow either a fixed
+ * interval or a Poisson process around it. Operations are handed to a pool of at most
+ * maxInFlight threads; an operation that is due while all threads are busy waits in a queue and
+ * is reported as backlog. Its latency is still measured from the time it was due, so
+ * the queueing delay shows up in the response time percentiles instead of being hidden.
+ * Backpressure lowers the target rate, so that fewer operations become due at all.
+ *
+ * The verifiers assume that a process has at most one operation pending at a time, so each of
+ * the maxInFlight slots records its operations under a process ID of its own: slot i of the
+ * worker with process ID p records them under p + i * SLOT_PROCESS_ID_STRIDE.
+ *
+ * With trace arrivals, each operation of a TraceLoadGenerator is instead due at its time in the
+ * trace, so the inter-arrival times of the trace are kept; the target rate of the schedule is
+ * then ignored, though its phases still bound the run. Backpressure delays an operation until
+ * the interval of the rate limit has passed since the previous one was due.
+ */
+public class OpenLoopRunner extends WorkloadRunner {
+  static final int SLOT_PROCESS_ID_STRIDE = 1_000_000;
+
+  public enum Arrival {
+    FIXED,
+    POISSON,
+    TRACE
+  }
+
+  private Arrival arrival;
+  private int maxInFlight;
+  private Random rand;
+
+  /**
+   * Constructor for a run at a constant rate that lasts until the generator runs out of load.
+   * @param arrival how intervals between two operations are distributed
+   * @param opsPerSecond target rate of operations issued by this worker
+   * @param maxInFlight maximum number of operations running at the same time
+   */
+  public OpenLoopRunner(Arrival arrival, double opsPerSecond, int maxInFlight) {
+    this(arrival, PhaseSchedule.constant(opsPerSecond), maxInFlight);
+  }
+
+  /**
+   * @param arrival how intervals between two operations are distributed
+   * @param schedule phases of the run, with the target rate of this worker in each of them
+   * @param maxInFlight maximum number of operations running at the same time
+   */
+  public OpenLoopRunner(Arrival arrival, PhaseSchedule schedule, int maxInFlight) {
+    super(schedule);
+    if (schedule == null || maxInFlight <= 0 ||
+            maxInFlight > Integer.MAX_VALUE / SLOT_PROCESS_ID_STRIDE) {
+      throw new RuntimeException("Invalid open-loop config");
+    }
+    this.arrival = arrival;
+    this.maxInFlight = maxInFlight;
+    this.rand = new Random();
+  }
+
+  @Override
+  public void run(LoadGenerator gen, OpSink sink) {
+    if (arrival == Arrival.TRACE && !(gen instanceof TraceLoadGenerator)) {
+      throw new RuntimeException("Trace arrivals need a trace to replay");
+    }
+    checkOpRatios(gen);
+    ExecutorService pool = Executors.newFixedThreadPool(maxInFlight);
+    // Slots not used by a running operation; there are as many slots as threads in the pool, so
+    // an operation always finds one free
+    BlockingQueue<Integer> freeSlots = new ArrayBlockingQueue<>(maxInFlight);
+    OpSink[] slotSinks = new OpSink[maxInFlight];
+    for (int slot = 0; slot < maxInFlight; slot++) {
+      freeSlots.add(slot);
+      slotSinks[slot] = sink.withProcessID(slotProcessID(sink.getProcessID(), slot));
+    }
+    // Operations handed to the pool that have not finished yet
+    AtomicInteger outstanding = new AtomicInteger(0);
+    long runStartNanos = System.nanoTime();
+    long intendedStartNanos = runStartNanos;
+    try {
+      while (gen.hasLoad()) {
+        PhaseSchedule.Phase phase = enterPhase(gen, intendedStartNanos - runStartNanos);
+        if (phase == null) {
+          break;
+        }
+        Operation op = gen.nextOperation();
+        System.out.println("Generated " + (phase.isWarmUp() ? "warm-up " : "") + "op " +
+                op.toString());
+        if (arrival == Arrival.TRACE) {
+          long traceStartNanos = runStartNanos + ((TraceLoadGenerator) gen).getOffsetNanos();
+          intendedStartNanos = Math.max(intendedStartNanos, traceStartNanos);
+        }
+        waitUntil(intendedStartNanos);
+        int depth = outstanding.incrementAndGet();
+        if (depth > maxInFlight) {
+          stats.recordBacklog(depth - maxInFlight);
+        }
+        long dueNanos = intendedStartNanos;
+        pool.execute(() -> {
+          int slot = freeSlots.remove();
+          try {
+            execute(op, slotSinks[slot], dueNanos, phase);
+          } finally {
+            freeSlots.add(slot);
+            outstanding.decrementAndGet();
+          }
+        });
+        if (arrival == Arrival.TRACE) {
+          // The next operation is due at its own time in the trace, but not before the limit
+          if (backpressure != null) {
+            intendedStartNanos += backpressure.getIntervalNanos();
+          }
+          continue;
+        }
+        double opsPerSecond = schedule.opsPerSecondAt(intendedStartNanos - runStartNanos);
+        if (backpressure != null) {
+          // Operations held back by the limit are never due, rather than queued as backlog
+          opsPerSecond = Math.min(opsPerSecond, backpressure.getOpsPerSecond());
+        }
+        intendedStartNanos += nextIntervalNanos(opsPerSecond);
+      }
+    } finally {
+      pool.shutdown();
+      try {
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    printStats();
+  }
+
+  /**
+   * Returns the process ID the given slot of a worker records its operations under.
+   */
+  static int slotProcessID(int processID, int slot) {
+    if (processID < 0 || processID >= SLOT_PROCESS_ID_STRIDE) {
+      throw new RuntimeException("Process ID " + processID + " is out of range for open-loop " +
+              "scheduling");
+    }
+    return processID + slot * SLOT_PROCESS_ID_STRIDE;
+  }
+
+  /**
+   * Returns the time until the next operation is due, given the current target rate.
+   */
+  long nextIntervalNanos(double opsPerSecond) {
+    double meanNanos = 1e9 / opsPerSecond;
+    if (arrival == Arrival.POISSON) {
+      return (long) (-Math.log(1 - rand.nextDouble()) * meanNanos);
+    }
+    return (long) meanNanos;
+  }
+}
@@ -0,0 +1,352 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.ChecksumReadTransaction;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.ScanReadTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import us.bpsm.edn.Keyword;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.BANK_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.LINEARIZABILITY_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SESSION_TYPE;
+
+/**
+ * An operation tape is a compact binary file holding the full stream of operations a worker
+ * issues, generated ahead of the run. Replaying a tape (see TapeLoadGenerator) needs no random
+ * number generation, config parsing or EDN parsing, and the same tape can be replayed against
+ * different builds to compare them on exactly the same load.
+ *
+ * Layout: a header of MAGIC, VERSION and the number of operations, followed by the operations.
+ * Strings are written once; every later occurrence refers to the first one by its index. The
+ * EDN objects of the representations are stored as tagged binary values. A read only records if
+ * it is stale: a staleness drawn ahead of the run could only reach back to when the tape was
+ * written, so it is drawn again when the tape is replayed.
+ */
+public class OperationTape {
+  private static final int MAGIC = 0x4a4f5354;
+  private static final int VERSION = 2;
+  // Written instead of a string index when a new string follows
+  private static final int NEW_STRING = -1;
+
+  // Kinds of operations
+  private static final byte READ_TRANSACTION = 0;
+  private static final byte READ_WRITE_TRANSACTION = 1;
+  private static final byte CHECKSUM_READ_TRANSACTION = 2;
+  private static final byte SCAN_READ_TRANSACTION = 3;
+
+  // How the nil value of a representation is updated
+  private static final byte NO_UPDATE = 0;
+  private static final byte VALUE_UPDATE = 1;
+  private static final byte RANGE_UPDATE = 2;
+
+  // Tags of EDN objects in representations
+  private static final byte NIL_TAG = 0;
+  private static final byte KEYWORD_TAG = 1;
+  private static final byte STRING_TAG = 2;
+  private static final byte LONG_TAG = 3;
+  private static final byte LIST_TAG = 4;
+
+  // Flags of transactional actions
+  private static final byte HAS_DELTA = 1;
+  private static final byte HAS_DEPENDENT = 2;
+  private static final byte LEDGER_ENTRY = 4;
+
+  private static final String INVALID_TAPE = "Invalid operation tape";
+
+  // Benchmarks whose loads can all be stored in a tape; the others depend on functions or on
+  // operations a tape cannot hold
+  private static final Set<String> TAPE_BENCHMARKS = new HashSet<>(Arrays.asList(BANK_TYPE,
+          LINEARIZABILITY_TYPE, SESSION_TYPE));
+
+  /**
+   * Returns if the loads of the given benchmark can be stored in a tape.
+   */
+  public static boolean canRecord(String benchmarkType) {
+    return TAPE_BENCHMARKS.contains(benchmarkType);
+  }
+
+  /**
+   * Writes all remaining operations of the generator to a tape at the given path.
+   */
+  public static void write(LoadGenerator gen, String path) {
+    if (gen.opLimit == Integer.MAX_VALUE) {
+      throw new RuntimeException("An operation tape needs an op limit");
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(gen.opLimit);
+      Encoder encoder = new Encoder(out);
+      while (gen.hasLoad()) {
+        encoder.writeOperation(gen.nextOperation());
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new RuntimeException("Error writing operation tape " + path);
+    }
+  }
+
+  /**
+   * Checks the header of a tape and returns the number of operations it holds.
+   */
+  static int readHeader(ByteBuffer tape) {
+    if (tape.remaining() < 3 * Integer.BYTES || tape.getInt() != MAGIC ||
+            tape.getInt() != VERSION) {
+      throw new RuntimeException(INVALID_TAPE);
+    }
+    return tape.getInt();
+  }
+
+  private static class Encoder {
+    private DataOutputStream out;
+    private Map<String, Integer> stringIdx = new HashMap<>();
+
+    Encoder(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void writeOperation(Operation op) throws IOException {
+      if (op instanceof ReadTransaction) {
+        ReadTransaction read = (ReadTransaction) op;
+        if (op instanceof ChecksumReadTransaction) {
+          out.writeByte(CHECKSUM_READ_TRANSACTION);
+        } else if (op instanceof ScanReadTransaction) {
+          out.writeByte(SCAN_READ_TRANSACTION);
+        } else {
+          out.writeByte(READ_TRANSACTION);
+        }
+        writeCommon(op);
+        out.writeInt(read.getKeys().size());
+        for (String key : read.getKeys()) {
+          writeString(key);
+        }
+        out.writeBoolean(read.getStaleness() != 0);
+        out.writeBoolean(read.getBounded());
+      } else if (op instanceof ReadWriteTransaction) {
+        List<TransactionalAction> actions = ((ReadWriteTransaction) op).getSpannerActions();
+        out.writeByte(READ_WRITE_TRANSACTION);
+        writeCommon(op);
+        out.writeInt(actions.size());
+        for (TransactionalAction action : actions) {
+          writeAction(action);
+        }
+      } else {
+        throw new RuntimeException("Operation cannot be stored in a tape: " + op);
+      }
+    }
+
+    private void writeCommon(Operation op) throws IOException {
+      writeString(op.getLoadName());
+      out.writeInt(op.getRecordRepresentation().size());
+      for (OpRepresentation repr : op.getRecordRepresentation()) {
+        out.writeByte(repr.needsRangeUpdate() ? RANGE_UPDATE :
+                repr.needsUpdate() ? VALUE_UPDATE : NO_UPDATE);
+        writeObject(repr.getEdnPrintableObjects());
+      }
+    }
+
+    private void writeAction(TransactionalAction action) throws IOException {
+      if (action.isDependent() && action.getDelta() == null) {
+        // Arbitrary functions cannot be written down
+        throw new RuntimeException("Action cannot be stored in a tape: " + action);
+      }
+      out.writeByte(action.getType().ordinal());
+      writeString(action.getKey());
+      if (action.isScan()) {
+        writeString(action.getEndKey());
+      }
+      out.writeLong(action.getValue());
+      out.writeLong(action.getExpectedValue());
+      TransactionalAction dependent = action.getDependentAction();
+      out.writeByte((action.getDelta() != null ? HAS_DELTA : 0) |
+              (dependent != null ? HAS_DEPENDENT : 0) |
+              (action.isLedgerEntry() ? LEDGER_ENTRY : 0));
+      if (action.getDelta() != null) {
+        out.writeLong(action.getDelta());
+      }
+      if (dependent != null) {
+        writeAction(dependent);
+      }
+    }
+
+    private void writeObject(Object obj) throws IOException {
+      if (obj == null) {
+        out.writeByte(NIL_TAG);
+      } else if (obj instanceof Keyword) {
+        out.writeByte(KEYWORD_TAG);
+        writeString(((Keyword) obj).getName());
+      } else if (obj instanceof String) {
+        out.writeByte(STRING_TAG);
+        writeString((String) obj);
+      } else if (obj instanceof Long || obj instanceof Integer) {
+        out.writeByte(LONG_TAG);
+        out.writeLong(((Number) obj).longValue());
+      } else if (obj instanceof List) {
+        List<?> list = (List<?>) obj;
+        out.writeByte(LIST_TAG);
+        out.writeInt(list.size());
+        for (Object element : list) {
+          writeObject(element);
+        }
+      } else {
+        throw new RuntimeException("Object cannot be stored in a tape: " + obj);
+      }
+    }
+
+    private void writeString(String str) throws IOException {
+      Integer idx = stringIdx.get(str);
+      if (idx != null) {
+        out.writeInt(idx);
+        return;
+      }
+      stringIdx.put(str, stringIdx.size());
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(NEW_STRING);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Reads operations back from a tape, positioned after its header.
+   */
+  static class Decoder {
+    private ByteBuffer tape;
+    // Draws the staleness of each stale read
+    private IntSupplier staleness;
+    private List<String> strings = new ArrayList<>();
+
+    Decoder(ByteBuffer tape, IntSupplier staleness) {
+      this.tape = tape;
+      this.staleness = staleness;
+    }
+
+    Operation readOperation() {
+      byte kind = tape.get();
+      String loadName = readString();
+      int reprCount = tape.getInt();
+      List<OpRepresentation> representation = new ArrayList<>(reprCount);
+      for (int i = 0; i < reprCount; i++) {
+        byte update = tape.get();
+        List<Object> objects = (List<Object>) readObject();
+        if (update == RANGE_UPDATE) {
+          representation.add(OpRepresentation.createRangeReadFromObjs(objects));
+        } else if (update == VALUE_UPDATE) {
+          representation.add(OpRepresentation.createReadFromObjs(objects));
+        } else {
+          representation.add(OpRepresentation.createOtherFromObjs(objects));
+        }
+      }
+      switch (kind) {
+        case READ_TRANSACTION:
+        case CHECKSUM_READ_TRANSACTION:
+        case SCAN_READ_TRANSACTION:
+          int keyCount = tape.getInt();
+          List<String> keys = new ArrayList<>(keyCount);
+          for (int i = 0; i < keyCount; i++) {
+            keys.add(readString());
+          }
+          int staleness = tape.get() != 0 ? this.staleness.getAsInt() : 0;
+          boolean bounded = tape.get() != 0;
+          if (kind == SCAN_READ_TRANSACTION) {
+            return new ScanReadTransaction(loadName, representation, keys.get(0), keys.get(1),
+                    staleness, bounded);
+          }
+          if (kind == CHECKSUM_READ_TRANSACTION) {
+            return new ChecksumReadTransaction(loadName, representation, keys, staleness,
+                    bounded);
+          }
+          return new ReadTransaction(loadName, representation, keys, staleness, bounded);
+        case READ_WRITE_TRANSACTION:
+          int actionCount = tape.getInt();
+          List<TransactionalAction> actions = new ArrayList<>(actionCount);
+          for (int i = 0; i < actionCount; i++) {
+            actions.add(readAction());
+          }
+          return new ReadWriteTransaction(loadName, representation, actions);
+        default:
+          throw new RuntimeException(INVALID_TAPE);
+      }
+    }
+
+    private TransactionalAction readAction() {
+      TransactionalAction.Type type = TransactionalAction.Type.values()[tape.get()];
+      String key = readString();
+      String endKey = type == TransactionalAction.Type.SCAN ? readString() : null;
+      long value = tape.getLong();
+      long expectedValue = tape.getLong();
+      byte flags = tape.get();
+      TransactionalAction action;
+      if ((flags & LEDGER_ENTRY) != 0) {
+        action = TransactionalAction.createDependentTransactionalLedgerDelta(key,
+                tape.getLong());
+      } else if ((flags & HAS_DELTA) != 0) {
+        action = TransactionalAction.createDependentTransactionalDelta(key, tape.getLong());
+      } else if (type == TransactionalAction.Type.SCAN) {
+        action = TransactionalAction.createTransactionalScan(key, endKey);
+      } else if (type == TransactionalAction.Type.CAS) {
+        action = TransactionalAction.createTransactionalCompareAndSet(key, expectedValue, value);
+      } else {
+        action = new TransactionalAction(key, value, type);
+      }
+      if ((flags & HAS_DEPENDENT) != 0) {
+        action.setDependentAction(readAction());
+      }
+      return action;
+    }
+
+    private Object readObject() {
+      byte tag = tape.get();
+      switch (tag) {
+        case NIL_TAG:
+          return null;
+        case KEYWORD_TAG:
+          return Keyword.newKeyword(readString());
+        case STRING_TAG:
+          return readString();
+        case LONG_TAG:
+          return tape.getLong();
+        case LIST_TAG:
+          int size = tape.getInt();
+          List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readObject());
+          }
+          return list;
+        default:
+          throw new RuntimeException(INVALID_TAPE);
+      }
+    }
+
+    private String readString() {
+      int idx = tape.getInt();
+      if (idx != NEW_STRING) {
+        return strings.get(idx);
+      }
+      byte[] bytes = new byte[tape.getInt()];
+      tape.get(bytes);
+      String str = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(str);
+      return str;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A PhaseSchedule splits a run into consecutive phases, each with a duration, a target rate that
+ * changes linearly from the start to the end of the phase, and optionally its own operation
+ * ratio. All workers following the same schedule finish at the same wall-clock time, no matter
+ * how many operations they manage to issue. Operations issued during a phase named "warmup" are
+ * still executed and verified, but are left out of the performance statistics.
+ *
+ * In the config file, phases are separated by ";" and each phase is written as
+ * "name durationSeconds startOpsPerSecond endOpsPerSecond [opRatio...]", e.g.
+ * "warmup 30 20 20; ramp 60 20 200; steady 300 200 200 2 1 1 0; cooldown 30 200 20".
+ */
+public class PhaseSchedule {
+  public static final String WARM_UP_PHASE_NAME = "warmup";
+  private static final String PHASE_DELIMITER = ";";
+  private static final String FIELD_DELIMITER = "\\s+";
+
+  /**
+   * A single phase of the schedule.
+   */
+  public static class Phase {
+    private String name;
+    private long durationNanos;
+    private double startOpsPerSecond;
+    private double endOpsPerSecond;
+    // null if the phase keeps the op ratio of the previous phase
+    private int[] opRatios;
+
+    public Phase(String name, long durationNanos, double startOpsPerSecond,
+                 double endOpsPerSecond, int[] opRatios) {
+      if (durationNanos <= 0 || startOpsPerSecond <= 0 || endOpsPerSecond <= 0) {
+        throw new RuntimeException("Invalid phase " + name);
+      }
+      this.name = name;
+      this.durationNanos = durationNanos;
+      this.startOpsPerSecond = startOpsPerSecond;
+      this.endOpsPerSecond = endOpsPerSecond;
+      this.opRatios = opRatios;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getDurationNanos() {
+      return durationNanos;
+    }
+
+    public int[] getOpRatios() {
+      return opRatios;
+    }
+
+    public boolean isWarmUp() {
+      return name.equals(WARM_UP_PHASE_NAME);
+    }
+
+    /**
+     * Returns the target rate at the given time since the start of this phase.
+     */
+    public double opsPerSecondAt(long nanosIntoPhase) {
+      double progress = Math.min(1, Math.max(0, nanosIntoPhase / (double) durationNanos));
+      return startOpsPerSecond + (endOpsPerSecond - startOpsPerSecond) * progress;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %ds %.1f->%.1f ops/s %s", name,
+              TimeUnit.NANOSECONDS.toSeconds(durationNanos), startOpsPerSecond, endOpsPerSecond,
+              opRatios == null ? "" : Arrays.toString(opRatios));
+    }
+  }
+
+  private List<Phase> phases;
+  // phaseStartNanos[i] is the time since the start of the run at which phase i begins
+  private long[] phaseStartNanos;
+
+  public PhaseSchedule(List<Phase> phases) {
+    if (phases.isEmpty()) {
+      throw new RuntimeException("Empty phase schedule");
+    }
+    this.phases = phases;
+    this.phaseStartNanos = new long[phases.size() + 1];
+    for (int i = 0; i < phases.size(); i++) {
+      // Saturate so that an unbounded phase does not overflow
+      phaseStartNanos[i + 1] = phaseStartNanos[i] + Math.min(phases.get(i).durationNanos,
+              Long.MAX_VALUE - phaseStartNanos[i]);
+    }
+  }
+
+  /**
+   * Returns a schedule that runs at a constant rate until the generator runs out of load.
+   */
+  public static PhaseSchedule constant(double opsPerSecond) {
+    return new PhaseSchedule(Collections.singletonList(new Phase("steady", Long.MAX_VALUE,
+            opsPerSecond, opsPerSecond, /*opRatios=*/null)));
+  }
+
+  /**
+   * Parses a schedule in the config file format described above.
+   */
+  public static PhaseSchedule parse(String schedule) {
+    List<Phase> phases = new ArrayList<>();
+    for (String phaseString : schedule.split(PHASE_DELIMITER)) {
+      String[] fields = phaseString.trim().split(FIELD_DELIMITER);
+      if (fields.length < 4) {
+        throw new RuntimeException("Invalid phase " + phaseString);
+      }
+      int[] opRatios = null;
+      if (fields.length > 4) {
+        opRatios = Arrays.stream(fields, 4, fields.length).mapToInt(Integer::parseInt).toArray();
+      }
+      phases.add(new Phase(fields[0], TimeUnit.SECONDS.toNanos(Long.parseLong(fields[1])),
+              Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), opRatios));
+    }
+    return new PhaseSchedule(phases);
+  }
+
+  /**
+   * Returns the index of the phase the run is in at the given time since its start, or -1 if
+   * the schedule is over.
+   */
+  public int phaseIndexAt(long elapsedNanos) {
+    for (int i = 0; i < phases.size(); i++) {
+      if (elapsedNanos < phaseStartNanos[i + 1]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public Phase getPhase(int idx) {
+    return phases.get(idx);
+  }
+
+  public int size() {
+    return phases.size();
+  }
+
+  /**
+   * Returns the target rate at the given time since the start of the run. Must only be called
+   * while the schedule is not over.
+   */
+  public double opsPerSecondAt(long elapsedNanos) {
+    int idx = phaseIndexAt(elapsedNanos);
+    return phases.get(idx).opsPerSecondAt(elapsedNanos - phaseStartNanos[idx]);
+  }
+
+  @Override
+  public String toString() {
+    return phases.toString();
+  }
+}
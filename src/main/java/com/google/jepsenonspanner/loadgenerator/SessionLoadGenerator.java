@@ -0,0 +1,157 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Implements the load generator of the session benchmark, which checks the session guarantees
+ * of each worker: monotonic reads, read-your-writes and monotonic writes. Every load carries the
+ * sequence number of this worker it was generated with, so that the verifier can check that it
+ * replays the loads of a worker in the order they were issued. Generates three kinds of loads on
+ * a key:
+ * - A write reads the key and writes the value read plus one, so that the value of a key counts
+ *   its versions and a larger value is always a later version. It is recorded as
+ *   [:seq 4] [:read :x 3] [:write :x], having written 4 to x.
+ * - A strong read, recorded as [:seq 5] [:read :x 4]
+ * - A bounded stale read, recorded the same way under its own load name
+ * The loads of a worker must not overlap for its order to be a session, so the benchmark should
+ * run with closed-loop scheduling.
+ */
+public class SessionLoadGenerator extends LoadGenerator {
+
+  /**
+   * Configuration class to adjust distribution of randomly generated loads
+   */
+  public static class Config extends EnumRatioConfig<Config.LoadType> {
+
+    public enum LoadType {
+      WRITE,
+      STRONG_READ,
+      BOUNDED_STALE_READ
+    }
+
+    public Config(int... loadRatios) {
+      super(LoadType.class, loadRatios);
+    }
+  }
+
+  private String[] keys;
+  // keyKeywords[i] is the EDN keyword of keys[i], as recorded in the history table
+  private Keyword[] keyKeywords;
+  private Config config;
+  private KeyDistribution keyDistribution;
+  // Sequence number of the next load of this worker
+  private long seq = 0;
+
+  // The proceeding numbers are used to specify their ordering in the history table, and are
+  // dropped from the history
+  public static final String WRITE_LOAD_NAME = "0write";
+  public static final String READ_LOAD_NAME = "1read";
+  public static final String STALE_READ_LOAD_NAME = "1stale-read";
+  public static final Keyword SEQ_KEYWORD = Keyword.newKeyword("seq");
+  public static final Keyword WRITE_KEYWORD = Keyword.newKeyword("write");
+
+  private static final String OP_LIMIT = "opLimit";
+  private static final String KEYS = "keys";
+  private static final String RATIO_CONFIG = "sessionOpRatio";
+  private static final int[] DEFAULT_RATIOS = {2, 1, 1};
+  private static final String ERR_MSG = "Error parsing config file ";
+
+  public SessionLoadGenerator(int seed, int opLimit, String[] keys, Config config,
+                              KeyDistribution keyDistribution) {
+    super(opLimit, seed);
+    if (keyDistribution.getKeyCount() != keys.length) {
+      throw new RuntimeException("Key distribution does not match number of keys");
+    }
+    this.keys = keys;
+    this.config = config;
+    this.keyDistribution = keyDistribution;
+    this.keyKeywords = new Keyword[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keyKeywords[i] = Keyword.newKeyword(keys[i]);
+    }
+  }
+
+  public static SessionLoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                               int workerIdx, int workerCount) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      String[] keys = config.get(KEYS).split(" ");
+      int[] ratios = config.containsKey(RATIO_CONFIG) ?
+              Arrays.stream(config.get(RATIO_CONFIG).split(" ")).mapToInt(Integer::parseInt)
+                      .toArray() : DEFAULT_RATIOS;
+      return new SessionLoadGenerator(seed, opLimit, keys, new Config(ratios),
+              KeyDistribution.createFromConfig(config, keys.length, workerIdx, workerCount));
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MSG + configPath);
+    }
+  }
+
+  public static SessionLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt(), /*workerIdx=*/0,
+            /*workerCount=*/1);
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("Session generator has reached limit");
+    }
+
+    opLimit--;
+    int keyIdx = keyDistribution.nextIndex(rand);
+    OpRepresentation seqRepresentation = OpRepresentation.createOtherFromObjs(Arrays.asList(
+            SEQ_KEYWORD, seq++));
+    OpRepresentation readRepresentation =
+            LinearizabilityLoadGenerator.readRepresentation(keyKeywords[keyIdx]);
+    switch (config.categorizeLoad(rand.nextInt())) {
+      case WRITE:
+        keyDistribution.recordWrite(keyIdx);
+        TransactionalAction read = TransactionalAction.createTransactionalRead(keys[keyIdx]);
+        read.setDependentAction(TransactionalAction.createDependentTransactionalDelta(
+                keys[keyIdx], 1));
+        return new ReadWriteTransaction(WRITE_LOAD_NAME, Arrays.asList(seqRepresentation,
+                readRepresentation, OpRepresentation.createOtherFromObjs(Arrays.asList(
+                        WRITE_KEYWORD, keyKeywords[keyIdx]))),
+                Collections.singletonList(read));
+      case STRONG_READ:
+        return ReadTransaction.createStrongRead(READ_LOAD_NAME,
+                Collections.singletonList(keys[keyIdx]),
+                Arrays.asList(seqRepresentation, readRepresentation));
+      default:
+        return ReadTransaction.createBoundedStaleRead(STALE_READ_LOAD_NAME,
+                Collections.singletonList(keys[keyIdx]),
+                Arrays.asList(seqRepresentation, readRepresentation), randomStaleness());
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.SetAddTransaction;
+import com.google.jepsenonspanner.operation.SetReadTransaction;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Implements the load generator of the set benchmark. Each add inserts an element no other add
+ * inserts: its upper half is taken from the process ID of the client, and its lower half counts
+ * the adds of the client. Reads are strong, bounded stale or exact stale reads of a sample of the
+ * set, namely sampleSize consecutive elements of one client of the benchmark, starting at a random
+ * count no higher than the adds of this client so far; clients add at about the same rate, so a
+ * sample mostly covers elements that were added. The last load of a generator with an op limit
+ * is a strong read of the whole set.
+ */
+public class SetLoadGenerator extends LoadGenerator {
+
+  /**
+   * Configuration class to adjust distribution of randomly generated loads
+   */
+  public static class Config extends EnumRatioConfig<Config.LoadType> {
+
+    public enum LoadType {
+      ADD,
+      STRONG_READ,
+      BOUNDED_STALE_READ,
+      EXACT_STALE_READ
+    }
+
+    public Config(int... loadRatios) {
+      super(LoadType.class, loadRatios);
+    }
+  }
+
+  private Config config;
+  private int sampleSize;
+  // Process IDs of the clients of the benchmark, whose elements sample reads pick from
+  private int[] processIDs;
+  // Upper half of every element added by this client
+  private long elementTag;
+  private int elementSeq = 0;
+
+  // The proceeding numbers are used to specify their ordering in the history table, and are
+  // dropped from the history
+  public static final String ADD_LOAD_NAME = "0add";
+  public static final String READ_LOAD_NAME = "1read";
+
+  private static final String OP_LIMIT = "opLimit";
+  private static final String RATIO_CONFIG = "setOpRatio";
+  private static final String SAMPLE_SIZE = "setSampleSize";
+  private static final int[] DEFAULT_RATIOS = {8, 1, 1, 1};
+  private static final int DEFAULT_SAMPLE_SIZE = 16;
+  private static final String ERR_MSG = "Error parsing config file ";
+
+  /**
+   * @param sampleSize the number of sequence numbers a sample read covers
+   * @param workerIdx index of this worker among the workers of the benchmark
+   * @param processIDs process IDs of the workers of the benchmark, indexed by worker index, which
+   *                   keep the elements of different clients apart
+   */
+  public SetLoadGenerator(int seed, int opLimit, Config config, int sampleSize, int workerIdx,
+                          int[] processIDs) {
+    super(opLimit, seed);
+    if (sampleSize <= 0 || workerIdx < 0 || workerIdx >= processIDs.length) {
+      throw new RuntimeException("Invalid set config");
+    }
+    this.config = config;
+    this.sampleSize = sampleSize;
+    this.processIDs = processIDs;
+    this.elementTag = processTag(processIDs[workerIdx]);
+  }
+
+  public static SetLoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                           int workerIdx, int[] processIDs) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      int[] ratios = config.containsKey(RATIO_CONFIG) ?
+              Arrays.stream(config.get(RATIO_CONFIG).split(" ")).mapToInt(Integer::parseInt)
+                      .toArray() : DEFAULT_RATIOS;
+      int sampleSize = config.containsKey(SAMPLE_SIZE) ?
+              Integer.parseInt(config.get(SAMPLE_SIZE)) : DEFAULT_SAMPLE_SIZE;
+      return new SetLoadGenerator(seed, opLimit, new Config(ratios), sampleSize, workerIdx,
+              processIDs);
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MSG + configPath);
+    }
+  }
+
+  public static SetLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt(), /*workerIdx=*/0,
+            /*processIDs=*/new int[]{0});
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("Set generator has reached limit");
+    }
+
+    opLimit--;
+    if (opLimit == 0) {
+      return new SetReadTransaction(READ_LOAD_NAME, /*first=*/0, /*last=*/Long.MAX_VALUE,
+              /*staleness=*/0, /*bounded=*/false);
+    }
+    switch (config.categorizeLoad(rand.nextInt())) {
+      case ADD:
+        return add();
+      case STRONG_READ:
+        return sampleRead(/*staleness=*/0, /*bounded=*/false);
+      case BOUNDED_STALE_READ:
+        return sampleRead(randomStaleness(), /*bounded=*/true);
+      default:
+        return sampleRead(randomStaleness(), /*bounded=*/false);
+    }
+  }
+
+  private SetAddTransaction add() {
+    if (elementSeq == Integer.MAX_VALUE) {
+      throw new RuntimeException("Set generator has run out of unique elements");
+    }
+    return new SetAddTransaction(ADD_LOAD_NAME, elementTag | ++elementSeq);
+  }
+
+  private SetReadTransaction sampleRead(int staleness, boolean bounded) {
+    long tag = processTag(processIDs[rand.nextInt(processIDs.length)]);
+    long firstSeq = rand.nextInt(elementSeq + 1) + 1;
+    return new SetReadTransaction(READ_LOAD_NAME, tag | firstSeq, tag | (firstSeq + sampleSize - 1),
+            staleness, bounded);
+  }
+}
@@ -0,0 +1,108 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.ReadTransaction;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the staleness of the reads of the bank benchmark affects them. For each staleness
+ * in the sweep, a fixed number of exact and then bounded stale reads are issued one at a time
+ * (a staleness of 0 gives strong reads), each step being reported as a phase of its own. Besides
+ * latency and throughput, each step reports how old the data read was when the read was sent,
+ * and how far that is from the requested staleness. The reads are recorded in the history as
+ * usual, so the run can still be verified. The transfers of the generator are not issued, so a
+ * sweep is best run while other workers issue the regular load.
+ */
+public class StalenessSweepRunner extends WorkloadRunner {
+  private static final String STRONG = "strong";
+  private static final String EXACT = "exact";
+  private static final String BOUNDED = "bounded";
+
+  private int[] stalenessMillis;
+  private int readsPerStep;
+
+  /**
+   * @param stalenessMillis the stalenesses to sweep, in milliseconds
+   * @param readsPerStep number of reads issued at each staleness, for each of exact and bounded
+   */
+  public StalenessSweepRunner(int[] stalenessMillis, int readsPerStep) {
+    super(/*schedule=*/null);
+    if (stalenessMillis.length == 0 || readsPerStep <= 0) {
+      throw new RuntimeException("Invalid staleness sweep config");
+    }
+    for (int staleness : stalenessMillis) {
+      if (staleness < 0) {
+        throw new RuntimeException("Invalid staleness sweep config");
+      }
+    }
+    this.stalenessMillis = stalenessMillis;
+    this.readsPerStep = readsPerStep;
+  }
+
+  @Override
+  public void run(LoadGenerator gen, OpSink sink) {
+    if (!(gen instanceof BankLoadGenerator)) {
+      throw new RuntimeException("A staleness sweep needs the bank benchmark");
+    }
+    BankLoadGenerator bank = (BankLoadGenerator) gen;
+    for (int staleness : stalenessMillis) {
+      if (staleness == 0) {
+        runStep(bank, sink, staleness, /*bounded=*/false);
+      } else {
+        runStep(bank, sink, staleness, /*bounded=*/false);
+        runStep(bank, sink, staleness, /*bounded=*/true);
+      }
+    }
+    printStats();
+    printTable();
+  }
+
+  private void runStep(BankLoadGenerator bank, OpSink sink, int staleness, boolean bounded) {
+    PhaseSchedule.Phase step = new PhaseSchedule.Phase(stepName(staleness, bounded),
+            /*durationNanos=*/Long.MAX_VALUE, /*startOpsPerSecond=*/1, /*endOpsPerSecond=*/1,
+            /*opRatios=*/null);
+    synchronized (this) {
+      phaseStats.put(step.getName(), new WorkloadStats());
+    }
+    System.out.println("Entering sweep step " + step.getName());
+    for (int i = 0; i < readsPerStep; i++) {
+      ReadTransaction read = bank.read(staleness, bounded);
+      execute(read, sink, System.nanoTime(), step);
+    }
+  }
+
+  static String stepName(int staleness, boolean bounded) {
+    if (staleness == 0) {
+      return STRONG;
+    }
+    return String.format("%s-%dms", bounded ? BOUNDED : EXACT, staleness);
+  }
+
+  /**
+   * Prints one row for each step of the sweep.
+   */
+  private void printTable() {
+    System.out.println("Staleness sweep");
+    System.out.println("mode\tstaleness (ms)\treads\tthroughput (ops/s)\tp50 (ms)\tp99 (ms)\t" +
+            "age p50 (ms)\tage p99 (ms)\tgap p50 (ms)");
+    Map<String, WorkloadStats> steps = getPhaseStats();
+    for (int staleness : stalenessMillis) {
+      printRow(steps, staleness, /*bounded=*/false);
+      if (staleness != 0) {
+        printRow(steps, staleness, /*bounded=*/true);
+      }
+    }
+  }
+
+  private void printRow(Map<String, WorkloadStats> steps, int staleness, boolean bounded) {
+    WorkloadStats step = steps.get(stepName(staleness, bounded));
+    long stalenessNanos = TimeUnit.MILLISECONDS.toNanos(staleness);
+    System.out.printf("%s\t%d\t%d\t%.2f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\n",
+            staleness == 0 ? STRONG : bounded ? BOUNDED : EXACT, staleness, step.getCount(),
+            step.throughput(), step.serviceTimePercentile(50) / 1e6,
+            step.serviceTimePercentile(99) / 1e6, step.readAgePercentile(50) / 1e6,
+            step.readAgePercentile(99) / 1e6,
+            (step.readAgePercentile(50) - stalenessNanos) / 1e6);
+  }
+}
@@ -0,0 +1,45 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays the operations of a tape written by OperationTape, in the order they were generated.
+ * The tape is memory mapped, so operations are decoded straight from the page cache without
+ * any parsing. Since the tape fixes the operations, their ratio cannot be changed by a phase
+ * schedule. Stale reads get a staleness drawn during the replay, as a generator would draw it
+ * during the run.
+ */
+public class TapeLoadGenerator extends LoadGenerator {
+  private OperationTape.Decoder decoder;
+
+  public TapeLoadGenerator(String tapePath) {
+    super(/*opLimit=*/0, /*seed=*/0);
+    try (FileChannel channel = FileChannel.open(Paths.get(tapePath), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new RuntimeException("Operation tape too large " + tapePath);
+      }
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer tape = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      this.opLimit = OperationTape.readHeader(tape);
+      this.decoder = new OperationTape.Decoder(tape, this::randomStaleness);
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new RuntimeException("Error reading operation tape " + tapePath);
+    }
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("Tape generator has reached limit");
+    }
+    opLimit--;
+    return decoder.readOperation();
+  }
+}
@@ -0,0 +1,100 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * The time a read-write transaction waits between two of its round trips, while holding the
+ * locks taken so far. Longer think times keep locks for longer, so that transactions conflict, and
+ * Spanner has to abort some of them, at a realistic rate without a large number of workers.
+ * Each call returns a new think time in nanoseconds drawn from the distribution.
+ */
+public class ThinkTime implements LongSupplier {
+  public static final String NONE = "none";
+  public static final String FIXED = "fixed";
+  public static final String UNIFORM = "uniform";
+  public static final String EXPONENTIAL = "exponential";
+
+  private static final String THINK_TIME = "thinkTime";
+  private static final String THINK_TIME_MILLIS = "thinkTimeMillis";
+
+  public enum Distribution {
+    // No wait at all
+    NONE,
+    // Always the mean
+    FIXED,
+    // Uniformly distributed between 0 and twice the mean
+    UNIFORM,
+    // Exponentially distributed around the mean, i.e. mostly short with a few long waits
+    EXPONENTIAL
+  }
+
+  private Distribution distribution;
+  private double meanNanos;
+
+  /**
+   * @param distribution how think times are distributed
+   * @param meanMillis average think time in milliseconds
+   */
+  public ThinkTime(Distribution distribution, double meanMillis) {
+    if (distribution == null || meanMillis < 0) {
+      throw new RuntimeException("Invalid think time config");
+    }
+    this.distribution = distribution;
+    this.meanNanos = meanMillis * 1e6;
+  }
+
+  public static ThinkTime none() {
+    return new ThinkTime(Distribution.NONE, /*meanMillis=*/0);
+  }
+
+  /**
+   * Creates the think time described in the config map; defaults to no think time if the config
+   * does not specify one.
+   */
+  public static ThinkTime createFromConfig(Map<String, String> config) {
+    String type = config.getOrDefault(THINK_TIME, NONE);
+    double meanMillis = Double.parseDouble(config.getOrDefault(THINK_TIME_MILLIS, "0"));
+    switch (type) {
+      case NONE:
+        return none();
+      case FIXED:
+        return new ThinkTime(Distribution.FIXED, meanMillis);
+      case UNIFORM:
+        return new ThinkTime(Distribution.UNIFORM, meanMillis);
+      case EXPONENTIAL:
+        return new ThinkTime(Distribution.EXPONENTIAL, meanMillis);
+      default:
+        throw new RuntimeException("Invalid think time " + type);
+    }
+  }
+
+  /**
+   * Returns if transactions wait at all between their actions.
+   */
+  public boolean isNone() {
+    return distribution == Distribution.NONE || meanNanos == 0;
+  }
+
+  @Override
+  public long getAsLong() {
+    // Transactions of an open-loop run think on several threads at once
+    ThreadLocalRandom rand = ThreadLocalRandom.current();
+    switch (distribution) {
+      case FIXED:
+        return (long) meanNanos;
+      case UNIFORM:
+        return (long) (rand.nextDouble() * 2 * meanNanos);
+      case EXPONENTIAL:
+        return (long) (-Math.log(1 - rand.nextDouble()) * meanNanos);
+      default:
+        return 0;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s think time, mean = %.3f ms", distribution, meanNanos / 1e6);
+  }
+}
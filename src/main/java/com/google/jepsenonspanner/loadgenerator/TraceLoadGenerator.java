@@ -0,0 +1,393 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import us.bpsm.edn.Keyword;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Replays a trace of recorded accesses as load of the linearizability benchmark, so that the key
+ * popularity and the op mix follow a real service instead of a random distribution. Each line of
+ * the trace is one entry:
+ *
+ *   timestamp kind item...
+ *
+ * where the timestamp is in microseconds, the kind is one of read, write or txn, and each item is
+ * either a key, which is read, or key=value, which writes the value. A read entry only holds
+ * reads, a write entry only writes, and a txn entry any mix of them, in order. Blank lines and
+ * lines starting with # are skipped.
+ *
+ * Trace keys are remapped onto the keys of the config file by a hash, so the same trace key
+ * always hits the same key, and popular trace keys stay popular. A trace key that maps to a key
+ * already accessed by the same entry is dropped from it. With several workers, each replays
+ * every workerCount-th entry of the trace, starting from its worker index.
+ *
+ * The trace is read through a window of the file mapped into memory, which slides forward as
+ * entries are consumed, so traces larger than the heap are streamed without copying them. The
+ * time of each entry since the first entry of the trace is kept; the open-loop runner with trace
+ * arrivals issues each operation at that time, divided by the traceSpeedup of the config.
+ */
+public class TraceLoadGenerator extends LoadGenerator {
+  private static final String TRACE = "trace";
+  private static final String TRACE_SPEEDUP = "traceSpeedup";
+  private static final String KEYS = "keys";
+  private static final String OP_LIMIT = "opLimit";
+  private static final String ERR_MESSAGE = "Error parsing config file ";
+  private static final String INVALID_TRACE = "Invalid trace entry: ";
+  private static final String READ_KIND = "read";
+  private static final String WRITE_KIND = "write";
+  private static final String TXN_KIND = "txn";
+  // Large enough for the longest line, and small enough to leave the address space alone
+  private static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private String[] keys;
+  private Keyword[] keyKeywords;
+  private MappedLineReader reader;
+  private int workerIdx;
+  private int workerCount;
+  private double speedup;
+  // Index of the next entry in the trace, counting the entries of all workers
+  private long entryIdx = 0;
+  // Timestamp of the first entry of the trace; Long.MIN_VALUE until it has been read
+  private long firstTimestamp = Long.MIN_VALUE;
+  // The next operation of this worker and its time in the trace, or null if the trace is over
+  private Operation next;
+  private long nextOffsetNanos;
+  private long offsetNanos = 0;
+  // Indices of the keys accessed by the entry being parsed
+  private int[] entryKeyIdx;
+
+  /**
+   * @param tracePath path to the trace file
+   * @param keys the keys trace keys are remapped onto
+   * @param opLimit maximum number of operations to replay
+   * @param speedup how many times faster than recorded the trace is replayed
+   * @param workerIdx index of this worker among workerCount workers sharing the trace
+   */
+  public TraceLoadGenerator(String tracePath, String[] keys, int opLimit, double speedup,
+                            int workerIdx, int workerCount) {
+    this(tracePath, keys, opLimit, speedup, workerIdx, workerCount, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  TraceLoadGenerator(String tracePath, String[] keys, int opLimit, double speedup, int workerIdx,
+                     int workerCount, int windowSize) {
+    super(opLimit, /*seed=*/0);
+    if (keys.length == 0 || speedup <= 0 || workerIdx < 0 || workerIdx >= workerCount) {
+      throw new RuntimeException("Invalid trace config");
+    }
+    this.keys = keys;
+    this.keyKeywords = new Keyword[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keyKeywords[i] = Keyword.newKeyword(keys[i]);
+    }
+    this.speedup = speedup;
+    this.workerIdx = workerIdx;
+    this.workerCount = workerCount;
+    this.entryKeyIdx = new int[keys.length];
+    this.reader = new MappedLineReader(tracePath, windowSize);
+    advance();
+  }
+
+  /**
+   * Creates the generator described in the config file, or returns null if the config does not
+   * give a trace to replay.
+   */
+  public static TraceLoadGenerator createFromConfig(String configPath, int workerIdx,
+                                                    int workerCount) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      if (!config.containsKey(TRACE)) {
+        return null;
+      }
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      return new TraceLoadGenerator(config.get(TRACE), config.get(KEYS).split(" "), opLimit,
+              Double.parseDouble(config.getOrDefault(TRACE_SPEEDUP, "1")), workerIdx,
+              workerCount);
+    } catch (FileNotFoundException | ClassCastException | NullPointerException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MESSAGE + configPath);
+    }
+  }
+
+  @Override
+  public boolean hasLoad() {
+    return opLimit > 0 && next != null;
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (!hasLoad()) {
+      throw new RuntimeException("Trace generator has reached limit");
+    }
+    opLimit--;
+    Operation op = next;
+    offsetNanos = nextOffsetNanos;
+    advance();
+    return op;
+  }
+
+  /**
+   * Returns the time of the last operation returned since the first entry of the trace, scaled
+   * by the speedup.
+   */
+  public long getOffsetNanos() {
+    return offsetNanos;
+  }
+
+  /**
+   * Parses the next entry of this worker, or leaves null if the trace is over.
+   */
+  private void advance() {
+    next = null;
+    if (opLimit <= 0) {
+      reader.close();
+      return;
+    }
+    while (reader.nextLine()) {
+      int[] field = nextField(reader.lineStart);
+      if (field == null || reader.window.get(field[0]) == '#') {
+        continue;
+      }
+      long timestamp = parseLong(field[0], field[1]);
+      if (firstTimestamp == Long.MIN_VALUE) {
+        firstTimestamp = timestamp;
+      }
+      if (entryIdx++ % workerCount != workerIdx) {
+        continue;
+      }
+      nextOffsetNanos = (long) ((timestamp - firstTimestamp) * 1000 / speedup);
+      next = parseEntry(field[1]);
+      return;
+    }
+    reader.close();
+  }
+
+  /**
+   * Parses the kind and items of the current line, from the given position on.
+   */
+  private Operation parseEntry(int from) {
+    int[] field = nextField(from);
+    if (field == null) {
+      throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+    }
+    String kind = reader.string(field[0], field[1]);
+    if (!kind.equals(READ_KIND) && !kind.equals(WRITE_KIND) && !kind.equals(TXN_KIND)) {
+      throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+    }
+
+    List<String> readKeys = new ArrayList<>();
+    List<TransactionalAction> actions = new ArrayList<>();
+    List<OpRepresentation> representation = new ArrayList<>();
+    int keyCount = 0;
+    while ((field = nextField(field[1])) != null) {
+      int equals = field[0];
+      while (equals < field[1] && reader.window.get(equals) != '=') {
+        equals++;
+      }
+      boolean isWrite = equals < field[1];
+      if (isWrite ? kind.equals(READ_KIND) : kind.equals(WRITE_KIND)) {
+        throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+      }
+      int keyIdx = mapKey(field[0], equals);
+      boolean seen = false;
+      for (int i = 0; i < keyCount; i++) {
+        seen |= entryKeyIdx[i] == keyIdx;
+      }
+      if (seen) {
+        continue;
+      }
+      entryKeyIdx[keyCount++] = keyIdx;
+      if (isWrite) {
+        long value = parseLong(equals + 1, field[1]);
+        actions.add(TransactionalAction.createTransactionalWrite(keys[keyIdx], value));
+        representation.add(LinearizabilityLoadGenerator.writeRepresentation(keyKeywords[keyIdx],
+                value));
+      } else {
+        readKeys.add(keys[keyIdx]);
+        actions.add(TransactionalAction.createTransactionalRead(keys[keyIdx]));
+        representation.add(LinearizabilityLoadGenerator.readRepresentation(keyKeywords[keyIdx]));
+      }
+    }
+    if (keyCount == 0) {
+      throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+    }
+
+    switch (kind) {
+      case READ_KIND:
+        return ReadTransaction.createStrongRead(LinearizabilityLoadGenerator.READ_ONLY_LOAD_NAME,
+                readKeys, representation);
+      case WRITE_KIND:
+        return new ReadWriteTransaction(LinearizabilityLoadGenerator.WRITE_ONLY_LOAD_NAME,
+                representation, actions);
+      default:
+        return new ReadWriteTransaction(LinearizabilityLoadGenerator.READ_WRITE_LOAD_NAME,
+                representation, actions);
+    }
+  }
+
+  /**
+   * Returns the start and end of the next whitespace separated field of the current line from
+   * the given position on, or null if there is none.
+   */
+  private int[] nextField(int from) {
+    int start = from;
+    while (start < reader.lineEnd && Character.isWhitespace(reader.window.get(start))) {
+      start++;
+    }
+    if (start == reader.lineEnd) {
+      return null;
+    }
+    int end = start;
+    while (end < reader.lineEnd && !Character.isWhitespace(reader.window.get(end))) {
+      end++;
+    }
+    return new int[]{start, end};
+  }
+
+  /**
+   * Returns the index of the key a trace key is remapped onto, from a 64-bit FNV-1a hash of its
+   * bytes.
+   */
+  private int mapKey(int from, int to) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = from; i < to; i++) {
+      hash = (hash ^ (reader.window.get(i) & 0xff)) * FNV_PRIME;
+    }
+    return (int) Long.remainderUnsigned(hash, keys.length);
+  }
+
+  private long parseLong(int from, int to) {
+    boolean negative = from < to && reader.window.get(from) == '-';
+    int i = negative ? from + 1 : from;
+    if (i == to) {
+      throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+    }
+    long result = 0;
+    for (; i < to; i++) {
+      int digit = reader.window.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new RuntimeException(INVALID_TRACE + reader.currentLine());
+      }
+      result = result * 10 + digit;
+    }
+    return negative ? -result : result;
+  }
+
+  /**
+   * Reads the lines of a file through a window of it mapped into memory. When a line runs past
+   * the end of the window, the window is mapped again from the start of that line, so any file
+   * whose lines fit in the window can be read, regardless of its size.
+   */
+  @VisibleForTesting
+  static class MappedLineReader implements Closeable {
+    private FileChannel channel;
+    private long size;
+    private int windowSize;
+    MappedByteBuffer window;
+    // Position of the window in the file
+    private long windowStart = 0;
+    // Bounds of the current line within the window, excluding the line break
+    int lineStart;
+    int lineEnd;
+
+    MappedLineReader(String path, int windowSize) {
+      this.windowSize = windowSize;
+      try {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.size = channel.size();
+        map(0);
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new RuntimeException("Error reading trace " + path);
+      }
+    }
+
+    private void map(long position) throws IOException {
+      windowStart = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(windowSize, size - position));
+    }
+
+    /**
+     * Moves to the next line; returns false at the end of the file.
+     */
+    boolean nextLine() {
+      while (true) {
+        int start = window.position();
+        for (int i = start; i < window.limit(); i++) {
+          if (window.get(i) == '\n') {
+            lineStart = start;
+            lineEnd = i;
+            window.position(i + 1);
+            return true;
+          }
+        }
+        if (windowStart + window.limit() == size) {
+          // The last line may not end with a line break
+          if (start == window.limit()) {
+            return false;
+          }
+          lineStart = start;
+          lineEnd = window.limit();
+          window.position(window.limit());
+          return true;
+        }
+        if (start == 0) {
+          throw new RuntimeException("Trace line longer than " + windowSize + " bytes");
+        }
+        try {
+          map(windowStart + start);
+        } catch (IOException e) {
+          e.printStackTrace();
+          throw new RuntimeException("Error reading trace");
+        }
+      }
+    }
+
+    String string(int from, int to) {
+      byte[] bytes = new byte[to - from];
+      for (int i = from; i < to; i++) {
+        bytes[i - from] = window.get(i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    String currentLine() {
+      return string(lineStart, lineEnd);
+    }
+
+    @Override
+    public void close() {
+      try {
+        // Mappings stay valid after the channel is closed
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.client.Executor;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A WorkloadRunner decides when the operations of a load generator are issued to the executor on
+ * a worker, and measures how long they take. The default closed-loop runner issues the next
+ * operation only after the previous one finishes; the open-loop runner issues operations at a
+ * target rate regardless of how long earlier ones take; the staleness sweep runner measures
+ * reads of the bank benchmark at a series of stalenesses. Either runner can follow a
+ * PhaseSchedule, in which case the run ends when the schedule does rather than when the
+ * generator reaches its op limit. The runner also applies the think time of read-write
+ * transactions, and records how long they held their locks. With a BackpressureController, the
+ * rate of either runner is additionally limited by how well Spanner copes with it.
+ */
+public abstract class WorkloadRunner {
+  public static final String CLOSED_LOOP = "closed";
+  public static final String OPEN_LOOP = "open";
+  public static final String STALENESS_SWEEP = "sweep";
+
+  private static final String SCHEDULING = "scheduling";
+  private static final String ARRIVAL = "arrival";
+  private static final String OPS_PER_SECOND = "opsPerSecond";
+  private static final String MAX_IN_FLIGHT = "maxInFlight";
+  private static final String PHASES = "phases";
+  private static final String SWEEP_STALENESS_MILLIS = "sweepStalenessMillis";
+  private static final String SWEEP_READS_PER_STEP = "sweepReadsPerStep";
+  private static final String DEFAULT_SWEEP_STALENESS_MILLIS = "0 100 1000 10000 60000";
+  private static final String DEFAULT_SWEEP_READS_PER_STEP = "100";
+  private static final String DEFAULT_MAX_IN_FLIGHT = "16";
+  private static final String ERR_MSG = "Error parsing config file ";
+
+  // null if the run lasts until the generator runs out of load
+  protected PhaseSchedule schedule;
+  private int currentPhaseIdx = -1;
+  private ThinkTime thinkTime = ThinkTime.none();
+  // null if the rate is not adapted to aborts, errors and latency
+  protected BackpressureController backpressure;
+
+  // Statistics of all operations outside of warm-up phases
+  protected WorkloadStats stats = new WorkloadStats();
+  // Statistics of each phase, in the order the phases ran
+  protected Map<String, WorkloadStats> phaseStats = new LinkedHashMap<>();
+
+  protected WorkloadRunner(PhaseSchedule schedule) {
+    this.schedule = schedule;
+  }
+
+  /**
+   * Issues all operations of the generator to the executor, and returns when all of them are
+   * done.
+   */
+  public void run(LoadGenerator gen, Executor executor) {
+    run(gen, OpSink.of(executor));
+  }
+
+  /**
+   * Issues all operations of the generator to the sink, and returns when all of them are done.
+   */
+  public abstract void run(LoadGenerator gen, OpSink sink);
+
+  /**
+   * Sets the time read-write transactions wait between their actions.
+   */
+  public void setThinkTime(ThinkTime thinkTime) {
+    this.thinkTime = thinkTime;
+  }
+
+  /**
+   * Sets the controller that limits the rate of operations; null to disable backpressure.
+   */
+  public void setBackpressure(BackpressureController backpressure) {
+    this.backpressure = backpressure;
+  }
+
+  public WorkloadStats getStats() {
+    return stats;
+  }
+
+  public synchronized Map<String, WorkloadStats> getPhaseStats() {
+    return new LinkedHashMap<>(phaseStats);
+  }
+
+  /**
+   * Throws if the generator does not take the op ratio of some phase, so that a schedule that
+   * does not fit the benchmark fails before the run starts rather than when the phase begins.
+   */
+  protected void checkOpRatios(LoadGenerator gen) {
+    if (schedule == null) {
+      return;
+    }
+    for (int i = 0; i < schedule.size(); i++) {
+      int[] opRatios = schedule.getPhase(i).getOpRatios();
+      if (opRatios != null) {
+        gen.checkOpRatios(opRatios);
+      }
+    }
+  }
+
+  /**
+   * Returns the phase of the schedule at the given time since the start of the run, or null if
+   * the schedule is over. Switches the op ratio of the generator when a new phase begins.
+   */
+  protected PhaseSchedule.Phase enterPhase(LoadGenerator gen, long elapsedNanos) {
+    int idx = schedule.phaseIndexAt(elapsedNanos);
+    if (idx < 0) {
+      return null;
+    }
+    PhaseSchedule.Phase phase = schedule.getPhase(idx);
+    if (idx != currentPhaseIdx) {
+      currentPhaseIdx = idx;
+      if (phase.getOpRatios() != null) {
+        gen.setOpRatios(phase.getOpRatios());
+      }
+      synchronized (this) {
+        phaseStats.putIfAbsent(phase.getName(), new WorkloadStats());
+      }
+      System.out.println("Entering phase " + phase);
+    }
+    return phase;
+  }
+
+  /**
+   * Issues an operation on the calling thread and records its latency.
+   * @param intendedStartNanos the System.nanoTime() at which the schedule wanted this operation
+   *                           to start
+   * @param phase the phase the operation belongs to, or null if the run has no schedule
+   */
+  protected void execute(Operation op, OpSink sink, long intendedStartNanos,
+                         PhaseSchedule.Phase phase) {
+    if (op instanceof ReadWriteTransaction && !thinkTime.isNone()) {
+      ((ReadWriteTransaction) op).setThinkTime(thinkTime);
+    }
+    long actualStartNanos = System.nanoTime();
+    sink.execute(op);
+    long endNanos = System.nanoTime();
+    if (backpressure != null) {
+      backpressure.record(endNanos, endNanos - actualStartNanos, sink.getAbortCount(),
+              sink.getInfoCount());
+    }
+    long lockHoldNanos = op instanceof ReadWriteTransaction ?
+            ((ReadWriteTransaction) op).getLockHoldNanos() : -1;
+    OptionalLong readAgeNanos = op instanceof ReadTransaction ?
+            ((ReadTransaction) op).getReadAgeNanos() : OptionalLong.empty();
+    if (phase != null) {
+      WorkloadStats statsOfPhase;
+      synchronized (this) {
+        statsOfPhase = phaseStats.get(phase.getName());
+      }
+      statsOfPhase.record(intendedStartNanos, actualStartNanos, endNanos);
+      if (lockHoldNanos >= 0) {
+        statsOfPhase.recordLockHold(lockHoldNanos);
+      }
+      readAgeNanos.ifPresent(statsOfPhase::recordReadAge);
+    }
+    if (phase == null || !phase.isWarmUp()) {
+      stats.record(intendedStartNanos, actualStartNanos, endNanos);
+      if (lockHoldNanos >= 0) {
+        stats.recordLockHold(lockHoldNanos);
+      }
+      readAgeNanos.ifPresent(stats::recordReadAge);
+    }
+    System.out.println("Op " + op.toString() + " done");
+  }
+
+  /**
+   * Prints the statistics of the whole run and of each phase.
+   */
+  protected void printStats() {
+    System.out.println("Run finished (warm-up excluded): " + stats);
+    for (Map.Entry<String, WorkloadStats> phase : getPhaseStats().entrySet()) {
+      System.out.printf("Phase %s: %s\n", phase.getKey(), phase.getValue());
+    }
+    if (backpressure != null) {
+      System.out.println(backpressure);
+    }
+  }
+
+  /**
+   * Sleeps until the given System.nanoTime(); returns immediately if it has already passed.
+   */
+  protected static void waitUntil(long deadlineNanos) {
+    long remaining;
+    while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /**
+   * Creates the runner described in the config file; defaults to a closed-loop runner if the
+   * config does not specify one.
+   */
+  public static WorkloadRunner createFromConfig(String configPath) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      String scheduling = config.getOrDefault(SCHEDULING, CLOSED_LOOP);
+      PhaseSchedule schedule = null;
+      if (config.containsKey(PHASES)) {
+        schedule = PhaseSchedule.parse(config.get(PHASES));
+      }
+      WorkloadRunner runner;
+      switch (scheduling) {
+        case CLOSED_LOOP:
+          runner = new ClosedLoopRunner(schedule);
+          break;
+        case OPEN_LOOP:
+          OpenLoopRunner.Arrival arrival =
+                  OpenLoopRunner.Arrival.valueOf(config.getOrDefault(ARRIVAL,
+                          OpenLoopRunner.Arrival.FIXED.name()).toUpperCase());
+          if (schedule == null) {
+            // Trace arrivals take their times from the trace, so they need no rate
+            schedule = PhaseSchedule.constant(arrival == OpenLoopRunner.Arrival.TRACE ? 1 :
+                    Double.parseDouble(config.get(OPS_PER_SECOND)));
+          }
+          int maxInFlight = Integer.parseInt(config.getOrDefault(MAX_IN_FLIGHT,
+                  DEFAULT_MAX_IN_FLIGHT));
+          runner = new OpenLoopRunner(arrival, schedule, maxInFlight);
+          break;
+        case STALENESS_SWEEP:
+          int[] stalenessMillis = Arrays.stream(config.getOrDefault(SWEEP_STALENESS_MILLIS,
+                  DEFAULT_SWEEP_STALENESS_MILLIS).split(" ")).mapToInt(Integer::parseInt)
+                  .toArray();
+          runner = new StalenessSweepRunner(stalenessMillis, Integer.parseInt(
+                  config.getOrDefault(SWEEP_READS_PER_STEP, DEFAULT_SWEEP_READS_PER_STEP)));
+          break;
+        default:
+          throw new RuntimeException("Invalid scheduling " + scheduling);
+      }
+      runner.setThinkTime(ThinkTime.createFromConfig(config));
+      runner.setBackpressure(BackpressureController.createFromConfig(config));
+      return runner;
+    } catch (FileNotFoundException | ClassCastException | NullPointerException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MSG + configPath);
+    }
+  }
+}
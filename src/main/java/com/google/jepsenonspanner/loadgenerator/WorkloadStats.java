@@ -0,0 +1,167 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the latency of every operation a worker issues. Each operation records three points in
+ * time: when it was supposed to start according to the schedule, when it actually started and when
+ * it finished. Service time is measured from the actual start; response time is measured from the
+ * intended start, so that time spent waiting behind a slow operation is not hidden (coordinated
+ * omission). Operations that could not be started on schedule are counted as backlog. Read-write
+ * transactions also record how long they held their locks, and read-only transactions how old
+ * the data they read was.
+ * All methods are thread safe.
+ */
+public class WorkloadStats {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  private long[] serviceTimes = new long[INITIAL_CAPACITY];
+  private long[] responseTimes = new long[INITIAL_CAPACITY];
+  private int count = 0;
+  private long[] lockHoldTimes = new long[INITIAL_CAPACITY];
+  private int lockHoldCount = 0;
+  private long[] readAges = new long[INITIAL_CAPACITY];
+  private int readAgeCount = 0;
+  private long firstStartNanos = Long.MAX_VALUE;
+  private long lastEndNanos = Long.MIN_VALUE;
+
+  private long backlogOps = 0;
+  private int maxBacklogDepth = 0;
+  private long maxScheduleLagNanos = 0;
+
+  /**
+   * Records a finished operation. All arguments are System.nanoTime() readings.
+   */
+  public synchronized void record(long intendedStartNanos, long actualStartNanos, long endNanos) {
+    if (count == serviceTimes.length) {
+      serviceTimes = Arrays.copyOf(serviceTimes, count * 2);
+      responseTimes = Arrays.copyOf(responseTimes, count * 2);
+    }
+    serviceTimes[count] = endNanos - actualStartNanos;
+    responseTimes[count] = endNanos - intendedStartNanos;
+    count++;
+    firstStartNanos = Math.min(firstStartNanos, intendedStartNanos);
+    lastEndNanos = Math.max(lastEndNanos, endNanos);
+    maxScheduleLagNanos = Math.max(maxScheduleLagNanos, actualStartNanos - intendedStartNanos);
+  }
+
+  /**
+   * Records how long a read-write transaction held its locks, in nanoseconds.
+   */
+  public synchronized void recordLockHold(long lockHoldNanos) {
+    if (lockHoldCount == lockHoldTimes.length) {
+      lockHoldTimes = Arrays.copyOf(lockHoldTimes, lockHoldCount * 2);
+    }
+    lockHoldTimes[lockHoldCount++] = lockHoldNanos;
+  }
+
+  /**
+   * Records how far in the past the read timestamp of a read-only transaction was when the read
+   * was sent, in nanoseconds; negative if the timestamp was after the send time on the client
+   * clock.
+   */
+  public synchronized void recordReadAge(long readAgeNanos) {
+    if (readAgeCount == readAges.length) {
+      readAges = Arrays.copyOf(readAges, readAgeCount * 2);
+    }
+    readAges[readAgeCount++] = readAgeNanos;
+  }
+
+  /**
+   * Records an operation that was due while the worker had no capacity left to start it.
+   * @param depth number of operations waiting to be started, including this one
+   */
+  public synchronized void recordBacklog(int depth) {
+    backlogOps++;
+    maxBacklogDepth = Math.max(maxBacklogDepth, depth);
+  }
+
+  public synchronized int getCount() {
+    return count;
+  }
+
+  public synchronized long getBacklogOps() {
+    return backlogOps;
+  }
+
+  public synchronized int getMaxBacklogDepth() {
+    return maxBacklogDepth;
+  }
+
+  /**
+   * Returns the given percentile of response times, in nanoseconds.
+   */
+  public synchronized long responseTimePercentile(double percentile) {
+    return percentile(responseTimes, count, percentile);
+  }
+
+  /**
+   * Returns the given percentile of service times, in nanoseconds.
+   */
+  public synchronized long serviceTimePercentile(double percentile) {
+    return percentile(serviceTimes, count, percentile);
+  }
+
+  /**
+   * Returns the given percentile of lock-hold times of read-write transactions, in nanoseconds.
+   */
+  public synchronized long lockHoldPercentile(double percentile) {
+    return percentile(lockHoldTimes, lockHoldCount, percentile);
+  }
+
+  /**
+   * Returns the given percentile of read ages of read-only transactions, in nanoseconds.
+   */
+  public synchronized long readAgePercentile(double percentile) {
+    return percentile(readAges, readAgeCount, percentile);
+  }
+
+  /**
+   * Returns the number of operations finished per second, between the first intended start and
+   * the last finish.
+   */
+  public synchronized double throughput() {
+    if (count == 0) {
+      return 0;
+    }
+    return count / Math.max((lastEndNanos - firstStartNanos) / 1e9, 1e-9);
+  }
+
+  private long percentile(long[] samples, int count, double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    int idx = (int) Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, Math.min(idx, count - 1))];
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("ops = %d, throughput = %.2f ops/s, backlog ops = %d, max backlog " +
+                    "depth = %d, max schedule lag = %d ms\n", count, throughput(), backlogOps,
+            maxBacklogDepth, TimeUnit.NANOSECONDS.toMillis(maxScheduleLagNanos)));
+    sb.append("percentile\tservice time (ms)\tresponse time (ms)\n");
+    for (double p : PERCENTILES) {
+      sb.append(String.format("p%s\t%.3f\t%.3f\n", p, serviceTimePercentile(p) / 1e6,
+              responseTimePercentile(p) / 1e6));
+    }
+    sb.append(String.format("max\t%.3f\t%.3f", serviceTimePercentile(100) / 1e6,
+            responseTimePercentile(100) / 1e6));
+    if (lockHoldCount > 0) {
+      sb.append(String.format("\nlock hold (ms) of %d transactions: p50 = %.3f, p99 = %.3f, " +
+              "max = %.3f", lockHoldCount, lockHoldPercentile(50) / 1e6,
+              lockHoldPercentile(99) / 1e6, lockHoldPercentile(100) / 1e6));
+    }
+    if (readAgeCount > 0) {
+      sb.append(String.format("\nread age (ms) of %d reads: p50 = %.3f, p99 = %.3f, max = %.3f",
+              readAgeCount, readAgePercentile(50) / 1e6, readAgePercentile(99) / 1e6,
+              readAgePercentile(100) / 1e6));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,199 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Implements the load generator of the write-skew benchmark. The keys are split into pairs
+ * (keys[0], keys[1]), (keys[2], keys[3]) and so on, and every pair must hold the invariant
+ * x + y >= 0. Generates three kinds of loads on a random pair:
+ * - A withdrawal reads both keys, and takes an amount from one of them only if the sum of both
+ *   covers it, as a write that depends on both reads. Two concurrent withdrawals from the two
+ *   keys of a pair are the classic write skew: under snapshot isolation both could see the same
+ *   sum, and together break the invariant.
+ * - A deposit reads one key and adds an amount to it.
+ * - A strong read of both keys.
+ * Withdrawals are recorded as [:read :x 3] [:read :y 2] [:withdraw :x 4], and deposits as
+ * [:read :x 3] [:deposit :x 2], so that the verifier can replay every write from the values read.
+ */
+public class WriteSkewLoadGenerator extends LoadGenerator {
+
+  /**
+   * Configuration class to adjust distribution of randomly generated loads
+   */
+  public static class Config extends EnumRatioConfig<Config.LoadType> {
+
+    public enum LoadType {
+      WITHDRAW,
+      DEPOSIT,
+      READ
+    }
+
+    public Config(int... loadRatios) {
+      super(LoadType.class, loadRatios);
+    }
+  }
+
+  private String[] keys;
+  // keyKeywords[i] is the EDN keyword of keys[i], as recorded in the history table
+  private Keyword[] keyKeywords;
+  private Config config;
+  private int maxAmount;
+  // Picks the index of a pair
+  private KeyDistribution pairDistribution;
+
+  // The proceeding numbers are used to specify their ordering in the history table so that the
+  // verifier always observes a write before a read on the same timestamp
+  public static final String WITHDRAW_LOAD_NAME = "0withdraw";
+  public static final String DEPOSIT_LOAD_NAME = "0deposit";
+  public static final String READ_LOAD_NAME = "1read";
+  public static final Keyword WITHDRAW_KEYWORD = Keyword.newKeyword("withdraw");
+  public static final Keyword DEPOSIT_KEYWORD = Keyword.newKeyword("deposit");
+
+  private static final String OP_LIMIT = "opLimit";
+  private static final String KEYS = "keys";
+  private static final String RATIO_CONFIG = "writeSkewOpRatio";
+  private static final String MAX_AMOUNT = "writeSkewMaxAmount";
+  private static final int[] DEFAULT_RATIOS = {4, 1, 1};
+  private static final int DEFAULT_MAX_AMOUNT = 5;
+  private static final String ERR_MSG = "Error parsing config file ";
+
+  /**
+   * @param keys the keys, whose consecutive pairs hold the invariant; a last odd key is unused
+   * @param maxAmount the largest amount of a withdrawal or a deposit
+   * @param pairDistribution how pairs are picked, over the number of pairs
+   */
+  public WriteSkewLoadGenerator(int seed, int opLimit, String[] keys, Config config,
+                                int maxAmount, KeyDistribution pairDistribution) {
+    super(opLimit, seed);
+    if (keys.length < 2 || maxAmount <= 0) {
+      throw new RuntimeException("Invalid write-skew config");
+    }
+    if (pairDistribution.getKeyCount() != keys.length / 2) {
+      throw new RuntimeException("Key distribution does not match number of key pairs");
+    }
+    this.keys = keys;
+    this.config = config;
+    this.maxAmount = maxAmount;
+    this.pairDistribution = pairDistribution;
+    this.keyKeywords = new Keyword[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keyKeywords[i] = Keyword.newKeyword(keys[i]);
+    }
+  }
+
+  public static WriteSkewLoadGenerator createGeneratorFromConfig(String configPath, int seed,
+                                                                 int workerIdx, int workerCount) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      // The op limit may be left out for runs bounded by a phase schedule
+      int opLimit = config.containsKey(OP_LIMIT) ? Integer.parseInt(config.get(OP_LIMIT)) :
+              Integer.MAX_VALUE;
+      String[] keys = config.get(KEYS).split(" ");
+      int[] ratios = config.containsKey(RATIO_CONFIG) ?
+              Arrays.stream(config.get(RATIO_CONFIG).split(" ")).mapToInt(Integer::parseInt)
+                      .toArray() : DEFAULT_RATIOS;
+      int maxAmount = config.containsKey(MAX_AMOUNT) ? Integer.parseInt(config.get(MAX_AMOUNT)) :
+              DEFAULT_MAX_AMOUNT;
+      return new WriteSkewLoadGenerator(seed, opLimit, keys, new Config(ratios), maxAmount,
+              KeyDistribution.createFromConfig(config, keys.length / 2, workerIdx, workerCount));
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException(ERR_MSG + configPath);
+    }
+  }
+
+  public static WriteSkewLoadGenerator createGeneratorFromConfig(String configPath) {
+    return createGeneratorFromConfig(configPath, new Random().nextInt(), /*workerIdx=*/0,
+            /*workerCount=*/1);
+  }
+
+  @Override
+  public void setOpRatios(int... ratios) {
+    this.config = new Config(ratios);
+  }
+
+  @Override
+  public void checkOpRatios(int... ratios) {
+    // The config throws if the ratios do not fit the benchmark
+    new Config(ratios);
+  }
+
+  @Override
+  public Operation nextOperation() {
+    if (opLimit <= 0) {
+      throw new RuntimeException("Write-skew generator has reached limit");
+    }
+
+    opLimit--;
+    int pairIdx = pairDistribution.nextIndex(rand);
+    int first = 2 * pairIdx;
+    // The key of the pair that is written to, and the other one
+    int target = first + rand.nextInt(2);
+    int other = 2 * first + 1 - target;
+    switch (config.categorizeLoad(rand.nextInt())) {
+      case WITHDRAW:
+        pairDistribution.recordWrite(pairIdx);
+        return withdraw(target, other, rand.nextInt(maxAmount) + 1);
+      case DEPOSIT:
+        pairDistribution.recordWrite(pairIdx);
+        return deposit(target, rand.nextInt(maxAmount) + 1);
+      default:
+        return ReadTransaction.createStrongRead(READ_LOAD_NAME,
+                Arrays.asList(keys[first], keys[first + 1]),
+                Arrays.asList(LinearizabilityLoadGenerator.readRepresentation(keyKeywords[first]),
+                        LinearizabilityLoadGenerator.readRepresentation(
+                                keyKeywords[first + 1])));
+    }
+  }
+
+  /**
+   * Returns a transaction that reads both keys of a pair, and takes the amount from the target
+   * key only if the sum of both covers it.
+   */
+  private ReadWriteTransaction withdraw(int target, int other, long amount) {
+    TransactionalAction readTarget = TransactionalAction.createTransactionalRead(keys[target]);
+    TransactionalAction readOther = TransactionalAction.createTransactionalRead(keys[other]);
+    TransactionalAction write = TransactionalAction.createDependentTransactionalWrite(
+            keys[target], Arrays.asList(readTarget, readOther),
+            /*findDependValsFunc=*/values -> values[0] - amount,
+            /*decideProceedValsFunc=*/values -> values[0] + values[1] - amount >= 0);
+    List<OpRepresentation> representation = Arrays.asList(
+            LinearizabilityLoadGenerator.readRepresentation(keyKeywords[target]),
+            LinearizabilityLoadGenerator.readRepresentation(keyKeywords[other]),
+            OpRepresentation.createOtherFromObjs(Arrays.asList(WITHDRAW_KEYWORD,
+                    keyKeywords[target], amount)));
+    return new ReadWriteTransaction(WITHDRAW_LOAD_NAME, representation,
+            Arrays.asList(readTarget, readOther, write));
+  }
+
+  /**
+   * Returns a transaction that reads the target key and adds the amount to it.
+   */
+  private ReadWriteTransaction deposit(int target, long amount) {
+    TransactionalAction read = TransactionalAction.createTransactionalRead(keys[target]);
+    read.setDependentAction(TransactionalAction.createDependentTransactionalDelta(keys[target],
+            amount));
+    List<OpRepresentation> representation = Arrays.asList(
+            LinearizabilityLoadGenerator.readRepresentation(keyKeywords[target]),
+            OpRepresentation.createOtherFromObjs(Arrays.asList(DEPOSIT_KEYWORD,
+                    keyKeywords[target], amount)));
+    return new ReadWriteTransaction(DEPOSIT_LOAD_NAME, representation,
+            Arrays.asList(read));
+  }
+}
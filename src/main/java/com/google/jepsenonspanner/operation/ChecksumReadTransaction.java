@@ -0,0 +1,56 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.jepsenonspanner.client.Executor;
+import org.apache.commons.lang3.tuple.Pair;
+import us.bpsm.edn.Keyword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ChecksumReadTransaction is a read-only transaction that reads the sum and the count of all
+ * values, plus the values of a sample of keys, instead of every value. Its representation looks
+ * like [[:sum nil] [:count nil] ["3" nil] ["7" nil]], so the size of a record stays the same
+ * however many keys there are.
+ */
+public class ChecksumReadTransaction extends ReadTransaction {
+  public static final Keyword SUM_KEYWORD = Keyword.newKeyword(Executor.SUM_KEY);
+  public static final Keyword COUNT_KEYWORD = Keyword.newKeyword(Executor.COUNT_KEY);
+
+  /**
+   * @param loadName name of the load recorded in the history table
+   * @param sampleKeys keys whose values are read along with the aggregates
+   * @param staleness staleness of the read in milliseconds, 0 for a strong read
+   * @param bounded whether the staleness is an upper bound or exact
+   */
+  public ChecksumReadTransaction(String loadName, List<String> sampleKeys, int staleness,
+                                 boolean bounded) {
+    super(loadName, createRepresentation(sampleKeys), sampleKeys, staleness, bounded);
+  }
+
+  /**
+   * Constructor with an already built representation, e.g. when replaying a tape.
+   */
+  public ChecksumReadTransaction(String loadName, List<OpRepresentation> recordRepresentation,
+                                 List<String> sampleKeys, int staleness, boolean bounded) {
+    super(loadName, recordRepresentation, sampleKeys, staleness, bounded);
+  }
+
+  private static List<OpRepresentation> createRepresentation(List<String> sampleKeys) {
+    List<OpRepresentation> representation = new ArrayList<>(sampleKeys.size() + 2);
+    representation.add(OpRepresentation.createReadFromObjs(Arrays.asList(SUM_KEYWORD, null)));
+    representation.add(OpRepresentation.createReadFromObjs(Arrays.asList(COUNT_KEYWORD, null)));
+    for (String key : sampleKeys) {
+      representation.add(OpRepresentation.createReadFromObjs(Arrays.asList(key, null)));
+    }
+    return representation;
+  }
+
+  @Override
+  Pair<HashMap<String, Long>, Timestamp> read(Executor executor) throws OperationException {
+    return executor.readChecksum(getKeys(), getStaleness(), getBounded());
+  }
+}
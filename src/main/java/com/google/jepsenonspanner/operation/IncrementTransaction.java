@@ -0,0 +1,75 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Executor;
+import us.bpsm.edn.Keyword;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * A transaction of the counter benchmark that adds a delta to a counter without reading it,
+ * recorded as [:add :x 3]. Since increments commute, concurrent increments of the same counter
+ * never need to see each other's results.
+ */
+public class IncrementTransaction extends Operation {
+  public static final Keyword ADD_KEYWORD = Keyword.newKeyword("add");
+
+  private String key;
+  private long delta;
+
+  public IncrementTransaction(String loadName, String key, long delta) {
+    super(loadName, Collections.singletonList(OpRepresentation.createOtherFromObjs(
+            Arrays.asList(ADD_KEYWORD, Keyword.newKeyword(key), delta))));
+    this.key = key;
+    this.delta = delta;
+  }
+
+  /**
+   * The execution function of an IncrementTransaction will:
+   * - Write an "invoke" entry into the history table
+   * - Add the delta to the counter in a read-write transaction
+   * - Write an "ok" entry into the history table and update the timestamp of the "invoke" entry
+   * - If there is a SpannerException caused by a RuntimeError thrown from the transaction
+   * function, e.g. the counter does not exist, write a "fail" entry
+   * - Otherwise, write an "info" entry
+   */
+  @Override
+  public Consumer<Executor> getExecutionPlan() {
+    return executor -> {
+      try {
+        Timestamp recordTimestamp = executor.recordInvoke(getLoadName(), getRecordRepresentation());
+        Timestamp commitTimestamp = executor.runTxn(new Executor.TransactionFunction() {
+          @Override
+          public void run(TransactionContext transaction) {
+            executor.executeTransactionalIncrement(key, delta, transaction);
+          }
+        });
+        System.out.printf("Incremented key = %s by %s\n", key, delta);
+        executor.recordComplete(getLoadName(), getRecordRepresentation(), commitTimestamp,
+                recordTimestamp);
+      } catch (SpannerException e) {
+        if (e.getErrorCode() == ErrorCode.UNKNOWN && e.getCause() instanceof OperationException) {
+          executor.recordFail(getLoadName(), getRecordRepresentation());
+        } else {
+          executor.recordInfo(getLoadName(), getRecordRepresentation());
+        }
+      }
+    };
+  }
+
+  @VisibleForTesting
+  public String getKey() {
+    return key;
+  }
+
+  @VisibleForTesting
+  public long getDelta() {
+    return delta;
+  }
+}
@@ -0,0 +1,120 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Executor;
+import us.bpsm.edn.Keyword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A transaction of the list-append benchmark, made of appends of unique elements to the lists of
+ * some keys and reads of whole lists, run in the given order. Appends are recorded as
+ * [:append :x 1] and reads as [:r :x [1 2]].
+ */
+public class ListAppendTransaction extends Operation {
+  public static final Keyword APPEND_KEYWORD = Keyword.newKeyword("append");
+  public static final Keyword READ_KEYWORD = Keyword.newKeyword("r");
+
+  private List<String> keys;
+  // The element each action appends, or null for a read
+  private List<Long> elements;
+
+  /**
+   * @param keys the key each action accesses, in order
+   * @param elements the element each action appends to the list of its key, or null if the
+   *                 action reads the list
+   */
+  public ListAppendTransaction(String loadName, List<String> keys, List<Long> elements) {
+    super(loadName, createRepresentation(keys, elements));
+    this.keys = keys;
+    this.elements = elements;
+  }
+
+  private static List<OpRepresentation> createRepresentation(List<String> keys,
+                                                             List<Long> elements) {
+    if (keys.size() != elements.size()) {
+      throw new RuntimeException("Every action of a list-append transaction needs a key");
+    }
+    List<OpRepresentation> representation = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      Keyword key = Keyword.newKeyword(keys.get(i));
+      if (elements.get(i) == null) {
+        representation.add(OpRepresentation.createListReadFromObjs(
+                Arrays.asList(READ_KEYWORD, key, null)));
+      } else {
+        representation.add(OpRepresentation.createOtherFromObjs(
+                Arrays.asList(APPEND_KEYWORD, key, elements.get(i))));
+      }
+    }
+    return representation;
+  }
+
+  /**
+   * The execution function of a ListAppendTransaction will:
+   * - Write an "invoke" entry into the history table
+   * - Run the appends and list reads in order in one read-write transaction
+   * - Write an "ok" entry with the lists read, and update the timestamp of the "invoke" entry
+   * - If there is a SpannerException caused by a RuntimeError thrown from the transaction
+   * function, write a "fail" entry
+   * - Otherwise, write an "info" entry
+   */
+  @Override
+  public Consumer<Executor> getExecutionPlan() {
+    String currentOp = toString();
+    return executor -> {
+      List<List<Long>> listsRead = new ArrayList<>(Collections.nCopies(keys.size(), null));
+      try {
+        Timestamp recordTimestamp = executor.recordInvoke(getLoadName(), getRecordRepresentation());
+        Timestamp commitTimestamp = executor.runTxn(new Executor.TransactionFunction() {
+          @Override
+          public void run(TransactionContext transaction) {
+            for (int i = 0; i < keys.size(); i++) {
+              if (elements.get(i) == null) {
+                List<Long> list = executor.executeTransactionalListRead(keys.get(i), transaction);
+                listsRead.set(i, list);
+                System.out.printf("Read key = %s, list = %s in %s\n", keys.get(i), list,
+                        currentOp);
+              } else {
+                executor.executeTransactionalAppend(keys.get(i), elements.get(i), transaction);
+                System.out.printf("Appending key = %s, element = %s in %s\n", keys.get(i),
+                        elements.get(i), currentOp);
+              }
+            }
+          }
+        });
+        for (int i = 0; i < keys.size(); i++) {
+          if (elements.get(i) == null) {
+            getRecordRepresentation().get(i).setListToUpdate(listsRead.get(i));
+          }
+        }
+        executor.recordComplete(getLoadName(), getRecordRepresentation(), commitTimestamp,
+                recordTimestamp);
+      } catch (SpannerException e) {
+        if (e.getErrorCode() == ErrorCode.UNKNOWN && e.getCause() instanceof OperationException) {
+          executor.recordFail(getLoadName(), getRecordRepresentation());
+        } else {
+          executor.recordInfo(getLoadName(), getRecordRepresentation());
+        }
+      }
+    };
+  }
+
+  @VisibleForTesting
+  /** ALL TESTING FUNCTIONS BELOW */
+  public List<String> getKeys() {
+    return Collections.unmodifiableList(keys);
+  }
+
+  @VisibleForTesting
+  public List<Long> getElements() {
+    return Collections.unmodifiableList(elements);
+  }
+}
@@ -1,15 +1,18 @@
 package com.google.jepsenonspanner.operation;
 
 import us.bpsm.edn.Keyword;
+import us.bpsm.edn.parser.Parseable;
 import us.bpsm.edn.parser.Parser;
 import us.bpsm.edn.parser.Parsers;
 import us.bpsm.edn.printer.Printer;
 import us.bpsm.edn.printer.Printers;
 import us.bpsm.edn.protocols.Protocol;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -18,24 +21,45 @@ import java.util.stream.Collectors;
  * if a representation looks like [:read :x nil], the representation part will be a list of
  * single string ":read", and the readKey will be ":x"; if a representation looks like [:write :x
  * 5] however, the representation list will be [":write", ":x", "5"], while the other values will
- * be null.
+ * be null. A range read such as [:scan :a :c nil] has its nil replaced by every key read within
+ * the range, e.g. [:scan :a :c [[:a 1] [:b 2]]]. A list read such as [:r :x nil] has its nil
+ * replaced by the whole list read, e.g. [:r :x [1 2]].
  */
 public class OpRepresentation {
   private List<Object> representation;
   private boolean needsUpdate;
+  private boolean needsRangeUpdate;
+  private boolean needsListUpdate;
   public static final String NIL_VALUE = "nil";
   private static final String DELIMITER = " ";
+  // Creating a parser is costly compared to parsing a short representation, so each thread keeps
+  // its own
+  private static final ThreadLocal<Parser> PARSER =
+          ThreadLocal.withInitial(() -> Parsers.newParser(Parsers.defaultConfiguration()));
 
   /**
    * Base constructor that takes in a list of EDN objects that have already been parsed. This
    * should be used by the createFromObjs function.
    */
-  private OpRepresentation(List<Object> representation, boolean needsUpdate) {
-    if (needsUpdate && representation.get(representation.size() - 1) != null) {
+  private OpRepresentation(List<Object> representation, boolean needsUpdate,
+                           boolean needsRangeUpdate, boolean needsListUpdate) {
+    if ((needsUpdate || needsRangeUpdate || needsListUpdate) &&
+            representation.get(representation.size() - 1) != null) {
       throw new RuntimeException("Invalid representation needs update");
     }
     this.representation = representation;
     this.needsUpdate = needsUpdate;
+    this.needsRangeUpdate = needsRangeUpdate;
+    this.needsListUpdate = needsListUpdate;
+  }
+
+  private OpRepresentation(List<Object> representation, boolean needsUpdate,
+                           boolean needsRangeUpdate) {
+    this(representation, needsUpdate, needsRangeUpdate, /*needsListUpdate=*/false);
+  }
+
+  private OpRepresentation(List<Object> representation, boolean needsUpdate) {
+    this(representation, needsUpdate, /*needsRangeUpdate=*/false);
   }
 
   /**
@@ -45,7 +69,7 @@ public class OpRepresentation {
    */
   private static OpRepresentation createRepresentationFromStrings(
           List<String> representationStrings, boolean isRead) {
-    Parser parser = Parsers.newParser(Parsers.defaultConfiguration());
+    Parser parser = PARSER.get();
     List<Object> representation =
             representationStrings.stream().map(repr -> parser.nextValue(Parsers.newParseable(repr))).collect(
                     Collectors.toList());
@@ -76,19 +100,61 @@ public class OpRepresentation {
     return new OpRepresentation(representation, /*needsUpdate=*/false);
   }
 
+  /**
+   * Same as createOtherFromObjs, but for a read whose last object is a nil value to be updated
+   * with the read result. Used when replaying already parsed representations.
+   */
+  public static OpRepresentation createReadFromObjs(List<Object> representation) {
+    return new OpRepresentation(representation, /*needsUpdate=*/true);
+  }
+
+  /**
+   * Creates a range read, whose last three objects are the first key, the last key and a nil
+   * value to be updated with all keys read within the range.
+   */
+  public static OpRepresentation createRangeReadFromObjs(List<Object> representation) {
+    return new OpRepresentation(representation, /*needsUpdate=*/false,
+            /*needsRangeUpdate=*/true);
+  }
+
   /**
    * Create a representation from a String that is concatenated using DELIMITER. Note that this
    * constructor does not recognize nil fields or reads, because it assumes that these reads no
-   * longer need to be updated.
+   * longer need to be updated. The string is parsed value by value rather than split, since a
+   * value may itself contain the delimiter, e.g. :cas :x [1 2].
    */
   public static OpRepresentation createOtherRepresentation(String concatenatedString) {
-    return createOtherRepresentation(concatenatedString.split(DELIMITER));
+    Parser parser = PARSER.get();
+    Parseable parseable = Parsers.newParseable(concatenatedString);
+    List<Object> representation = new ArrayList<>();
+    for (Object value = parser.nextValue(parseable); value != Parser.END_OF_INPUT;
+         value = parser.nextValue(parseable)) {
+      representation.add(value);
+    }
+    return new OpRepresentation(representation, /*needsUpdate=*/false);
+  }
+
+  /**
+   * Creates a read of a whole list, whose last object is a nil value to be updated with the
+   * elements of the list.
+   */
+  public static OpRepresentation createListReadFromObjs(List<Object> representation) {
+    return new OpRepresentation(representation, /*needsUpdate=*/false,
+            /*needsRangeUpdate=*/false, /*needsListUpdate=*/true);
   }
 
   public boolean needsUpdate() {
     return needsUpdate;
   }
 
+  public boolean needsRangeUpdate() {
+    return needsRangeUpdate;
+  }
+
+  public boolean needsListUpdate() {
+    return needsListUpdate;
+  }
+
   /**
    * Strips the EDN representation of keys, so that they can be properly recognized in the read
    * results. e.g. A key :x represents a EDN Keyword, but in the testing table it will simply be
@@ -98,12 +164,15 @@ public class OpRepresentation {
     if (!needsUpdate()) {
       throw new RuntimeException("Cannot get key for non-update representations");
     }
-    Object keyToUpdate = representation.get(representation.size() - 2);
-    if (keyToUpdate instanceof String) {
-      return (String) keyToUpdate;
+    return getPureKey(representation.get(representation.size() - 2));
+  }
+
+  private static String getPureKey(Object key) {
+    if (key instanceof String) {
+      return (String) key;
     }
-    if (keyToUpdate instanceof Keyword) {
-      return ((Keyword) keyToUpdate).getName();
+    if (key instanceof Keyword) {
+      return ((Keyword) key).getName();
     }
     throw new UnsupportedOperationException();
   }
@@ -115,6 +184,43 @@ public class OpRepresentation {
     representation.set(representation.size() - 1, valueToUpdate);
   }
 
+  /**
+   * Replaces the nil value of a range read with the read results whose keys fall within the
+   * range, as a list of [key value] pairs sorted by key. Keys are recorded in the same EDN form
+   * as the ends of the range.
+   */
+  public void setRangeToUpdate(Map<String, Long> readResults) {
+    if (!needsRangeUpdate()) {
+      throw new RuntimeException("Cannot update range for non-range representations");
+    }
+    Object startKey = representation.get(representation.size() - 3);
+    String start = getPureKey(startKey);
+    String end = getPureKey(representation.get(representation.size() - 2));
+    List<String> keysInRange = new ArrayList<>();
+    for (String key : readResults.keySet()) {
+      if (key.compareTo(start) >= 0 && key.compareTo(end) <= 0) {
+        keysInRange.add(key);
+      }
+    }
+    Collections.sort(keysInRange);
+    List<Object> rangeResult = new ArrayList<>(keysInRange.size());
+    for (String key : keysInRange) {
+      Object ednKey = startKey instanceof Keyword ? Keyword.newKeyword(key) : key;
+      rangeResult.add(Arrays.asList(ednKey, readResults.get(key)));
+    }
+    representation.set(representation.size() - 1, rangeResult);
+  }
+
+  /**
+   * Replaces the nil value of a list read with the elements of the list read, in order.
+   */
+  public void setListToUpdate(List<Long> elements) {
+    if (!needsListUpdate()) {
+      throw new RuntimeException("Cannot update list for non-list representations");
+    }
+    representation.set(representation.size() - 1, new ArrayList<Object>(elements));
+  }
+
   /**
    * Returns a space concatenated string that represents parts of this operation. For example, a
    * bank read will have reads across several keys, so the representation string of a single key
@@ -46,16 +46,19 @@ public abstract class Operation {
 
   /**
    * Updates all the nil fields in the string representations to the values read.
-   * We assume that the representation will end with "... [key] [value or "nil"]".
+   * We assume that the representation will end with "... [key] [value or "nil"]", or with
+   * "... [first key] [last key] [values or "nil"]" for a range read.
    */
   void updateRecordRepresentation(Map<String, Long> readResults) {
     // Update the representation to reflect the values read
-    if (readResults.isEmpty()) {
-      return;
+    if (!readResults.isEmpty()) {
+      System.out.println(readResults);
     }
-    System.out.println(readResults);
     for (OpRepresentation repr : recordRepresentation) {
-      if (repr.needsUpdate()) {
+      if (repr.needsRangeUpdate()) {
+        // A range may hold no keys at all, so this is done even without any read result
+        repr.setRangeToUpdate(readResults);
+      } else if (repr.needsUpdate() && !readResults.isEmpty()) {
         long readValue = readResults.get(repr.getPureKey());
         repr.setValueToUpdate(readValue);
       }
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.function.Consumer;
 
 /**
@@ -20,6 +21,9 @@ public class ReadTransaction extends Operation {
   private List<String> keys;
   private int staleness;
   private boolean bounded;
+  // How far in the past the data read was, measured when the read was sent; empty until it
+  // succeeds
+  private OptionalLong readAgeNanos = OptionalLong.empty();
 
   public ReadTransaction(String loadName, List<OpRepresentation> recordRepresentation,
                          List<String> keys, int staleness, boolean bounded) {
@@ -62,9 +66,11 @@ public class ReadTransaction extends Operation {
       try {
         recordTimestamp = executor.recordInvoke(getLoadName(), getRecordRepresentation(),
                 staleness);
-        Pair<HashMap<String, Long>, Timestamp> result = executor.readKeys(keys, staleness, bounded);
+        Timestamp requestTimestamp = Timestamp.now();
+        Pair<HashMap<String, Long>, Timestamp> result = read(executor);
         HashMap<String, Long> keyValues = result.getLeft();
         Timestamp readTimeStamp = result.getRight();
+        readAgeNanos = OptionalLong.of(toNanos(requestTimestamp) - toNanos(readTimeStamp));
         updateRecordRepresentation(keyValues);
         executor.recordComplete(getLoadName(), getRecordRepresentation(), readTimeStamp,
                 recordTimestamp);
@@ -80,6 +86,28 @@ public class ReadTransaction extends Operation {
     };
   }
 
+  /**
+   * Reads the values this transaction records, returning them with the read timestamp.
+   */
+  Pair<HashMap<String, Long>, Timestamp> read(Executor executor) throws OperationException {
+    return executor.readKeys(keys, staleness, bounded);
+  }
+
+  /**
+   * Returns how long before the read was sent its read timestamp was, in nanoseconds; empty if the
+   * read has not succeeded. For stale reads, the difference from the requested staleness shows
+   * how closely Spanner follows it. The send time is taken from the clock of the client, so the
+   * age is off by the skew between that clock and TrueTime, and may be negative, e.g. for a
+   * strong read, whose timestamp is chosen after the read was sent.
+   */
+  public OptionalLong getReadAgeNanos() {
+    return readAgeNanos;
+  }
+
+  private static long toNanos(Timestamp timestamp) {
+    return timestamp.getSeconds() * 1_000_000_000 + timestamp.getNanos();
+  }
+
   @Override
   public String toString() {
     return super.toString() + " " + staleness + " " + (bounded ? "bounded" : "exact");
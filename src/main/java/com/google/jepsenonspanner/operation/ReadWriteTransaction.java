@@ -7,12 +7,15 @@ import com.google.cloud.spanner.TransactionContext;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.jepsenonspanner.client.Executor;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 /**
  * ReadWriteTransaction class encapsulates a series of read and write transactions that may or
@@ -22,21 +25,112 @@ import java.util.function.Consumer;
 public class ReadWriteTransaction extends Operation {
 
   private List<TransactionalAction> spannerActions;
-  private boolean failed;
+  // Returns the time in nanoseconds to wait between two round trips; null if there is no wait
+  private LongSupplier thinkTime;
+  // How long the last attempt of this transaction held its locks; -1 if it has not run
+  private long lockHoldNanos = -1;
 
   public ReadWriteTransaction(String loadName, List<OpRepresentation> recordRepresentation,
                               List<TransactionalAction> spannerActions) {
     super(loadName, recordRepresentation);
     this.spannerActions = spannerActions;
-    this.failed = false;
+  }
+
+  /**
+   * The actions of a transaction arranged by their dependencies. An action that depends on no
+   * other is in level 0, and any other action is one level after the latest action it depends
+   * on. Actions keep their order within a level, which is the order a BFS through the dependents
+   * would visit them in.
+   */
+  @VisibleForTesting
+  static class ActionGraph {
+    private final List<List<TransactionalAction>> levels = new ArrayList<>();
+    // The action each dependent set by setDependentAction hangs off
+    private final Map<TransactionalAction, TransactionalAction> chainParents =
+            new IdentityHashMap<>();
+
+    ActionGraph(List<TransactionalAction> actions) {
+      Map<TransactionalAction, Integer> depths = new IdentityHashMap<>();
+      for (TransactionalAction action : actions) {
+        int level = 0;
+        for (TransactionalAction dependOn : action.getDependsOn()) {
+          Integer depth = depths.get(dependOn);
+          if (depth == null) {
+            throw new RuntimeException(String.format("%s depends on an action that is not " +
+                    "earlier in the transaction", action));
+          }
+          level = Math.max(level, depth + 1);
+        }
+        // The action, and the chain of dependents hanging off it
+        TransactionalAction parent = null;
+        for (TransactionalAction current = action; current != null;
+             current = current.getDependentAction()) {
+          if (parent != null) {
+            chainParents.put(current, parent);
+          }
+          depths.put(current, level);
+          if (levels.size() == level) {
+            levels.add(new ArrayList<>());
+          }
+          levels.get(level++).add(current);
+          parent = current;
+        }
+      }
+    }
+
+    List<List<TransactionalAction>> getLevels() {
+      return levels;
+    }
+
+    /**
+     * Returns the return values of the actions the given action depends on, or null if it does
+     * not depend on any.
+     */
+    long[] dependOnValues(TransactionalAction action, Map<TransactionalAction, Long> results) {
+      List<TransactionalAction> dependsOn = action.getDependsOn();
+      if (!dependsOn.isEmpty()) {
+        long[] values = new long[dependsOn.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = results.get(dependsOn.get(i));
+        }
+        return values;
+      }
+      TransactionalAction parent = chainParents.get(action);
+      return parent == null ? null : new long[]{results.get(parent)};
+    }
+
+    /**
+     * Splits a level into groups of statements that are each sent in one round trip: runs of
+     * consecutive reads, and runs of consecutive writes that end at the first compare-and-set, so
+     * that a compare-and-set that does not hold aborts the transaction before anything after it
+     * is sent. Scans are sent alone.
+     */
+    static List<List<TransactionalAction>> groupStatements(List<TransactionalAction> level) {
+      List<List<TransactionalAction>> groups = new ArrayList<>();
+      List<TransactionalAction> group = null;
+      for (TransactionalAction action : level) {
+        if (group == null || action.isScan() || group.get(0).isScan() ||
+                action.isRead() != group.get(0).isRead() ||
+                group.get(group.size() - 1).isCompareAndSet()) {
+          group = new ArrayList<>();
+          groups.add(group);
+        }
+        group.add(action);
+      }
+      return groups;
+    }
   }
 
   /**
    * The execution function of a ReadWriteTransaction will:
    * - Write an "invoke" entry into the history table
-   * - Traverse through each TransactionalAction, and traverse through any dependent action in a
-   * BFS style if there is any; abort any time there is a failed condition by throwing a
-   * RuntimeException
+   * - Go through the actions level by level of their dependencies (see ActionGraph). Before a
+   * level is run, decide for each of its dependent actions whether it proceeds and fill in its
+   * value from the values returned by the actions it depends on. Each level is then sent in as
+   * few round trips as its groups of statements allow, waiting for the think time between two of
+   * them
+   * - If a dependent condition or a compare-and-set does not hold, abort by throwing an
+   * OperationException, which rolls back every statement the transaction has already run
    * - Write an "ok" entry into the history table and update the timestamp of the "invoke" entry
    * - If there is a SpannerException caused by a RuntimeError thrown from the transaction
    * function, write a "fail" entry
@@ -45,55 +139,58 @@ public class ReadWriteTransaction extends Operation {
   @Override
   public Consumer<Executor> getExecutionPlan() {
     String currentOp = toString();
+    ActionGraph graph = new ActionGraph(spannerActions);
     return executor -> {
       HashMap<String, Long> valuesRead = new HashMap<>();
+      // Locks are taken from the first action of an attempt until it commits or aborts
+      long[] lockStartNanos = new long[1];
       try {
         Timestamp recordTimestamp = executor.recordInvoke(getLoadName(), getRecordRepresentation());
         Timestamp commitTimestamp = executor.runTxn(new Executor.TransactionFunction() {
           @Override
           public void run(TransactionContext transaction) {
             valuesRead.clear();
-            Queue<TransactionalAction> bfs = new LinkedList<>(spannerActions);
-            while (!bfs.isEmpty()) {
-              TransactionalAction action = bfs.poll();
-              long dependentValue = -1;
-              if (action.isRead()) {
-                dependentValue = executor.executeTransactionalRead(action.getKey(), transaction);
-                action.setValue(dependentValue);
-                valuesRead.put(action.getKey(), dependentValue);
-                System.out.printf("Read key = %s, value = %s in %s\n", action.getKey(),
-                        dependentValue, currentOp);
-              } else {
-                System.out.printf("Writing key = %s, value = %s in %s\n", action.getKey(),
-                        action.getValue(), currentOp);
-                executor.executeTransactionalWrite(action.getKey(), action.getValue(), transaction);
-              }
-              TransactionalAction dependent = action.getDependentAction();
-              if (dependent == null) {
-                continue;
+            lockStartNanos[0] = System.nanoTime();
+            // The value each action returned; -1 for anything but a read
+            Map<TransactionalAction, Long> results = new IdentityHashMap<>();
+            boolean firstGroup = true;
+            for (List<TransactionalAction> level : graph.getLevels()) {
+              for (TransactionalAction action : level) {
+                long[] dependOn = graph.dependOnValues(action, results);
+                if (dependOn == null) {
+                  continue;
+                }
+                if (!action.decideProceed(dependOn)) {
+                  throw new OperationException(String.format("Condition does not hold in %s",
+                          currentOp));
+                }
+                action.findDependentValue(dependOn);
               }
-              if (!dependent.decideProceed(dependentValue)) {
-                failed = true;
-                return;
+              for (List<TransactionalAction> group : ActionGraph.groupStatements(level)) {
+                if (!firstGroup && thinkTime != null) {
+                  think(thinkTime.getAsLong());
+                }
+                firstGroup = false;
+                if (!executeGroup(group, executor, transaction, results, valuesRead, currentOp)) {
+                  throw new OperationException(String.format("Compare-and-set does not hold in " +
+                          "%s", currentOp));
+                }
               }
-              failed = false;
-              dependent.findDependentValue(dependentValue);
-              bfs.offer(dependent);
             }
           }
         });
-        if (failed) {
-          executor.recordFail(getLoadName(), getRecordRepresentation());
-        } else {
-          updateRecordRepresentation(valuesRead);
-          executor.recordComplete(getLoadName(), getRecordRepresentation(), commitTimestamp,
-                  recordTimestamp);
-        }
+        lockHoldNanos = System.nanoTime() - lockStartNanos[0];
+        updateRecordRepresentation(valuesRead);
+        executor.recordComplete(getLoadName(), getRecordRepresentation(), commitTimestamp,
+                recordTimestamp);
       } catch (SpannerException e) {
+        if (lockStartNanos[0] != 0) {
+          lockHoldNanos = System.nanoTime() - lockStartNanos[0];
+        }
         if (e.getErrorCode() == ErrorCode.UNKNOWN && e.getCause() instanceof OperationException) {
-          // The transaction function has thrown a RuntimeException, meaning that the transaction
-          // fails; note that RuntimeException can also be thrown from executeTransactionalRead /
-          // Write
+          // The transaction function has thrown an OperationException, so the transaction was
+          // rolled back; it is thrown for a condition or compare-and-set that does not hold, and
+          // from executeTransactionalRead / Write for a missing key
           executor.recordFail(getLoadName(), getRecordRepresentation());
         } else {
           executor.recordInfo(getLoadName(), getRecordRepresentation());
@@ -102,6 +199,110 @@ public class ReadWriteTransaction extends Operation {
     };
   }
 
+  /**
+   * Executes a group of statements in one round trip, and records the values returned. Returns
+   * false if a compare-and-set does not hold.
+   */
+  private static boolean executeGroup(List<TransactionalAction> group, Executor executor,
+                                      TransactionContext transaction,
+                                      Map<TransactionalAction, Long> results,
+                                      HashMap<String, Long> valuesRead, String currentOp) {
+    TransactionalAction first = group.get(0);
+    if (first.isRead()) {
+      Map<String, Long> read;
+      if (group.size() == 1) {
+        read = Collections.singletonMap(first.getKey(),
+                executor.executeTransactionalRead(first.getKey(), transaction));
+      } else {
+        List<String> keys = new ArrayList<>(group.size());
+        for (TransactionalAction action : group) {
+          keys.add(action.getKey());
+        }
+        read = executor.executeTransactionalReads(keys, transaction);
+      }
+      for (TransactionalAction action : group) {
+        long value = read.get(action.getKey());
+        action.setValue(value);
+        valuesRead.put(action.getKey(), value);
+        results.put(action, value);
+        System.out.printf("Read key = %s, value = %s in %s\n", action.getKey(), value, currentOp);
+      }
+      return true;
+    }
+    if (first.isScan()) {
+      HashMap<String, Long> scanned = executor.executeTransactionalScan(first.getKey(),
+              first.getEndKey(), transaction);
+      valuesRead.putAll(scanned);
+      results.put(first, -1L);
+      System.out.printf("Scanned keys %s - %s, values = %s in %s\n", first.getKey(),
+              first.getEndKey(), scanned, currentOp);
+      return true;
+    }
+
+    List<String> keys = new ArrayList<>(group.size());
+    List<Long> values = new ArrayList<>(group.size());
+    List<Long> expectedValues = new ArrayList<>(group.size());
+    for (TransactionalAction action : group) {
+      if (action.isCompareAndSet()) {
+        System.out.printf("Compare-and-set key = %s, value = %s -> %s in %s\n",
+                action.getKey(), action.getExpectedValue(), action.getValue(), currentOp);
+      } else {
+        System.out.printf("Writing key = %s, value = %s in %s\n", action.getKey(),
+                action.getValue(), currentOp);
+      }
+      keys.add(action.getKey());
+      values.add(action.getValue());
+      expectedValues.add(action.isCompareAndSet() ? action.getExpectedValue() : null);
+      results.put(action, -1L);
+    }
+    boolean allSet;
+    if (group.size() > 1) {
+      allSet = executor.executeTransactionalWrites(keys, values, expectedValues, transaction);
+    } else if (first.isCompareAndSet()) {
+      allSet = executor.executeTransactionalCompareAndSet(first.getKey(),
+              first.getExpectedValue(), first.getValue(), transaction);
+    } else {
+      executor.executeTransactionalWrite(first.getKey(), first.getValue(), transaction);
+      allSet = true;
+    }
+    if (allSet) {
+      for (TransactionalAction action : group) {
+        if (action.isLedgerEntry()) {
+          executor.executeTransactionalLedgerEntry(action.getKey(), action.getDelta(),
+                  transaction);
+        }
+      }
+    }
+    return allSet;
+  }
+
+  /**
+   * Sets how long to wait between two round trips of this transaction, which widens the window in
+   * which it holds its locks. Must be called before the transaction is executed.
+   */
+  public void setThinkTime(LongSupplier thinkTime) {
+    this.thinkTime = thinkTime;
+  }
+
+  /**
+   * Returns how long the last attempt of this transaction held its locks, from its first action
+   * until it committed or aborted, in nanoseconds; -1 if it has not been executed.
+   */
+  public long getLockHoldNanos() {
+    return lockHoldNanos;
+  }
+
+  /**
+   * Sleeps for the given number of nanoseconds inside the transaction.
+   */
+  private static void think(long nanos) {
+    long deadlineNanos = System.nanoTime() + nanos;
+    long remaining;
+    while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
   @VisibleForTesting
   /** ALL TESTING FUNCTIONS BELOW */
   public List<TransactionalAction> getSpannerActions() {
@@ -0,0 +1,35 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.jepsenonspanner.client.Executor;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ScanReadTransaction is a read-only transaction that reads every key within a range instead of
+ * a list of keys. Its keys are the first and the last key of the range, and its representation
+ * should contain range reads, e.g. [:scan :a :c nil], that record every key found.
+ */
+public class ScanReadTransaction extends ReadTransaction {
+
+  public ScanReadTransaction(String loadName, List<OpRepresentation> recordRepresentation,
+                             String startKey, String endKey, int staleness, boolean bounded) {
+    super(loadName, recordRepresentation, Arrays.asList(startKey, endKey), staleness, bounded);
+  }
+
+  public static ScanReadTransaction createStrongScan(String loadName, String startKey,
+                                                     String endKey,
+                                                     List<OpRepresentation> representation) {
+    return new ScanReadTransaction(loadName, representation, startKey, endKey, /*staleness=*/0,
+            /*bounded=*/false);
+  }
+
+  @Override
+  Pair<HashMap<String, Long>, Timestamp> read(Executor executor) {
+    return executor.readKeyRange(getKeys().get(0), getKeys().get(1), getStaleness(),
+            getBounded());
+  }
+}
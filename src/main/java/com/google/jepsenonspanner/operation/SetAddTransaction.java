@@ -0,0 +1,67 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.TransactionContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Executor;
+import us.bpsm.edn.Keyword;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * A transaction of the set benchmark that inserts one element into the set, recorded as
+ * [:add 5].
+ */
+public class SetAddTransaction extends Operation {
+  public static final Keyword ADD_KEYWORD = Keyword.newKeyword("add");
+
+  private long element;
+
+  public SetAddTransaction(String loadName, long element) {
+    super(loadName, Collections.singletonList(OpRepresentation.createOtherFromObjs(
+            Arrays.asList(ADD_KEYWORD, element))));
+    this.element = element;
+  }
+
+  /**
+   * The execution function of a SetAddTransaction will:
+   * - Write an "invoke" entry into the history table
+   * - Insert the element in a read-write transaction
+   * - Write an "ok" entry into the history table and update the timestamp of the "invoke" entry
+   * - If there is a SpannerException caused by a RuntimeError thrown from the transaction
+   * function, write a "fail" entry
+   * - Otherwise, write an "info" entry
+   */
+  @Override
+  public Consumer<Executor> getExecutionPlan() {
+    return executor -> {
+      try {
+        Timestamp recordTimestamp = executor.recordInvoke(getLoadName(), getRecordRepresentation());
+        Timestamp commitTimestamp = executor.runTxn(new Executor.TransactionFunction() {
+          @Override
+          public void run(TransactionContext transaction) {
+            executor.executeTransactionalInsert(element, transaction);
+          }
+        });
+        System.out.printf("Added element = %s\n", element);
+        executor.recordComplete(getLoadName(), getRecordRepresentation(), commitTimestamp,
+                recordTimestamp);
+      } catch (SpannerException e) {
+        if (e.getErrorCode() == ErrorCode.UNKNOWN && e.getCause() instanceof OperationException) {
+          executor.recordFail(getLoadName(), getRecordRepresentation());
+        } else {
+          executor.recordInfo(getLoadName(), getRecordRepresentation());
+        }
+      }
+    };
+  }
+
+  @VisibleForTesting
+  public long getElement() {
+    return element;
+  }
+}
@@ -0,0 +1,50 @@
+package com.google.jepsenonspanner.operation;
+
+import com.google.cloud.Timestamp;
+import com.google.jepsenonspanner.client.Executor;
+import org.apache.commons.lang3.tuple.Pair;
+import us.bpsm.edn.Keyword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SetReadTransaction is a read-only transaction of the set benchmark that reads every element of
+ * the set within a range, at a given staleness. It is recorded as [:read 1 8 nil], whose nil is
+ * replaced by the elements read in ascending order, e.g. [:read 1 8 [2 5]].
+ */
+public class SetReadTransaction extends ReadTransaction {
+  public static final Keyword READ_KEYWORD = Keyword.newKeyword("read");
+
+  public SetReadTransaction(String loadName, long first, long last, int staleness,
+                            boolean bounded) {
+    super(loadName, Collections.singletonList(OpRepresentation.createListReadFromObjs(
+            Arrays.asList(READ_KEYWORD, first, last, null))),
+            Arrays.asList(String.valueOf(first), String.valueOf(last)), staleness, bounded);
+  }
+
+  /**
+   * Reads the elements within the range, each mapped from its string form to itself.
+   */
+  @Override
+  Pair<HashMap<String, Long>, Timestamp> read(Executor executor) {
+    Pair<List<Long>, Timestamp> result = executor.readSetRange(Long.parseLong(getKeys().get(0)),
+            Long.parseLong(getKeys().get(1)), getStaleness(), getBounded());
+    HashMap<String, Long> elements = new HashMap<>();
+    for (long element : result.getLeft()) {
+      elements.put(String.valueOf(element), element);
+    }
+    return Pair.of(elements, result.getRight());
+  }
+
+  @Override
+  void updateRecordRepresentation(Map<String, Long> readResults) {
+    List<Long> elements = new ArrayList<>(readResults.values());
+    Collections.sort(elements);
+    getRecordRepresentation().get(0).setListToUpdate(elements);
+  }
+}
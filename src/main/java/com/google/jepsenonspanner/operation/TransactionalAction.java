@@ -1,19 +1,28 @@
 package com.google.jepsenonspanner.operation;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.function.BiPredicate;
 import java.util.function.BinaryOperator;
 import java.util.function.LongPredicate;
 import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 public class TransactionalAction {
 
   private String key;
   private long value;
+  // only used by compare-and-set; the value the key must hold for the write to take effect
+  private long expectedValue;
+  // only used by range scans, which read every key from key to endKey, both included
+  private String endKey;
   
-  // true means read, false means write
   public enum Type {
     READ,
-    WRITE
+    WRITE,
+    CAS,
+    SCAN
   }
 
   private Type actionType;
@@ -29,6 +38,22 @@ public class TransactionalAction {
   // should proceed, depending on the return value of the previous operation (usually a read)
   private LongPredicate decideProceedFunc;
 
+  // not null if this is a dependent write created by createDependentTransactionalDelta, which
+  // adds delta to the value it depends on without the need for functions
+  private Long delta;
+
+  // true if the delta is also recorded as a row of the ledger table, in the same transaction
+  private boolean ledgerEntry;
+
+  // the earlier actions of the same transaction whose return values this action takes, in
+  // order; empty unless this depends on several actions
+  private List<TransactionalAction> dependsOn = Collections.emptyList();
+
+  // not null if this depends on several actions; functions of their return values, in the order
+  // of dependsOn, that give the value of this action and decide whether it should proceed
+  private ToLongFunction<long[]> findDependValsFunc;
+  private Predicate<long[]> decideProceedValsFunc;
+
   /**
    * Constructor for a dependent transactional operation 
    * @param key
@@ -47,7 +72,7 @@ public class TransactionalAction {
    * @param value
    * @param actionType
    */
-  public TransactionalAction(String key, int value, Type actionType) {
+  public TransactionalAction(String key, long value, Type actionType) {
     this(key, value, actionType, /*dependent=*/null, /*findDependValueFunc=*/null,
             /*decideProceedFunc=*/null);
   }
@@ -61,7 +86,7 @@ public class TransactionalAction {
    * @param findDependValFunc
    * @param decideProceedFunc
    */
-  public TransactionalAction(String key, int value, Type actionType, TransactionalAction dependent,
+  public TransactionalAction(String key, long value, Type actionType, TransactionalAction dependent,
                              LongUnaryOperator findDependValFunc, LongPredicate decideProceedFunc) {
     this.key = key;
     this.value = value;
@@ -75,10 +100,32 @@ public class TransactionalAction {
     return new TransactionalAction(key, /*value=*/-1, Type.READ);
   }
 
-  public static TransactionalAction createTransactionalWrite(String key, int value) {
+  public static TransactionalAction createTransactionalWrite(String key, long value) {
     return new TransactionalAction(key, value, Type.WRITE);
   }
 
+  /**
+   * Creates a compare-and-set that sets key to newValue only if it currently holds expectedValue.
+   * It is executed as a single conditional update, and fails the transaction if the key does not
+   * hold the expected value.
+   */
+  public static TransactionalAction createTransactionalCompareAndSet(String key, long expectedValue,
+                                                                     long newValue) {
+    TransactionalAction cas = new TransactionalAction(key, newValue, Type.CAS);
+    cas.expectedValue = expectedValue;
+    return cas;
+  }
+
+  /**
+   * Creates a range scan that reads every existing key from startKey to endKey, both included.
+   * The keys it reads are only known once it has been executed.
+   */
+  public static TransactionalAction createTransactionalScan(String startKey, String endKey) {
+    TransactionalAction scan = new TransactionalAction(startKey, /*value=*/-1, Type.SCAN);
+    scan.endKey = endKey;
+    return scan;
+  }
+
   public static TransactionalAction createDependentTransactionalWrite(String key,
                                                                       LongUnaryOperator findDependValFunc,
                                                                       LongPredicate decideProceedFunc) {
@@ -86,12 +133,54 @@ public class TransactionalAction {
             decideProceedFunc);
   }
   
+  /**
+   * Creates a write that depends on several earlier actions of the same transaction, e.g. one
+   * that writes an aggregate of several reads. Both functions take the values returned by the
+   * actions in dependsOn, in that order; a write returns -1. Unlike setDependentAction, which
+   * hangs the dependent off the action it depends on, this write must be added to the
+   * transaction after all actions in dependsOn.
+   */
+  public static TransactionalAction createDependentTransactionalWrite(String key,
+                                                                      List<TransactionalAction> dependsOn,
+                                                                      ToLongFunction<long[]> findDependValsFunc,
+                                                                      Predicate<long[]> decideProceedValsFunc) {
+    TransactionalAction write = new TransactionalAction(key, /*value=*/-1, Type.WRITE);
+    write.dependsOn = dependsOn;
+    write.findDependValsFunc = findDependValsFunc;
+    write.decideProceedValsFunc = decideProceedValsFunc;
+    return write;
+  }
+
+  /**
+   * Creates a dependent write that adds delta to the value returned by the operation it depends
+   * on. A negative delta only proceeds if the result is not negative, e.g. a withdrawal that must
+   * not overdraw an account; a non-negative delta always proceeds.
+   */
+  public static TransactionalAction createDependentTransactionalDelta(String key, long delta) {
+    TransactionalAction write = createDependentTransactionalWrite(key,
+            /*findDependValFunc=*/null, /*decideProceedFunc=*/null);
+    write.delta = delta;
+    return write;
+  }
+
+  /**
+   * Same as createDependentTransactionalDelta, but the delta is also inserted as an immutable row
+   * of the ledger table, in the same transaction as the write.
+   */
+  public static TransactionalAction createDependentTransactionalLedgerDelta(String key,
+                                                                            long delta) {
+    TransactionalAction write = createDependentTransactionalDelta(key, delta);
+    write.ledgerEntry = true;
+    return write;
+  }
+
   /**
    * Decides if current operation should be executed
    *
    * @param dependOn return value of the operation this depends on
    */
   public boolean decideProceed(long dependOn) {
+    if (delta != null) return delta >= 0 || dependOn + delta >= 0;
     if (decideProceedFunc == null) return true;
     return decideProceedFunc.test(dependOn);
   }
@@ -102,10 +191,36 @@ public class TransactionalAction {
    * @param dependOn return value of the operation this depends on
    */
   public void findDependentValue(long dependOn) {
+    if (delta != null) {
+      this.value = dependOn + delta;
+      return;
+    }
     if (findDependValFunc == null) return;
     this.value = findDependValFunc.applyAsLong(dependOn);
   }
 
+  /**
+   * Decides if current operation should be executed, given the return values of all operations
+   * it depends on
+   */
+  public boolean decideProceed(long[] dependOn) {
+    if (findDependValsFunc == null && decideProceedValsFunc == null) {
+      return decideProceed(dependOn[0]);
+    }
+    return decideProceedValsFunc == null || decideProceedValsFunc.test(dependOn);
+  }
+
+  /**
+   * Fills in the value depending on the return values of all operations it depends on
+   */
+  public void findDependentValue(long[] dependOn) {
+    if (findDependValsFunc == null && decideProceedValsFunc == null) {
+      findDependentValue(dependOn[0]);
+    } else if (findDependValsFunc != null) {
+      this.value = findDependValsFunc.applyAsLong(dependOn);
+    }
+  }
+
   /**
    * Sets the dependent that relies on this operation
    *
@@ -122,10 +237,35 @@ public class TransactionalAction {
     return dependent;
   }
 
+  /**
+   * Returns the earlier actions whose return values this action takes, if it depends on several
+   * actions; empty otherwise.
+   */
+  public List<TransactionalAction> getDependsOn() {
+    return dependsOn;
+  }
+
+  /**
+   * Returns if this is a dependent operation, whose value and proceeding are decided by functions
+   * of the value returned by the operation it depends on.
+   */
+  public boolean isDependent() {
+    return findDependValFunc != null || decideProceedFunc != null || delta != null ||
+            findDependValsFunc != null || decideProceedValsFunc != null;
+  }
+
   public boolean isRead() {
     return actionType == Type.READ;
   }
 
+  public boolean isCompareAndSet() {
+    return actionType == Type.CAS;
+  }
+
+  public boolean isScan() {
+    return actionType == Type.SCAN;
+  }
+
   public String getKey() {
     return key;
   }
@@ -138,8 +278,43 @@ public class TransactionalAction {
     this.value = value;
   }
 
+  public long getExpectedValue() {
+    return expectedValue;
+  }
+
+  public String getEndKey() {
+    return endKey;
+  }
+
+  /**
+   * Returns the delta of a write created by createDependentTransactionalDelta, or null for any
+   * other action.
+   */
+  public Long getDelta() {
+    return delta;
+  }
+
+  /**
+   * Returns true if this is a write created by createDependentTransactionalLedgerDelta.
+   */
+  public boolean isLedgerEntry() {
+    return ledgerEntry;
+  }
+
+  public Type getType() {
+    return actionType;
+  }
+
   @Override
   public String toString() {
+    if (isCompareAndSet()) {
+      return String.format("CAS %s %s -> %s, dependent = [ %s ]", key, expectedValue, value,
+              String.valueOf(dependent));
+    }
+    if (isScan()) {
+      return String.format("Scan %s - %s, dependent = [ %s ]", key, endKey,
+              String.valueOf(dependent));
+    }
     return String.format("%s %s %s, dependent = [ %s ]", isRead() ? "Strong Read" : "Write",
             key, value, String.valueOf(dependent));
   }
@@ -3,6 +3,7 @@ package com.google.jepsenonspanner.verifier;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.jepsenonspanner.client.Record;
 import com.google.jepsenonspanner.loadgenerator.BankLoadGenerator;
+import com.google.jepsenonspanner.operation.ChecksumReadTransaction;
 import us.bpsm.edn.Keyword;
 
 import java.io.File;
@@ -27,12 +28,16 @@ import static com.google.jepsenonspanner.client.Record.FAIL_STR;
  * - Whether a successful transaction will result in negative balances
  * - Whether a failed transaction should have failed due to insufficient balance
  * - Whether a read reflects a failed transaction (it should not)
+ * - Whether a checksum read sees the total balance and the number of accounts unchanged, and
+ *   the expected balances for its sampled accounts
  */
 public class BankVerifier implements Verifier {
   // Workloads specific to the bank benchmark
   private static Keyword READ = Keyword.newKeyword(BankLoadGenerator.READ_LOAD_NAME.substring(1));
   private static Keyword TRANSFER =
           Keyword.newKeyword(BankLoadGenerator.TRANSFER_LOAD_NAME.substring(1));
+  private static Keyword CHECKSUM =
+          Keyword.newKeyword(BankLoadGenerator.CHECKSUM_LOAD_NAME.substring(1));
 
   // Keeps track of all possible states an invoked operation may observe. Key is a string that
   // uniquely identifies an operation that is invoked but has not been completed. Value is the
@@ -40,6 +45,9 @@ public class BankVerifier implements Verifier {
   // TODO: Think about ways to improve the memory complexity of this algorithm
   private HashMap<String, LinkedList<HashMap<String, Long>>> concurrentTxnStates = new HashMap<>();
 
+  // Sum of all balances, which transfers never change
+  private long totalBalance;
+
   @Override
   public boolean verify(Map<String, Long> state, String... filePath) {
     try {
@@ -53,6 +61,10 @@ public class BankVerifier implements Verifier {
   @VisibleForTesting
   boolean verify(Readable input, Map<String, Long> initialState) {
     HashMap<String, Long> state = new HashMap<>(initialState);
+    totalBalance = 0;
+    for (long balance : state.values()) {
+      totalBalance += balance;
+    }
     List<Record> records = Verifier.parseRecords(input);
 
     try {
@@ -89,7 +101,7 @@ public class BankVerifier implements Verifier {
     long processId = record.getpID();
     Keyword opName = record.getLoad();
     List<List<Object>> value = record.getRawRepresentation();
-    if (opName.equals(READ)) {
+    if (opName.equals(READ) || opName.equals(CHECKSUM)) {
       // convert the read representation to only include keys
       value =
               value.stream().map(s -> Collections.singletonList(s.get(0))).collect(Collectors.toList());
@@ -109,6 +121,8 @@ public class BankVerifier implements Verifier {
       checkOkRead(value, recordUniqueId(record));
     } else if (opName.equals(TRANSFER)) {
       checkOkTransfer(value, currRecordId);
+    } else if (opName.equals(CHECKSUM)) {
+      checkOkChecksum(value, currRecordId);
     } else {
       // Invalid operation name
       throw new VerifierException(opName.getName(), value);
@@ -145,16 +159,46 @@ public class BankVerifier implements Verifier {
   }
 
   /**
-   * Updates the state of the database given a successful transfer between 2 accounts.
-   * @param value a list of values read in the format of [["0" "1" 15]] i.e. transfer 15 from
-   *              account "0" to account "1"
+   * Checks the aggregates and the sampled balances of a checksum read against the current state
+   * of the database. The cost does not depend on the number of accounts. Throws a
+   * VerifierException if it is invalid.
+   * @param value a list of values read in the format of [[:sum 40] [:count 2] ["1" 15]] i.e. the
+   *             balances add up to 40 over 2 accounts, and account "1" = 15
+   * @param recordId a String that uniquely identifies the current operation
+   */
+  private void checkOkChecksum(List<List<Object>> value, String recordId) throws VerifierException {
+    List<HashMap<String, Long>> possibleStates = concurrentTxnStates.get(recordId);
+    // As with a full read, the previous record must be the "invoke checksum"
+    if (possibleStates == null || possibleStates.size() != 1) {
+      throw new VerifierException(CHECKSUM.getName(), value);
+    }
+    HashMap<String, Long> currentState = possibleStates.get(0);
+    for (List<Object> representation : value) {
+      Object key = representation.get(0);
+      long readValue = (long) representation.get(1);
+      boolean valid;
+      if (key.equals(ChecksumReadTransaction.SUM_KEYWORD)) {
+        valid = readValue == totalBalance;
+      } else if (key.equals(ChecksumReadTransaction.COUNT_KEYWORD)) {
+        valid = readValue == currentState.size();
+      } else {
+        valid = readValue >= 0 && currentState.containsKey(key) &&
+                currentState.get(key) == readValue;
+      }
+      if (!valid) {
+        throw new VerifierException(CHECKSUM.getName(), value);
+      }
+    }
+  }
+
+  /**
+   * Updates the state of the database given a successful batch of transfers.
+   * @param value a list of transfers in the format of [["0" "1" 15 "2" 5] ["3" "4" 1]] i.e.
+   *              transfer 15 from account "0" to account "1" and 5 from "0" to "2", and 1 from
+   *              account "3" to account "4"
    * @param recordId a String that uniquely identifies the current operation
    */
   private void checkOkTransfer(List<List<Object>> value, String recordId) throws VerifierException {
-    List<Object> transferParams = value.get(0);
-    String fromAcct = (String) transferParams.get(0);
-    String toAcct = (String) transferParams.get(1);
-    long amount = (long) transferParams.get(2);
     LinkedList<HashMap<String, Long>> possibleStatesForThisRecord =
             concurrentTxnStates.get(recordId);
     if (possibleStatesForThisRecord.size() != 1) {
@@ -168,15 +212,21 @@ public class BankVerifier implements Verifier {
     HashMap<String, Long> latestState = possibleStatesForThisRecord.peekFirst();
     // Previous state will only store keys that have changed values
     HashMap<String, Long> prevState = new HashMap<>();
-    long fromAcctBalance = latestState.get(fromAcct);
-    if (fromAcctBalance < amount) {
-      throw new VerifierException(TRANSFER.getName(), value);
+    for (List<Object> transferParams : value) {
+      String fromAcct = (String) transferParams.get(0);
+      long fromAcctBalance = latestState.get(fromAcct);
+      if (fromAcctBalance < totalAmount(transferParams)) {
+        throw new VerifierException(TRANSFER.getName(), value);
+      }
+      prevState.putIfAbsent(fromAcct, fromAcctBalance);
+      for (int i = 1; i < transferParams.size(); i += 2) {
+        String toAcct = (String) transferParams.get(i);
+        long amount = (long) transferParams.get(i + 1);
+        prevState.putIfAbsent(toAcct, latestState.get(toAcct));
+        latestState.put(fromAcct, latestState.get(fromAcct) - amount);
+        latestState.put(toAcct, latestState.get(toAcct) + amount);
+      }
     }
-    long toAcctBalance = latestState.get(toAcct);
-    latestState.put(fromAcct, fromAcctBalance - amount);
-    latestState.put(toAcct, toAcctBalance + amount);
-    prevState.put(fromAcct, fromAcctBalance);
-    prevState.put(toAcct, toAcctBalance);
 
     // Add the previous state to all possible states in the map
     for (LinkedList<HashMap<String, Long>> possibleStates : concurrentTxnStates.values()) {
@@ -185,6 +235,17 @@ public class BankVerifier implements Verifier {
     }
   }
 
+  /**
+   * Returns the sum of all legs of a transfer in the format of ["0" "1" 15 "2" 5].
+   */
+  private long totalAmount(List<Object> transferParams) {
+    long total = 0;
+    for (int i = 2; i < transferParams.size(); i += 2) {
+      total += (long) transferParams.get(i);
+    }
+    return total;
+  }
+
   /**
    * Given a "fail" record and the current state of the database according to previous records,
    * determine if this record is valid. Throws a VerifierException if it is invalid.
@@ -201,27 +262,29 @@ public class BankVerifier implements Verifier {
   }
 
   /**
-   * Checks if a failed transfer between 2 accounts should actually fail according to current
-   * state of the database.
-   * @param value a list of values read in the format of [["0" "1" 15]] i.e. transfer 15 from
-   *              account "0" to account "1"
+   * Checks if a failed batch of transfers should actually fail according to current state of the
+   * database, i.e. if in any of the possible states, a source account cannot cover its transfer.
+   * @param value a list of transfers in the format of [["0" "1" 15 "2" 5] ["3" "4" 1]] i.e.
+   *              transfer 15 from account "0" to account "1" and 5 from "0" to "2", and 1 from
+   *              account "3" to account "4"
    * @param recordId a String that uniquely identifies the current operation
    */
   private void checkFailTransfer(List<List<Object>> value, String recordId) throws VerifierException {
-    List<Object> transferParams = value.get(0);
-    String fromAcct = (String) transferParams.get(0);
-    long amount = (long) transferParams.get(2);
     List<HashMap<String, Long>> possibleStates = concurrentTxnStates.get(recordId);
     if (possibleStates == null) {
       throw new VerifierException(TRANSFER.getName(), value);
     }
 
     boolean valid = false;
-    for (HashMap<String, Long> state : possibleStates) {
-      if (state.containsKey(fromAcct) && state.get(fromAcct) < amount) {
-        // If in any of the possible states, there exists one value that would fail the transfer,
-        // the history is valid
-        valid = true;
+    for (List<Object> transferParams : value) {
+      String fromAcct = (String) transferParams.get(0);
+      long amount = totalAmount(transferParams);
+      for (HashMap<String, Long> state : possibleStates) {
+        if (state.containsKey(fromAcct) && state.get(fromAcct) < amount) {
+          // If in any of the possible states, there exists one value that would fail the
+          // transfer, the history is valid
+          valid = true;
+        }
       }
     }
     if (!valid) {
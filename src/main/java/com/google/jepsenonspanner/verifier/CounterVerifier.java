@@ -0,0 +1,162 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.INVOKE_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+import static com.google.jepsenonspanner.operation.IncrementTransaction.ADD_KEYWORD;
+
+/**
+ * Verifies a history of the counter benchmark. Since increments commute, the value of a counter
+ * at a timestamp does not depend on the order of the increments, only on which of them committed
+ * by then; each read is checked against bounds instead of searching for an order of operations:
+ * - The lower bound is the initial value plus every increment known to have succeeded that
+ *   committed at or before the read timestamp, plus every negative increment of unknown outcome
+ *   invoked at or before the read timestamp.
+ * - The upper bound is the same, but with the positive increments of unknown outcome instead.
+ * Increments that ended with an "info" record may or may not have taken effect, at any time after
+ * they were invoked, so only they widen the bounds, and only of the reads at or after their
+ * invoke; without them every read must match its bounds exactly. Both stale and strong reads are
+ * checked at their own read timestamps. Increments and reads of each counter are sorted by
+ * timestamp and checked in a single sweep, in O(n log n) time overall.
+ *
+ * The history with timestamps (history-real-time.edn) is expected as the second file.
+ */
+public class CounterVerifier implements Verifier {
+  private static final Keyword READ_KEYWORD = Keyword.newKeyword("read");
+
+  /**
+   * An increment or a read of a counter at a timestamp, in microseconds. The timestamp of an
+   * increment of unknown outcome is that of its invoke.
+   */
+  private static class Access {
+    private final Record record;
+    private final long timestamp;
+    // The delta of an increment, or the value of a read
+    private final long value;
+
+    Access(Record record, long timestamp, long value) {
+      this.record = record;
+      this.timestamp = timestamp;
+      this.value = value;
+    }
+  }
+
+  /**
+   * All accesses of one counter.
+   */
+  private static class CounterHistory {
+    private List<Access> increments = new ArrayList<>();
+    private List<Access> reads = new ArrayList<>();
+    private List<Access> unknownIncrements = new ArrayList<>();
+  }
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    if (filePath.length != 2) {
+      throw new RuntimeException("Counter Verifier only accepts 2 files");
+    }
+    try {
+      FileReader fs = new FileReader(new File(filePath[1]));
+      return verify(fs, initialState);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input, Map<String, Long> initialState) {
+    List<Record> records = Verifier.parseRecords(input);
+    Map<String, CounterHistory> histories = new HashMap<>();
+    // The latest invoke of each process. A process runs one operation at a time, so its next
+    // outcome record belongs to this invoke
+    Map<Long, Record> lastInvokes = new HashMap<>();
+    for (Record record : records) {
+      if (record.getType().equals(INVOKE_STR)) {
+        lastInvokes.put(record.getpID(), record);
+        continue;
+      }
+      boolean isOk = record.getType().equals(OK_STR);
+      if (!isOk && !record.getType().equals(INFO_STR)) {
+        continue;
+      }
+      for (List<Object> repr : record.getRawRepresentation()) {
+        CounterHistory history = histories.computeIfAbsent(Verifier.getKey(repr.get(1)),
+                k -> new CounterHistory());
+        if (repr.get(0).equals(ADD_KEYWORD)) {
+          long value = (Long) repr.get(2);
+          if (isOk) {
+            history.increments.add(new Access(record,
+                    Record.toMicros(record.getCommitTimestamp()), value));
+          } else {
+            Record invoke = lastInvokes.get(record.getpID());
+            history.unknownIncrements.add(new Access(record, invoke != null ?
+                    Record.toMicros(invoke.getCommitTimestamp()) : Long.MIN_VALUE, value));
+          }
+        } else if (repr.get(0).equals(READ_KEYWORD) && isOk) {
+          history.reads.add(new Access(record, Record.toMicros(record.getCommitTimestamp()),
+                  (Long) repr.get(2)));
+        }
+      }
+    }
+
+    for (Map.Entry<String, CounterHistory> entry : histories.entrySet()) {
+      if (!verifyCounter(entry.getKey(), entry.getValue(),
+              initialState.getOrDefault(entry.getKey(), 0L))) {
+        return false;
+      }
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  private boolean verifyCounter(String key, CounterHistory history, long initialValue) {
+    Comparator<Access> byTimestamp = Comparator.comparingLong(access -> access.timestamp);
+    history.increments.sort(byTimestamp);
+    history.reads.sort(byTimestamp);
+    history.unknownIncrements.sort(byTimestamp);
+    // The counter with every known increment committed at or before the current read
+    long known = initialValue;
+    int next = 0;
+    // Sums of the positive and of the negative increments of unknown outcome invoked at or before
+    // the current read
+    long unknownPositive = 0;
+    long unknownNegative = 0;
+    int nextUnknown = 0;
+    for (Access read : history.reads) {
+      while (next < history.increments.size() &&
+              history.increments.get(next).timestamp <= read.timestamp) {
+        known += history.increments.get(next++).value;
+      }
+      while (nextUnknown < history.unknownIncrements.size() &&
+              history.unknownIncrements.get(nextUnknown).timestamp <= read.timestamp) {
+        long value = history.unknownIncrements.get(nextUnknown++).value;
+        if (value > 0) {
+          unknownPositive += value;
+        } else {
+          unknownNegative += value;
+        }
+      }
+      long lower = known + unknownNegative;
+      long upper = known + unknownPositive;
+      if (read.value < lower || read.value > upper) {
+        System.out.printf("%s\n\t%s\nCounter %s reads %d at %d, but can only be between %d and " +
+                "%d\n", INVALID_INFO, read.record, key, read.value, read.timestamp, lower, upper);
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -55,6 +55,8 @@ import static com.google.jepsenonspanner.client.Record.OK_STR;
 public class ExternalConsistencyVerifier implements Verifier {
   private static final Keyword READ_KEYWORD = Keyword.newKeyword("read");
   private static final Keyword WRITE_KEYWORD = Keyword.newKeyword("write");
+  private static final Keyword CAS_KEYWORD = Keyword.newKeyword("cas");
+  private static final Keyword SCAN_KEYWORD = Keyword.newKeyword("scan");
 
   // Keeps track of all non-abnormal reads, ranked by their commit timestamps
   private TreeMap<Timestamp, Record> finishedReads = new TreeMap<>();
@@ -86,6 +88,10 @@ public class ExternalConsistencyVerifier implements Verifier {
     records.sort(Comparator.comparing(this::getTimestampAccordingToLoad));
 
     for (Record record : records) {
+      if (record.getType().equals(FAIL_STR) && recordHasCompareAndSet(record)) {
+        // A compare-and-set whose expected value did not match; it has no effect
+        continue;
+      }
       if (record.getType().equals(INFO_STR) || record.getType().equals(FAIL_STR)) {
         // The linearizability benchmark should not generate any error; if there is any error,
         // stop the load and inspect.
@@ -231,6 +237,11 @@ public class ExternalConsistencyVerifier implements Verifier {
         String key = ((Keyword) repr.get(1)).getName();
         long value = (long) repr.get(2);
         stateChange.put(key, value);
+      } else if (repr.get(0).equals(CAS_KEYWORD)) {
+        // An ok compare-and-set [:cas :x [expected new]] writes its new value
+        String key = ((Keyword) repr.get(1)).getName();
+        long value = ((List<Long>) repr.get(2)).get(1);
+        stateChange.put(key, value);
       }
     }
     changeHistory.put(record.getCommitTimestamp(), stateChange);
@@ -263,20 +274,26 @@ public class ExternalConsistencyVerifier implements Verifier {
   }
 
   /**
-   * Given a record, record all keys involved in this record
+   * Given a readOnly ok record, record all keys involved in this record
    */
   private Set<String> getRecordKeys(Record record) {
-    return record.getOpRepresentation().stream()
-                .map(this::getKeyFromOpRepresentation)
-                .collect(Collectors.toSet());
+    return getReadResults(record).keySet();
   }
 
   /**
-   * Given a readOnly ok record, returns the read result as a map
+   * Given a readOnly ok record, returns the read result as a map. A range scan is a read of
+   * every key it returned.
    */
   private Map<String, Long> getReadResults(Record record) {
     Map<String, Long> result = new HashMap<>();
     for (OpRepresentation rawRepr : record.getOpRepresentation()) {
+      List<Object> rawObjects = rawRepr.getEdnPrintableObjects();
+      if (rawObjects.get(0).equals(SCAN_KEYWORD)) {
+        for (List<Object> pair : (List<List<Object>>) rawObjects.get(rawObjects.size() - 1)) {
+          result.put(((Keyword) pair.get(0)).getName(), (long) pair.get(1));
+        }
+        continue;
+      }
       String key = getKeyFromOpRepresentation(rawRepr);
       long value = getValueFromOpRepresentation(rawRepr);
       result.put(key, value);
@@ -295,7 +312,12 @@ public class ExternalConsistencyVerifier implements Verifier {
   }
 
   private boolean recordIsReadOnly(Record record) {
-    return record.getRawRepresentation().stream().allMatch(reprs -> reprs.get(0).equals(READ_KEYWORD));
+    return record.getRawRepresentation().stream().allMatch(reprs -> reprs.get(0).equals(READ_KEYWORD)
+            || reprs.get(0).equals(SCAN_KEYWORD));
+  }
+
+  private boolean recordHasCompareAndSet(Record record) {
+    return record.getRawRepresentation().stream().anyMatch(reprs -> reprs.get(0).equals(CAS_KEYWORD));
   }
 
   /**
@@ -311,9 +333,13 @@ public class ExternalConsistencyVerifier implements Verifier {
   }
 
   /**
-   * Hash the read only record.
+   * Hash the read only record. The read results are left out, so that the invoke and the ok
+   * record of the same read have the same hash, e.g. [:read :x] or [:scan :a :c].
    */
   private String readOperationId(Record record) {
-    return String.format("%d %s", record.getpID(), getRecordKeys(record));
+    Set<List<Object>> reads = record.getRawRepresentation().stream()
+            .map(reprs -> reprs.subList(0, reprs.size() - 1))
+            .collect(Collectors.toSet());
+    return String.format("%d %s", record.getpID(), reads);
   }
 }
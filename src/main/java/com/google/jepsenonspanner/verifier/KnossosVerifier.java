@@ -15,6 +15,15 @@ public class KnossosVerifier implements Verifier {
   private static final String KNOSSOS_COMPETITION = "knossos.competition";
   private static final String KNOSSOS_MODEL = "knossos.model";
   private static final String KNOSSOS_CLI = "knossos.cli";
+  // The multi-register model only understands reads and writes, so each [:cas :x [expected new]]
+  // is rewritten into [:read :x expected] [:write :x new]; since the model applies the two
+  // atomically within one operation, this has the same meaning as the compare-and-set. A range
+  // scan [:scan :a :c [[:a 1] [:b 2]]] is rewritten into a read of each key it returned; the
+  // model cannot tell if a key is missing from a scan, which LinearVerifier checks instead
+  private static final String EXPAND_ACTIONS = "(fn [history] (mapv (fn [op] (update op :value " +
+          "(fn [txn] (vec (mapcat (fn [[f k v :as action]] (case f :cas [[:read k (first v)] " +
+          "[:write k (second v)]] :scan (mapv (fn [[rk rv]] [:read rk rv]) (last action)) " +
+          "[action])) txn))))) history))";
 
   @Override
   public boolean verify(Map<String, Long> initialState, String... filePath) {
@@ -32,6 +41,9 @@ public class KnossosVerifier implements Verifier {
   }
 
   private boolean verify(PersistentVector history, Map<String, Long> initialState) {
+    IFn expandActions =
+            (IFn) Clojure.var("clojure.core", "eval").invoke(Clojure.read(EXPAND_ACTIONS));
+    history = (PersistentVector) expandActions.invoke(history);
     String initialStateInClojure = convertStateToClojureString(initialState);
     require.invoke(Clojure.read(KNOSSOS_COMPETITION));
     require.invoke(Clojure.read(KNOSSOS_MODEL));
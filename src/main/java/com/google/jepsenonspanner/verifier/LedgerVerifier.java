@@ -0,0 +1,259 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.Gson;
+import com.google.jepsenonspanner.client.Record;
+import com.google.jepsenonspanner.loadgenerator.BankLoadGenerator;
+import com.google.jepsenonspanner.operation.ChecksumReadTransaction;
+import us.bpsm.edn.Keyword;
+import us.bpsm.edn.parser.Parseable;
+import us.bpsm.edn.parser.Parser;
+import us.bpsm.edn.parser.Parsers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.jepsenonspanner.client.Executor.LEDGER_BALANCES_KEYWORD;
+import static com.google.jepsenonspanner.client.Executor.LEDGER_ENTRIES_KEYWORD;
+import static com.google.jepsenonspanner.client.Executor.LEDGER_TIMESTAMP_KEYWORD;
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+
+/**
+ * Verifies a history of the bank benchmark run with a ledger, where every transfer inserts its
+ * balance changes as rows of the ledger table in the same transaction. Instead of replaying
+ * transfers against every state a read might observe, as BankVerifier does, the balances read
+ * are reconciled against the ledger: the balance of an account at a timestamp is its initial
+ * balance plus its ledger rows committed by then. The verifier checks that:
+ * - Every balance read, and every final balance, equals that sum at its read timestamp
+ * - Every successful transfer has exactly its balance changes in the ledger, at its commit
+ *   timestamp; any other row must come from a transfer of unknown outcome, and the rows of each
+ *   such transfer sum to 0
+ * - No account is ever overdrawn
+ * - A checksum read sees the total balance and the number of accounts unchanged
+ * The ledger is already sorted by account and timestamp; the balance changes and the reads taken
+ * from the history are sorted the same way, and all three are then merged in a single pass.
+ *
+ * The history with timestamps (history-real-time.edn) is expected as the second file, and the
+ * ledger extracted by Executor.extractLedger as the third.
+ */
+public class LedgerVerifier implements Verifier {
+  private static final Keyword READ =
+          Keyword.newKeyword(BankLoadGenerator.READ_LOAD_NAME.substring(1));
+  private static final Keyword TRANSFER =
+          Keyword.newKeyword(BankLoadGenerator.TRANSFER_LOAD_NAME.substring(1));
+  private static final Keyword CHECKSUM =
+          Keyword.newKeyword(BankLoadGenerator.CHECKSUM_LOAD_NAME.substring(1));
+
+  /**
+   * A balance change, or a balance read, of an account at a timestamp in microseconds.
+   */
+  private static class Entry {
+    private final String account;
+    private final long timestamp;
+    // The change of the balance, or the balance read
+    private final long amount;
+    // The record the entry comes from; null for the ledger and the final balances
+    private final Record record;
+
+    Entry(String account, long timestamp, long amount, Record record) {
+      this.account = account;
+      this.timestamp = timestamp;
+      this.amount = amount;
+      this.record = record;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %d at %d%s", account, amount, timestamp,
+              record == null ? "" : " in " + record);
+    }
+  }
+
+  private static final Comparator<Entry> ORDER = Comparator.<Entry, String>comparing(
+          entry -> entry.account).thenComparingLong(entry -> entry.timestamp);
+
+  /**
+   * Returns true if the bank benchmark config has transfers record their balance changes in the
+   * ledger.
+   */
+  public static boolean usesLedger(String configPath) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      return Boolean.parseBoolean(config.getOrDefault(BankLoadGenerator.LEDGER, "false"));
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException("Error parsing config file " + configPath);
+    }
+  }
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    if (filePath.length != 3) {
+      throw new RuntimeException("Ledger Verifier only accepts 3 files");
+    }
+    try {
+      return verify(new FileReader(new File(filePath[1])),
+              new FileReader(new File(filePath[2])), initialState);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable history, Readable ledgerInput, Map<String, Long> initialState) {
+    Parseable pbr = Parsers.newParseable(ledgerInput);
+    Parser parser = Parsers.newParser(Parsers.defaultConfiguration());
+    Map<Keyword, Object> ledger = (Map<Keyword, Object>) parser.nextValue(pbr);
+    List<Entry> changes = new ArrayList<>();
+    for (List<Object> row : (List<List<Object>>) ledger.get(LEDGER_ENTRIES_KEYWORD)) {
+      Entry change = new Entry((String) row.get(0), (Long) row.get(1), (Long) row.get(2),
+              /*record=*/null);
+      if (!changes.isEmpty() && ORDER.compare(changes.get(changes.size() - 1), change) >= 0) {
+        throw new RuntimeException("Ledger is not sorted at " + change);
+      }
+      changes.add(change);
+    }
+
+    long totalBalance = 0;
+    for (long balance : initialState.values()) {
+      totalBalance += balance;
+    }
+    // Balance changes of successful transfers, and balances read
+    List<Entry> transfers = new ArrayList<>();
+    List<Entry> reads = new ArrayList<>();
+    int unknownTransfers = 0;
+    for (Record record : Verifier.parseRecords(history)) {
+      if (record.getLoad().equals(TRANSFER) && record.getType().equals(INFO_STR)) {
+        unknownTransfers++;
+      }
+      if (!record.getType().equals(OK_STR)) {
+        continue;
+      }
+      long timestamp = Record.toMicros(record.getCommitTimestamp());
+      if (record.getLoad().equals(TRANSFER)) {
+        // e.g. ["0" "1" 5 "2" 3] moves 5 from "0" to "1" and 3 from "0" to "2"
+        for (List<Object> transfer : record.getRawRepresentation()) {
+          long total = 0;
+          for (int i = 1; i < transfer.size(); i += 2) {
+            long amount = (Long) transfer.get(i + 1);
+            transfers.add(new Entry((String) transfer.get(i), timestamp, amount, record));
+            total += amount;
+          }
+          transfers.add(new Entry((String) transfer.get(0), timestamp, -total, record));
+        }
+      } else if (record.getLoad().equals(READ) || record.getLoad().equals(CHECKSUM)) {
+        for (List<Object> read : record.getRawRepresentation()) {
+          long value = (Long) read.get(1);
+          if (read.get(0).equals(ChecksumReadTransaction.SUM_KEYWORD) && value != totalBalance) {
+            System.out.printf("%s\n\t%s\nTotal balance is %d, but should be %d\n", INVALID_INFO,
+                    record, value, totalBalance);
+            return false;
+          } else if (read.get(0).equals(ChecksumReadTransaction.COUNT_KEYWORD) &&
+                  value != initialState.size()) {
+            System.out.printf("%s\n\t%s\nNumber of accounts is %d, but should be %d\n",
+                    INVALID_INFO, record, value, initialState.size());
+            return false;
+          } else if (read.get(0) instanceof String) {
+            reads.add(new Entry((String) read.get(0), timestamp, value, record));
+          }
+        }
+      }
+    }
+    // The final balances were read at the same timestamp as the ledger
+    long ledgerTimestamp = (Long) ledger.get(LEDGER_TIMESTAMP_KEYWORD);
+    for (Map.Entry<String, Long> balance :
+            ((Map<String, Long>) ledger.get(LEDGER_BALANCES_KEYWORD)).entrySet()) {
+      reads.add(new Entry(balance.getKey(), ledgerTimestamp, balance.getValue(),
+              /*record=*/null));
+    }
+    transfers.sort(ORDER);
+    reads.sort(ORDER);
+
+    if (!mergeJoin(changes, transfers, reads, initialState, unknownTransfers)) {
+      return false;
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  /**
+   * Walks the ledger, the balance changes of successful transfers and the balances read, all
+   * sorted by account and timestamp, in a single merged pass. Changes at a timestamp come before
+   * reads at the same timestamp, which observe them.
+   */
+  private boolean mergeJoin(List<Entry> changes, List<Entry> transfers, List<Entry> reads,
+                            Map<String, Long> initialState, int unknownTransfers) {
+    // Sum of the ledger rows that no successful transfer explains, by commit timestamp
+    Map<Long, Long> unexplained = new HashMap<>();
+    String account = null;
+    long balance = 0;
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < changes.size() || j < transfers.size() || k < reads.size()) {
+      Entry change = i < changes.size() ? changes.get(i) : null;
+      Entry transfer = j < transfers.size() ? transfers.get(j) : null;
+      Entry read = k < reads.size() ? reads.get(k) : null;
+      Entry next = change == null || (transfer != null && ORDER.compare(transfer, change) < 0) ?
+              transfer : change;
+      if (next == null || (read != null && ORDER.compare(read, next) < 0)) {
+        next = read;
+      }
+      if (!next.account.equals(account)) {
+        account = next.account;
+        balance = initialState.getOrDefault(account, 0L);
+      }
+
+      if (next == read) {
+        if (read.amount != balance) {
+          System.out.printf("%s\n\t%s\nAccount %s reads %d, but its ledger sums to %d\n",
+                  INVALID_INFO, read, account, read.amount, balance);
+          return false;
+        }
+        k++;
+        continue;
+      }
+      if (change == null || ORDER.compare(change, next) != 0) {
+        System.out.printf("%s\n\t%s\nTransfer is missing from the ledger\n", INVALID_INFO,
+                transfer);
+        return false;
+      }
+      if (transfer != null && ORDER.compare(transfer, change) == 0) {
+        if (transfer.amount != change.amount) {
+          System.out.printf("%s\n\t%s\nLedger records %d instead\n", INVALID_INFO, transfer,
+                  change.amount);
+          return false;
+        }
+        j++;
+      } else {
+        unexplained.merge(change.timestamp, change.amount, Long::sum);
+      }
+      i++;
+      balance += change.amount;
+      if (balance < 0) {
+        System.out.printf("%s\n\t%s\nAccount %s is overdrawn to %d\n", INVALID_INFO, change,
+                account, balance);
+        return false;
+      }
+    }
+
+    // Each transfer of unknown outcome that took effect adds rows at one timestamp, which
+    // move no money in total
+    if (unexplained.size() > unknownTransfers ||
+            unexplained.values().stream().anyMatch(sum -> sum != 0)) {
+      System.out.printf("%s\nLedger rows at %s do not come from any transfer\n", INVALID_INFO,
+              unexplained);
+      return false;
+    }
+    return true;
+  }
+}
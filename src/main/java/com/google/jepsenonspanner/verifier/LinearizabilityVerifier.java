@@ -1,21 +1,62 @@
 package com.google.jepsenonspanner.verifier;
 
+import com.google.gson.Gson;
 import com.google.jepsenonspanner.verifier.knossos.LinearVerifier;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
 
+import static com.google.jepsenonspanner.loadgenerator.LinearizabilityLoadGenerator.UNIQUE_VALUE_MODE;
+
 /**
- * A wrapper class to run Knossos, External Visibility Verifier and WGL Verifier
+ * A wrapper class to run Knossos, External Visibility Verifier and WGL Verifier. If every write
+ * of the history wrote a unique value, the Unique Value Verifier replaces all three.
  */
 public class LinearizabilityVerifier implements Verifier {
+  private static final String VALUE_MODE = "valueMode";
+
+  private boolean uniqueValues;
+
+  public LinearizabilityVerifier() {
+    this(/*uniqueValues=*/false);
+  }
+
+  /**
+   * @param uniqueValues if the history was generated in the unique value mode
+   */
+  public LinearizabilityVerifier(boolean uniqueValues) {
+    this.uniqueValues = uniqueValues;
+  }
+
+  /**
+   * Creates a verifier for histories generated with the given load generator config.
+   */
+  public static LinearizabilityVerifier createFromConfig(String configPath) {
+    Gson gson = new Gson();
+    try {
+      HashMap<String, String> config = gson.fromJson(new FileReader(new File(configPath)),
+              HashMap.class);
+      return new LinearizabilityVerifier(UNIQUE_VALUE_MODE.equals(config.get(VALUE_MODE)));
+    } catch (FileNotFoundException | ClassCastException e) {
+      e.printStackTrace();
+      throw new RuntimeException("Error parsing config file " + configPath);
+    }
+  }
+
   @Override
   public boolean verify(Map<String, Long> initialState, String... filePath) {
     if (filePath.length != 2) {
       throw new RuntimeException("Linearizability Verifier only accepts 2 files");
     }
 
+    if (uniqueValues) {
+      return timedVerify(new UniqueValueVerifier(), /*filePathIdx=*/1, initialState, filePath);
+    }
     return timedVerify(new KnossosVerifier(), /*filePathIdx=*/0, initialState, filePath) &&
             timedVerify(new ExternalConsistencyVerifier(), /*filePathIdx=*/1, initialState,
                     filePath) &&
@@ -0,0 +1,419 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.jepsenonspanner.client.Record.FAIL_STR;
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+import static com.google.jepsenonspanner.operation.ListAppendTransaction.APPEND_KEYWORD;
+import static com.google.jepsenonspanner.operation.ListAppendTransaction.READ_KEYWORD;
+
+/**
+ * Verifies a history of the list-append benchmark for serializability, in the manner of Elle.
+ * Since every element is appended once, each list read reveals the order of all appends to its
+ * key up to the last element it holds, and no search for a serial order is needed:
+ * - Every element read was appended by a transaction that did not fail, every list holds each
+ *   element once, and the lists read of a key are all prefixes of the longest one, which gives
+ *   the version order of the key.
+ * - A transaction that reads a key after appending to it sees its own appends at the end.
+ * - Dependencies between transactions are inferred from that order: write-write from the append
+ *   of an element to the append of the next one, write-read from the append of the last element
+ *   a transaction read (not counting its own appends) to that transaction, and read-write from a
+ *   transaction to the append of the element after the last one it read.
+ * The history is serializable only if this dependency graph has no cycle. Cycles are found with
+ * Tarjan's algorithm, so the whole check runs in time linear in the size of the history; the
+ * shortest cycle in each strongly connected component is reported along with the anomaly its
+ * edges make up (G0, G1c, G-single or G2). Transactions that ended with an "info" record may or
+ * may not have taken effect; their appends are only part of the graph if they were read.
+ *
+ * The history without timestamps (history.edn) is expected, since no real-time order is used.
+ */
+public class ListAppendVerifier implements Verifier {
+  static final int WW = 0;
+  static final int WR = 1;
+  static final int RW = 2;
+  private static final String[] EDGE_NAMES = {"ww", "wr", "rw"};
+
+  /**
+   * A list read by a transaction. The last ownAppends elements of the list are the appends of
+   * the reading transaction itself.
+   */
+  private static class ListRead {
+    private final int txn;
+    private final List<Object> list;
+    private final int ownAppends;
+
+    ListRead(int txn, List<Object> list, int ownAppends) {
+      this.txn = txn;
+      this.list = list;
+      this.ownAppends = ownAppends;
+    }
+  }
+
+  /**
+   * The append of an element to a key by a transaction.
+   */
+  private static class Append {
+    private final int txn;
+    private final String key;
+
+    Append(int txn, String key) {
+      this.txn = txn;
+      this.key = key;
+    }
+  }
+
+  /**
+   * The dependency graph between transactions, with edges collected in arrays and then laid out
+   * by their source transaction.
+   */
+  @VisibleForTesting
+  static class DependencyGraph {
+    private final int txnCount;
+    private int edgeCount = 0;
+    private int[] from = new int[16];
+    private int[] to = new int[16];
+    private int[] types = new int[16];
+    // The edges out of transaction i are edgeTo[edgeStart[i]] to edgeTo[edgeStart[i + 1] - 1]
+    private int[] edgeStart;
+    private int[] edgeTo;
+    private int[] edgeType;
+    // Scratch space of shortestCycle, allocated once for all components: the transaction each
+    // transaction was first reached from, or -1, the edge it was reached by, and the queue of
+    // transactions reached
+    private int[] parent;
+    private int[] parentEdge;
+    private int[] queue;
+
+    DependencyGraph(int txnCount) {
+      this.txnCount = txnCount;
+    }
+
+    void addEdge(int source, int target, int type) {
+      if (source == target) {
+        return;
+      }
+      if (edgeCount == from.length) {
+        from = Arrays.copyOf(from, edgeCount * 2);
+        to = Arrays.copyOf(to, edgeCount * 2);
+        types = Arrays.copyOf(types, edgeCount * 2);
+      }
+      from[edgeCount] = source;
+      to[edgeCount] = target;
+      types[edgeCount++] = type;
+    }
+
+    private void layOut() {
+      edgeStart = new int[txnCount + 1];
+      for (int i = 0; i < edgeCount; i++) {
+        edgeStart[from[i] + 1]++;
+      }
+      for (int i = 0; i < txnCount; i++) {
+        edgeStart[i + 1] += edgeStart[i];
+      }
+      int[] next = Arrays.copyOf(edgeStart, txnCount);
+      edgeTo = new int[edgeCount];
+      edgeType = new int[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        int slot = next[from[i]]++;
+        edgeTo[slot] = to[i];
+        edgeType[slot] = types[i];
+      }
+    }
+
+    /**
+     * Returns one cycle from each strongly connected component of more than one transaction, as
+     * the list of its edges, each given as {source, target, type}.
+     */
+    List<List<int[]>> findCycles() {
+      layOut();
+      int[] component = stronglyConnectedComponents();
+      // The size of each component, cleared once a cycle of it is reported
+      int[] componentSize = new int[txnCount];
+      for (int txn = 0; txn < txnCount; txn++) {
+        componentSize[component[txn]]++;
+      }
+      parent = new int[txnCount];
+      parentEdge = new int[txnCount];
+      queue = new int[txnCount];
+      Arrays.fill(parent, -1);
+      List<List<int[]>> cycles = new ArrayList<>();
+      for (int txn = 0; txn < txnCount; txn++) {
+        if (componentSize[component[txn]] > 1) {
+          componentSize[component[txn]] = 0;
+          cycles.add(shortestCycle(txn, component));
+        }
+      }
+      return cycles;
+    }
+
+    /**
+     * Labels every transaction with its strongly connected component, using an iterative
+     * version of Tarjan's algorithm so that long chains of dependencies do not overflow the stack.
+     */
+    private int[] stronglyConnectedComponents() {
+      int[] index = new int[txnCount];
+      int[] low = new int[txnCount];
+      int[] nextEdge = new int[txnCount];
+      int[] component = new int[txnCount];
+      boolean[] onStack = new boolean[txnCount];
+      int[] stack = new int[txnCount];
+      int[] callStack = new int[txnCount];
+      Arrays.fill(index, -1);
+      int stackSize = 0;
+      int counter = 0;
+      for (int root = 0; root < txnCount; root++) {
+        if (index[root] != -1) {
+          continue;
+        }
+        int depth = 0;
+        callStack[depth++] = root;
+        index[root] = low[root] = counter++;
+        nextEdge[root] = edgeStart[root];
+        stack[stackSize++] = root;
+        onStack[root] = true;
+        while (depth > 0) {
+          int txn = callStack[depth - 1];
+          if (nextEdge[txn] < edgeStart[txn + 1]) {
+            int target = edgeTo[nextEdge[txn]++];
+            if (index[target] == -1) {
+              index[target] = low[target] = counter++;
+              nextEdge[target] = edgeStart[target];
+              stack[stackSize++] = target;
+              onStack[target] = true;
+              callStack[depth++] = target;
+            } else if (onStack[target]) {
+              low[txn] = Math.min(low[txn], index[target]);
+            }
+            continue;
+          }
+          depth--;
+          if (depth > 0) {
+            int caller = callStack[depth - 1];
+            low[caller] = Math.min(low[caller], low[txn]);
+          }
+          if (low[txn] == index[txn]) {
+            int member;
+            do {
+              member = stack[--stackSize];
+              onStack[member] = false;
+              component[member] = txn;
+            } while (member != txn);
+          }
+        }
+      }
+      return component;
+    }
+
+    /**
+     * Returns the shortest cycle through the given transaction, searching breadth first within
+     * its component. Afterwards only the transactions the search reached are reset, so searching
+     * all components takes time linear in the size of the graph.
+     */
+    private List<int[]> shortestCycle(int start, int[] component) {
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = start;
+      try {
+        while (head < tail) {
+          int txn = queue[head++];
+          for (int edge = edgeStart[txn]; edge < edgeStart[txn + 1]; edge++) {
+            int target = edgeTo[edge];
+            if (component[target] != component[start]) {
+              continue;
+            }
+            if (target == start) {
+              List<int[]> cycle = new ArrayList<>();
+              cycle.add(new int[]{txn, start, edgeType[edge]});
+              for (int current = txn; current != start; current = parent[current]) {
+                cycle.add(new int[]{parent[current], current, edgeType[parentEdge[current]]});
+              }
+              Collections.reverse(cycle);
+              return cycle;
+            }
+            if (parent[target] == -1) {
+              parent[target] = txn;
+              parentEdge[target] = edge;
+              queue[tail++] = target;
+            }
+          }
+        }
+      } finally {
+        for (int i = 0; i < tail; i++) {
+          parent[queue[i]] = -1;
+        }
+      }
+      throw new IllegalStateException("No cycle found in a strongly connected component");
+    }
+  }
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    try {
+      FileReader fs = new FileReader(new File(filePath[0]));
+      return verify(fs);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input) {
+    List<Record> records = Verifier.parseRecords(input);
+    // The ok and info records, each a node of the dependency graph
+    List<Record> txns = new ArrayList<>();
+    Map<Long, Append> appends = new HashMap<>();
+    Set<Long> failedElements = new HashSet<>();
+    Map<String, List<ListRead>> readsByKey = new HashMap<>();
+    for (Record record : records) {
+      if (record.getType().equals(FAIL_STR)) {
+        for (List<Object> repr : record.getRawRepresentation()) {
+          if (repr.get(0).equals(APPEND_KEYWORD)) {
+            failedElements.add((Long) repr.get(2));
+          }
+        }
+        continue;
+      }
+      if (!record.getType().equals(OK_STR) && !record.getType().equals(INFO_STR)) {
+        continue;
+      }
+      int txn = txns.size();
+      txns.add(record);
+      // This transaction's appends so far to each key
+      Map<String, List<Object>> ownAppends = new HashMap<>();
+      for (List<Object> repr : record.getRawRepresentation()) {
+        String key = Verifier.getKey(repr.get(1));
+        if (repr.get(0).equals(APPEND_KEYWORD)) {
+          long element = (Long) repr.get(2);
+          if (appends.put(element, new Append(txn, key)) != null) {
+            throw new RuntimeException(String.format("Element %d is appended more than once; the " +
+                    "list-append verifier needs every element to be unique", element));
+          }
+          ownAppends.computeIfAbsent(key, k -> new ArrayList<>()).add(element);
+        } else if (repr.get(0).equals(READ_KEYWORD) && record.getType().equals(OK_STR)) {
+          List<Object> list = (List<Object>) repr.get(2);
+          List<Object> own = ownAppends.getOrDefault(key, Collections.emptyList());
+          if (list.size() < own.size() ||
+                  !list.subList(list.size() - own.size(), list.size()).equals(own)) {
+            System.out.printf("%s\n\t%s\nKey %s reads %s, which does not end with the elements " +
+                    "%s the transaction appended before\n", INVALID_INFO, record, key, list, own);
+            return false;
+          }
+          readsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(new ListRead(txn, list,
+                  own.size()));
+        }
+      }
+    }
+    DependencyGraph graph = new DependencyGraph(txns.size());
+    for (Map.Entry<String, List<ListRead>> entry : readsByKey.entrySet()) {
+      if (!addKeyDependencies(entry.getKey(), entry.getValue(), appends, failedElements, txns,
+              graph)) {
+        return false;
+      }
+    }
+
+    List<List<int[]>> cycles = graph.findCycles();
+    if (cycles.isEmpty()) {
+      System.out.println(VALID_INFO);
+      return true;
+    }
+    for (List<int[]> cycle : cycles) {
+      System.out.printf("%s\n%s cycle:\n", INVALID_INFO, anomaly(cycle));
+      for (int[] edge : cycle) {
+        System.out.printf("\t%s\n\t  -%s->\n", txns.get(edge[0]), EDGE_NAMES[edge[2]]);
+      }
+      System.out.printf("\t%s\n", txns.get(cycle.get(0)[0]));
+    }
+    return false;
+  }
+
+  /**
+   * Checks the lists read of one key against each other, and adds the dependencies they reveal
+   * to the graph. Returns false if the lists read are inconsistent.
+   */
+  private boolean addKeyDependencies(String key, List<ListRead> reads, Map<Long, Append> appends,
+                                     Set<Long> failedElements, List<Record> txns,
+                                     DependencyGraph graph) {
+    List<Object> longest = Collections.emptyList();
+    for (ListRead read : reads) {
+      if (read.list.size() > longest.size()) {
+        longest = read.list;
+      }
+    }
+    // The version order of the key, as the transactions that appended each element
+    int[] writers = new int[longest.size()];
+    Set<Object> seen = new HashSet<>();
+    for (int i = 0; i < longest.size(); i++) {
+      Object element = longest.get(i);
+      Append append = appends.get(element);
+      if (append == null || !append.key.equals(key)) {
+        ListRead read = reads.stream().filter(r -> r.list.contains(element)).findFirst().get();
+        System.out.printf("%s\n\t%s\nKey %s reads element %s, which %s\n", INVALID_INFO,
+                txns.get(read.txn), key, element, failedElements.contains(element) ?
+                        "was appended by a failed transaction" : append == null ?
+                        "was never appended" : "was appended to key " + append.key);
+        return false;
+      }
+      if (!seen.add(element)) {
+        System.out.printf("%s\nKey %s holds element %s more than once: %s\n", INVALID_INFO, key,
+                element, longest);
+        return false;
+      }
+      writers[i] = append.txn;
+      if (i > 0) {
+        graph.addEdge(writers[i - 1], writers[i], WW);
+      }
+    }
+
+    for (ListRead read : reads) {
+      if (!read.list.equals(longest.subList(0, read.list.size()))) {
+        System.out.printf("%s\n\t%s\nKey %s reads %s, which is not a prefix of %s\n",
+                INVALID_INFO, txns.get(read.txn), key, read.list, longest);
+        return false;
+      }
+      // The elements that were there before the transaction appended its own
+      int before = read.list.size() - read.ownAppends;
+      if (before > 0) {
+        graph.addEdge(writers[before - 1], read.txn, WR);
+      }
+      if (before < longest.size()) {
+        graph.addEdge(read.txn, writers[before], RW);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Names the anomaly a cycle makes up: G0 if it is made of write-write edges only, G1c if it
+   * also has write-read edges, G-single if exactly one edge is read-write and G2 otherwise.
+   */
+  @VisibleForTesting
+  static String anomaly(List<int[]> cycle) {
+    int readWrites = 0;
+    boolean writeRead = false;
+    for (int[] edge : cycle) {
+      if (edge[2] == RW) {
+        readWrites++;
+      } else if (edge[2] == WR) {
+        writeRead = true;
+      }
+    }
+    if (readWrites == 0) {
+      return writeRead ? "G1c" : "G0";
+    }
+    return readWrites == 1 ? "G-single" : "G2";
+  }
+}
@@ -0,0 +1,188 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+import static com.google.jepsenonspanner.loadgenerator.SessionLoadGenerator.SEQ_KEYWORD;
+import static com.google.jepsenonspanner.loadgenerator.SessionLoadGenerator.STALE_READ_LOAD_NAME;
+import static com.google.jepsenonspanner.loadgenerator.SessionLoadGenerator.WRITE_KEYWORD;
+
+/**
+ * Verifies the session guarantees of each process in a history of the session benchmark. The
+ * value of a key counts its versions, so a read must never return less than:
+ * - the value the same process last wrote to that key (read-your-writes),
+ * - the value the same process last read from that key (monotonic reads), or
+ * - the value another process wrote to that key before a write the same process has seen
+ *   (monotonic writes), since the writes of a process must become visible in the order it
+ *   issued them.
+ * The real timestamp of an ok record is when its operation was recorded as done, and a process
+ * issues an operation only once the previous one is done, so sorting the ok records by real
+ * timestamp puts the operations of each process in the order it issued them. The records are
+ * sorted once, in O(n log n) time, and then checked in a single pass that only keeps the last
+ * value each process wrote and read of each key, i.e. O(processes x keys) state besides the
+ * parsed history.
+ *
+ * For monotonic writes, the pass also keeps the last write of each key. A read that returns at
+ * least its value has seen it, so from then on its process must see the last writes of the
+ * writer to the other keys before it; the first time a process sees a write, this takes time
+ * linear in the keys of the writer. Only the last write of the writer to each key is kept, so a
+ * key it has written again since is not checked.
+ *
+ * Spanner only promises these guarantees to strong reads. A bounded stale read that falls behind
+ * them is counted and reported, but does not make the history invalid; the values it read still
+ * raise what later reads of the process must return.
+ *
+ * The history with timestamps (history-real-time.edn) is expected as the second file.
+ */
+public class SessionVerifier implements Verifier {
+  private static final Keyword STALE_READ_LOAD =
+          Keyword.newKeyword(STALE_READ_LOAD_NAME.substring(1));
+
+  /**
+   * The state of one process.
+   */
+  private static class Session {
+    // The last value this process wrote to, and read from each key
+    private Map<String, Long> written = new HashMap<>();
+    private Map<String, Long> observed = new HashMap<>();
+    // The index among the writes of this process of its last write to each key
+    private Map<String, Long> writtenAt = new HashMap<>();
+    private long writeCount = 0;
+    // The value of each key this process must read, having seen later writes of other processes
+    private Map<String, Long> required = new HashMap<>();
+    // The last write of each key this process has seen
+    private Map<String, Write> seen = new HashMap<>();
+    private long lastSeq = -1;
+    // Number of bounded stale reads that broke a session guarantee
+    private int laggingStaleReads = 0;
+  }
+
+  /**
+   * A write of a process, which stored the given value.
+   */
+  private static class Write {
+    private final Session writer;
+    // The index of this write among the writes of its process
+    private final long index;
+    private final long value;
+
+    Write(Session writer, long index, long value) {
+      this.writer = writer;
+      this.index = index;
+      this.value = value;
+    }
+  }
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    if (filePath.length != 2) {
+      throw new RuntimeException("Session Verifier only accepts 2 files");
+    }
+    try {
+      FileReader fs = new FileReader(new File(filePath[1]));
+      return verify(fs);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input) {
+    List<Record> records = Verifier.parseRecords(input).stream()
+            .filter(record -> record.getType().equals(OK_STR))
+            .sorted(Comparator.comparing(Record::getRealTimestamp))
+            .collect(Collectors.toList());
+    Map<Long, Session> sessions = new HashMap<>();
+    // The write that stored the largest value of each key so far
+    Map<String, Write> lastWrites = new HashMap<>();
+    for (Record record : records) {
+      Session session = sessions.computeIfAbsent(record.getpID(), pid -> new Session());
+      List<List<Object>> repr = record.getRawRepresentation();
+      if (!repr.get(0).get(0).equals(SEQ_KEYWORD)) {
+        throw new RuntimeException("Operation without sequence number " + record);
+      }
+      long seq = (Long) repr.get(0).get(1);
+      if (seq <= session.lastSeq) {
+        throw new RuntimeException("Sequence number out of order " + record);
+      }
+      session.lastSeq = seq;
+      if (!verifyOperation(session, record, lastWrites)) {
+        return false;
+      }
+    }
+
+    int laggingStaleReads = sessions.values().stream().mapToInt(s -> s.laggingStaleReads).sum();
+    if (laggingStaleReads > 0) {
+      System.out.printf("%d bounded stale reads fell behind the session guarantees\n",
+              laggingStaleReads);
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  /**
+   * Checks the value an operation read against the guarantees of its process, then records what
+   * it read and wrote.
+   */
+  private boolean verifyOperation(Session session, Record record, Map<String, Write> lastWrites) {
+    List<Object> read = record.getRawRepresentation().get(1);
+    String key = Verifier.getKey(read.get(1));
+    long value = (Long) read.get(2);
+    String broken = null;
+    if (value < session.written.getOrDefault(key, Long.MIN_VALUE)) {
+      broken = "read-your-writes";
+    } else if (value < session.observed.getOrDefault(key, Long.MIN_VALUE)) {
+      broken = "monotonic reads";
+    } else if (value < session.required.getOrDefault(key, Long.MIN_VALUE)) {
+      broken = "monotonic writes";
+    }
+    if (broken != null) {
+      if (!record.getLoad().equals(STALE_READ_LOAD)) {
+        System.out.printf("%s\n\t%s\nProcess %d reads %d from key %s, breaking %s\n",
+                INVALID_INFO, record, record.getpID(), value, key, broken);
+        return false;
+      }
+      session.laggingStaleReads++;
+    }
+    session.observed.merge(key, value, Math::max);
+
+    Write lastWrite = lastWrites.get(key);
+    if (lastWrite != null && lastWrite.writer != session && value >= lastWrite.value &&
+            session.seen.get(key) != lastWrite) {
+      // The earlier writes of the writer must be visible to every later read of this process
+      session.seen.put(key, lastWrite);
+      Session writer = lastWrite.writer;
+      for (Map.Entry<String, Long> entry : writer.written.entrySet()) {
+        if (writer.writtenAt.get(entry.getKey()) < lastWrite.index) {
+          session.required.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+      }
+    }
+
+    if (isWrite(record.getRawRepresentation())) {
+      // The write stored the value read plus one
+      session.written.put(key, value + 1);
+      session.observed.put(key, value + 1);
+      session.writtenAt.put(key, ++session.writeCount);
+      if (lastWrite == null || value + 1 > lastWrite.value) {
+        lastWrites.put(key, new Write(session, session.writeCount, value + 1));
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWrite(List<List<Object>> repr) {
+    return repr.size() == 3 && repr.get(2).get(0).equals(WRITE_KEYWORD);
+  }
+}
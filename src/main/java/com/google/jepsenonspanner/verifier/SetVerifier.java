@@ -0,0 +1,153 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.jepsenonspanner.client.Record.FAIL_STR;
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+import static com.google.jepsenonspanner.operation.SetAddTransaction.ADD_KEYWORD;
+
+/**
+ * Verifies a history of the set benchmark. Each read of a range of the set at a read timestamp
+ * must hold exactly the elements within the range whose adds committed at or before that
+ * timestamp:
+ * - Every element read was added by an add that did not fail, and the add committed at or before
+ *   the read timestamp if it is known to have succeeded.
+ * - Every add known to have succeeded that committed at or before the read timestamp is read.
+ * Adds that ended with an "info" record may or may not have taken effect, so they may or may not
+ * be read. This holds for stale reads at their own read timestamps as for strong ones, and the
+ * final read of the whole set shows that no acknowledged add was lost. Since elements are unique,
+ * adds are looked up by element, and each read costs the smaller of its range and the number of
+ * adds; sample reads cover a fixed number of elements, so the whole history is checked in linear
+ * time.
+ *
+ * The history with timestamps (history-real-time.edn) is expected as the second file.
+ */
+public class SetVerifier implements Verifier {
+  // Commit timestamp of an add that ended with an "info" record, which is unknown
+  private static final long UNKNOWN = Long.MAX_VALUE;
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    if (filePath.length != 2) {
+      throw new RuntimeException("Set Verifier only accepts 2 files");
+    }
+    try {
+      FileReader fs = new FileReader(new File(filePath[1]));
+      return verify(fs);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input) {
+    List<Record> records = Verifier.parseRecords(input);
+    // Commit timestamp of every add that did not fail, by element
+    Map<Long, Long> adds = new HashMap<>();
+    Set<Long> failedAdds = new HashSet<>();
+    List<Record> reads = new ArrayList<>();
+    for (Record record : records) {
+      List<Object> repr = record.getRawRepresentation().get(0);
+      boolean isAdd = repr.get(0).equals(ADD_KEYWORD);
+      if (record.getType().equals(OK_STR)) {
+        if (!isAdd) {
+          reads.add(record);
+          continue;
+        }
+        Long element = (Long) repr.get(1);
+        if (adds.put(element, Record.toMicros(record.getCommitTimestamp())) != null) {
+          throw new RuntimeException(String.format("Element %d is added more than once; the " +
+                  "set verifier needs every element to be unique", element));
+        }
+      } else if (isAdd && record.getType().equals(INFO_STR)) {
+        if (adds.put((Long) repr.get(1), UNKNOWN) != null) {
+          throw new RuntimeException(String.format("Element %d is added more than once; the " +
+                  "set verifier needs every element to be unique", repr.get(1)));
+        }
+      } else if (isAdd && record.getType().equals(FAIL_STR)) {
+        failedAdds.add((Long) repr.get(1));
+      }
+    }
+
+    for (Record read : reads) {
+      if (!verifyRead(read, adds, failedAdds)) {
+        return false;
+      }
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  private boolean verifyRead(Record read, Map<Long, Long> adds, Set<Long> failedAdds) {
+    List<Object> repr = read.getRawRepresentation().get(0);
+    long first = (Long) repr.get(1);
+    long last = (Long) repr.get(2);
+    long readTimestamp = Record.toMicros(read.getCommitTimestamp());
+    Set<Long> elements = new HashSet<>();
+    for (Object obj : (List<Object>) repr.get(3)) {
+      long element = (Long) obj;
+      Long commit = adds.get(element);
+      String error = null;
+      if (element < first || element > last) {
+        error = "which is out of the range read";
+      } else if (commit == null) {
+        error = failedAdds.contains(element) ? "which was added by a failed add" :
+                "which was never added";
+      } else if (commit != UNKNOWN && commit > readTimestamp) {
+        error = String.format("which was added at %d, after the read timestamp %d", commit,
+                readTimestamp);
+      } else if (!elements.add(element)) {
+        error = "more than once";
+      }
+      if (error != null) {
+        System.out.printf("%s\n\t%s\nRead element %d, %s\n", INVALID_INFO, read, element, error);
+        return false;
+      }
+    }
+
+    // Every add known to have committed within the range by the read timestamp is read; the
+    // range is walked if it is smaller than the set of adds
+    if (last - first < adds.size()) {
+      for (long element = first; element <= last; element++) {
+        if (!checkPresent(read, element, adds.get(element), readTimestamp, elements)) {
+          return false;
+        }
+        if (element == Long.MAX_VALUE) {
+          break;
+        }
+      }
+    } else {
+      for (Map.Entry<Long, Long> add : adds.entrySet()) {
+        long element = add.getKey();
+        if (element >= first && element <= last &&
+                !checkPresent(read, element, add.getValue(), readTimestamp, elements)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean checkPresent(Record read, long element, Long commit, long readTimestamp,
+                                      Set<Long> elements) {
+    if (commit != null && commit != UNKNOWN && commit <= readTimestamp &&
+            !elements.contains(element)) {
+      System.out.printf("%s\n\t%s\nElement %d, added at %d, is missing at the read timestamp " +
+              "%d\n", INVALID_INFO, read, element, commit, readTimestamp);
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,325 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.jepsenonspanner.client.Record.FAIL_STR;
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.INVOKE_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+
+/**
+ * Verifies a linearizability history in which every write writes a unique value, as generated in
+ * the unique value mode of LinearizabilityLoadGenerator. Since each read maps to exactly the one
+ * write it observed, no search for a linearization is needed; each key is checked on its own in
+ * O(n log n):
+ * - Every value read was written by a write that did not fail, or is the initial value.
+ * - Writes are ordered by their commit timestamps. Each read observes the latest write that
+ *   committed before its read timestamp, not counting writes of its own transaction.
+ * - Real-time order agrees with that order: no operation starts after a later value in the order
+ *   was already known, i.e. written by a finished write or returned by a finished read, and no
+ *   read finishes before the write it observed started.
+ * Writes that ended with an "info" record may or may not have taken effect. If one of them is
+ * read, it is placed at the earliest read timestamp that observed it.
+ *
+ * The history with timestamps (history-real-time.edn) is expected.
+ */
+public class UniqueValueVerifier implements Verifier {
+  private static final Keyword READ_KEYWORD = Keyword.newKeyword("read");
+  private static final Keyword WRITE_KEYWORD = Keyword.newKeyword("write");
+  private static final Keyword CAS_KEYWORD = Keyword.newKeyword("cas");
+  private static final Keyword SCAN_KEYWORD = Keyword.newKeyword("scan");
+
+  /**
+   * A read or write of one key by an operation. Times are in microseconds; the real start and
+   * end of writes that ended with "info" are unknown, and left unbounded.
+   */
+  private static class Access {
+    private final Record record;
+    private final int opId;
+    private final long value;
+    private long commit;
+    private final long start;
+    private final long end;
+    // Position of the write in commit order, -1 for the initial value
+    private int position;
+    // The write a read observed
+    private Access observed;
+
+    Access(Record record, int opId, long value, long commit, long start, long end) {
+      this.record = record;
+      this.opId = opId;
+      this.value = value;
+      this.commit = commit;
+      this.start = start;
+      this.end = end;
+    }
+
+    boolean isInfo() {
+      return end == Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * All accesses of one key.
+   */
+  private static class KeyHistory {
+    private List<Access> writes = new ArrayList<>();
+    private List<Access> reads = new ArrayList<>();
+    private Set<Long> failedValues = new HashSet<>();
+  }
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    try {
+      FileReader fs = new FileReader(new File(filePath[0]));
+      return verify(fs, initialState);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input, Map<String, Long> initialState) {
+    List<Record> records = Verifier.parseRecords(input);
+    // Real start time of each operation, by the process, load and commit timestamp its invoke
+    // and ok records share
+    Map<String, Long> startTimes = new HashMap<>();
+    for (Record record : records) {
+      if (record.getType().equals(INVOKE_STR) && record.getRealTimestamp() != null) {
+        startTimes.put(operationId(record), Record.toMicros(record.getRealTimestamp()));
+      }
+    }
+
+    Map<String, KeyHistory> histories = new HashMap<>();
+    int opId = 0;
+    for (Record record : records) {
+      if (record.getType().equals(OK_STR)) {
+        long commit = Record.toMicros(record.getCommitTimestamp());
+        long start = startTimes.getOrDefault(operationId(record), Long.MIN_VALUE);
+        long end = record.getRealTimestamp() == null ? commit :
+                Record.toMicros(record.getRealTimestamp());
+        addAccesses(histories, record, opId++, commit, start, end);
+      } else if (record.getType().equals(INFO_STR)) {
+        addAccesses(histories, record, opId++, /*commit=*/Long.MAX_VALUE,
+                /*start=*/Long.MIN_VALUE, /*end=*/Long.MAX_VALUE);
+      } else if (record.getType().equals(FAIL_STR)) {
+        for (List<Object> repr : record.getRawRepresentation()) {
+          if (repr.get(0).equals(WRITE_KEYWORD) || repr.get(0).equals(CAS_KEYWORD)) {
+            histories.computeIfAbsent(Verifier.getKey(repr.get(1)), k -> new KeyHistory())
+                    .failedValues.add(writtenValue(repr));
+          }
+        }
+      }
+    }
+
+    for (Map.Entry<String, KeyHistory> entry : histories.entrySet()) {
+      if (!verifyKey(entry.getKey(), entry.getValue(), initialState.get(entry.getKey()))) {
+        return false;
+      }
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  /**
+   * Adds the reads and writes of an ok or info record to the histories of their keys. Reads of
+   * info records are left out, since their results are unknown.
+   */
+  private void addAccesses(Map<String, KeyHistory> histories, Record record, int opId,
+                           long commit, long start, long end) {
+    boolean isInfo = record.getType().equals(INFO_STR);
+    for (List<Object> repr : record.getRawRepresentation()) {
+      Object type = repr.get(0);
+      if (type.equals(SCAN_KEYWORD)) {
+        if (isInfo) {
+          continue;
+        }
+        for (List<Object> pair : (List<List<Object>>) repr.get(repr.size() - 1)) {
+          histories.computeIfAbsent(Verifier.getKey(pair.get(0)), k -> new KeyHistory()).reads.add(
+                  new Access(record, opId, (Long) pair.get(1), commit, start, end));
+        }
+        continue;
+      }
+      KeyHistory history = histories.computeIfAbsent(Verifier.getKey(repr.get(1)),
+              k -> new KeyHistory());
+      if (type.equals(READ_KEYWORD)) {
+        if (!isInfo) {
+          history.reads.add(new Access(record, opId, (Long) repr.get(2), commit, start, end));
+        }
+      } else if (type.equals(WRITE_KEYWORD) || type.equals(CAS_KEYWORD)) {
+        if (type.equals(CAS_KEYWORD) && !isInfo) {
+          // A successful compare-and-set read the expected value in the same transaction
+          history.reads.add(new Access(record, opId, (Long) ((List<Object>) repr.get(2)).get(0),
+                  commit, start, end));
+        }
+        history.writes.add(new Access(record, opId, writtenValue(repr), commit, start, end));
+      }
+    }
+  }
+
+  private boolean verifyKey(String key, KeyHistory history, Long initialValue) {
+    Map<Long, Access> writesByValue = new HashMap<>();
+    for (Access write : history.writes) {
+      if (writesByValue.put(write.value, write) != null) {
+        throw new RuntimeException(String.format("Value %d is written to key %s more than once; " +
+                "the unique value verifier needs every write to be unique", write.value, key));
+      }
+    }
+    Access initialWrite = new Access(/*record=*/null, /*opId=*/-1,
+            initialValue == null ? 0 : initialValue, /*commit=*/Long.MIN_VALUE,
+            /*start=*/Long.MIN_VALUE, /*end=*/Long.MIN_VALUE);
+    initialWrite.position = -1;
+
+    // Map each read to the write it observed; writes of unknown outcome that are read committed
+    // no later than the earliest read that observed them
+    for (Access read : history.reads) {
+      Access write = writesByValue.get(read.value);
+      if (write == null && initialValue != null && read.value == initialValue) {
+        write = initialWrite;
+      }
+      if (write == null) {
+        System.out.printf("%s\n\t%s\nKey %s reads %d, which %s\n", INVALID_INFO, read.record, key,
+                read.value, history.failedValues.contains(read.value) ? "was written by a " +
+                        "failed operation" : "was never written");
+        return false;
+      }
+      if (write.isInfo()) {
+        write.commit = Math.min(write.commit, read.commit);
+      }
+      read.observed = write;
+    }
+
+    // Writes in commit order; writes of unknown outcome that were never read are left out, and
+    // sort after known writes with the same timestamp
+    List<Access> order = new ArrayList<>(history.writes.size());
+    for (Access write : history.writes) {
+      if (!write.isInfo() || write.commit != Long.MAX_VALUE) {
+        order.add(write);
+      }
+    }
+    order.sort(Comparator.comparingLong((Access write) -> write.commit)
+            .thenComparing(Access::isInfo));
+    long[] commits = new long[order.size()];
+    for (int i = 0; i < order.size(); i++) {
+      Access write = order.get(i);
+      write.position = i;
+      commits[i] = write.commit;
+      if (i > 0 && commits[i] == commits[i - 1] && !write.isInfo() && !order.get(i - 1).isInfo()) {
+        System.out.printf("%s\n\t%s\nKey %s is written twice at the same timestamp\n",
+                INVALID_INFO, write.record, key);
+        return false;
+      }
+    }
+
+    // Earliest real time at which each value was known to exist
+    long[] firstKnown = new long[order.size()];
+    for (int i = 0; i < order.size(); i++) {
+      firstKnown[i] = order.get(i).end;
+    }
+    for (Access read : history.reads) {
+      Access write = read.observed;
+      if (!checkCommitOrder(key, read, write, order, commits)) {
+        return false;
+      }
+      if (write.position >= 0) {
+        firstKnown[write.position] = Math.min(firstKnown[write.position], read.end);
+      }
+      if (read.end < write.start) {
+        System.out.printf("%s\n\t%s\nKey %s reads %d before it was written\n", INVALID_INFO,
+                read.record, key, read.value);
+        return false;
+      }
+    }
+
+    // laterKnown[i] is the earliest time any value after position i - 1 was known
+    long[] laterKnown = new long[order.size() + 1];
+    laterKnown[order.size()] = Long.MAX_VALUE;
+    for (int i = order.size() - 1; i >= 0; i--) {
+      laterKnown[i] = Math.min(laterKnown[i + 1], firstKnown[i]);
+    }
+    for (Access write : order) {
+      if (laterKnown[write.position + 1] < write.start) {
+        System.out.printf("%s\n\t%s\nKey %s is written after a later write was already " +
+                "visible\n", INVALID_INFO, write.record, key);
+        return false;
+      }
+    }
+    for (Access read : history.reads) {
+      if (laterKnown[read.observed.position + 1] < read.start) {
+        System.out.printf("%s\n\t%s\nKey %s reads %d after a later value was already visible\n",
+                INVALID_INFO, read.record, key, read.value);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks that a read observed the latest write committed before its read timestamp, or at it
+   * by another operation.
+   */
+  private boolean checkCommitOrder(String key, Access read, Access write, List<Access> order,
+                                   long[] commits) {
+    // Index of the last write committed at or before the read timestamp
+    int idx = upperBound(commits, read.commit) - 1;
+    while (idx >= 0 && commits[idx] == read.commit && order.get(idx).opId == read.opId) {
+      idx--;
+    }
+    if (idx != write.position) {
+      System.out.printf("%s\n\t%s\nKey %s reads %d, but the latest write at the read timestamp " +
+                      "is %s\n", INVALID_INFO, read.record, key, read.value,
+              idx < 0 ? "the initial value" : order.get(idx).value);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of elements of the sorted array that are at most value.
+   */
+  private static int upperBound(long[] sorted, long value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the value written by [:write :x 1] or [:cas :x [0 1]].
+   */
+  private static long writtenValue(List<Object> repr) {
+    if (repr.get(0).equals(CAS_KEYWORD)) {
+      return (Long) ((List<Object>) repr.get(2)).get(1);
+    }
+    return (Long) repr.get(2);
+  }
+
+  /**
+   * The invoke record and the ok record of an operation share its process, load and commit
+   * timestamp.
+   */
+  private static String operationId(Record record) {
+    return String.format("%d %s %d", record.getpID(), record.getLoad(),
+            Record.toMicros(record.getCommitTimestamp()));
+  }
+}
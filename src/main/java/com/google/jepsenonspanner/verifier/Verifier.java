@@ -12,7 +12,12 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.BANK_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.COUNTER_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.LINEARIZABILITY_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.LIST_APPEND_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SESSION_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.SET_TYPE;
+import static com.google.jepsenonspanner.constants.BenchmarkTypes.WRITE_SKEW_TYPE;
 import static com.google.jepsenonspanner.constants.BenchmarkTypes.INVALID_TYPE_MSG;
 
 /**
@@ -46,12 +51,39 @@ public interface Verifier {
     return recordMaps.stream().map(Record::createRecordFromMap).collect(Collectors.toList());
   }
 
+  /**
+   * Returns the name of a key in an operation of the history, which is recorded as a keyword.
+   */
+  static String getKey(Object key) {
+    return key instanceof Keyword ? ((Keyword) key).getName() : key.toString();
+  }
+
   static Verifier createVerifier(String benchmarkType) {
+    return createVerifier(benchmarkType, /*configPath=*/null);
+  }
+
+  /**
+   * Creates the verifier for histories generated with the given load generator config; the
+   * config path may be null if the defaults were used.
+   */
+  static Verifier createVerifier(String benchmarkType, String configPath) {
     switch (benchmarkType) {
       case BANK_TYPE:
-        return new BankVerifier();
+        return configPath != null && LedgerVerifier.usesLedger(configPath) ?
+                new LedgerVerifier() : new BankVerifier();
       case LINEARIZABILITY_TYPE:
-        return new LinearizabilityVerifier();
+        return configPath == null ? new LinearizabilityVerifier() :
+                LinearizabilityVerifier.createFromConfig(configPath);
+      case LIST_APPEND_TYPE:
+        return new ListAppendVerifier();
+      case SET_TYPE:
+        return new SetVerifier();
+      case COUNTER_TYPE:
+        return new CounterVerifier();
+      case WRITE_SKEW_TYPE:
+        return new WriteSkewVerifier();
+      case SESSION_TYPE:
+        return new SessionVerifier();
       default:
         throw new RuntimeException(INVALID_TYPE_MSG);
     }
@@ -0,0 +1,155 @@
+package com.google.jepsenonspanner.verifier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.jepsenonspanner.client.Record;
+import us.bpsm.edn.Keyword;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.jepsenonspanner.client.Record.INFO_STR;
+import static com.google.jepsenonspanner.client.Record.INVOKE_STR;
+import static com.google.jepsenonspanner.client.Record.OK_STR;
+import static com.google.jepsenonspanner.loadgenerator.WriteSkewLoadGenerator.DEPOSIT_KEYWORD;
+import static com.google.jepsenonspanner.loadgenerator.WriteSkewLoadGenerator.WITHDRAW_KEYWORD;
+
+/**
+ * Verifies a history of the write-skew benchmark. The history with timestamps
+ * (history-real-time.edn) lists the operations in commit order, so the verifier replays the
+ * successful operations in that order against a model of the database, in a single pass:
+ * - Every value read must be the value of the last write to that key committed before it. A
+ *   withdrawal that read a stale value of the other key of its pair is the write skew that
+ *   serializability rules out.
+ * - Every pair of values read together, and every pair after a withdrawal commits, must hold the
+ *   invariant x + y >= 0.
+ * A write that ended with an "info" record may or may not have taken effect, at any time between
+ * its invoke and its info record, so within that window the model of a key it writes follows the
+ * values read of that key instead of checking them; the invariant is still checked on every read
+ * of it. Once the window has passed, the first read of the key tells which way the write went:
+ * its value becomes the model of the key, and the reads after it are checked again.
+ *
+ * A first pass over the history matches each operation of unknown outcome with its invoke, and a
+ * second pass replays the operations. The check takes O(n) time; the history is parsed whole, so
+ * it also takes O(n) memory.
+ *
+ * The history with timestamps (history-real-time.edn) is expected as the second file.
+ */
+public class WriteSkewVerifier implements Verifier {
+  private static final Keyword READ_KEYWORD = Keyword.newKeyword("read");
+
+  @Override
+  public boolean verify(Map<String, Long> initialState, String... filePath) {
+    if (filePath.length != 2) {
+      throw new RuntimeException("Write Skew Verifier only accepts 2 files");
+    }
+    try {
+      FileReader fs = new FileReader(new File(filePath[1]));
+      return verify(fs, initialState);
+    } catch (FileNotFoundException e) {
+      throw new RuntimeException(INVALID_FILE);
+    }
+  }
+
+  @VisibleForTesting
+  boolean verify(Readable input, Map<String, Long> initialState) {
+    List<Record> records = Verifier.parseRecords(input);
+
+    // The commit timestamp until which reads of each key may or may not see a write of unknown
+    // outcome, for the keys written by such an operation that have not been read since its info
+    // record; it starts with the operations whose invoke is not in the history
+    Map<String, Long> unknownUntil = new HashMap<>();
+    // The info record of each invoke, by the index of the invoke in the history
+    Map<Integer, Record> infos = new HashMap<>();
+    // The index of the latest invoke of each process. A process runs one operation at a time, so
+    // its next outcome record belongs to this invoke
+    Map<Long, Integer> lastInvokes = new HashMap<>();
+    for (int i = 0; i < records.size(); i++) {
+      Record record = records.get(i);
+      if (record.getType().equals(INVOKE_STR)) {
+        lastInvokes.put(record.getpID(), i);
+      } else if (record.getType().equals(INFO_STR)) {
+        Integer invoke = lastInvokes.get(record.getpID());
+        if (invoke != null) {
+          infos.put(invoke, record);
+        } else {
+          markUnknown(unknownUntil, record);
+        }
+      }
+    }
+
+    Map<String, Long> model = new HashMap<>(initialState);
+    long lastTimestamp = Long.MIN_VALUE;
+    for (int i = 0; i < records.size(); i++) {
+      Record record = records.get(i);
+      if (infos.containsKey(i)) {
+        markUnknown(unknownUntil, infos.get(i));
+      }
+      if (!record.getType().equals(OK_STR)) {
+        continue;
+      }
+      long timestamp = Record.toMicros(record.getCommitTimestamp());
+      if (timestamp < lastTimestamp) {
+        throw new RuntimeException("History is not in commit order at " + record);
+      }
+      lastTimestamp = timestamp;
+
+      // The keys read by this operation and the values read, in order
+      List<String> keysRead = new ArrayList<>();
+      Map<String, Long> valuesRead = new HashMap<>();
+      for (List<Object> repr : record.getRawRepresentation()) {
+        String key = Verifier.getKey(repr.get(1));
+        long value = (Long) repr.get(2);
+        if (repr.get(0).equals(READ_KEYWORD)) {
+          Long expected = model.get(key);
+          Long until = unknownUntil.get(key);
+          if (until != null && timestamp > until) {
+            // The first read after the window tells if the write took effect
+            unknownUntil.remove(key);
+          }
+          if (expected != null && expected != value && until == null) {
+            System.out.printf("%s\n\t%s\nKey %s reads %d at %d, but the last value committed " +
+                    "was %d\n", INVALID_INFO, record, key, value, timestamp, expected);
+            return false;
+          }
+          model.put(key, value);
+          keysRead.add(key);
+          valuesRead.put(key, value);
+        } else if (repr.get(0).equals(WITHDRAW_KEYWORD)) {
+          model.put(key, valuesRead.get(key) - value);
+        } else if (repr.get(0).equals(DEPOSIT_KEYWORD)) {
+          model.put(key, valuesRead.get(key) + value);
+        }
+      }
+
+      // Reads of a pair, and withdrawals, are checked against the invariant; a deposit only ever
+      // raises the sum of its pair
+      if (keysRead.size() == 2) {
+        long sum = model.get(keysRead.get(0)) + model.get(keysRead.get(1));
+        if (sum < 0) {
+          System.out.printf("%s\n\t%s\nKeys %s and %s sum to %d at %d\n", INVALID_INFO, record,
+                  keysRead.get(0), keysRead.get(1), sum, timestamp);
+          return false;
+        }
+      }
+    }
+    System.out.println(VALID_INFO);
+    return true;
+  }
+
+  /**
+   * Marks the keys written by an operation of unknown outcome as unknown until its info record.
+   */
+  private static void markUnknown(Map<String, Long> unknownUntil, Record info) {
+    long until = Record.toMicros(info.getCommitTimestamp());
+    for (List<Object> repr : info.getRawRepresentation()) {
+      if (!repr.get(0).equals(READ_KEYWORD)) {
+        unknownUntil.merge(Verifier.getKey(repr.get(1)), until, Math::max);
+      }
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package com.google.jepsenonspanner.verifier.knossos;
+
+import com.google.jepsenonspanner.client.Record;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import us.bpsm.edn.Keyword;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static com.google.jepsenonspanner.client.Record.FAIL_STR;
+import static com.google.jepsenonspanner.client.Record.INVOKE_STR;
+
+/**
+ * A history decoded once for the linearizability search. Keys are interned to IDs in sorted
+ * order, so the database state is a long[] indexed by key ID and a range scan covers a range of
+ * IDs; processes are interned to slots, so the pending records are int[]s indexed by slot. Every
+ * record has its reads, writes, compare-and-sets and scans decoded into primitive arrays, which
+ * the nodes of the search check without parsing EDN again.
+ */
+class EncodedHistory {
+  // The value of a key that is not in the database
+  static final long ABSENT = Long.MIN_VALUE;
+
+  private final List<EncodedRecord> records;
+  private final String[] keys;
+  private final Map<String, Integer> keyIds = new HashMap<>();
+  private final long[] initialState;
+  private final List<Long> processes = new ArrayList<>();
+
+  /**
+   * A record with its operations in primitive arrays. The values of a compare-and-set are both
+   * expected (read) and set (written); the keys and values returned by a scan are read.
+   */
+  static class EncodedRecord {
+    final boolean invoke;
+    final boolean fail;
+    // The slot of the process of this record
+    final int process;
+    final int[] readKeys;
+    final long[] readValues;
+    final int[] writeKeys;
+    final long[] writeValues;
+    final int[] casKeys;
+    final long[] casExpected;
+    // Each scan covers the key IDs from its start to its end, inclusive, and returned the sorted
+    // key IDs in scanned
+    final int[] scanStarts;
+    final int[] scanEnds;
+    final int[][] scanned;
+
+    private EncodedRecord(boolean invoke, boolean fail, int process, List<Integer> readKeys,
+                          List<Long> readValues, List<Integer> writeKeys, List<Long> writeValues,
+                          List<Integer> casKeys, List<Long> casExpected, List<int[]> scans) {
+      this.invoke = invoke;
+      this.fail = fail;
+      this.process = process;
+      this.readKeys = readKeys.stream().mapToInt(Integer::intValue).toArray();
+      this.readValues = readValues.stream().mapToLong(Long::longValue).toArray();
+      this.writeKeys = writeKeys.stream().mapToInt(Integer::intValue).toArray();
+      this.writeValues = writeValues.stream().mapToLong(Long::longValue).toArray();
+      this.casKeys = casKeys.stream().mapToInt(Integer::intValue).toArray();
+      this.casExpected = casExpected.stream().mapToLong(Long::longValue).toArray();
+      this.scanStarts = scans.stream().mapToInt(scan -> scan[0]).toArray();
+      this.scanEnds = scans.stream().mapToInt(scan -> scan[1]).toArray();
+      this.scanned = scans.stream().map(scan -> Arrays.copyOfRange(scan, 2, scan.length))
+              .toArray(int[][]::new);
+    }
+
+    /**
+     * Returns if every value read by this record is the value of its key in the state.
+     */
+    boolean readsMatch(long[] state) {
+      for (int i = 0; i < readKeys.length; i++) {
+        if (state[readKeys[i]] == ABSENT || state[readKeys[i]] != readValues[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns if every compare-and-set of this record would succeed on the state.
+     */
+    boolean compareAndSetsHold(long[] state) {
+      for (int i = 0; i < casKeys.length; i++) {
+        if (state[casKeys[i]] == ABSENT || state[casKeys[i]] != casExpected[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns if every range scan of this record has read all keys of the state within its
+     * range. Keys are never inserted or deleted, so a key missing from a scan is a phantom.
+     */
+    boolean scansComplete(long[] state) {
+      for (int i = 0; i < scanStarts.length; i++) {
+        int next = 0;
+        for (int key = scanStarts[i]; key <= scanEnds[i]; key++) {
+          while (next < scanned[i].length && scanned[i][next] < key) {
+            next++;
+          }
+          if (state[key] != ABSENT && (next == scanned[i].length || scanned[i][next] != key)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Applies the writes of this record to the state, and returns the values they replaced.
+     */
+    long[] applyWrites(long[] state) {
+      long[] replaced = new long[writeKeys.length];
+      for (int i = 0; i < writeKeys.length; i++) {
+        replaced[i] = state[writeKeys[i]];
+        state[writeKeys[i]] = writeValues[i];
+      }
+      return replaced;
+    }
+
+    /**
+     * Undoes applyWrites, given the values it returned.
+     */
+    void undoWrites(long[] state, long[] replaced) {
+      for (int i = writeKeys.length - 1; i >= 0; i--) {
+        state[writeKeys[i]] = replaced[i];
+      }
+    }
+  }
+
+  EncodedHistory(List<Record> history, Map<String, Long> initialState) {
+    TreeSet<String> sortedKeys = new TreeSet<>(initialState.keySet());
+    for (Record record : history) {
+      for (OpRepresentation repr : record.getOpRepresentation()) {
+        List<Object> rawObjects = repr.getEdnPrintableObjects();
+        if (isScan(repr)) {
+          Object results = rawObjects.get(rawObjects.size() - 1);
+          if (results != null) {
+            for (List<Object> pair : (List<List<Object>>) results) {
+              sortedKeys.add(((Keyword) pair.get(0)).getName());
+            }
+          }
+        } else {
+          sortedKeys.add(getKeyFromOpRepresentation(repr));
+        }
+      }
+    }
+    this.keys = sortedKeys.toArray(new String[0]);
+    for (int i = 0; i < keys.length; i++) {
+      keyIds.put(keys[i], i);
+    }
+    this.initialState = new long[keys.length];
+    Arrays.fill(this.initialState, ABSENT);
+    for (Map.Entry<String, Long> entry : initialState.entrySet()) {
+      this.initialState[keyIds.get(entry.getKey())] = entry.getValue();
+    }
+
+    Map<Long, Integer> processSlots = new HashMap<>();
+    this.records = new ArrayList<>(history.size());
+    for (Record record : history) {
+      int process = processSlots.computeIfAbsent(record.getpID(), pID -> {
+        processes.add(pID);
+        return processes.size() - 1;
+      });
+      records.add(encode(record, process));
+    }
+  }
+
+  private EncodedRecord encode(Record record, int process) {
+    boolean invoke = record.getType().equals(INVOKE_STR);
+    List<Integer> readKeys = new ArrayList<>();
+    List<Long> readValues = new ArrayList<>();
+    List<Integer> writeKeys = new ArrayList<>();
+    List<Long> writeValues = new ArrayList<>();
+    List<Integer> casKeys = new ArrayList<>();
+    List<Long> casExpected = new ArrayList<>();
+    List<int[]> scans = new ArrayList<>();
+    for (OpRepresentation repr : record.getOpRepresentation()) {
+      List<Object> rawObjects = repr.getEdnPrintableObjects();
+      Object last = rawObjects.get(rawObjects.size() - 1);
+      if (isWrite(repr)) {
+        writeKeys.add(keyId(getKeyFromOpRepresentation(repr)));
+        writeValues.add((Long) last);
+      } else if (isCompareAndSet(repr)) {
+        int key = keyId(getKeyFromOpRepresentation(repr));
+        List<Long> values = (List<Long>) last;
+        casKeys.add(key);
+        casExpected.add(values.get(0));
+        writeKeys.add(key);
+        writeValues.add(values.get(1));
+        // A compare-and-set that returns ok has read its expected value
+        readKeys.add(key);
+        readValues.add(values.get(0));
+      } else if (invoke || last == null) {
+        // Reads of an invoke record have no results yet
+        continue;
+      } else if (isRead(repr)) {
+        readKeys.add(keyId(getKeyFromOpRepresentation(repr)));
+        readValues.add((Long) last);
+      } else if (isScan(repr)) {
+        // A range scan is a read of every key it returned
+        TreeSet<Integer> scanned = new TreeSet<>();
+        for (List<Object> pair : (List<List<Object>>) last) {
+          int key = keyId(((Keyword) pair.get(0)).getName());
+          readKeys.add(key);
+          readValues.add((Long) pair.get(1));
+          scanned.add(key);
+        }
+        int[] scan = new int[scanned.size() + 2];
+        scan[0] = lowerBound(((Keyword) rawObjects.get(1)).getName());
+        scan[1] = upperBound(((Keyword) rawObjects.get(2)).getName());
+        int i = 2;
+        for (int key : scanned) {
+          scan[i++] = key;
+        }
+        scans.add(scan);
+      }
+    }
+    return new EncodedRecord(invoke, record.getType().equals(FAIL_STR), process, readKeys,
+            readValues, writeKeys, writeValues, casKeys, casExpected, scans);
+  }
+
+  /**
+   * Returns the ID of the first key not before the given key.
+   */
+  private int lowerBound(String key) {
+    int idx = Arrays.binarySearch(keys, key);
+    return idx >= 0 ? idx : -idx - 1;
+  }
+
+  /**
+   * Returns the ID of the last key not after the given key.
+   */
+  private int upperBound(String key) {
+    int idx = Arrays.binarySearch(keys, key);
+    return idx >= 0 ? idx : -idx - 2;
+  }
+
+  private int keyId(String key) {
+    return keyIds.get(key);
+  }
+
+  private static boolean isRead(OpRepresentation repr) {
+    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("read");
+  }
+
+  private static boolean isWrite(OpRepresentation repr) {
+    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("write");
+  }
+
+  private static boolean isCompareAndSet(OpRepresentation repr) {
+    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("cas");
+  }
+
+  private static boolean isScan(OpRepresentation repr) {
+    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("scan");
+  }
+
+  private static String getKeyFromOpRepresentation(OpRepresentation repr) {
+    List<Object> rawObjects = repr.getEdnPrintableObjects();
+    return ((Keyword) rawObjects.get(rawObjects.size() - 2)).getName();
+  }
+
+  int size() {
+    return records.size();
+  }
+
+  EncodedRecord get(int idx) {
+    return records.get(idx);
+  }
+
+  /**
+   * Returns a copy of the initial state, indexed by key ID.
+   */
+  long[] getInitialState() {
+    return initialState.clone();
+  }
+
+  int getKeyCount() {
+    return keys.length;
+  }
+
+  String getKey(int keyId) {
+    return keys[keyId];
+  }
+
+  int getProcessCount() {
+    return processes.size();
+  }
+
+  long getProcess(int slot) {
+    return processes.get(slot);
+  }
+}
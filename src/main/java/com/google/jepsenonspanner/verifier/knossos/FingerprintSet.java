@@ -0,0 +1,109 @@
+package com.google.jepsenonspanner.verifier.knossos;
+
+/**
+ * A set of 64-bit fingerprints that can be shared by threads. Fingerprints are stored in open
+ * addressing tables of primitive longs, so each takes 8 to 16 bytes instead of an object with
+ * its own maps. The set is split into stripes by the high bits of the fingerprint, each guarded
+ * by its own lock, so threads adding different fingerprints rarely wait for each other.
+ */
+class FingerprintSet {
+  private static final int STRIPE_BITS = 6;
+  private static final int INITIAL_CAPACITY = 1 << 6;
+
+  private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+  /**
+   * One open addressing table, and the lock of its fingerprints.
+   */
+  private static class Stripe {
+    // 0 marks an empty slot, so the fingerprint 0 is tracked on its own
+    private long[] table = new long[INITIAL_CAPACITY];
+    private boolean containsZero = false;
+    private int size = 0;
+
+    synchronized boolean add(long fingerprint) {
+      if (fingerprint == 0) {
+        boolean added = !containsZero;
+        containsZero = true;
+        if (added) {
+          size++;
+        }
+        return added;
+      }
+      int slot = find(table, fingerprint);
+      if (table[slot] == fingerprint) {
+        return false;
+      }
+      table[slot] = fingerprint;
+      size++;
+      // Keep the table at most half full, so probe sequences stay short
+      if (size * 2 > table.length) {
+        resize();
+      }
+      return true;
+    }
+
+    synchronized boolean contains(long fingerprint) {
+      if (fingerprint == 0) {
+        return containsZero;
+      }
+      return table[find(table, fingerprint)] == fingerprint;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    private void resize() {
+      long[] resized = new long[table.length * 2];
+      for (long fingerprint : table) {
+        if (fingerprint != 0) {
+          resized[find(resized, fingerprint)] = fingerprint;
+        }
+      }
+      table = resized;
+    }
+  }
+
+  FingerprintSet() {
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * Adds a fingerprint, and returns true if it was not in the set.
+   */
+  boolean add(long fingerprint) {
+    return stripe(fingerprint).add(fingerprint);
+  }
+
+  boolean contains(long fingerprint) {
+    return stripe(fingerprint).contains(fingerprint);
+  }
+
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  private Stripe stripe(long fingerprint) {
+    return stripes[(int) (fingerprint >>> (Long.SIZE - STRIPE_BITS))];
+  }
+
+  /**
+   * Returns the slot that holds the fingerprint, or the empty slot where it belongs. Fingerprints
+   * are already well mixed, so their low bits pick the first slot to probe.
+   */
+  private static int find(long[] table, long fingerprint) {
+    int mask = table.length - 1;
+    int slot = (int) fingerprint & mask;
+    while (table[slot] != 0 && table[slot] != fingerprint) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -7,18 +7,32 @@ import com.google.jepsenonspanner.verifier.Verifier;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A verifier that implements the optimized version of the Wing-Gong Linearizability algorithm.
- * Knossos uses the same optimization.
+ * Knossos uses the same optimization. The search runs in parallel on a ForkJoinPool; every call
+ * to verify has its own search state, so one verifier can check several histories at once.
  */
 public class LinearVerifier implements Verifier {
+  private final ForkJoinPool pool;
+
+  public LinearVerifier() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param pool the pool that runs the search
+   */
+  public LinearVerifier(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
   @Override
   public boolean verify(Map<String, Long> initialState, String... filePath) {
     try {
@@ -32,30 +46,68 @@ public class LinearVerifier implements Verifier {
   /**
    * Performs an improved version of the Wing-Gong Linearization algorithm, described in this paper:
    * http://www.cs.ox.ac.uk/people/gavin.lowe/LinearizabiltyTesting/paper.pdf.
-   * A dfs search across different states of the database.
+   * A dfs search across different states of the database, split into tasks that idle workers of
+   * the pool steal. The search stops as soon as any branch reaches the end of the history.
    */
   @VisibleForTesting
   boolean verify(Readable input, Map<String, Long> initialState) {
-    Node.reset();
     List<Record> records = Verifier.parseRecords(input);
-    Stack<Node> dfs = new Stack<>();
-    Node initialNode = new Node(initialState);
-    dfs.push(initialNode);
-
-    while (!dfs.empty()) {
-      Node top = dfs.pop();
-      List<Node> nextNodes = top.transition(records);
-      dfs.addAll(nextNodes);
-    }
-    int maxRecordIdxSeen = Node.getMaxRecordIdxSeen();
+    Search search = new Search(new EncodedHistory(records, initialState));
+    pool.invoke(new SearchTask(/*parent=*/null, search, new Node(search)));
+
+    int maxRecordIdxSeen = search.getMaxRecordIdxSeen();
     if (maxRecordIdxSeen < records.size()) {
       // Did not reach the end of the history, so it is invalid
       System.out.println(INVALID_INFO + "index = " + maxRecordIdxSeen + " " + records.get(maxRecordIdxSeen));
-      Node.reset();
       return false;
     }
     System.out.println(VALID_INFO);
-    Node.reset();
     return true;
   }
+
+  /**
+   * Searches depth first from a node. When a node has several next nodes, the first is searched
+   * by this task, and the others are forked as tasks of their own while the worker has few tasks
+   * queued; otherwise they are kept on the local stack, so the pool is not flooded with tiny
+   * tasks. A task does not wait for the tasks it forks: it completes once they all have, and a
+   * finished task holds neither its node nor its children, so only the nodes still to be searched
+   * stay reachable.
+   */
+  private static class SearchTask extends CountedCompleter<Void> {
+    // Number of tasks a worker keeps queued for idle workers to steal
+    private static final int SURPLUS_TASKS = 3;
+
+    private final Search search;
+    // Cleared once the search from it begins
+    private Node start;
+
+    SearchTask(SearchTask parent, Search search, Node start) {
+      super(parent);
+      this.search = search;
+      this.start = start;
+    }
+
+    @Override
+    public void compute() {
+      Deque<Node> dfs = new ArrayDeque<>();
+      dfs.push(start);
+      start = null;
+      while (!dfs.isEmpty() && !search.isFinished()) {
+        List<Node> nextNodes = dfs.pop().transition();
+        for (int i = nextNodes.size() - 1; i > 0; i--) {
+          if (getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+            addToPendingCount(1);
+            new SearchTask(this, search, nextNodes.get(i)).fork();
+          } else {
+            dfs.push(nextNodes.get(i));
+          }
+        }
+        if (!nextNodes.isEmpty()) {
+          dfs.push(nextNodes.get(0));
+        }
+      }
+      // Once the search is finished, tasks not started yet return right away
+      tryComplete();
+    }
+  }
 }
@@ -1,79 +1,95 @@
 package com.google.jepsenonspanner.verifier.knossos;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.jepsenonspanner.client.Record;
-import com.google.jepsenonspanner.operation.OpRepresentation;
-import us.bpsm.edn.Keyword;
+import com.google.jepsenonspanner.verifier.knossos.EncodedHistory.EncodedRecord;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
 import java.util.stream.Collectors;
-
-import static com.google.jepsenonspanner.client.Record.INVOKE_STR;
-import static com.google.jepsenonspanner.client.Record.OK_STR;
+import java.util.stream.IntStream;
 
 /**
  * This class encapsulates a node in the Linearizability DFS graph. Contains the state of the
  * database, the records that are in progress and the ones that have been linearized. It
  * is essentially the state of the current search. Corresponds to a config in the paper.
+ *
+ * The state is kept in primitive arrays indexed by the key IDs and process slots of the encoded
+ * history, and summarized by a 64-bit fingerprint that is updated with every change, so a node
+ * is a few small arrays and checking if it was visited is a single lookup. A node is only ever
+ * changed by the thread that creates it; everything shared is in its Search.
  */
 public class Node {
-  private Map<String, Long> databaseState;
-  // Since each thread can have at most one record in both call and ret set, index them using pID
-  private HashMap<Long, Record> calls;
-  private HashMap<Long, Record> rets;
+  // Marks a process with no record in the calls or rets set
+  private static final int NONE = -1;
+
+  private final Search search;
+  private final EncodedHistory history;
+  // The value of each key by its ID, or ABSENT; shared with the parent node until it changes
+  private long[] databaseState;
+  // Since each thread can have at most one record in both call and ret set, index them by the
+  // process slot; each holds the index of the invoke record in the history, or NONE
+  private final int[] calls;
+  private final int[] rets;
   // Keeps track of the next position in the history to transition to
   private int recordIdx;
-
-  // Memorize nodes visited so far so that we do not go through an invalid path twice
-  private static HashSet<Node> nodesVisited = new HashSet<>();
-  // Records the maximum record index we have seen; if we reached the end of the history, this
-  // should be equal to length of the history
-  private static int maxRecordIdxSeen = -1;
-
-  private Node(Map<String, Long> databaseState,
-               HashMap<Long, Record> calls, HashMap<Long, Record> rets, int recordIdx) {
-    this.databaseState = new HashMap<>(databaseState);
-    this.calls = new HashMap<>(calls);
-    this.rets = new HashMap<>(rets);
-    this.recordIdx = recordIdx;
-    if (recordIdx > maxRecordIdxSeen) {
-      maxRecordIdxSeen = recordIdx;
-    }
-  }
+  // The sum of hash(slot, value) over the keys, the calls, the rets and the record index
+  private long fingerprint;
 
   /**
-   * Constructor for the initial node.
+   * Constructor for the initial node. Nodes are only memorized by their fingerprints; two
+   * different nodes sharing a fingerprint is unlikely enough to be ignored, as model checkers do,
+   * and can only prune a path, never make an invalid history pass.
    */
-  public Node(Map<String, Long> initialState) {
-    this(initialState, new HashMap<>(), new HashMap<>(), /*recordIdx=*/0);
+  Node(Search search) {
+    this.search = search;
+    this.history = search.getHistory();
+    this.databaseState = history.getInitialState();
+    this.calls = new int[history.getProcessCount()];
+    this.rets = new int[history.getProcessCount()];
+    Arrays.fill(calls, NONE);
+    Arrays.fill(rets, NONE);
+    this.recordIdx = 0;
+    for (int key = 0; key < databaseState.length; key++) {
+      fingerprint += hash(key, databaseState[key]);
+    }
+    for (int process = 0; process < calls.length; process++) {
+      fingerprint += hash(callSlot(process), NONE) + hash(retSlot(process), NONE);
+    }
+    fingerprint += hash(recordIdxSlot(), recordIdx);
+    search.reached(recordIdx);
   }
 
   /**
    * Copy constructor that advances the record index to the next position in history.
    */
   private Node(Node other) {
-    this(other.databaseState, other.calls, other.rets, other.recordIdx + 1);
+    this.search = other.search;
+    this.history = other.history;
+    this.databaseState = other.databaseState;
+    this.calls = other.calls.clone();
+    this.rets = other.rets.clone();
+    this.recordIdx = other.recordIdx + 1;
+    this.fingerprint = other.fingerprint + hash(recordIdxSlot(), recordIdx) -
+            hash(recordIdxSlot(), other.recordIdx);
+    search.reached(recordIdx);
   }
 
   /**
    * Transitions this Node into the next possible Node(s). Reads the next position of record
    * and call, return or linearize that record based on if it exists in the call or ret sets.
    */
-  public List<Node> transition(List<Record> history) {
+  public List<Node> transition() {
     if (recordIdx >= history.size()) {
       return Collections.emptyList();
     }
-    Record record = history.get(recordIdx);
-    if (record.getType().equals(INVOKE_STR)) {
+    EncodedRecord record = history.get(recordIdx);
+    if (record.invoke) {
       return call(record);
-    } else if (rets.containsKey(record.getpID())) {
+    } else if (record.fail) {
+      return fail(record);
+    } else if (rets[record.process] != NONE) {
       return ret(record);
     } else {
       return linearize(record);
@@ -83,10 +99,25 @@ public class Node {
   /**
    * Add the record to the call set. Do this when the record is an invoke record.
    */
-  public List<Node> call(Record record) {
+  private List<Node> call(EncodedRecord record) {
+    Node node = new Node(this);
+    node.setCall(record.process, recordIdx);
+    search.visit(node.fingerprint);
+    return Collections.singletonList(node);
+  }
+
+  /**
+   * The operation of this record did not take effect, so remove it from the calls set. If it has
+   * already been linearized in the rets set, this search path assumed an effect that never
+   * happened, and is invalid.
+   */
+  private List<Node> fail(EncodedRecord record) {
+    if (rets[record.process] != NONE) {
+      return Collections.emptyList();
+    }
     Node node = new Node(this);
-    node.calls.put(record.getpID(), record);
-    nodesVisited.add(node);
+    node.setCall(record.process, NONE);
+    search.visit(node.fingerprint);
     return Collections.singletonList(node);
   }
 
@@ -97,44 +128,49 @@ public class Node {
    * Return all valid linearization orders, or return an empty list if no valid linearization can
    * be achieved.
    */
-  public List<Node> linearize(Record record) {
-    Set<Long> pIDSet = new HashSet<>(calls.keySet());
-    pIDSet.remove(record.getpID());
-    long[] recordPIDs = pIDSet.stream().mapToLong(Number::longValue).toArray();
+  private List<Node> linearize(EncodedRecord record) {
+    int[] processes = IntStream.range(0, calls.length)
+            .filter(process -> calls[process] != NONE && process != record.process)
+            .toArray();
 
     List<Node> toSearch = new ArrayList<>();
+    long[] currentState = databaseState.clone();
     // Apply the record first, before any pending record is linearized
-    applyReturnRecord(record, Collections.emptyMap(), recordPIDs, /*idx=*/-1, toSearch);
+    applyReturnRecord(record, currentState, processes, /*idx=*/-1, toSearch);
 
-    backtrackHelper(recordPIDs, 0, new HashMap<>(), record, toSearch);
+    backtrackHelper(processes, 0, currentState, record, toSearch);
     return toSearch;
   }
 
   /**
-   * Permutates the processIDs, applying them in different orders on the database state while
+   * Permutates the processes, applying them in different orders on the database state while
    * checking if any invalid state is reached. Only adds the new node when all changes are
    * applied and the state is still valid.
-   * @param changeHistory stores all the keys changed and apply them in the end, so no overhead
-   *                      for keys that are not changed
+   * @param currentState the database state with the pending records before idx applied; the
+   *                     writes of each pending record are undone once its orders are searched
    * @param record the return record that we try to linearize
    */
-  private void backtrackHelper(long[] pIDs, int idx, Map<String, Long> changeHistory,
-                               Record record, List<Node> toSearch) {
-    if (idx >= pIDs.length) {
+  private void backtrackHelper(int[] processes, int idx, long[] currentState,
+                               EncodedRecord record, List<Node> toSearch) {
+    if (idx >= processes.length) {
       return;
     }
-    for (int i = idx; i < pIDs.length; i++) {
-      swapPIDs(pIDs, i, idx);
-
-      Record recordToLinearize = calls.get(pIDs[idx]);
-      Map<String, Long> resultToLinearize = getWriteResults(recordToLinearize);
-      Map<String, Long> changeHistoryCopy = new HashMap<>(changeHistory);
-      changeHistoryCopy.putAll(resultToLinearize);
-      applyReturnRecord(record, changeHistoryCopy, pIDs, idx, toSearch);
+    for (int i = idx; i < processes.length; i++) {
+      swapProcesses(processes, i, idx);
+
+      EncodedRecord recordToLinearize = history.get(calls[processes[idx]]);
+      if (!recordToLinearize.compareAndSetsHold(currentState)) {
+        // This pending record cannot take effect at this point
+        swapProcesses(processes, i, idx);
+        continue;
+      }
+      long[] replaced = recordToLinearize.applyWrites(currentState);
+      applyReturnRecord(record, currentState, processes, idx, toSearch);
 
-      backtrackHelper(pIDs, idx + 1, changeHistoryCopy, record, toSearch);
+      backtrackHelper(processes, idx + 1, currentState, record, toSearch);
 
-      swapPIDs(pIDs, i, idx);
+      recordToLinearize.undoWrites(currentState, replaced);
+      swapProcesses(processes, i, idx);
     }
   }
 
@@ -142,101 +178,86 @@ public class Node {
    * Applies the returned record to the node and adds the new node into the list of nodes to search
    * for.
    */
-  private void applyReturnRecord(Record returnRecord, Map<String, Long> changeHistory,
-                                 long[] pIDs, int idx, List<Node> toSearch) {
-    Map<String, Long> readsToLinearize = getReadResults(returnRecord);
-    Map<String, Long> currentState = new HashMap<>(databaseState);
-    currentState.putAll(changeHistory);
-    if (isConsistent(readsToLinearize, currentState)) {
-      Map<String, Long> writesToUpdate = getWriteResults(returnRecord);
-      currentState.putAll(writesToUpdate);
-      Node newNode = new Node(this);
-      newNode.calls.remove(returnRecord.getpID());
-      // Move the pending operations that can be linearized into rets
-      for (int i = 0; i <= idx; i++) {
-        Record toMoveToRets = newNode.calls.remove(pIDs[i]);
-        newNode.rets.put(pIDs[i], toMoveToRets);
-      }
-      newNode.databaseState = currentState;
-      if (!nodesVisited.contains(newNode)) {
-        nodesVisited.add(newNode);
-        toSearch.add(newNode);
-      }
+  private void applyReturnRecord(EncodedRecord returnRecord, long[] currentState,
+                                 int[] processes, int idx, List<Node> toSearch) {
+    if (!returnRecord.readsMatch(currentState) || !returnRecord.scansComplete(currentState)) {
+      return;
+    }
+    Node newNode = new Node(this);
+    newNode.databaseState = databaseState.clone();
+    // Move the pending operations that can be linearized into rets, replaying their writes in
+    // order so the fingerprint follows every change
+    for (int i = 0; i <= idx; i++) {
+      int invokeIdx = calls[processes[i]];
+      newNode.applyWrites(history.get(invokeIdx));
+      newNode.setCall(processes[i], NONE);
+      newNode.setRet(processes[i], invokeIdx);
+    }
+    newNode.applyWrites(returnRecord);
+    newNode.setCall(returnRecord.process, NONE);
+    if (search.visit(newNode.fingerprint)) {
+      toSearch.add(newNode);
     }
   }
 
-  private boolean isConsistent(Map<String, Long> readResult, Map<String, Long> currentState) {
-    return readResult.keySet()
-            .stream()
-            .allMatch(key -> readResult.get(key).equals(currentState.get(key)));
-  }
-
-  private void swapPIDs(long[] pIDs, int idx1, int idx2) {
-    long temp = pIDs[idx1];
-    pIDs[idx1] = pIDs[idx2];
-    pIDs[idx2] = temp;
+  /**
+   * Remove the return record from the rets set. Do this when this record is already linearized.
+   */
+  private List<Node> ret(EncodedRecord record) {
+    Node node = new Node(this);
+    node.setRet(record.process, NONE);
+    search.visit(node.fingerprint);
+    return Collections.singletonList(node);
   }
 
-  private Map<String, Long> getWriteResults(Record record) {
-    Map<String, Long> res = new HashMap<>();
-    List<OpRepresentation> representations = record.getOpRepresentation();
-    for (OpRepresentation repr : representations) {
-      if (isWrite(repr)) {
-        res.put(getKeyFromOpRepresentation(repr), getValueFromOpRepresentation(repr));
-      }
+  private void applyWrites(EncodedRecord record) {
+    for (int i = 0; i < record.writeKeys.length; i++) {
+      int key = record.writeKeys[i];
+      fingerprint += hash(key, record.writeValues[i]) - hash(key, databaseState[key]);
+      databaseState[key] = record.writeValues[i];
     }
-    return res;
   }
 
-  private Map<String, Long> getReadResults(Record record) {
-    Map<String, Long> res = new HashMap<>();
-    List<OpRepresentation> representations = record.getOpRepresentation();
-    for (OpRepresentation repr : representations) {
-      if (isRead(repr)) {
-        res.put(getKeyFromOpRepresentation(repr), getValueFromOpRepresentation(repr));
-      }
-    }
-    return res;
+  private void setCall(int process, int invokeIdx) {
+    fingerprint += hash(callSlot(process), invokeIdx) - hash(callSlot(process), calls[process]);
+    calls[process] = invokeIdx;
   }
 
-  private boolean isRead(OpRepresentation repr) {
-    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("read");
+  private void setRet(int process, int invokeIdx) {
+    fingerprint += hash(retSlot(process), invokeIdx) - hash(retSlot(process), rets[process]);
+    rets[process] = invokeIdx;
   }
 
-  private boolean isWrite(OpRepresentation repr) {
-    return ((Keyword) repr.getEdnPrintableObjects().get(0)).getName().equals("write");
+  // The keys take the first slots, followed by the calls, the rets and the record index
+  private int callSlot(int process) {
+    return databaseState.length + process;
   }
 
-  private String getKeyFromOpRepresentation(OpRepresentation repr) {
-    List<Object> rawObjects = repr.getEdnPrintableObjects();
-    return ((Keyword) rawObjects.get(rawObjects.size() - 2)).getName();
+  private int retSlot(int process) {
+    return databaseState.length + calls.length + process;
   }
 
-  private long getValueFromOpRepresentation(OpRepresentation repr) {
-    List<Object> rawObjects = repr.getEdnPrintableObjects();
-    return (long) rawObjects.get(rawObjects.size() - 1);
+  private int recordIdxSlot() {
+    return databaseState.length + 2 * calls.length;
   }
 
   /**
-   * Remove the return record from the rets set. Do this when this record is already linearized.
+   * Hashes a value at a slot of the node, mixing with the finalizer of SplitMix64.
    */
-  public List<Node> ret(Record record) {
-    Node node = new Node(this);
-    node.rets.remove(record.getpID());
-    nodesVisited.add(node);
-    return Collections.singletonList(node);
+  private static long hash(int slot, long value) {
+    return mix(mix(slot) + value);
   }
 
-  public static int getMaxRecordIdxSeen() {
-    return maxRecordIdxSeen;
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
   }
 
-  /**
-   * Resets the static members, in case we want to run a new verifier.
-   */
-  public static void reset() {
-    maxRecordIdxSeen = -1;
-    nodesVisited.clear();
+  private void swapProcesses(int[] processes, int idx1, int idx2) {
+    int temp = processes[idx1];
+    processes[idx1] = processes[idx2];
+    processes[idx2] = temp;
   }
 
   @Override
@@ -245,36 +266,45 @@ public class Node {
     if (o == null || getClass() != o.getClass()) return false;
     Node node = (Node) o;
 
-    return databaseState.equals(node.databaseState) &&
-            calls.equals(node.calls) &&
-            rets.equals(node.rets) &&
+    return Arrays.equals(databaseState, node.databaseState) &&
+            Arrays.equals(calls, node.calls) &&
+            Arrays.equals(rets, node.rets) &&
             recordIdx == node.recordIdx;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(databaseState, calls, rets, recordIdx);
+    return Long.hashCode(fingerprint);
   }
 
   @Override
   public String toString() {
     return "Node{" +
-            "databaseState=" + databaseState +
-            ",\n\t calls=" + calls.values().stream().map(record -> record.getpID() +
-            " " + record.getRawRepresentation() + "\n").collect(Collectors.toList()) +
-            ",\n\t rets=" + rets.values().stream().map(record -> record.getpID() +
-            " " + record.getRawRepresentation() + "\n").collect(Collectors.toList()) +
+            "databaseState=" + IntStream.range(0, databaseState.length)
+            .filter(key -> databaseState[key] != EncodedHistory.ABSENT)
+            .mapToObj(key -> history.getKey(key) + "=" + databaseState[key])
+            .collect(Collectors.toList()) +
+            ",\n\t calls=" + pendingToString(calls) +
+            ",\n\t rets=" + pendingToString(rets) +
             ",\n recordIdx=" + recordIdx +
             '}';
   }
 
-  @VisibleForTesting
-  public static HashSet<Node> getNodesVisited() {
-    return nodesVisited;
+  private String pendingToString(int[] pending) {
+    return IntStream.range(0, pending.length)
+            .filter(process -> pending[process] != NONE)
+            .mapToObj(process -> history.getProcess(process) + " record " + pending[process] +
+                    "\n")
+            .collect(Collectors.toList()).toString();
   }
 
   @VisibleForTesting
   public int getRecordIdx() {
     return recordIdx;
   }
+
+  @VisibleForTesting
+  long getFingerprint() {
+    return fingerprint;
+  }
 }
@@ -0,0 +1,54 @@
+package com.google.jepsenonspanner.verifier.knossos;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state shared by all nodes and tasks of one linearizability search: the encoded history, the
+ * fingerprints of the nodes visited so far, and how far into the history the search has got.
+ * Every search has its own, so several searches can run at the same time.
+ */
+class Search {
+  private final EncodedHistory history;
+  // Memorize nodes visited so far so that we do not go through an invalid path twice
+  private final FingerprintSet nodesVisited = new FingerprintSet();
+  // Records the maximum record index we have seen; if we reached the end of the history, this
+  // should be equal to length of the history
+  private final AtomicInteger maxRecordIdxSeen = new AtomicInteger(-1);
+
+  Search(EncodedHistory history) {
+    this.history = history;
+  }
+
+  EncodedHistory getHistory() {
+    return history;
+  }
+
+  /**
+   * Marks a node as visited, and returns true if no node with its fingerprint was visited before.
+   */
+  boolean visit(long fingerprint) {
+    return nodesVisited.add(fingerprint);
+  }
+
+  /**
+   * Records that a node at the given record index was created.
+   */
+  void reached(int recordIdx) {
+    // Most nodes are not the furthest, so avoid writing to the shared counter
+    if (recordIdx > maxRecordIdxSeen.get()) {
+      maxRecordIdxSeen.accumulateAndGet(recordIdx, Math::max);
+    }
+  }
+
+  int getMaxRecordIdxSeen() {
+    return maxRecordIdxSeen.get();
+  }
+
+  /**
+   * Returns if some node has reached the end of the history, i.e. the history is linearizable and
+   * the rest of the search can be abandoned.
+   */
+  boolean isFinished() {
+    return maxRecordIdxSeen.get() >= history.size();
+  }
+}
@@ -257,4 +257,13 @@ class ExecutorTest {
     executor.recordComplete(LOAD_NAME, representations, Timestamp.ofTimeMicroseconds(100000), timestamp);
     executor.extractHistoryWithTimestamp();
   }
+
+  @Test
+  void testTaggedNames() {
+    assertEquals("History", Executor.taggedTableName(Executor.HISTORY_TABLE_NAME, null));
+    assertEquals("Testing_bank", Executor.taggedTableName(Executor.TESTING_TABLE_NAME, "bank"));
+    assertEquals("history.edn", Executor.taggedFilename(Executor.RECORD_FILENAME, null));
+    assertEquals("history-real-time-bank.edn",
+            Executor.taggedFilename(Executor.RECORD_BY_REAL_TIME_FILENAME, "bank"));
+  }
 }
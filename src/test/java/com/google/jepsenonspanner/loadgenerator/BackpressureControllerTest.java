@@ -0,0 +1,96 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackpressureControllerTest {
+  private static final long OP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private BackpressureController create() {
+    return new BackpressureController(/*minOpsPerSecond=*/10, /*maxOpsPerSecond=*/100,
+            /*increaseOpsPerSecond=*/5, /*decreaseFactor=*/0.5, /*windowMillis=*/1000,
+            /*maxAbortRate=*/0.2, /*maxInfoRate=*/0.05, /*maxLatencyMillis=*/50);
+  }
+
+  /**
+   * Records one window of 100 operations, one every 10 ms, and returns the total aborts and
+   * infos after it.
+   */
+  private long[] window(BackpressureController controller, long startNanos, long serviceNanos,
+                        long[] totals, long aborts, long infos) {
+    for (int i = 1; i <= 100; i++) {
+      long endNanos = startNanos + i * OP_NANOS;
+      controller.record(endNanos, serviceNanos, totals[0] + aborts * i / 100,
+              totals[1] + infos * i / 100);
+    }
+    return new long[]{totals[0] + aborts, totals[1] + infos};
+  }
+
+  @Test
+  void testAdditiveIncreaseMultiplicativeDecrease() {
+    BackpressureController controller = create();
+    long[] totals = {0, 0};
+    // 50 aborts out of 150 attempts
+    totals = window(controller, 0, OP_NANOS, totals, /*aborts=*/50, /*infos=*/0);
+    // The limit was not reached, so it is cut below the achieved rate of about 100 ops/s
+    assertTrue(controller.getOpsPerSecond() <= 50.5);
+    assertEquals(BackpressureController.Reason.ABORTS,
+            controller.getDecisions().get(0).getReason());
+    double cut = controller.getOpsPerSecond();
+
+    window(controller, TimeUnit.SECONDS.toNanos(1), OP_NANOS, totals, /*aborts=*/0, /*infos=*/0);
+    assertEquals(cut + 5, controller.getOpsPerSecond(), 1e-9);
+    assertEquals(BackpressureController.Reason.HEALTHY,
+            controller.getDecisions().get(1).getReason());
+  }
+
+  @Test
+  void testErrorsAndLatency() {
+    BackpressureController controller = create();
+    window(controller, 0, OP_NANOS, new long[]{0, 0}, /*aborts=*/0, /*infos=*/10);
+    assertEquals(BackpressureController.Reason.ERRORS,
+            controller.getDecisions().get(0).getReason());
+
+    controller = create();
+    window(controller, 0, TimeUnit.MILLISECONDS.toNanos(60), new long[]{0, 0}, /*aborts=*/0,
+            /*infos=*/0);
+    assertEquals(BackpressureController.Reason.LATENCY,
+            controller.getDecisions().get(0).getReason());
+  }
+
+  @Test
+  void testLimitStaysInBounds() {
+    BackpressureController controller = create();
+    long[] totals = {0, 0};
+    // Healthy windows cannot grow the limit above the max
+    totals = window(controller, 0, OP_NANOS, totals, /*aborts=*/0, /*infos=*/0);
+    assertEquals(100, controller.getOpsPerSecond(), 1e-9);
+    assertTrue(controller.getDecisions().isEmpty());
+    for (int i = 1; i <= 5; i++) {
+      totals = window(controller, i * TimeUnit.SECONDS.toNanos(1), OP_NANOS, totals,
+              /*aborts=*/100, /*infos=*/0);
+    }
+    assertEquals(10, controller.getOpsPerSecond(), 1e-9);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), controller.getIntervalNanos());
+  }
+
+  @Test
+  void testCreateFromConfig() {
+    assertNull(BackpressureController.createFromConfig(Map.of()));
+    BackpressureController controller = BackpressureController.createFromConfig(
+            Map.of("backpressure", "aimd", "maxOpsPerSecond", "40"));
+    assertEquals(40, controller.getOpsPerSecond(), 1e-9);
+    assertThrows(RuntimeException.class,
+            () -> BackpressureController.createFromConfig(Map.of("backpressure", "pid")));
+    assertThrows(RuntimeException.class,
+            () -> BackpressureController.createFromConfig(Map.of("backpressure", "aimd",
+                    "decreaseFactor", "1.5")));
+  }
+}
@@ -1,5 +1,6 @@
 package com.google.jepsenonspanner.loadgenerator;
 
+import com.google.jepsenonspanner.operation.ChecksumReadTransaction;
 import com.google.jepsenonspanner.operation.Operation;
 import com.google.jepsenonspanner.operation.ReadTransaction;
 import com.google.jepsenonspanner.operation.ReadWriteTransaction;
@@ -12,6 +13,7 @@ import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
@@ -68,6 +70,18 @@ class BankLoadGeneratorTest {
             /*bounded=*/false);
   }
 
+  @Test
+  void testReadAtStaleness() {
+    BankLoadGenerator gen = new BankLoadGenerator(OP_LIMIT, MAX_BALANCE, ACCT_NUM);
+    ReadTransaction read = gen.read(/*staleness=*/1000, /*bounded=*/true);
+    assertEquals(1000, read.getStaleness());
+    assertTrue(read.getBounded());
+    assertEquals(ACCT_NUM, read.getKeys().size());
+    assertFalse(read.getReadAgeNanos().isPresent());
+    // Reads at a given staleness do not count towards the op limit
+    assertEquals(OP_LIMIT, gen.opLimit);
+  }
+
   void checkTransactionalRead(TransactionalAction action) {
     assertEquals(action.getValue(), 0);
     int acct = Integer.parseInt(action.getKey());
@@ -118,6 +132,94 @@ class BankLoadGeneratorTest {
     }
   }
 
+  @Test
+  void testMultiLegBatchedTransfer() {
+    int legs = 2;
+    int batchSize = 3;
+    int acctNum = 10;
+    BankLoadGenerator gen = new BankLoadGenerator(OP_LIMIT, /*maxBalance=*/100, acctNum,
+            new BankLoadGenerator.Config(0, 0, 0, /*transfer=*/1),
+            KeyDistribution.createUniform(acctNum), legs, batchSize, /*seed=*/0);
+    while (gen.hasLoad()) {
+      ReadWriteTransaction txn = (ReadWriteTransaction) gen.nextOperation();
+      List<TransactionalAction> actions = txn.getSpannerActions();
+      assertEquals(batchSize * (legs + 1), actions.size());
+      // All accounts in the batch are distinct
+      assertEquals(actions.size(), actions.stream().map(TransactionalAction::getKey).distinct()
+              .count());
+      List<List<Object>> repr = new ArrayList<>();
+      txn.getRecordRepresentation().forEach(r -> repr.add(r.getEdnPrintableObjects()));
+      assertEquals(batchSize, repr.size());
+      for (int i = 0; i < batchSize; i++) {
+        List<Object> transfer = repr.get(i);
+        assertEquals(2 * legs + 1, transfer.size());
+        TransactionalAction from = actions.get(i * (legs + 1));
+        assertEquals(from.getKey(), transfer.get(0));
+        long total = 0;
+        for (int leg = 1; leg <= legs; leg++) {
+          TransactionalAction to = actions.get(i * (legs + 1) + leg);
+          assertEquals(to.getKey(), transfer.get(2 * leg - 1));
+          long amount = (long) transfer.get(2 * leg);
+          assertEquals(amount, (long) to.getDependentAction().getDelta());
+          total += amount;
+        }
+        // The source pays for all legs
+        assertEquals(-total, (long) from.getDependentAction().getDelta());
+      }
+    }
+  }
+
+  @Test
+  void testChecksumReads() {
+    int acctNum = 1000;
+    int sampleSize = 5;
+    BankLoadGenerator gen = new BankLoadGenerator(OP_LIMIT, MAX_BALANCE, acctNum,
+            new BankLoadGenerator.Config(1, 1, 1, 0), KeyDistribution.createUniform(acctNum),
+            /*transferLegs=*/1, /*transferBatchSize=*/1, BankLoadGenerator.ReadMode.CHECKSUM,
+            sampleSize, /*seed=*/0);
+    while (gen.hasLoad()) {
+      Operation op = gen.nextOperation();
+      assertTrue(op instanceof ChecksumReadTransaction);
+      List<String> sampleKeys = ((ReadTransaction) op).getKeys();
+      assertEquals(sampleSize, sampleKeys.stream().distinct().count());
+      // The sum and the count come first, followed by the sampled accounts
+      assertEquals(sampleSize + 2, op.getRecordRepresentation().size());
+      assertEquals(":sum nil", op.getRecordRepresentation().get(0).toString());
+      assertEquals(":count nil", op.getRecordRepresentation().get(1).toString());
+      for (int i = 0; i < sampleSize; i++) {
+        assertEquals("\"" + sampleKeys.get(i) + "\" nil",
+                op.getRecordRepresentation().get(i + 2).toString());
+      }
+    }
+  }
+
+  @Test
+  void testLedgerTransfers() {
+    BankLoadGenerator gen = new BankLoadGenerator(OP_LIMIT, MAX_BALANCE, ACCT_NUM,
+            new BankLoadGenerator.Config(0, 0, 0, 1), KeyDistribution.createUniform(ACCT_NUM),
+            /*transferLegs=*/1, /*transferBatchSize=*/1, BankLoadGenerator.ReadMode.FULL,
+            /*readSampleSize=*/0, /*ledger=*/true, /*seed=*/0);
+    while (gen.hasLoad()) {
+      List<TransactionalAction> actions =
+              ((ReadWriteTransaction) gen.nextOperation()).getSpannerActions();
+      // Every balance change is also recorded in the ledger, and they sum to 0
+      long sum = 0;
+      for (TransactionalAction action : actions) {
+        assertTrue(action.getDependentAction().isLedgerEntry());
+        sum += action.getDependentAction().getDelta();
+      }
+      assertEquals(0, sum);
+    }
+  }
+
+  @Test
+  void testTooManyTransferAccounts() {
+    assertThrows(RuntimeException.class, () -> new BankLoadGenerator(OP_LIMIT, MAX_BALANCE,
+            ACCT_NUM, new BankLoadGenerator.Config(0, 0, 0, 1),
+            KeyDistribution.createUniform(ACCT_NUM), /*transferLegs=*/1, /*transferBatchSize=*/2,
+            /*seed=*/0));
+  }
+
   @Test
   void testDeterministic() {
     int seed = new Random().nextInt();
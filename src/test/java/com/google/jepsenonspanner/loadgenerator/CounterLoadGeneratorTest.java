@@ -0,0 +1,59 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.IncrementTransaction;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterLoadGeneratorTest {
+  private static final int OP_LIMIT = 100;
+  private static final int MAX_DELTA = 3;
+  private static final List<String> KEYS = Arrays.asList("x", "y");
+
+  @Test
+  void testLoads() {
+    CounterLoadGenerator gen = new CounterLoadGenerator(/*seed=*/1, OP_LIMIT,
+            KEYS.toArray(new String[0]), new CounterLoadGenerator.Config(1, 1, 1, 1), MAX_DELTA,
+            KeyDistribution.createUniform(KEYS.size()));
+    int increments = 0;
+    int staleReads = 0;
+    while (gen.hasLoad()) {
+      Operation op = gen.nextOperation();
+      if (op instanceof IncrementTransaction) {
+        increments++;
+        IncrementTransaction increment = (IncrementTransaction) op;
+        assertTrue(KEYS.contains(increment.getKey()));
+        assertTrue(increment.getDelta() >= 1 && increment.getDelta() <= MAX_DELTA);
+        assertEquals(String.format(":add :%s %d", increment.getKey(), increment.getDelta()),
+                op.getRecordRepresentation().get(0).toString());
+      } else {
+        ReadTransaction read = (ReadTransaction) op;
+        assertEquals(1, read.getKeys().size());
+        assertEquals(":read :" + read.getKeys().get(0) + " nil",
+                read.getRecordRepresentation().get(0).toString());
+        if (read.getStaleness() > 0) {
+          staleReads++;
+        }
+      }
+    }
+    assertTrue(increments > 0 && staleReads > 0);
+  }
+
+  @Test
+  void testIncrementsOnly() {
+    CounterLoadGenerator gen = new CounterLoadGenerator(/*seed=*/1, OP_LIMIT,
+            KEYS.toArray(new String[0]), new CounterLoadGenerator.Config(1, 0, 0, 0), MAX_DELTA,
+            KeyDistribution.createUniform(KEYS.size()));
+    while (gen.hasLoad()) {
+      assertTrue(gen.nextOperation() instanceof IncrementTransaction);
+    }
+    assertFalse(gen.hasLoad());
+  }
+}
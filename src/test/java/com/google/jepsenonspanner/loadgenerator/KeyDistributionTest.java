@@ -0,0 +1,161 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyDistributionTest {
+  private static final int KEY_COUNT = 100;
+  private static final int SAMPLES = 100000;
+
+  int[] histogram(KeyDistribution distribution, int seed) {
+    Random rand = new Random(seed);
+    int[] counts = new int[distribution.getKeyCount()];
+    for (int i = 0; i < SAMPLES; i++) {
+      counts[distribution.nextIndex(rand)]++;
+    }
+    return counts;
+  }
+
+  @Test
+  void testUniform() {
+    int[] counts = histogram(KeyDistribution.createUniform(KEY_COUNT), /*seed=*/1);
+    for (int count : counts) {
+      assertTrue(count > SAMPLES / KEY_COUNT / 2);
+      assertTrue(count < SAMPLES / KEY_COUNT * 2);
+    }
+  }
+
+  @Test
+  void testZipfianIsSkewed() {
+    int[] counts = histogram(new KeyDistribution.Zipfian(KEY_COUNT, /*exponent=*/1.2), /*seed=*/1);
+    assertTrue(counts[0] > counts[1]);
+    assertTrue(counts[1] > counts[10]);
+    assertTrue(counts[0] > SAMPLES / 5);
+  }
+
+  @Test
+  void testZipfianZeroExponentIsUniform() {
+    KeyDistribution.Zipfian zipfian = new KeyDistribution.Zipfian(KEY_COUNT, /*exponent=*/0);
+    assertEquals(0, zipfian.rank(0));
+    assertEquals(KEY_COUNT / 2, zipfian.rank(0.505));
+    assertEquals(KEY_COUNT - 1, zipfian.rank(0.9999));
+  }
+
+  @Test
+  void testHotSpot() {
+    int[] counts = histogram(new KeyDistribution.HotSpot(KEY_COUNT, /*hotSetFraction=*/0.1,
+            /*hotOpFraction=*/0.9), /*seed=*/1);
+    int hotAccesses = 0;
+    for (int i = 0; i < KEY_COUNT / 10; i++) {
+      hotAccesses += counts[i];
+    }
+    assertTrue(hotAccesses > SAMPLES * 0.88 && hotAccesses < SAMPLES * 0.92);
+  }
+
+  @Test
+  void testLatestFollowsWrites() {
+    KeyDistribution latest = new KeyDistribution.Latest(KEY_COUNT, /*exponent=*/2);
+    latest.recordWrite(42);
+    int[] counts = histogram(latest, /*seed=*/1);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      if (i != 42) {
+        assertTrue(counts[42] > counts[i]);
+      }
+    }
+  }
+
+  @Test
+  void testSampleDistinct() {
+    KeyDistribution zipfian = new KeyDistribution.Zipfian(KEY_COUNT, /*exponent=*/3);
+    Random rand = new Random(1);
+    int[] out = new int[KEY_COUNT];
+    for (int round = 0; round < 10; round++) {
+      zipfian.sampleDistinct(rand, out, KEY_COUNT);
+      boolean[] seen = new boolean[KEY_COUNT];
+      for (int idx : out) {
+        assertFalse(seen[idx]);
+        seen[idx] = true;
+      }
+    }
+    assertThrows(RuntimeException.class, () -> zipfian.sampleDistinct(rand, out, KEY_COUNT + 1));
+  }
+
+  @Test
+  void testDeterministic() {
+    Map<String, String> config = new HashMap<>(Map.of("keyDistribution", "zipfian",
+            "zipfianExponent", "0.8"));
+    int[] first = histogram(KeyDistribution.createFromConfig(config, KEY_COUNT), /*seed=*/7);
+    int[] second = histogram(KeyDistribution.createFromConfig(config, KEY_COUNT), /*seed=*/7);
+    assertArrayEquals(first, second);
+  }
+
+  @Test
+  void testCreateFromConfig() {
+    assertTrue(KeyDistribution.createFromConfig(new HashMap<>(), KEY_COUNT)
+            instanceof KeyDistribution.Uniform);
+    assertTrue(KeyDistribution.createFromConfig(Map.of("keyDistribution", "hotspot"), KEY_COUNT)
+            instanceof KeyDistribution.HotSpot);
+    assertTrue(KeyDistribution.createFromConfig(Map.of("keyDistribution", "latest"), KEY_COUNT)
+            instanceof KeyDistribution.Latest);
+    assertThrows(RuntimeException.class,
+            () -> KeyDistribution.createFromConfig(Map.of("keyDistribution", "gaussian"), KEY_COUNT));
+  }
+
+  @Test
+  void testPartition() {
+    int workerCount = 3;
+    int[] accessCount = new int[KEY_COUNT];
+    for (int worker = 0; worker < workerCount; worker++) {
+      for (int idx : KeyDistribution.partition(KEY_COUNT, worker, workerCount,
+              /*overlapFraction=*/0.1)) {
+        accessCount[idx]++;
+      }
+    }
+    // The first 10% of the keys are shared, every other key belongs to exactly one worker
+    for (int i = 0; i < KEY_COUNT; i++) {
+      assertEquals(i < KEY_COUNT / 10 ? workerCount : 1, accessCount[i]);
+    }
+    assertArrayEquals(KeyDistribution.partition(KEY_COUNT, /*workerIdx=*/1, workerCount,
+            /*overlapFraction=*/1), KeyDistribution.partition(KEY_COUNT, /*workerIdx=*/2,
+            workerCount, /*overlapFraction=*/1));
+    assertThrows(RuntimeException.class, () -> KeyDistribution.partition(KEY_COUNT,
+            /*workerIdx=*/3, workerCount, /*overlapFraction=*/0));
+    assertThrows(RuntimeException.class, () -> KeyDistribution.partition(/*keyCount=*/2,
+            /*workerIdx=*/0, workerCount, /*overlapFraction=*/0));
+  }
+
+  @Test
+  void testPartitionedStaysInPartition() {
+    Map<String, String> config = Map.of("keyDistribution", "zipfian", "partitioning",
+            "partitioned", "overlapFraction", "0");
+    KeyDistribution partitioned = KeyDistribution.createFromConfig(config, KEY_COUNT,
+            /*workerIdx=*/1, /*workerCount=*/4);
+    int partitionSize = KEY_COUNT / 4;
+    assertEquals(KEY_COUNT, partitioned.getKeyCount());
+    assertEquals(partitionSize, partitioned.getAccessibleKeyCount());
+    int[] counts = histogram(partitioned, /*seed=*/3);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      if (i < partitionSize || i >= 2 * partitionSize) {
+        assertEquals(0, counts[i]);
+      }
+    }
+    Random rand = new Random(5);
+    int[] out = new int[partitionSize];
+    partitioned.sampleDistinct(rand, out, partitionSize);
+    boolean[] seen = new boolean[KEY_COUNT];
+    for (int idx : out) {
+      assertTrue(idx >= partitionSize && idx < 2 * partitionSize);
+      assertFalse(seen[idx]);
+      seen[idx] = true;
+    }
+  }
+}
@@ -1,14 +1,18 @@
 package com.google.jepsenonspanner.loadgenerator;
 
+import com.google.jepsenonspanner.operation.OpRepresentation;
 import com.google.jepsenonspanner.operation.Operation;
 import com.google.jepsenonspanner.operation.ReadTransaction;
 import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.ScanReadTransaction;
 import com.google.jepsenonspanner.operation.TransactionalAction;
 import org.junit.jupiter.api.Test;
+import us.bpsm.edn.Keyword;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -41,6 +45,9 @@ class LinearizabilityLoadGeneratorTest {
       assertTrue(keys.size() <= KEYS.size());
     }
     assertTrue(KEYS.containsAll(keys));
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(":read :" + keys.get(i) + " nil", op.getRecordRepresentation().get(i).toString());
+    }
   }
 
   @Test
@@ -116,6 +123,157 @@ class LinearizabilityLoadGeneratorTest {
     checkTransactions(/*allowMultiKeys=*/true);
   }
 
+  @Test
+  void testCasOnly() {
+    LoadGenerator gen = new LinearizabilityLoadGenerator(OP_LIMIT, VALUE_LIMIT,
+            KEYS.toArray(new String[0]), /*allowMultiKeys=*/true,
+            new LinearizabilityLoadGenerator.Config(/*read=*/0, /*write=*/0, /*transaction=*/0,
+                    /*cas=*/1));
+    while (gen.hasLoad()) {
+      Operation op = gen.nextOperation();
+      assertTrue(op instanceof ReadWriteTransaction);
+      // CAS is always on a single key
+      List<TransactionalAction> actions = ((ReadWriteTransaction) op).getSpannerActions();
+      assertEquals(1, actions.size());
+      TransactionalAction cas = actions.get(0);
+      assertTrue(cas.isCompareAndSet());
+      assertTrue(KEYS.contains(cas.getKey()));
+      assertTrue(0 <= cas.getExpectedValue() && cas.getExpectedValue() <= VALUE_LIMIT);
+      assertTrue(1 <= cas.getValue() && cas.getValue() <= VALUE_LIMIT);
+      String representation = String.format(":cas :%s [%d %d]", cas.getKey(),
+              cas.getExpectedValue(), cas.getValue());
+      assertEquals(representation, op.getRecordRepresentation().get(0).toString());
+      // The history table stores the string, which must parse back to the same representation
+      assertEquals(representation,
+              OpRepresentation.createOtherRepresentation(representation).toString());
+    }
+  }
+
+  @Test
+  void testUniqueValues() {
+    List<Long> written = new ArrayList<>();
+    // Clients started as the only worker of their benchmark still write distinct values
+    for (int processID : new int[]{1, 2}) {
+      LoadGenerator gen = new LinearizabilityLoadGenerator(/*seed=*/0, /*opLimit=*/100,
+              VALUE_LIMIT, KEYS.toArray(new String[0]), /*allowMultiKeys=*/true,
+              new LinearizabilityLoadGenerator.Config(/*read=*/0, /*write=*/1, /*transaction=*/1,
+                      /*cas=*/1, /*scan=*/1), KeyDistribution.createUniform(KEYS.size()),
+              LinearizabilityLoadGenerator.ValueMode.UNIQUE, processID);
+      while (gen.hasLoad()) {
+        Operation op = gen.nextOperation();
+        if (!(op instanceof ReadWriteTransaction)) {
+          continue;
+        }
+        for (TransactionalAction action : ((ReadWriteTransaction) op).getSpannerActions()) {
+          if (action.isCompareAndSet()) {
+            // A compare-and-set expects a value this worker wrote before, if any
+            assertTrue(action.getExpectedValue() == 0 ||
+                    written.contains(action.getExpectedValue()));
+          }
+          if (!action.isRead() && !action.isScan()) {
+            written.add(action.getValue());
+          }
+        }
+      }
+    }
+    assertFalse(written.isEmpty());
+    assertEquals(written.size(), written.stream().distinct().count());
+  }
+
+  @Test
+  void testScanOnly() {
+    LoadGenerator gen = new LinearizabilityLoadGenerator(OP_LIMIT, VALUE_LIMIT,
+            KEYS.toArray(new String[0]), /*allowMultiKeys=*/true,
+            new LinearizabilityLoadGenerator.Config(/*read=*/0, /*write=*/0, /*transaction=*/0,
+                    /*cas=*/0, /*scan=*/1));
+    while (gen.hasLoad()) {
+      checkScan(gen.nextOperation());
+    }
+  }
+
+  /**
+   * Checks a range scan, with or without writes, and returns its start and end keys.
+   */
+  private String[] checkScan(Operation op) {
+    OpRepresentation scanRepr = op.getRecordRepresentation().get(0);
+    assertTrue(scanRepr.needsRangeUpdate());
+    String startKey;
+    String endKey;
+    if (op instanceof ScanReadTransaction) {
+      assertEquals(1, op.getRecordRepresentation().size());
+      startKey = ((ReadTransaction) op).getKeys().get(0);
+      endKey = ((ReadTransaction) op).getKeys().get(1);
+    } else {
+      // The scan comes before the writes of its transaction
+      List<TransactionalAction> actions = ((ReadWriteTransaction) op).getSpannerActions();
+      assertTrue(actions.get(0).isScan());
+      for (TransactionalAction action : actions.subList(1, actions.size())) {
+        assertFalse(action.isRead() || action.isScan());
+      }
+      startKey = actions.get(0).getKey();
+      endKey = actions.get(0).getEndKey();
+    }
+    assertTrue(startKey.compareTo(endKey) <= 0);
+    assertEquals(String.format(":scan :%s :%s nil", startKey, endKey), scanRepr.toString());
+    return new String[]{startKey, endKey};
+  }
+
+  @Test
+  void testPartitionedScan() {
+    // The keys are not in lexical order, so the partitions are not lexical ranges
+    String[] keys = {"f", "b", "k", "a", "h", "d", "l", "c", "i", "e", "g", "j"};
+    Map<String, String> config = Map.of("partitioning", "partitioned", "overlapFraction", "0");
+    int workerCount = 3;
+    for (int worker = 0; worker < workerCount; worker++) {
+      KeyDistribution keyDistribution = KeyDistribution.createFromConfig(config, keys.length,
+              worker, workerCount);
+      List<String> partition = new ArrayList<>();
+      for (int idx : KeyDistribution.partition(keys.length, worker, workerCount,
+              /*overlapFraction=*/0)) {
+        partition.add(keys[idx]);
+      }
+      LoadGenerator gen = new LinearizabilityLoadGenerator(/*seed=*/worker, /*opLimit=*/200,
+              VALUE_LIMIT, keys, /*allowMultiKeys=*/true,
+              new LinearizabilityLoadGenerator.Config(/*read=*/0, /*write=*/0,
+                      /*transaction=*/0, /*cas=*/0, /*scan=*/1), keyDistribution);
+      while (gen.hasLoad()) {
+        String[] range = checkScan(gen.nextOperation());
+        // Every key the scan covers belongs to this worker
+        for (String key : keys) {
+          if (key.compareTo(range[0]) >= 0 && key.compareTo(range[1]) <= 0) {
+            assertTrue(partition.contains(key), key + " scanned by worker " + worker);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testRangeUpdate() {
+    OpRepresentation repr = OpRepresentation.createRangeReadFromObjs(Arrays.asList(
+            Keyword.newKeyword("scan"), Keyword.newKeyword("b"), Keyword.newKeyword("d"), null));
+    // Keys outside of the range are left out, and the keys in it are sorted
+    repr.setRangeToUpdate(Map.of("a", 1L, "d", 4L, "b", 2L, "e", 5L));
+    assertEquals(":scan :b :d [[:b 2] [:d 4]]", repr.toString());
+    assertEquals(repr.toString(),
+            OpRepresentation.createOtherRepresentation(repr.toString()).toString());
+  }
+
+  @Test
+  void testSetOpRatios() {
+    LoadGenerator gen = new LinearizabilityLoadGenerator(OP_LIMIT, VALUE_LIMIT,
+            KEYS.toArray(new String[0]), /*allowMultiKeys=*/false,
+            new LinearizabilityLoadGenerator.Config(/*read=*/1, /*write=*/0, /*transaction=*/0,
+                    /*cas=*/0));
+    assertTrue(gen.nextOperation() instanceof ReadTransaction);
+    gen.setOpRatios(/*read=*/0, /*write=*/1, /*transaction=*/0, /*cas=*/0);
+    while (gen.hasLoad()) {
+      Operation op = gen.nextOperation();
+      assertTrue(op instanceof ReadWriteTransaction);
+      checkSingleWrite((ReadWriteTransaction) op, /*allowMultiKeys=*/false);
+    }
+  }
+
   @Test
   void testDeterministic() {
     int seed = new Random().nextInt();
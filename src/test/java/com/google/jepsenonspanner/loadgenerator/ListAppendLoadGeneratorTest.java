@@ -0,0 +1,86 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.ListAppendTransaction;
+import com.google.jepsenonspanner.operation.OpRepresentation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListAppendLoadGeneratorTest {
+  private static final int OP_LIMIT = 200;
+  private static final int MAX_TXN_LENGTH = 3;
+  private static final List<String> KEYS = Arrays.asList("x", "y", "z");
+
+  private static ListAppendLoadGenerator generator(int seed, int processID) {
+    return new ListAppendLoadGenerator(seed, OP_LIMIT, KEYS.toArray(new String[0]),
+            MAX_TXN_LENGTH, KeyDistribution.createUniform(KEYS.size()), processID);
+  }
+
+  @Test
+  void testTransactions() {
+    ListAppendLoadGenerator gen = generator(/*seed=*/1, /*processID=*/0);
+    int reads = 0;
+    int appends = 0;
+    for (int i = 0; i < OP_LIMIT; i++) {
+      ListAppendTransaction txn = (ListAppendTransaction) gen.nextOperation();
+      List<String> keys = txn.getKeys();
+      assertTrue(keys.size() >= 1 && keys.size() <= MAX_TXN_LENGTH);
+      assertTrue(KEYS.containsAll(keys));
+      for (int j = 0; j < keys.size(); j++) {
+        Long element = txn.getElements().get(j);
+        OpRepresentation repr = txn.getRecordRepresentation().get(j);
+        if (element == null) {
+          reads++;
+          assertTrue(repr.needsListUpdate());
+          assertEquals(":r :" + keys.get(j) + " nil", repr.toString());
+        } else {
+          appends++;
+          assertEquals(":append :" + keys.get(j) + " " + element, repr.toString());
+        }
+      }
+    }
+    assertFalse(gen.hasLoad());
+    assertTrue(reads > 0 && appends > 0);
+  }
+
+  @Test
+  void testUniqueElements() {
+    Set<Long> elements = new HashSet<>();
+    // Clients given the same seed still append different elements
+    for (int processID : new int[]{1, 2}) {
+      ListAppendLoadGenerator gen = generator(/*seed=*/1, processID);
+      while (gen.hasLoad()) {
+        for (Long element : ((ListAppendTransaction) gen.nextOperation()).getElements()) {
+          if (element != null) {
+            assertTrue(elements.add(element));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testListRead() {
+    ListAppendTransaction txn = new ListAppendTransaction(ListAppendLoadGenerator.LOAD_NAME,
+            Arrays.asList("x", "x"), Arrays.asList(3L, null));
+    txn.getRecordRepresentation().get(1).setListToUpdate(Arrays.asList(1L, 3L));
+    assertEquals("0txn [:append :x 3, :r :x [1 3]]", txn.toString());
+  }
+
+  @Test
+  void testNoOpRatios() {
+    // The list-append benchmark has no op ratio to change
+    RuntimeException e = assertThrows(RuntimeException.class,
+            () -> generator(/*seed=*/1, /*processID=*/0).setOpRatios(1, 1));
+    assertEquals("ListAppendLoadGenerator does not take op ratios, but was given [1, 1]",
+            e.getMessage());
+  }
+}
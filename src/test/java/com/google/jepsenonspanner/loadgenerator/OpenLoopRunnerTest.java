@@ -0,0 +1,201 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.client.Executor;
+import com.google.jepsenonspanner.operation.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenLoopRunnerTest {
+  private static final int OP_LIMIT = 20;
+  private static final long OP_MILLIS = 20;
+
+  /**
+   * Generates operations that are only ever carried out by a SleepSink.
+   */
+  static class SleepLoadGenerator extends LoadGenerator {
+    SleepLoadGenerator(int opLimit) {
+      super(opLimit);
+    }
+
+    @Override
+    public void setOpRatios(int... ratios) {}
+
+    @Override
+    public void checkOpRatios(int... ratios) {}
+
+    @Override
+    public Operation nextOperation() {
+      opLimit--;
+      return new Operation("sleep", Collections.emptyList()) {
+        @Override
+        public Consumer<Executor> getExecutionPlan() {
+          throw new UnsupportedOperationException("Sleep operations need no executor");
+        }
+      };
+    }
+  }
+
+  /**
+   * Carries out every operation by sleeping, so that the runner can be tested without a Spanner
+   * instance, and checks that no two operations in flight share a process ID.
+   */
+  static class SleepSink implements OpSink {
+    private final int processID;
+    // Process IDs with an operation in flight, shared by all sinks derived from the same one
+    private final Set<Integer> inFlight;
+    // Set if two operations in flight ever shared a process ID; an assertion would only fail the
+    // thread of the pool that ran the operation
+    private final AtomicBoolean shared;
+
+    SleepSink(int processID) {
+      this(processID, ConcurrentHashMap.newKeySet(), new AtomicBoolean(false));
+    }
+
+    private SleepSink(int processID, Set<Integer> inFlight, AtomicBoolean shared) {
+      this.processID = processID;
+      this.inFlight = inFlight;
+      this.shared = shared;
+    }
+
+    boolean sawSharedProcessID() {
+      return shared.get();
+    }
+
+    @Override
+    public void execute(Operation op) {
+      if (!inFlight.add(processID)) {
+        shared.set(true);
+      }
+      try {
+        Thread.sleep(OP_MILLIS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } finally {
+        inFlight.remove(processID);
+      }
+    }
+
+    @Override
+    public OpSink withProcessID(int processID) {
+      return new SleepSink(processID, inFlight, shared);
+    }
+
+    @Override
+    public int getProcessID() {
+      return processID;
+    }
+
+    @Override
+    public long getAbortCount() {
+      return 0;
+    }
+
+    @Override
+    public long getInfoCount() {
+      return 0;
+    }
+  }
+
+  @Test
+  void testNoBacklogWithEnoughCapacity() {
+    OpenLoopRunner runner = new OpenLoopRunner(OpenLoopRunner.Arrival.FIXED,
+            /*opsPerSecond=*/100, /*maxInFlight=*/OP_LIMIT);
+    SleepSink sink = new SleepSink(/*processID=*/1);
+    runner.run(new SleepLoadGenerator(OP_LIMIT), sink);
+    WorkloadStats stats = runner.getStats();
+    assertEquals(OP_LIMIT, stats.getCount());
+    assertEquals(0, stats.getBacklogOps());
+    // Operations run at the same time, each under the process ID of its slot
+    assertFalse(sink.sawSharedProcessID());
+  }
+
+  @Test
+  void testBacklogIsReportedAndCorrected() {
+    // One operation at a time, but the next one is due well before the previous finishes
+    OpenLoopRunner runner = new OpenLoopRunner(OpenLoopRunner.Arrival.FIXED,
+            /*opsPerSecond=*/200, /*maxInFlight=*/1);
+    runner.run(new SleepLoadGenerator(OP_LIMIT), new SleepSink(/*processID=*/1));
+    WorkloadStats stats = runner.getStats();
+    assertEquals(OP_LIMIT, stats.getCount());
+    assertTrue(stats.getBacklogOps() > 0);
+    // Response times include the time spent waiting in the backlog, service times do not
+    assertTrue(stats.serviceTimePercentile(100) < TimeUnit.MILLISECONDS.toNanos(OP_MILLIS * 3));
+    assertTrue(stats.responseTimePercentile(100) > TimeUnit.MILLISECONDS.toNanos(OP_MILLIS * 5));
+  }
+
+  @Test
+  void testPhasesEndTheRun() {
+    PhaseSchedule schedule = PhaseSchedule.parse("warmup 1 20 20; steady 1 50 50");
+    OpenLoopRunner runner = new OpenLoopRunner(OpenLoopRunner.Arrival.FIXED, schedule,
+            /*maxInFlight=*/OP_LIMIT);
+    long start = System.nanoTime();
+    runner.run(new SleepLoadGenerator(Integer.MAX_VALUE), new SleepSink(/*processID=*/1));
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue(elapsedMillis >= 1900 && elapsedMillis < 3000);
+
+    // Warm-up operations are only counted in their own phase
+    WorkloadStats warmUp = runner.getPhaseStats().get("warmup");
+    WorkloadStats steady = runner.getPhaseStats().get("steady");
+    assertEquals(20, warmUp.getCount());
+    assertEquals(50, steady.getCount());
+    assertEquals(50, runner.getStats().getCount());
+  }
+
+  @Test
+  void testPoissonIntervals() {
+    OpenLoopRunner runner = new OpenLoopRunner(OpenLoopRunner.Arrival.POISSON,
+            /*opsPerSecond=*/1000, /*maxInFlight=*/1);
+    long total = 0;
+    int samples = 10000;
+    for (int i = 0; i < samples; i++) {
+      total += runner.nextIntervalNanos(/*opsPerSecond=*/1000);
+    }
+    double meanMillis = total / (double) samples / 1e6;
+    assertTrue(meanMillis > 0.9 && meanMillis < 1.1);
+  }
+
+  @Test
+  void testInvalidConfig() {
+    assertThrows(RuntimeException.class, () -> new OpenLoopRunner(OpenLoopRunner.Arrival.FIXED,
+            /*opsPerSecond=*/0, /*maxInFlight=*/1));
+  }
+
+  @Test
+  void testOpRatiosCheckedBeforeRun() {
+    OpenLoopRunner runner = new OpenLoopRunner(OpenLoopRunner.Arrival.FIXED,
+            PhaseSchedule.parse("warmup 1 20 20; steady 1 50 50 1 1"), /*maxInFlight=*/OP_LIMIT);
+    ListAppendLoadGenerator gen = new ListAppendLoadGenerator(/*seed=*/0, OP_LIMIT,
+            new String[]{"x"}, /*maxTxnLength=*/1, KeyDistribution.createUniform(1),
+            /*processID=*/0);
+    assertThrows(RuntimeException.class, () -> runner.run(gen, new SleepSink(/*processID=*/1)));
+    // Nothing was issued before the schedule was rejected
+    assertEquals(0, runner.getStats().getCount());
+    assertTrue(runner.getPhaseStats().isEmpty());
+  }
+
+  @Test
+  void testSlotProcessIDs() {
+    // Slots of a worker, and slots of different workers, never share a process ID
+    Set<Integer> processIDs = new HashSet<>();
+    for (int processID = 1; processID <= 3; processID++) {
+      for (int slot = 0; slot < 16; slot++) {
+        assertTrue(processIDs.add(OpenLoopRunner.slotProcessID(processID, slot)));
+      }
+    }
+    assertEquals(2, OpenLoopRunner.slotProcessID(2, /*slot=*/0));
+    assertThrows(RuntimeException.class, () -> OpenLoopRunner.slotProcessID(
+            OpenLoopRunner.SLOT_PROCESS_ID_STRIDE, /*slot=*/0));
+  }
+}
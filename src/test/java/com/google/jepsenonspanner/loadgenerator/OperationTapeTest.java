@@ -0,0 +1,142 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.constants.BenchmarkTypes;
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationTapeTest {
+  private static final int OP_LIMIT = 200;
+  // The staleness a read prints before whether it is bounded or exact
+  private static final String STALENESS = " \\d+ (?=(bounded|exact)$)";
+
+  /**
+   * Issues a fixed list of operations, so that they can be compared with the replayed ones.
+   */
+  private static class ListLoadGenerator extends LoadGenerator {
+    private List<Operation> ops;
+
+    ListLoadGenerator(List<Operation> ops) {
+      super(ops.size());
+      this.ops = ops;
+    }
+
+    @Override
+    public Operation nextOperation() {
+      opLimit--;
+      return ops.get(ops.size() - opLimit - 1);
+    }
+  }
+
+  private List<Operation> generate(LoadGenerator gen) {
+    List<Operation> ops = new ArrayList<>();
+    while (gen.hasLoad()) {
+      ops.add(gen.nextOperation());
+    }
+    return ops;
+  }
+
+  private void checkReplay(List<Operation> ops) throws IOException {
+    File tape = File.createTempFile("tape", ".bin");
+    tape.deleteOnExit();
+    OperationTape.write(new ListLoadGenerator(ops), tape.getPath());
+
+    LoadGenerator replay = new TapeLoadGenerator(tape.getPath());
+    for (Operation op : ops) {
+      Operation replayed = replay.nextOperation();
+      assertEquals(op.getClass(), replayed.getClass());
+      if (op instanceof ReadTransaction) {
+        // A stale read stays stale, but its staleness is drawn again during the replay
+        int staleness = ((ReadTransaction) op).getStaleness();
+        int replayedStaleness = ((ReadTransaction) replayed).getStaleness();
+        assertEquals(staleness == 0, replayedStaleness == 0);
+        assertEquals(op.toString().replaceFirst(STALENESS, " "),
+                replayed.toString().replaceFirst(STALENESS, " "));
+      } else {
+        assertEquals(op.toString(), replayed.toString());
+      }
+      if (op instanceof ReadWriteTransaction) {
+        List<TransactionalAction> actions = ((ReadWriteTransaction) op).getSpannerActions();
+        List<TransactionalAction> replayedActions =
+                ((ReadWriteTransaction) replayed).getSpannerActions();
+        assertEquals(actions.toString(), replayedActions.toString());
+        for (int i = 0; i < actions.size(); i++) {
+          TransactionalAction dependent = actions.get(i).getDependentAction();
+          if (dependent != null) {
+            TransactionalAction replayedDependent = replayedActions.get(i).getDependentAction();
+            assertEquals(dependent.getDelta(), replayedDependent.getDelta());
+            assertEquals(dependent.isLedgerEntry(), replayedDependent.isLedgerEntry());
+            assertEquals(dependent.decideProceed(1), replayedDependent.decideProceed(1));
+          }
+        }
+      }
+    }
+    assertFalse(replay.hasLoad());
+  }
+
+  @Test
+  void testLinearizabilityReplay() throws IOException {
+    checkReplay(generate(new LinearizabilityLoadGenerator(OP_LIMIT, /*valueLimit=*/5,
+            new String[]{"x", "y", "z"}, /*allowMultiKeys=*/true,
+            new LinearizabilityLoadGenerator.Config(/*read=*/1, /*write=*/1, /*transaction=*/1,
+                    /*cas=*/1))));
+  }
+
+  @Test
+  void testScanReplay() throws IOException {
+    checkReplay(generate(new LinearizabilityLoadGenerator(OP_LIMIT, /*valueLimit=*/5,
+            new String[]{"x", "y", "z"}, /*allowMultiKeys=*/true,
+            new LinearizabilityLoadGenerator.Config(/*read=*/0, /*write=*/0, /*transaction=*/0,
+                    /*cas=*/0, /*scan=*/1))));
+  }
+
+  @Test
+  void testBankReplay() throws IOException {
+    checkReplay(generate(new BankLoadGenerator(OP_LIMIT, /*maxBalance=*/20, /*acctNumber=*/5)));
+  }
+
+  @Test
+  void testBankChecksumReplay() throws IOException {
+    checkReplay(generate(new BankLoadGenerator(OP_LIMIT, /*maxBalance=*/20, /*acctNumber=*/5,
+            new BankLoadGenerator.Config(1, 1, 1, 1), KeyDistribution.createUniform(5),
+            /*transferLegs=*/1, /*transferBatchSize=*/1, BankLoadGenerator.ReadMode.CHECKSUM,
+            /*readSampleSize=*/2, /*seed=*/0)));
+  }
+
+  @Test
+  void testBankLedgerReplay() throws IOException {
+    checkReplay(generate(new BankLoadGenerator(OP_LIMIT, /*maxBalance=*/20, /*acctNumber=*/5,
+            new BankLoadGenerator.Config(1, 0, 0, 1), KeyDistribution.createUniform(5),
+            /*transferLegs=*/1, /*transferBatchSize=*/1, BankLoadGenerator.ReadMode.FULL,
+            /*readSampleSize=*/0, /*ledger=*/true, /*seed=*/0)));
+  }
+
+  @Test
+  void testCanRecord() {
+    assertTrue(OperationTape.canRecord(BenchmarkTypes.BANK_TYPE));
+    assertTrue(OperationTape.canRecord(BenchmarkTypes.LINEARIZABILITY_TYPE));
+    assertTrue(OperationTape.canRecord(BenchmarkTypes.SESSION_TYPE));
+    assertFalse(OperationTape.canRecord(BenchmarkTypes.LIST_APPEND_TYPE));
+    assertFalse(OperationTape.canRecord(BenchmarkTypes.COUNTER_TYPE));
+  }
+
+  @Test
+  void testUnboundedGenerator() {
+    LoadGenerator gen = new LinearizabilityLoadGenerator(Integer.MAX_VALUE, /*valueLimit=*/5,
+            new String[]{"x"}, /*allowMultiKeys=*/false,
+            new LinearizabilityLoadGenerator.Config(1, 0, 0, 0));
+    assertThrows(RuntimeException.class, () -> OperationTape.write(gen, "unused"));
+  }
+}
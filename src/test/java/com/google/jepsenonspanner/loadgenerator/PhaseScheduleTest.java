@@ -0,0 +1,54 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhaseScheduleTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void testParse() {
+    PhaseSchedule schedule = PhaseSchedule.parse("warmup 10 5 5; ramp 20 5 105 ;steady 30 100 " +
+            "100 1 2 3 0");
+    assertEquals(0, schedule.phaseIndexAt(0));
+    assertEquals(1, schedule.phaseIndexAt(10 * SECOND));
+    assertEquals(2, schedule.phaseIndexAt(59 * SECOND));
+    assertEquals(-1, schedule.phaseIndexAt(60 * SECOND));
+
+    assertTrue(schedule.getPhase(0).isWarmUp());
+    assertFalse(schedule.getPhase(1).isWarmUp());
+    assertNull(schedule.getPhase(1).getOpRatios());
+    assertArrayEquals(new int[] {1, 2, 3, 0}, schedule.getPhase(2).getOpRatios());
+  }
+
+  @Test
+  void testRamp() {
+    PhaseSchedule schedule = PhaseSchedule.parse("warmup 10 5 5; ramp 20 5 105");
+    assertEquals(5.0, schedule.opsPerSecondAt(3 * SECOND));
+    assertEquals(5.0, schedule.opsPerSecondAt(10 * SECOND));
+    assertEquals(55.0, schedule.opsPerSecondAt(20 * SECOND));
+    assertEquals(100.0, schedule.opsPerSecondAt(29 * SECOND));
+  }
+
+  @Test
+  void testConstant() {
+    PhaseSchedule schedule = PhaseSchedule.constant(42);
+    assertEquals(0, schedule.phaseIndexAt(Long.MAX_VALUE - 1));
+    assertEquals(42.0, schedule.opsPerSecondAt(1000 * SECOND));
+  }
+
+  @Test
+  void testInvalid() {
+    assertThrows(RuntimeException.class, () -> PhaseSchedule.parse("steady 10 5"));
+    assertThrows(RuntimeException.class, () -> PhaseSchedule.parse("steady 0 5 5"));
+    assertThrows(RuntimeException.class, () -> PhaseSchedule.parse("steady 10 0 5"));
+  }
+}
@@ -0,0 +1,50 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionLoadGeneratorTest {
+  private static final int OP_LIMIT = 100;
+  private static final List<String> KEYS = Arrays.asList("x", "y");
+
+  @Test
+  void testLoads() {
+    SessionLoadGenerator gen = new SessionLoadGenerator(/*seed=*/1, OP_LIMIT,
+            KEYS.toArray(new String[0]), new SessionLoadGenerator.Config(1, 1, 1),
+            KeyDistribution.createUniform(KEYS.size()));
+    int writes = 0;
+    int staleReads = 0;
+    for (int seq = 0; gen.hasLoad(); seq++) {
+      Operation op = gen.nextOperation();
+      // Every load carries the next sequence number of the worker
+      assertEquals(":seq " + seq, op.getRecordRepresentation().get(0).toString());
+      if (op instanceof ReadWriteTransaction) {
+        writes++;
+        TransactionalAction read = ((ReadWriteTransaction) op).getSpannerActions().get(0);
+        assertEquals(1L, (long) read.getDependentAction().getDelta());
+        assertEquals(":read :" + read.getKey() + " nil",
+                op.getRecordRepresentation().get(1).toString());
+        assertEquals(":write :" + read.getKey(), op.getRecordRepresentation().get(2).toString());
+      } else {
+        ReadTransaction read = (ReadTransaction) op;
+        assertEquals(1, read.getKeys().size());
+        if (read.getStaleness() > 0) {
+          staleReads++;
+          assertEquals(SessionLoadGenerator.STALE_READ_LOAD_NAME, read.getLoadName());
+        } else {
+          assertEquals(SessionLoadGenerator.READ_LOAD_NAME, read.getLoadName());
+        }
+      }
+    }
+    assertTrue(writes > 0 && staleReads > 0);
+  }
+}
@@ -0,0 +1,64 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.SetAddTransaction;
+import com.google.jepsenonspanner.operation.SetReadTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetLoadGeneratorTest {
+  private static final int OP_LIMIT = 100;
+  private static final int SAMPLE_SIZE = 4;
+
+  @Test
+  void testLoads() {
+    SetLoadGenerator gen = new SetLoadGenerator(/*seed=*/1, OP_LIMIT,
+            new SetLoadGenerator.Config(2, 1, 1, 1), SAMPLE_SIZE, /*workerIdx=*/1,
+            /*processIDs=*/new int[]{4, 7, 10});
+    Set<Long> elements = new HashSet<>();
+    int reads = 0;
+    for (int i = 1; i < OP_LIMIT; i++) {
+      Operation op = gen.nextOperation();
+      if (op instanceof SetAddTransaction) {
+        long element = ((SetAddTransaction) op).getElement();
+        assertTrue(elements.add(element));
+        assertEquals(LoadGenerator.processTag(7), element & ~0xffffffffL);
+        assertEquals(":add " + element, op.getRecordRepresentation().get(0).toString());
+      } else {
+        reads++;
+        ReadTransaction read = (ReadTransaction) op;
+        long first = Long.parseLong(read.getKeys().get(0));
+        long last = Long.parseLong(read.getKeys().get(1));
+        // A sample covers the elements of one of the clients of the benchmark
+        assertEquals(SAMPLE_SIZE - 1, last - first);
+        assertEquals(first >>> Integer.SIZE, last >>> Integer.SIZE);
+        assertTrue(Arrays.asList(5L, 8L, 11L).contains(first >>> Integer.SIZE));
+        assertEquals(String.format(":read %d %d nil", first, last),
+                read.getRecordRepresentation().get(0).toString());
+      }
+    }
+    assertTrue(reads > 0 && !elements.isEmpty());
+
+    // The last load reads the whole set
+    ReadTransaction finalRead = (ReadTransaction) gen.nextOperation();
+    assertEquals(0, finalRead.getStaleness());
+    assertEquals(Arrays.asList("0", String.valueOf(Long.MAX_VALUE)), finalRead.getKeys());
+    assertFalse(gen.hasLoad());
+  }
+
+  @Test
+  void testReadRepresentation() {
+    SetReadTransaction read = new SetReadTransaction(SetLoadGenerator.READ_LOAD_NAME, 1, 8,
+            /*staleness=*/0, /*bounded=*/false);
+    read.getRecordRepresentation().get(0).setListToUpdate(Arrays.asList(2L, 5L));
+    assertEquals("1read [:read 1 8 [2 5]] 0 exact", read.toString());
+  }
+}
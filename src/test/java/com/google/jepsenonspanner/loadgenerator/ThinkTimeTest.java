@@ -0,0 +1,62 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThinkTimeTest {
+  private static final int SAMPLES = 10000;
+
+  private double averageMillis(ThinkTime thinkTime) {
+    double sum = 0;
+    for (int i = 0; i < SAMPLES; i++) {
+      long nanos = thinkTime.getAsLong();
+      assertTrue(nanos >= 0);
+      sum += nanos;
+    }
+    return sum / SAMPLES / 1e6;
+  }
+
+  @Test
+  void testNone() {
+    ThinkTime thinkTime = ThinkTime.createFromConfig(Map.of());
+    assertTrue(thinkTime.isNone());
+    assertEquals(0, thinkTime.getAsLong());
+  }
+
+  @Test
+  void testFixed() {
+    ThinkTime thinkTime = ThinkTime.createFromConfig(Map.of("thinkTime", "fixed",
+            "thinkTimeMillis", "2.5"));
+    assertFalse(thinkTime.isNone());
+    assertEquals(2500000, thinkTime.getAsLong());
+  }
+
+  @Test
+  void testUniform() {
+    ThinkTime thinkTime = new ThinkTime(ThinkTime.Distribution.UNIFORM, /*meanMillis=*/4);
+    for (int i = 0; i < SAMPLES; i++) {
+      assertTrue(thinkTime.getAsLong() <= 8000000);
+    }
+    assertEquals(4, averageMillis(thinkTime), 0.2);
+  }
+
+  @Test
+  void testExponential() {
+    ThinkTime thinkTime = new ThinkTime(ThinkTime.Distribution.EXPONENTIAL, /*meanMillis=*/4);
+    assertEquals(4, averageMillis(thinkTime), 0.4);
+  }
+
+  @Test
+  void testInvalid() {
+    assertThrows(RuntimeException.class,
+            () -> ThinkTime.createFromConfig(Map.of("thinkTime", "gaussian")));
+    assertThrows(RuntimeException.class,
+            () -> new ThinkTime(ThinkTime.Distribution.FIXED, /*meanMillis=*/-1));
+  }
+}
@@ -0,0 +1,114 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceLoadGeneratorTest {
+  private static final String[] KEYS = {"a", "b", "c", "d"};
+  private static final String TRACE =
+          "# recorded by the frontend\n" +
+          "1000 read user:1 user:2\n" +
+          "\n" +
+          "1500 write user:1=7\n" +
+          "3000 txn user:2 user:3=9\n" +
+          "4000 read user:1";
+
+  private static String writeTrace(String trace) throws IOException {
+    File file = File.createTempFile("trace", ".txt");
+    file.deleteOnExit();
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write(trace);
+    }
+    return file.getPath();
+  }
+
+  private static List<Operation> replay(TraceLoadGenerator gen) {
+    List<Operation> ops = new ArrayList<>();
+    while (gen.hasLoad()) {
+      ops.add(gen.nextOperation());
+    }
+    return ops;
+  }
+
+  @Test
+  void testReplay() throws IOException {
+    TraceLoadGenerator gen = new TraceLoadGenerator(writeTrace(TRACE), KEYS,
+            /*opLimit=*/Integer.MAX_VALUE, /*speedup=*/2, /*workerIdx=*/0, /*workerCount=*/1);
+    assertTrue(gen.hasLoad());
+    ReadTransaction read = (ReadTransaction) gen.nextOperation();
+    assertEquals(0, gen.getOffsetNanos());
+    ReadWriteTransaction write = (ReadWriteTransaction) gen.nextOperation();
+    // 500 us in the trace, replayed twice as fast
+    assertEquals(250_000, gen.getOffsetNanos());
+    ReadWriteTransaction txn = (ReadWriteTransaction) gen.nextOperation();
+    ReadTransaction lastRead = (ReadTransaction) gen.nextOperation();
+    assertFalse(gen.hasLoad());
+
+    // The same trace key always maps to the same key
+    String user1 = write.getSpannerActions().get(0).getKey();
+    assertEquals(user1, lastRead.getKeys().get(0));
+    assertTrue(read.getKeys().contains(user1));
+    assertEquals(7, write.getSpannerActions().get(0).getValue());
+    assertEquals(read.getKeys().size(), read.getRecordRepresentation().size());
+
+    List<TransactionalAction> actions = txn.getSpannerActions();
+    assertEquals(2, actions.size());
+    assertTrue(actions.get(0).isRead());
+    assertFalse(actions.get(1).isRead());
+    assertEquals(9, actions.get(1).getValue());
+    assertEquals(String.format("[:read :%s nil, :write :%s 9]", actions.get(0).getKey(),
+            actions.get(1).getKey()), txn.getRecordRepresentation().toString());
+  }
+
+  @Test
+  void testWorkersSplitTrace() throws IOException {
+    String path = writeTrace(TRACE);
+    List<Operation> all = replay(new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0, 1));
+    List<Operation> first = replay(new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0, 2));
+    List<Operation> second = replay(new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 1,
+            2));
+    assertEquals(2, first.size());
+    assertEquals(2, second.size());
+    assertEquals(all.get(0).toString(), first.get(0).toString());
+    assertEquals(all.get(1).toString(), second.get(0).toString());
+    assertEquals(all.get(3).toString(), second.get(1).toString());
+
+    assertEquals(3, replay(new TraceLoadGenerator(path, KEYS, /*opLimit=*/3, 1, 0, 1)).size());
+  }
+
+  @Test
+  void testSlidingWindow() throws IOException {
+    String path = writeTrace(TRACE);
+    List<Operation> all = replay(new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0, 1));
+    // The window is mapped again at most lines
+    List<Operation> windowed = replay(new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0,
+            1, /*windowSize=*/32));
+    assertEquals(all.toString(), windowed.toString());
+    assertThrows(RuntimeException.class,
+            () -> new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0, 1, 8));
+  }
+
+  @Test
+  void testInvalidEntries() throws IOException {
+    for (String trace : new String[]{"1000 scan a", "1000 read a=1", "1000 write a", "x read a",
+            "1000 read"}) {
+      String path = writeTrace(trace);
+      assertThrows(RuntimeException.class,
+              () -> new TraceLoadGenerator(path, KEYS, Integer.MAX_VALUE, 1, 0, 1));
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkloadStatsTest {
+
+  @Test
+  void testPercentiles() {
+    WorkloadStats stats = new WorkloadStats();
+    for (int i = 1; i <= 100; i++) {
+      // Each operation was due 10 nanoseconds before it could start
+      stats.record(/*intendedStartNanos=*/i * 1000, /*actualStartNanos=*/i * 1000 + 10,
+              /*endNanos=*/i * 1000 + 10 + i);
+    }
+    assertEquals(100, stats.getCount());
+    assertEquals(50, stats.serviceTimePercentile(50));
+    assertEquals(99, stats.serviceTimePercentile(99));
+    assertEquals(100, stats.serviceTimePercentile(100));
+    assertEquals(60, stats.responseTimePercentile(50));
+    assertEquals(110, stats.responseTimePercentile(100));
+  }
+
+  @Test
+  void testEmpty() {
+    WorkloadStats stats = new WorkloadStats();
+    assertEquals(0, stats.serviceTimePercentile(99));
+    assertEquals(0.0, stats.throughput());
+  }
+
+  @Test
+  void testBacklog() {
+    WorkloadStats stats = new WorkloadStats();
+    stats.recordBacklog(1);
+    stats.recordBacklog(3);
+    stats.recordBacklog(2);
+    assertEquals(3, stats.getBacklogOps());
+    assertEquals(3, stats.getMaxBacklogDepth());
+  }
+
+  @Test
+  void testLockHold() {
+    WorkloadStats stats = new WorkloadStats();
+    assertEquals(0, stats.lockHoldPercentile(50));
+    for (int i = 1; i <= 2000; i++) {
+      stats.recordLockHold(i);
+    }
+    // Lock-hold times are kept apart from operation latencies
+    assertEquals(0, stats.getCount());
+    assertEquals(1000, stats.lockHoldPercentile(50));
+    assertEquals(2000, stats.lockHoldPercentile(100));
+  }
+
+  @Test
+  void testReadAge() {
+    WorkloadStats stats = new WorkloadStats();
+    for (int i = 1; i <= 100; i++) {
+      stats.recordReadAge(i * 1000);
+    }
+    assertEquals(0, stats.getCount());
+    assertEquals(50000, stats.readAgePercentile(50));
+    assertEquals(0, stats.lockHoldPercentile(50));
+
+    // Reads timestamped after they were sent by the client clock are kept
+    stats.recordReadAge(-5000);
+    assertEquals(-5000, stats.readAgePercentile(0));
+  }
+}
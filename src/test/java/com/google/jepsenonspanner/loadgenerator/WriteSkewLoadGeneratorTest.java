@@ -0,0 +1,91 @@
+package com.google.jepsenonspanner.loadgenerator;
+
+import com.google.jepsenonspanner.operation.Operation;
+import com.google.jepsenonspanner.operation.ReadTransaction;
+import com.google.jepsenonspanner.operation.ReadWriteTransaction;
+import com.google.jepsenonspanner.operation.TransactionalAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteSkewLoadGeneratorTest {
+  private static final int OP_LIMIT = 100;
+  private static final int MAX_AMOUNT = 3;
+  private static final List<String> KEYS = Arrays.asList("a", "b", "c", "d");
+
+  private static WriteSkewLoadGenerator createGenerator(int... ratios) {
+    return new WriteSkewLoadGenerator(/*seed=*/1, OP_LIMIT, KEYS.toArray(new String[0]),
+            new WriteSkewLoadGenerator.Config(ratios), MAX_AMOUNT,
+            KeyDistribution.createUniform(KEYS.size() / 2));
+  }
+
+  /**
+   * Returns the other key of the pair of the given key.
+   */
+  private static String partner(String key) {
+    return KEYS.get(KEYS.indexOf(key) ^ 1);
+  }
+
+  @Test
+  void testLoads() {
+    WriteSkewLoadGenerator gen = createGenerator(1, 1, 1);
+    int withdrawals = 0;
+    int deposits = 0;
+    while (gen.hasLoad()) {
+      Operation op = gen.nextOperation();
+      if (op instanceof ReadTransaction) {
+        List<String> keys = ((ReadTransaction) op).getKeys();
+        assertEquals(2, keys.size());
+        assertEquals(partner(keys.get(0)), keys.get(1));
+        continue;
+      }
+      List<TransactionalAction> actions = ((ReadWriteTransaction) op).getSpannerActions();
+      if (op.getLoadName().equals(WriteSkewLoadGenerator.WITHDRAW_LOAD_NAME)) {
+        withdrawals++;
+        assertEquals(3, actions.size());
+        String target = actions.get(0).getKey();
+        assertEquals(partner(target), actions.get(1).getKey());
+        TransactionalAction write = actions.get(2);
+        assertEquals(target, write.getKey());
+        assertEquals(Arrays.asList(actions.get(0), actions.get(1)), write.getDependsOn());
+        assertTrue(op.getRecordRepresentation().get(2).toString().startsWith(
+                ":withdraw :" + target + " "));
+      } else {
+        deposits++;
+        assertEquals(1, actions.size());
+        long amount = actions.get(0).getDependentAction().getDelta();
+        assertTrue(amount >= 1 && amount <= MAX_AMOUNT);
+        assertEquals(String.format(":deposit :%s %d", actions.get(0).getKey(), amount),
+                op.getRecordRepresentation().get(1).toString());
+      }
+    }
+    assertTrue(withdrawals > 0 && deposits > 0);
+  }
+
+  @Test
+  void testWithdrawKeepsInvariant() {
+    WriteSkewLoadGenerator gen = createGenerator(1, 0, 0);
+    ReadWriteTransaction withdraw = (ReadWriteTransaction) gen.nextOperation();
+    TransactionalAction write = withdraw.getSpannerActions().get(2);
+    String repr = withdraw.getRecordRepresentation().get(2).toString();
+    long amount = Long.parseLong(repr.substring(repr.lastIndexOf(' ') + 1));
+    // Proceeds only if the sum of the pair covers the amount
+    assertTrue(write.decideProceed(new long[] {0, amount}));
+    assertFalse(write.decideProceed(new long[] {amount, -1}));
+    write.findDependentValue(new long[] {1, amount});
+    assertEquals(1 - amount, write.getValue());
+  }
+
+  @Test
+  void testInvalidConfig() {
+    assertThrows(RuntimeException.class, () -> new WriteSkewLoadGenerator(/*seed=*/1, OP_LIMIT,
+            KEYS.toArray(new String[0]), new WriteSkewLoadGenerator.Config(1, 1, 1), MAX_AMOUNT,
+            KeyDistribution.createUniform(KEYS.size())));
+  }
+}
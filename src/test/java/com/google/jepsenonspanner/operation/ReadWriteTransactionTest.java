@@ -0,0 +1,68 @@
+package com.google.jepsenonspanner.operation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReadWriteTransactionTest {
+
+  @Test
+  void testLevels() {
+    // Read x and y, then write their sum to z and add 1 to x
+    TransactionalAction readX = TransactionalAction.createTransactionalRead("x");
+    TransactionalAction readY = TransactionalAction.createTransactionalRead("y");
+    TransactionalAction incrementX = TransactionalAction.createDependentTransactionalDelta("x", 1);
+    readX.setDependentAction(incrementX);
+    TransactionalAction writeSum = TransactionalAction.createDependentTransactionalWrite("z",
+            Arrays.asList(readX, readY), values -> values[0] + values[1], /*decideProceed=*/null);
+    TransactionalAction writeAfterSum = TransactionalAction.createDependentTransactionalWrite("w",
+            Arrays.asList(writeSum), values -> 0, values -> true);
+
+    ReadWriteTransaction.ActionGraph graph = new ReadWriteTransaction.ActionGraph(
+            Arrays.asList(readX, readY, writeSum, writeAfterSum));
+    assertEquals(Arrays.asList(Arrays.asList(readX, readY), Arrays.asList(incrementX, writeSum),
+            Arrays.asList(writeAfterSum)), graph.getLevels());
+
+    Map<TransactionalAction, Long> results = new IdentityHashMap<>();
+    results.put(readX, 3L);
+    results.put(readY, 4L);
+    assertNull(graph.dependOnValues(readY, results));
+    assertArrayEquals(new long[]{3}, graph.dependOnValues(incrementX, results));
+    long[] dependOn = graph.dependOnValues(writeSum, results);
+    assertArrayEquals(new long[]{3, 4}, dependOn);
+    writeSum.findDependentValue(dependOn);
+    assertEquals(7, writeSum.getValue());
+  }
+
+  @Test
+  void testDependencyOutsideTransaction() {
+    TransactionalAction readX = TransactionalAction.createTransactionalRead("x");
+    TransactionalAction write = TransactionalAction.createDependentTransactionalWrite("z",
+            Arrays.asList(readX), values -> values[0], /*decideProceed=*/null);
+    assertThrows(RuntimeException.class,
+            () -> new ReadWriteTransaction.ActionGraph(Arrays.asList(write, readX)));
+  }
+
+  @Test
+  void testGroupStatements() {
+    TransactionalAction readX = TransactionalAction.createTransactionalRead("x");
+    TransactionalAction readY = TransactionalAction.createTransactionalRead("y");
+    TransactionalAction writeX = TransactionalAction.createTransactionalWrite("x", 1);
+    TransactionalAction casY = TransactionalAction.createTransactionalCompareAndSet("y", 0, 1);
+    TransactionalAction writeY = TransactionalAction.createTransactionalWrite("y", 2);
+    TransactionalAction scan = TransactionalAction.createTransactionalScan("a", "z");
+    TransactionalAction readZ = TransactionalAction.createTransactionalRead("z");
+    List<List<TransactionalAction>> groups = ReadWriteTransaction.ActionGraph.groupStatements(
+            Arrays.asList(readX, readY, writeX, casY, writeY, scan, readZ));
+    assertEquals(Arrays.asList(Arrays.asList(readX, readY), Arrays.asList(writeX, casY),
+            Arrays.asList(writeY), Arrays.asList(scan), Arrays.asList(readZ)), groups);
+  }
+}
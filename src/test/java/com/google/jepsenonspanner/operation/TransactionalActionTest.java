@@ -2,6 +2,8 @@ package com.google.jepsenonspanner.operation;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -42,4 +44,42 @@ class TransactionalActionTest {
     assertEquals(DEPENDENT_WRITE.toString(), STRONG_READ.getDependentAction().toString());
     STRONG_READ.setDependentAction(null);
   }
+
+  @Test
+  void dependentDelta() {
+    TransactionalAction withdraw = TransactionalAction.createDependentTransactionalDelta(KEY, -VALUE);
+    assertTrue(withdraw.isDependent());
+    assertEquals(-VALUE, (long) withdraw.getDelta());
+    assertTrue(withdraw.decideProceed(VALUE));
+    assertFalse(withdraw.decideProceed(ZERO));
+    withdraw.findDependentValue(VALUE);
+    assertEquals(ZERO, withdraw.getValue());
+
+    TransactionalAction deposit = TransactionalAction.createDependentTransactionalDelta(KEY, VALUE);
+    assertTrue(deposit.decideProceed(ZERO));
+    deposit.findDependentValue(ZERO);
+    assertEquals(VALUE, deposit.getValue());
+    assertFalse(STRONG_READ.isDependent());
+  }
+
+  @Test
+  void dependsOnSeveral() {
+    TransactionalAction readOther = TransactionalAction.createTransactionalRead("OTHER");
+    TransactionalAction sum = TransactionalAction.createDependentTransactionalWrite(KEY,
+            Arrays.asList(STRONG_READ, readOther), values -> values[0] + values[1],
+            values -> values[0] + values[1] > 0);
+    assertTrue(sum.isDependent());
+    assertEquals(Arrays.asList(STRONG_READ, readOther), sum.getDependsOn());
+    assertTrue(sum.decideProceed(new long[]{VALUE, ZERO}));
+    assertFalse(sum.decideProceed(new long[]{ZERO, ZERO}));
+    sum.findDependentValue(new long[]{VALUE, VALUE});
+    assertEquals(VALUE + VALUE, sum.getValue());
+
+    // A single dependent takes the only value
+    TransactionalAction withdraw = TransactionalAction.createDependentTransactionalDelta(KEY, -VALUE);
+    assertFalse(withdraw.decideProceed(new long[]{ZERO}));
+    withdraw.findDependentValue(new long[]{VALUE});
+    assertEquals(ZERO, withdraw.getValue());
+    assertTrue(STRONG_READ.getDependsOn().isEmpty());
+  }
 }
@@ -154,4 +154,79 @@ class BankVerifierTest {
             "{:type :ok, :f :read, :value [[\"0\" 5] [\"1\" 35]], :process 0}]";
     assertTrue(verifier.verify(new StringReader(input), state));
   }
+
+  @Test
+  void testVerifyValidMultiLegBatchedTransfer() {
+    state.put("2", 20L);
+    state.put("3", 20L);
+    String input = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 5 \"2\" 15] " +
+            "[\"3\" \"1\" 10]], :process 0}" +
+            "{:type :ok, :f :transfer, :value [[\"0\" \"1\" 5 \"2\" 15] " +
+            "[\"3\" \"1\" 10]], :process 0}" +
+            "{:type :invoke, :f :read, :value [[\"0\" nil] [\"1\" nil] [\"2\" nil] " +
+            "[\"3\" nil]], :process 0}" +
+            "{:type :ok, :f :read, :value [[\"0\" 0] [\"1\" 35] [\"2\" 35] [\"3\" 10]], " +
+            ":process 0}]";
+    assertTrue(verifier.verify(new StringReader(input), state));
+  }
+
+  @Test
+  void testVerifyInvalidMultiLegTransfer() {
+    // Each leg is covered, but not the sum of them
+    state.put("2", 20L);
+    String input = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 15 \"2\" 15]], " +
+            ":process 0}" +
+            "{:type :ok, :f :transfer, :value [[\"0\" \"1\" 15 \"2\" 15]], :process 0}]";
+    assertFalse(verifier.verify(new StringReader(input), state));
+  }
+
+  @Test
+  void testVerifyFailedBatchedTransfer() {
+    // The batch fails as a whole if one of its transfers cannot be covered
+    String validInput = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 5] " +
+            "[\"1\" \"0\" 25]], :process 0}" +
+            "{:type :fail, :f :transfer, :value [[\"0\" \"1\" 5] [\"1\" \"0\" 25]], " +
+            ":process 0}]";
+    assertTrue(verifier.verify(new StringReader(validInput), state));
+
+    String invalidInput = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 5] " +
+            "[\"1\" \"0\" 15]], :process 0}" +
+            "{:type :fail, :f :transfer, :value [[\"0\" \"1\" 5] [\"1\" \"0\" 15]], " +
+            ":process 0}]";
+    assertFalse(new BankVerifier().verify(new StringReader(invalidInput), state));
+  }
+
+  @Test
+  void testVerifyChecksum() {
+    String input = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 5]], :process 0}" +
+            "{:type :ok, :f :transfer, :value [[\"0\" \"1\" 5]], :process 0}" +
+            "{:type :invoke, :f :checksum, :value [[:sum nil] [:count nil] [\"1\" nil]], " +
+            ":process 0}" +
+            "{:type :ok, :f :checksum, :value [[:sum 40] [:count 2] [\"1\" 25]], :process 0}]";
+    assertTrue(verifier.verify(new StringReader(input), state));
+  }
+
+  @Test
+  void testVerifyInvalidChecksumSum() {
+    String input = "[{:type :invoke, :f :checksum, :value [[:sum nil] [:count nil]], :process 0}" +
+            "{:type :ok, :f :checksum, :value [[:sum 39] [:count 2]], :process 0}]";
+    assertFalse(verifier.verify(new StringReader(input), state));
+  }
+
+  @Test
+  void testVerifyInvalidChecksumCount() {
+    String input = "[{:type :invoke, :f :checksum, :value [[:sum nil] [:count nil]], :process 0}" +
+            "{:type :ok, :f :checksum, :value [[:sum 40] [:count 3]], :process 0}]";
+    assertFalse(verifier.verify(new StringReader(input), state));
+  }
+
+  @Test
+  void testVerifyInvalidChecksumSample() {
+    String input = "[{:type :invoke, :f :transfer, :value [[\"0\" \"1\" 5]], :process 0}" +
+            "{:type :ok, :f :transfer, :value [[\"0\" \"1\" 5]], :process 0}" +
+            "{:type :invoke, :f :checksum, :value [[:sum nil] [:count nil] [\"0\" nil]], " +
+            ":process 0}" +
+            "{:type :ok, :f :checksum, :value [[:sum 40] [:count 2] [\"0\" 20]], :process 0}]";
+    assertFalse(verifier.verify(new StringReader(input), state));
+  }
 }
@@ -0,0 +1,69 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.history;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.ok;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.record;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterVerifierTest {
+  private static Map<String, Long> initialState = Map.of("x", 10L);
+
+  private boolean verify(String... records) {
+    return new CounterVerifier().verify(history(records), initialState);
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(
+            ok("[:add :x 3]", 10),
+            ok("[:add :x 2]", 20),
+            ok("[:add :y 4]", 20),
+            // A stale read before both increments, and reads after each of them
+            ok("[:read :x 10]", 5),
+            ok("[:read :x 13]", 15),
+            ok("[:read :x 15]", 20),
+            ok("[:read :y 4]", 30)));
+  }
+
+  @Test
+  void testMissingIncrement() {
+    assertFalse(verify(ok("[:add :x 3]", 10), ok("[:read :x 10]", 15)));
+  }
+
+  @Test
+  void testIncrementSeenEarly() {
+    assertFalse(verify(ok("[:add :x 3]", 10), ok("[:read :x 13]", 5)));
+  }
+
+  @Test
+  void testUnknownIncrements() {
+    String unknownIncrements = record("info", "[:add :x 4]", 10) +
+            record("info", "[:add :x -1]", 10) +
+            record("info", "[:read :x nil]", 12);
+    // Any of the increments of unknown outcome may have taken effect
+    assertTrue(verify(unknownIncrements, ok("[:add :x 3]", 10), ok("[:read :x 12]", 15)));
+    assertTrue(verify(unknownIncrements, ok("[:add :x 3]", 10), ok("[:read :x 17]", 15)));
+    assertFalse(verify(unknownIncrements, ok("[:add :x 3]", 10), ok("[:read :x 18]", 15)));
+    assertFalse(verify(unknownIncrements, ok("[:add :x 3]", 10), ok("[:read :x 11]", 15)));
+  }
+
+  @Test
+  void testUnknownIncrementOnlyAfterInvoke() {
+    // An increment of unknown outcome cannot have taken effect before it was invoked
+    String invoke = record("invoke", "txn", /*process=*/2, "[:add :x 5]", 12);
+    String info = record("info", "txn", /*process=*/2, "[:add :x 5]", 20);
+    assertFalse(verify(ok("[:read :x 15]", 10), invoke, info));
+    assertTrue(verify(ok("[:read :x 10]", 10), invoke, info));
+    assertTrue(verify(invoke, ok("[:read :x 15]", 15), info));
+  }
+
+  @Test
+  void testFailedIncrement() {
+    assertFalse(verify(record("fail", "[:add :x 3]", 10), ok("[:read :x 13]", 15)));
+  }
+}
@@ -64,6 +64,30 @@ class ExternalConsistencyVerifierTest {
     assertFalse(stringAsReadableHelper(input));
   }
 
+  @Test
+  void testInvalidAbnormalScanHistory() {
+    // Same as testInvalidAbnormalReadHistory, with the reads done by range scans
+    String input =
+            "[{:type :invoke, :f :txn, :value [[:scan :x :x nil]], :process 0, " +
+                    ":commitTimestamp 8, :realTimestamp 4}" +
+                    "{:type :invoke, :f :txn, :value [[:write :y 2]], :process 2," +
+                    ":commitTimestamp 5, :realTimestamp 2}" +
+                    "{:type :ok, :f :txn, :value [[:write :y 2]], :process 2," +
+                    ":commitTimestamp 5, :realTimestamp 20}" +
+                    "{:type :invoke, :f :txn, :value [[:write :x 1]], :process 1," +
+                    ":commitTimestamp 6, :realTimestamp 3}" +
+                    "{:type :ok, :f :txn, :value [[:write :x 1]], :process 1," +
+                    ":commitTimestamp 6, :realTimestamp 8}" +
+                    "{:type :ok, :f :txn, :value [[:scan :x :x [[:x 1]]]], :process 0," +
+                    ":commitTimestamp 8, :realTimestamp 10}" +
+                    "{:type :invoke, :f :txn, :value [[:scan :y :y nil]], :process 0," +
+                    ":commitTimestamp 1, :realTimestamp 11}" +
+                    "{:type :ok, :f :txn, :value [[:scan :y :y [[:y 0]]]], :process 0," +
+                    ":commitTimestamp 1, :realTimestamp 15}" +
+                    "]";
+    assertFalse(stringAsReadableHelper(input));
+  }
+
   @Test
   void testInvalidAbnormalReadHistoryMoreChanges() {
     String input =
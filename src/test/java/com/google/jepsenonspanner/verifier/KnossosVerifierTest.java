@@ -160,4 +160,18 @@ class KnossosVerifierTest {
     assertTrue(v.verify(test, "/usr/local/google/home/hanchiz/knossos/data/multi" +
             "-register/good/multi-register.edn"));
   }
+
+  @Test
+  void verifyCas() {
+    KnossosVerifier v = new KnossosVerifier();
+    String input = "[\n" +
+            "    {:type :invoke, :f :txn, :value [[:cas :x [0 1]]], :process 0}\n" +
+            "    {:type :invoke, :f :txn, :value [[:cas :x [0 2]]], :process 1}\n" +
+            "    {:type :ok, :f :txn, :value [[:cas :x [0 1]]], :process 0}\n" +
+            "    {:type :fail, :f :txn, :value [[:cas :x [0 2]]], :process 1}\n" +
+            "    {:type :invoke, :f :txn, :value [[:read :x nil]], :process 2}\n" +
+            "    {:type :ok, :f :txn, :value [[:read :x 1]], :process 2}\n" +
+            "]";
+    assertTrue(v.verifyByString(input, test));
+  }
 }
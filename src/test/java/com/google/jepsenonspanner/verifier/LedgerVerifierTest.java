@@ -0,0 +1,96 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.history;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.ok;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.record;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerVerifierTest {
+  private Map<String, Long> initialState;
+
+  @BeforeEach
+  void setUp() {
+    initialState = new HashMap<>();
+    initialState.put("0", 10L);
+    initialState.put("1", 10L);
+    initialState.put("2", 10L);
+  }
+
+  /**
+   * Returns a ledger read at timestamp 100 with the given final balances of accounts 0, 1 and 2.
+   */
+  private static String ledger(String entries, long... balances) {
+    return String.format("{:timestamp 100, :balances {\"0\" %d, \"1\" %d, \"2\" %d}, " +
+            ":entries [%s]}", balances[0], balances[1], balances[2], entries);
+  }
+
+  private boolean verify(String ledger, String... records) {
+    return new LedgerVerifier().verify(history(records),
+            new StringReader(ledger), initialState);
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(
+            ledger("[\"0\" 10 -5] [\"0\" 30 -4] [\"1\" 10 5] [\"1\" 30 1] [\"2\" 30 3]", 1,
+                    16, 13),
+            ok("transfer", "[\"0\" \"1\" 5]", 10),
+            ok("read", "[\"0\" 5] [\"1\" 15] [\"2\" 10]", 20),
+            ok("transfer", "[\"0\" \"1\" 1 \"2\" 3]", 30),
+            // A stale read sees the balances before the second transfer
+            ok("read", "[\"0\" 5] [\"1\" 15] [\"2\" 10]", 25),
+            ok("checksum", "[:sum 30] [:count 3] [\"2\" 13]", 40)));
+  }
+
+  @Test
+  void testReadMismatch() {
+    String ledger = ledger("[\"0\" 10 -5] [\"1\" 10 5]", 5, 15, 10);
+    // A read at the commit timestamp of a transfer observes it
+    assertFalse(verify(ledger, ok("transfer", "[\"0\" \"1\" 5]", 10),
+            ok("read", "[\"0\" 10] [\"1\" 10] [\"2\" 10]", 10)));
+    assertFalse(verify(ledger, ok("transfer", "[\"0\" \"1\" 5]", 10),
+            ok("checksum", "[:sum 31] [:count 3] [\"0\" 5]", 20)));
+    // Final balances must match the ledger too
+    assertFalse(verify(ledger("[\"0\" 10 -5] [\"1\" 10 5]", 5, 14, 10),
+            ok("transfer", "[\"0\" \"1\" 5]", 10)));
+  }
+
+  @Test
+  void testMissingLedgerRows() {
+    assertFalse(verify(ledger("[\"0\" 10 -5]", 5, 15, 10),
+            ok("transfer", "[\"0\" \"1\" 5]", 10)));
+    assertFalse(verify(ledger("[\"0\" 10 -5] [\"1\" 10 4]", 5, 14, 10),
+            ok("transfer", "[\"0\" \"1\" 5]", 10)));
+  }
+
+  @Test
+  void testUnexplainedLedgerRows() {
+    String ledger = ledger("[\"0\" 10 -5] [\"1\" 10 5]", 5, 15, 10);
+    // Only a transfer of unknown outcome may have left them
+    assertFalse(verify(ledger, record("fail", "transfer", "[\"0\" \"1\" 5]", 10)));
+    assertTrue(verify(ledger, record("info", "transfer", "[\"0\" \"1\" 5]", 10)));
+    assertFalse(verify(ledger("[\"0\" 10 -5] [\"1\" 10 4]", 5, 14, 10),
+            record("info", "transfer", "[\"0\" \"1\" 5]", 10)));
+  }
+
+  @Test
+  void testOverdraft() {
+    assertFalse(verify(ledger("[\"0\" 10 -11] [\"1\" 10 11]", -1, 21, 10),
+            ok("transfer", "[\"0\" \"1\" 11]", 10)));
+  }
+
+  @Test
+  void testUnsortedLedger() {
+    assertThrows(RuntimeException.class, () -> verify(
+            ledger("[\"1\" 10 5] [\"0\" 10 -5]", 5, 15, 10)));
+  }
+}
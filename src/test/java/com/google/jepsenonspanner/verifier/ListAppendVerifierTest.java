@@ -0,0 +1,152 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.jepsenonspanner.verifier.ListAppendVerifier.RW;
+import static com.google.jepsenonspanner.verifier.ListAppendVerifier.WR;
+import static com.google.jepsenonspanner.verifier.ListAppendVerifier.WW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListAppendVerifierTest {
+  /**
+   * Returns the invoke and ok records of a transaction by process 1.
+   */
+  private static String ok(String value) {
+    return record("invoke", value) + record("ok", value);
+  }
+
+  private static String record(String type, String value) {
+    return String.format("{:type :%s, :f :txn, :value %s, :process 1}", type, value);
+  }
+
+  private boolean verify(String... records) {
+    return new ListAppendVerifier().verify(new StringReader("[" + String.join("", records) +
+            "]"));
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(
+            ok("[[:append :x 1] [:append :y 10]]"),
+            ok("[[:r :x [1]] [:append :x 2] [:r :x [1 2]]]"),
+            ok("[[:r :x [1 2]] [:r :y [10]] [:r :z []]]"),
+            ok("[[:r :x [1]]]")));
+  }
+
+  @Test
+  void testInfoAppends() {
+    // An append of unknown outcome may be read, or never show up
+    assertTrue(verify(
+            record("info", "[[:append :x 1] [:r :y nil]]"),
+            record("info", "[[:append :x 2]]"),
+            ok("[[:r :x [1]]]")));
+  }
+
+  @Test
+  void testWriteSkew() {
+    // Each transaction reads the key the other appends to before its append
+    assertFalse(verify(
+            ok("[[:r :x []] [:append :y 1]]"),
+            ok("[[:r :y []] [:append :x 2]]"),
+            ok("[[:r :x [2]] [:r :y [1]]]")));
+  }
+
+  @Test
+  void testCircularInformationFlow() {
+    // Each transaction reads the append of the other
+    assertFalse(verify(
+            ok("[[:append :x 1] [:r :y [2]]]"),
+            ok("[[:append :y 2] [:r :x [1]]]")));
+  }
+
+  @Test
+  void testIncompatibleOrders() {
+    assertFalse(verify(
+            ok("[[:append :x 1]]"),
+            ok("[[:append :x 2]]"),
+            ok("[[:append :x 3]]"),
+            ok("[[:r :x [1 2]]]"),
+            ok("[[:r :x [1 3]]]")));
+  }
+
+  @Test
+  void testInvalidElements() {
+    // Read of an aborted append
+    assertFalse(verify(
+            record("fail", "[[:append :x 5]]"),
+            ok("[[:r :x [5]]]")));
+    // Element that was never appended, or appended to another key
+    assertFalse(verify(ok("[[:r :x [7]]]")));
+    assertFalse(verify(ok("[[:append :y 7]]"), ok("[[:r :x [7]]]")));
+    // The same element twice in one list
+    assertFalse(verify(ok("[[:append :x 1]]"), ok("[[:r :x [1 1]]]")));
+  }
+
+  @Test
+  void testOwnAppendsNotRead() {
+    assertFalse(verify(ok("[[:append :x 1] [:r :x []]]")));
+  }
+
+  @Test
+  void testDuplicateElements() {
+    assertThrows(RuntimeException.class, () -> verify(
+            ok("[[:append :x 1]]"),
+            ok("[[:append :y 1]]")));
+  }
+
+  @Test
+  void testAnomalies() {
+    assertEquals("G0", ListAppendVerifier.anomaly(Arrays.asList(
+            new int[]{0, 1, WW}, new int[]{1, 0, WW})));
+    assertEquals("G1c", ListAppendVerifier.anomaly(Arrays.asList(
+            new int[]{0, 1, WW}, new int[]{1, 0, WR})));
+    assertEquals("G-single", ListAppendVerifier.anomaly(Arrays.asList(
+            new int[]{0, 1, RW}, new int[]{1, 0, WR})));
+    assertEquals("G2", ListAppendVerifier.anomaly(Arrays.asList(
+            new int[]{0, 1, RW}, new int[]{1, 0, RW})));
+  }
+
+  @Test
+  void testShortestCycle() {
+    ListAppendVerifier.DependencyGraph graph = new ListAppendVerifier.DependencyGraph(5);
+    // A long cycle 0 -> 1 -> 2 -> 3 -> 0 with a shortcut 1 -> 0, and 4 outside of it
+    graph.addEdge(0, 1, WW);
+    graph.addEdge(1, 2, WW);
+    graph.addEdge(2, 3, WW);
+    graph.addEdge(3, 0, WW);
+    graph.addEdge(1, 0, RW);
+    graph.addEdge(3, 4, WR);
+    graph.addEdge(4, 4, WR);
+    List<List<int[]>> cycles = graph.findCycles();
+    assertEquals(1, cycles.size());
+    assertEquals(2, cycles.get(0).size());
+    assertEquals("G-single", ListAppendVerifier.anomaly(cycles.get(0)));
+  }
+
+  @Test
+  void testCyclesOfSeveralComponents() {
+    ListAppendVerifier.DependencyGraph graph = new ListAppendVerifier.DependencyGraph(7);
+    // Components {0, 1, 2} and {4, 5}, reached from each other only one way, and 3 and 6 alone
+    graph.addEdge(0, 1, WW);
+    graph.addEdge(1, 2, WW);
+    graph.addEdge(2, 0, WW);
+    graph.addEdge(2, 3, WR);
+    graph.addEdge(3, 4, WR);
+    graph.addEdge(4, 5, WR);
+    graph.addEdge(5, 4, WR);
+    graph.addEdge(5, 6, RW);
+    List<List<int[]>> cycles = graph.findCycles();
+    assertEquals(2, cycles.size());
+    assertEquals(3, cycles.get(0).size());
+    assertEquals("G0", ListAppendVerifier.anomaly(cycles.get(0)));
+    assertEquals(2, cycles.get(1).size());
+    assertEquals("G1c", ListAppendVerifier.anomaly(cycles.get(1)));
+  }
+}
@@ -0,0 +1,85 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.history;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.ok;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionVerifierTest {
+  private static String write(int process, int seq, String key, long valueRead, long timestamp) {
+    return ok("write", process, String.format("[:seq %d] [:read :%s %d] [:write :%s]", seq, key,
+            valueRead, key), timestamp);
+  }
+
+  private static String read(int process, int seq, String key, long value, long timestamp) {
+    return ok("read", process, String.format("[:seq %d] [:read :%s %d]", seq, key, value),
+            timestamp);
+  }
+
+  private static String staleRead(int process, int seq, String key, long value, long timestamp) {
+    return ok("stale-read", process, String.format("[:seq %d] [:read :%s %d]", seq, key, value),
+            timestamp);
+  }
+
+  private boolean verify(String... records) {
+    return new SessionVerifier().verify(history(records));
+  }
+
+  @Test
+  void testValidHistory() {
+    // Records are in commit order, where a stale read comes before the writes it missed
+    assertTrue(verify(
+            staleRead(2, 2, "x", 0, 6),
+            write(1, 0, "x", 0, 1),
+            read(2, 0, "x", 1, 2),
+            write(2, 1, "x", 1, 3),
+            read(1, 1, "x", 2, 4),
+            write(1, 2, "y", 0, 5),
+            read(2, 3, "x", 2, 7)));
+  }
+
+  @Test
+  void testReadYourWrites() {
+    assertFalse(verify(write(1, 0, "x", 0, 1), read(1, 1, "x", 0, 2)));
+    // Another process need not see the write yet
+    assertTrue(verify(write(1, 0, "x", 0, 1), read(2, 0, "x", 0, 2)));
+  }
+
+  @Test
+  void testMonotonicReads() {
+    // The read of 1 comes first in commit order, although it was done later
+    assertFalse(verify(read(1, 1, "x", 0, 3), write(2, 0, "x", 0, 1), read(1, 0, "x", 1, 2)));
+    assertTrue(verify(read(1, 0, "x", 0, 1), write(2, 0, "x", 0, 2), read(1, 1, "x", 1, 3)));
+  }
+
+  @Test
+  void testMonotonicWrites() {
+    // Having seen the write of 1 to y, process 2 must see its earlier write to x
+    assertFalse(verify(write(1, 0, "x", 0, 1), write(1, 1, "y", 0, 2), read(2, 0, "y", 1, 3),
+            read(2, 1, "x", 0, 4)));
+    assertTrue(verify(write(1, 0, "x", 0, 1), write(1, 1, "y", 0, 2), read(2, 0, "y", 1, 3),
+            read(2, 1, "x", 1, 4)));
+    // Without seeing the write to y, process 2 need not see the write to x yet
+    assertTrue(verify(write(1, 0, "x", 0, 1), write(1, 1, "y", 0, 2), read(2, 0, "y", 0, 3),
+            read(2, 1, "x", 0, 4)));
+  }
+
+  @Test
+  void testLaggingStaleRead() {
+    // Bounded stale reads may fall behind, but still raise what later strong reads must see
+    assertTrue(verify(write(1, 0, "x", 0, 1), staleRead(1, 1, "x", 0, 2)));
+    assertFalse(verify(write(2, 0, "x", 0, 1), staleRead(1, 0, "x", 1, 2),
+            read(1, 1, "x", 0, 3)));
+  }
+
+  @Test
+  void testSequenceNumberOutOfOrder() {
+    assertThrows(RuntimeException.class, () -> verify(read(1, 0, "x", 0, 1),
+            read(1, 0, "x", 0, 2)));
+    assertThrows(RuntimeException.class, () -> verify(read(1, 1, "x", 0, 1),
+            read(1, 0, "x", 0, 2)));
+  }
+}
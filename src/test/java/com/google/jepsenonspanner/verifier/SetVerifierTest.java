@@ -0,0 +1,61 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.history;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.ok;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.record;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetVerifierTest {
+  private boolean verify(String... records) {
+    return new SetVerifier().verify(history(records));
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(
+            ok("[:add 1]", 10),
+            ok("[:add 2]", 20),
+            ok("[:read 0 5 [1]]", 15),
+            ok("[:read 2 3 [2]]", 25),
+            ok("[:read 0 9223372036854775807 [1 2]]", 30)));
+  }
+
+  @Test
+  void testStaleRead() {
+    // A read at an earlier timestamp must not see a later add, whenever it was issued
+    assertTrue(verify(ok("[:add 1]", 10), ok("[:read 0 5 []]", 5)));
+    assertFalse(verify(ok("[:add 1]", 10), ok("[:read 0 5 [1]]", 5)));
+  }
+
+  @Test
+  void testLostAdd() {
+    assertFalse(verify(ok("[:add 1]", 10), ok("[:read 0 5 []]", 15)));
+    assertFalse(verify(ok("[:add 1]", 10), ok("[:add 7]", 12),
+            ok("[:read 0 9223372036854775807 [1]]", 15)));
+  }
+
+  @Test
+  void testUnacknowledgedElements() {
+    // Never added, added by a failed add, or out of the range read
+    assertFalse(verify(ok("[:read 0 5 [3]]", 15)));
+    assertFalse(verify(record("fail", "[:add 3]", 10), ok("[:read 0 5 [3]]", 15)));
+    assertFalse(verify(ok("[:add 7]", 10), ok("[:read 0 5 [7]]", 15)));
+  }
+
+  @Test
+  void testInfoAdd() {
+    // An add of unknown outcome may or may not be read
+    String infoAdd = record("info", "[:add 3]", 10);
+    assertTrue(verify(infoAdd, ok("[:read 0 5 [3]]", 15)));
+    assertTrue(verify(infoAdd, ok("[:read 0 5 []]", 15)));
+  }
+
+  @Test
+  void testDuplicateElements() {
+    assertThrows(RuntimeException.class, () -> verify(ok("[:add 1]", 10), ok("[:add 1]", 20)));
+  }
+}
@@ -0,0 +1,48 @@
+package com.google.jepsenonspanner.verifier;
+
+import java.io.StringReader;
+
+/**
+ * Builds histories with timestamps, in the format of history-real-time.edn, for the tests of the
+ * verifiers that replay operations in commit order. Records belong to process 1 unless another
+ * process is given, and have the same commit and real timestamp.
+ */
+final class TimestampedHistory {
+  private TimestampedHistory() {}
+
+  /**
+   * Returns the invoke and ok records of an operation, with its commit or read timestamp.
+   */
+  static String ok(String value, long timestamp) {
+    return ok("txn", value, timestamp);
+  }
+
+  static String ok(String load, String value, long timestamp) {
+    return ok(load, /*process=*/1, value, timestamp);
+  }
+
+  static String ok(String load, int process, String value, long timestamp) {
+    return record("invoke", load, process, value, timestamp) +
+            record("ok", load, process, value, timestamp);
+  }
+
+  static String record(String type, String value, long timestamp) {
+    return record(type, "txn", value, timestamp);
+  }
+
+  static String record(String type, String load, String value, long timestamp) {
+    return record(type, load, /*process=*/1, value, timestamp);
+  }
+
+  static String record(String type, String load, int process, String value, long timestamp) {
+    return String.format("{:type :%s, :f :%s, :value [%s], :process %d, :commitTimestamp %d, " +
+            ":realTimestamp %d}", type, load, value, process, timestamp, timestamp);
+  }
+
+  /**
+   * Returns the history file made of the given records, in order.
+   */
+  static Readable history(String... records) {
+    return new StringReader("[" + String.join("", records) + "]");
+  }
+}
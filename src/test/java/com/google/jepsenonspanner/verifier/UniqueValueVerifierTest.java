@@ -0,0 +1,92 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UniqueValueVerifierTest {
+  private static Map<String, Long> initialState = Map.of("x", 0L, "y", 0L);
+
+  // [:write :x 1] from 1 to 12, committed at 10
+  private static final String WRITE_X =
+          "{:type :invoke, :f :txn, :value [[:write :x 1]], :process 0, :commitTimestamp 10, " +
+                  ":realTimestamp 1}" +
+          "{:type :ok, :f :txn, :value [[:write :x 1]], :process 0, :commitTimestamp 10, " +
+                  ":realTimestamp 12}";
+
+  /**
+   * Returns the invoke and ok records of an operation by process 1.
+   */
+  private static String op(String value, long commit, long start, long end) {
+    return String.format("{:type :invoke, :f :txn, :value %s, :process 1, :commitTimestamp %d, " +
+            ":realTimestamp %d}{:type :ok, :f :txn, :value %s, :process 1, :commitTimestamp %d, " +
+            ":realTimestamp %d}", value, commit, start, value, commit, end);
+  }
+
+  private boolean verify(String... records) {
+    return new UniqueValueVerifier().verify(new StringReader("[" + String.join("", records) +
+            "]"), initialState);
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(WRITE_X,
+            op("[[:read :x 1]]", 15, 13, 16),
+            op("[[:cas :x [1 2]]]", 20, 17, 21),
+            op("[[:read :x 2] [:write :y 3]]", 25, 22, 26),
+            op("[[:scan :x :y [[:x 2] [:y 3]]]]", 30, 27, 31)));
+  }
+
+  @Test
+  void testConcurrentReadOfInitialValue() {
+    // The read overlaps the write and reads before its commit timestamp
+    assertTrue(verify(WRITE_X, op("[[:read :x 0]]", 5, 2, 8)));
+  }
+
+  @Test
+  void testStaleRead() {
+    assertFalse(verify(WRITE_X, op("[[:read :x 0]]", 15, 13, 16)));
+  }
+
+  @Test
+  void testRealTimeViolation() {
+    // The read timestamp is before the write, but the read started after the write finished
+    assertFalse(verify(WRITE_X, op("[[:read :x 0]]", 5, 13, 16)));
+  }
+
+  @Test
+  void testReadOfUnwrittenValues() {
+    assertFalse(verify(WRITE_X, op("[[:read :x 7]]", 15, 13, 16)));
+    assertFalse(verify(WRITE_X,
+            "{:type :fail, :f :txn, :value [[:write :x 9]], :process 2, :commitTimestamp 11, " +
+                    ":realTimestamp 11}",
+            op("[[:read :x 9]]", 15, 13, 16)));
+  }
+
+  @Test
+  void testCompareAndSetOfStaleValue() {
+    assertFalse(verify(WRITE_X, op("[[:cas :x [0 2]]]", 20, 17, 21)));
+  }
+
+  @Test
+  void testInfoWrite() {
+    String infoWrite = "{:type :info, :f :txn, :value [[:write :x 5]], :process 2, " +
+            ":commitTimestamp 14, :realTimestamp 14}";
+    // The write of unknown outcome took effect after the known one
+    assertTrue(verify(WRITE_X, infoWrite, op("[[:read :x 5]]", 40, 38, 41)));
+    // Once it was read, reading the value it overwrote is stale
+    assertFalse(verify(WRITE_X, infoWrite, op("[[:read :x 5]]", 40, 38, 41),
+            op("[[:read :x 1]]", 50, 48, 51)));
+  }
+
+  @Test
+  void testDuplicateValues() {
+    assertThrows(RuntimeException.class, () -> verify(WRITE_X,
+            op("[[:write :x 1]]", 20, 17, 21)));
+  }
+}
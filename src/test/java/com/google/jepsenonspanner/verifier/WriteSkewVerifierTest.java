@@ -0,0 +1,86 @@
+package com.google.jepsenonspanner.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.history;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.ok;
+import static com.google.jepsenonspanner.verifier.TimestampedHistory.record;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteSkewVerifierTest {
+  private boolean verify(String... records) {
+    Map<String, Long> initialState = new HashMap<>();
+    initialState.put("x", 5L);
+    initialState.put("y", 5L);
+    return new WriteSkewVerifier().verify(history(records), initialState);
+  }
+
+  @Test
+  void testValidHistory() {
+    assertTrue(verify(
+            ok("[:read :x 5] [:read :y 5] [:withdraw :x 8]", 10),
+            ok("[:read :x -3] [:read :y 5]", 15),
+            ok("[:read :y 5] [:deposit :y 2]", 20),
+            ok("[:read :y 7] [:read :x -3] [:withdraw :y 4]", 30),
+            ok("[:read :x -3] [:read :y 3]", 40)));
+  }
+
+  @Test
+  void testWriteSkew() {
+    // Both withdrawals read the same snapshot, so each alone keeps the invariant
+    assertFalse(verify(
+            ok("[:read :x 5] [:read :y 5] [:withdraw :x 8]", 10),
+            ok("[:read :y 5] [:read :x 5] [:withdraw :y 8]", 20)));
+  }
+
+  @Test
+  void testInvariantBroken() {
+    assertFalse(verify(ok("[:read :x 5] [:read :y 5] [:withdraw :x 11]", 10)));
+    assertFalse(verify(ok("[:read :x 5] [:read :y -6]", 10)));
+  }
+
+  @Test
+  void testInfoWrite() {
+    // A withdrawal of unknown outcome may or may not have taken effect
+    String infoWithdraw = record("info", "[:read :x nil] [:read :y nil] [:withdraw :x 3]", 10);
+    assertTrue(verify(infoWithdraw, ok("[:read :x 2] [:read :y 5]", 20)));
+    assertTrue(verify(infoWithdraw, ok("[:read :x 5] [:read :y 5]", 20)));
+    assertFalse(verify(infoWithdraw, ok("[:read :x 5] [:read :y 4]", 20)));
+  }
+
+  @Test
+  void testInfoWriteOnlyAfterInvoke() {
+    // A withdrawal of unknown outcome cannot have taken effect before it was invoked
+    String withdraw = "[:read :x nil] [:read :y nil] [:withdraw :x 3]";
+    String invoke = record("invoke", withdraw, 15);
+    String info = record("info", withdraw, 25);
+    assertFalse(verify(ok("[:read :x 2] [:read :y 5]", 12), invoke, info));
+    assertTrue(verify(invoke, info, ok("[:read :x 2] [:read :y 5]", 30)));
+  }
+
+  @Test
+  void testInfoWriteReanchored() {
+    // The first read after the info record tells if the withdrawal took effect, and the reads
+    // after it are checked against that
+    String withdraw = "[:read :x nil] [:read :y nil] [:withdraw :x 3]";
+    String invoke = record("invoke", "txn", /*process=*/2, withdraw, 15);
+    String info = record("info", "txn", /*process=*/2, withdraw, 25);
+    assertTrue(verify(invoke, ok("[:read :x 5] [:read :y 5]", 20), info,
+            ok("[:read :x 2] [:read :y 5]", 30), ok("[:read :x 2] [:read :y 5]", 40)));
+    assertFalse(verify(invoke, info, ok("[:read :x 2] [:read :y 5]", 30),
+            ok("[:read :x 5] [:read :y 5]", 40)));
+    assertFalse(verify(invoke, info, ok("[:read :x 5] [:read :y 5]", 30),
+            ok("[:read :x 2] [:read :y 5]", 40)));
+  }
+
+  @Test
+  void testOutOfOrder() {
+    assertThrows(RuntimeException.class, () -> verify(ok("[:read :x 5] [:read :y 5]", 20),
+            ok("[:read :x 5] [:read :y 5]", 10)));
+  }
+}
@@ -7,8 +7,14 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -245,6 +251,133 @@ class LinearVerifierTest {
                     "]"), initialState));
   }
 
+  @Test
+  void testValidCas() {
+    assertTrue(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [0 1]]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "{:type :invoke, :f :txn, :value [[:read :x nil]], :process 2}" +
+                    "{:type :ok, :f :txn, :value [[:read :x 1]], :process 2}" +
+                    "{:type :ok, :f :txn, :value [[:cas :x [0 1]]], :process 0}" +
+                    "{:type :fail, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [1 3]]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:cas :x [1 3]]], :process 1}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testValidScan() {
+    assertTrue(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:write :x 1]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:scan :x :y nil]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:scan :x :y [[:x 1] [:y 0]]]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:write :x 1]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:scan :x :y nil] [:write :y 2]], " +
+                    ":process 1}" +
+                    "{:type :ok, :f :txn, :value [[:scan :x :y [[:x 1] [:y 0]]] [:write :y 2]], " +
+                    ":process 1}" +
+                    "{:type :invoke, :f :txn, :value [[:scan :y :y nil]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:scan :y :y [[:y 2]]]], :process 0}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testInvalidScan() {
+    assertFalse(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:write :x 1]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:write :x 1]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:scan :x :y nil]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:scan :x :y [[:x 0] [:y 0]]]], :process 1}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testPhantomScan() {
+    // y exists, but the scan did not return it
+    assertFalse(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:scan :x :y nil]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:scan :x :y [[:x 0]]]], :process 0}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testInvalidCas() {
+    // The second CAS cannot succeed, since x no longer holds 0
+    assertFalse(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [0 1]]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:cas :x [0 1]]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testInvalidFailedCas() {
+    // The read observes the write of a CAS that failed
+    assertFalse(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "{:type :invoke, :f :txn, :value [[:read :x nil]], :process 2}" +
+                    "{:type :ok, :f :txn, :value [[:read :x 2]], :process 2}" +
+                    "{:type :fail, :f :txn, :value [[:cas :x [0 2]]], :process 1}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testKeysOutsideInitialState() {
+    // w does not exist until it is written, and v never exists
+    assertTrue(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:scan :v :w nil]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:scan :v :w []]], :process 0}" +
+                    "{:type :invoke, :f :txn, :value [[:write :w 1]], :process 1}" +
+                    "{:type :ok, :f :txn, :value [[:write :w 1]], :process 1}" +
+                    "{:type :invoke, :f :txn, :value [[:read :w nil]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:read :w 1]], :process 0}" +
+                    "]"), initialState));
+    assertFalse(verifier.verify(new StringReader(
+            "[" +
+                    "{:type :invoke, :f :txn, :value [[:read :v nil]], :process 0}" +
+                    "{:type :ok, :f :txn, :value [[:read :v 0]], :process 0}" +
+                    "]"), initialState));
+  }
+
+  @Test
+  void testConcurrentSearches() throws Exception {
+    // One verifier checks valid and invalid histories at the same time, on its own pool
+    ForkJoinPool pool = new ForkJoinPool(4);
+    LinearVerifier parallelVerifier = new LinearVerifier(pool);
+    String valid = "[" +
+            "{:type :invoke, :f :txn, :value [[:read :x nil] [:write :y 2]], :process 0}" +
+            "{:type :invoke, :f :txn, :value [[:write :x 3] [:read :y nil]], :process 1}" +
+            "{:type :invoke, :f :txn, :value [[:cas :z [0 1]]], :process 2}" +
+            "{:type :ok, :f :txn, :value [[:read :x 3] [:write :y 2]], :process 0}" +
+            "{:type :ok, :f :txn, :value [[:write :x 3] [:read :y 2]], :process 1}" +
+            "{:type :ok, :f :txn, :value [[:cas :z [0 1]]], :process 2}" +
+            "]";
+    String invalid = valid.replace("[:cas :z [0 1]]", "[:cas :z [5 1]]");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        String history = i % 2 == 0 ? valid : invalid;
+        results.add(executor.submit(() -> parallelVerifier.verify(new StringReader(history),
+                initialState)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(i % 2 == 0, results.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+      pool.shutdown();
+    }
+  }
+
   @Test
   void testSimpleGenerated() {
     HashMap<String, Long> initKVs = new HashMap<>();